@@ -0,0 +1,49 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 本地音频文件访问配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "audio-serving")
+@Data
+public class AudioServingConfig {
+    
+    /**
+     * 音频文件目录,通过 /audio/** 访问
+     */
+    private String dir = "audio_output";
+    
+    /**
+     * 浏览器缓存时间(秒),过期后以 ETag 重新验证
+     */
+    private long cacheMaxAgeSeconds = 3600;
+    
+    /**
+     * ETag 缓存条目数,ETag 为文件内容的 SHA-256,按 (路径, 大小, 修改时间) 缓存
+     */
+    private int etagCacheSize = 4096;
+    
+    /**
+     * 是否启用内存映射热点集合(容器不支持 sendfile 时生效)
+     */
+    private boolean hotSetEnabled = false;
+    
+    /**
+     * 热点集合映射的总字节数上限
+     */
+    private long hotSetMaxBytes = 256L * 1024 * 1024;
+    
+    /**
+     * 可进入热点集合的单文件大小上限
+     */
+    private long hotSetMaxFileBytes = 64L * 1024 * 1024;
+    
+    /**
+     * 文件被访问多少次后映射进热点集合
+     */
+    private int hotSetAdmitHits = 3;
+}
@@ -0,0 +1,34 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 批量执行配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "batch-execution")
+@Data
+public class BatchExecutionConfig {
+    
+    /**
+     * 默认并行度(同时执行的输入条数)
+     */
+    private int defaultParallelism = 8;
+    
+    /**
+     * 请求可指定的最大并行度
+     */
+    private int maxParallelism = 64;
+    
+    /**
+     * 执行记录每批写入条数
+     */
+    private int recordBatchSize = 50;
+    
+    /**
+     * 单次批量执行的最大输入条数
+     */
+    private int maxItems = 10000;
+}
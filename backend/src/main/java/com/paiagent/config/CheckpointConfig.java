@@ -0,0 +1,24 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 执行检查点配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "checkpoint")
+@Data
+public class CheckpointConfig {
+    
+    /**
+     * 是否在节点完成后保存检查点(关闭后失败的执行无法恢复)
+     */
+    private boolean enabled = true;
+    
+    /**
+     * 执行成功后是否删除该运行的检查点
+     */
+    private boolean clearOnSuccess = true;
+}
@@ -0,0 +1,70 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 凭证池配置
+ * 节点通过 pool 引用命名凭证池,请求在池内多个 API Key / 镜像端点之间分摊
+ */
+@Configuration
+@ConfigurationProperties(prefix = "credential-pool")
+@Data
+public class CredentialPoolConfig {
+    
+    /**
+     * 连续失败该次数后暂时剔除成员
+     */
+    private int ejectAfterFailures = 3;
+    
+    /**
+     * 成员剔除时长(秒)
+     */
+    private long ejectSeconds = 30;
+    
+    /**
+     * 命名凭证池
+     */
+    private Map<String, Pool> pools = new HashMap<>();
+    
+    @Data
+    public static class Pool {
+        
+        /**
+         * 路由策略: least-outstanding(在途请求最少) 或 latency-weighted(延迟 × 在途请求数最小)
+         */
+        private String strategy = "least-outstanding";
+        
+        private List<Member> members = new ArrayList<>();
+    }
+    
+    @Data
+    public static class Member {
+        
+        /**
+         * 成员名称,用于监控指标,为空时使用序号
+         */
+        private String name;
+        
+        /**
+         * API端点URL,为空时使用节点配置
+         */
+        private String apiUrl;
+        
+        /**
+         * API密钥
+         */
+        private String apiKey;
+        
+        /**
+         * 模型名称,为空时使用节点配置
+         */
+        private String model;
+    }
+}
@@ -0,0 +1,24 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * DAG 引擎配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "dag-engine")
+@Data
+public class DagEngineConfig {
+    
+    /**
+     * 是否启用并行分支调度(关闭时按拓扑顺序串行执行)
+     */
+    private boolean parallel = true;
+    
+    /**
+     * 单次执行内同时运行的最大节点数
+     */
+    private int maxConcurrency = 4;
+}
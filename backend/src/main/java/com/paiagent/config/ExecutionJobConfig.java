@@ -0,0 +1,39 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 异步执行任务队列配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "execution-job")
+@Data
+public class ExecutionJobConfig {
+    
+    /**
+     * 工作线程数(同时执行的异步任务数)
+     */
+    private int workers = 16;
+    
+    /**
+     * 等待队列容量,队列满时拒绝提交
+     */
+    private int queueCapacity = 200;
+    
+    /**
+     * 任务结束后在内存中保留状态和事件的时间(分钟),运行中的任务不过期,过期后查询回落到执行记录
+     */
+    private long retentionMinutes = 30;
+    
+    /**
+     * 每个任务缓存的事件数上限,供 SSE 晚到订阅者回放
+     */
+    private int maxBufferedEvents = 1000;
+    
+    /**
+     * 长轮询的最大等待时间(毫秒)
+     */
+    private long maxPollTimeoutMs = 60000;
+}
@@ -0,0 +1,59 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 执行记录异步写入配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "execution-record-persist")
+@Data
+public class ExecutionRecordPersistConfig {
+    
+    /**
+     * 是否异步批量写入,关闭时在执行线程上同步插入
+     */
+    private boolean enabled = true;
+    
+    /**
+     * 内存队列容量,队列满时直接写入本地溢出文件
+     */
+    private int queueCapacity = 10000;
+    
+    /**
+     * 每批写入条数
+     */
+    private int batchSize = 100;
+    
+    /**
+     * 批次最长等待时间(毫秒),未攒满也会写入
+     */
+    private long flushIntervalMs = 200;
+    
+    /**
+     * 本地溢出文件目录,数据库不可用时记录先落盘,恢复后回放
+     */
+    private String spillDir = "execution_spill";
+    
+    /**
+     * 溢出文件回放间隔(毫秒)
+     */
+    private long replayIntervalMs = 10000;
+    
+    /**
+     * 溢出文件因数据错误(而非数据库不可用)回放失败的次数上限,超过后移入 dead-letter 子目录,不再阻塞其他文件
+     */
+    private int maxReplayAttempts = 5;
+    
+    /**
+     * 每次从数据库预分配的执行记录 ID 数量
+     */
+    private int idSegmentSize = 1000;
+    
+    /**
+     * 节点输入/输出超过该字节数时压缩存储
+     */
+    private int payloadCompressThreshold = 1024;
+}
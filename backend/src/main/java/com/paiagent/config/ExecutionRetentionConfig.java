@@ -0,0 +1,44 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 执行记录保留配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "execution-retention")
+@Data
+public class ExecutionRetentionConfig {
+    
+    /**
+     * 是否启用分区维护和过期清理,execution_record 未分区时任务自动跳过
+     */
+    private boolean enabled = true;
+    
+    /**
+     * 执行记录保留天数,整个分区都早于该期限时汇总后删除
+     */
+    private int retentionDays = 180;
+    
+    /**
+     * 提前创建的月分区数
+     */
+    private int premakeMonths = 3;
+    
+    /**
+     * 任务执行间隔(毫秒)
+     */
+    private long intervalMs = 3600000;
+    
+    /**
+     * 启动后首次执行的延迟(毫秒)
+     */
+    private long initialDelayMs = 60000;
+    
+    /**
+     * 清理节点结果时每批处理的执行记录数
+     */
+    private int cleanupBatchSize = 1000;
+}
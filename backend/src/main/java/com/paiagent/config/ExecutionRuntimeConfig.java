@@ -0,0 +1,19 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 工作流执行运行时配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "execution-runtime")
+@Data
+public class ExecutionRuntimeConfig {
+    
+    /**
+     * 同时运行的工作流上限,超出的执行在虚拟线程上排队等待
+     */
+    private int maxInFlight = 256;
+}
@@ -0,0 +1,44 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * LLM 响应缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "llm-cache")
+@Data
+public class LLMCacheConfig {
+    
+    /**
+     * 内存层最大条目数
+     */
+    private long maximumSize = 2000;
+    
+    /**
+     * 内存层过期时间(分钟)
+     */
+    private long expireAfterWriteMinutes = 60;
+    
+    /**
+     * 是否启用磁盘层
+     */
+    private boolean diskEnabled = true;
+    
+    /**
+     * 磁盘层目录
+     */
+    private String diskDir = "llm_cache";
+    
+    /**
+     * 磁盘层过期时间(小时)
+     */
+    private long diskTtlHours = 24 * 7;
+    
+    /**
+     * 流式节点命中缓存时,回放的每个片段字符数
+     */
+    private int replayChunkSize = 32;
+}
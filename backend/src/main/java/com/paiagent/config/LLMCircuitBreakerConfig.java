@@ -0,0 +1,49 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * LLM 端点熔断配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "llm-circuit-breaker")
+@Data
+public class LLMCircuitBreakerConfig {
+    
+    /**
+     * 是否启用熔断
+     */
+    private boolean enabled = true;
+    
+    /**
+     * 失败率统计窗口(最近 N 次调用)
+     */
+    private int windowSize = 20;
+    
+    /**
+     * 窗口内调用数达到该值后才按失败率判断
+     */
+    private int minimumCalls = 10;
+    
+    /**
+     * 失败率阈值(百分比),达到后熔断
+     */
+    private double failureRateThreshold = 50;
+    
+    /**
+     * 连续失败次数阈值,达到后立即熔断
+     */
+    private int consecutiveFailures = 5;
+    
+    /**
+     * 熔断持续时间(秒),之后进入半开状态放行探测请求
+     */
+    private long openDurationSeconds = 30;
+    
+    /**
+     * 半开状态放行的探测请求数,全部成功后恢复
+     */
+    private int halfOpenProbes = 3;
+}
@@ -0,0 +1,39 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * LLM 客户端连接配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "llm-client")
+@Data
+public class LLMClientConfig {
+    
+    /**
+     * 建立连接超时(秒)
+     */
+    private int connectTimeoutSeconds = 10;
+    
+    /**
+     * 非流式调用读取超时(秒)
+     */
+    private int readTimeoutSeconds = 300;
+    
+    /**
+     * 客户端空闲多久后从注册表移除(分钟)
+     */
+    private long idleMinutes = 30;
+    
+    /**
+     * 注册表最多缓存的客户端数
+     */
+    private long maximumClients = 500;
+    
+    /**
+     * 加载工作流时是否预先建立到 LLM 端点的连接
+     */
+    private boolean prewarm = false;
+}
@@ -0,0 +1,54 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * LLM 对冲请求配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "llm-hedge")
+@Data
+public class LLMHedgeConfig {
+    
+    /**
+     * 默认对冲触发百分位: 超过主端点近期延迟的该百分位仍未返回(或未收到首个 token)时发起对冲
+     */
+    private double percentile = 95;
+    
+    /**
+     * 每个端点保留的延迟样本数
+     */
+    private int windowSize = 200;
+    
+    /**
+     * 样本不足时不按百分位计算,使用固定的初始对冲延迟
+     */
+    private int minSamples = 20;
+    
+    /**
+     * 样本不足时的对冲延迟(毫秒)
+     */
+    private long initialDelayMs = 5000;
+    
+    /**
+     * 对冲延迟下限(毫秒)
+     */
+    private long minDelayMs = 500;
+    
+    /**
+     * 对冲延迟上限(毫秒)
+     */
+    private long maxDelayMs = 20000;
+    
+    /**
+     * 对冲率上限: 统计窗口内对冲请求数不超过总请求数的该比例
+     */
+    private double maxHedgeRate = 0.1;
+    
+    /**
+     * 对冲率统计窗口(秒)
+     */
+    private long rateWindowSeconds = 60;
+}
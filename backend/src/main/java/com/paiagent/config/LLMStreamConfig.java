@@ -0,0 +1,24 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * LLM 流式输出分帧配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "llm-stream")
+@Data
+public class LLMStreamConfig {
+    
+    /**
+     * 帧刷新间隔(毫秒): 缓冲中的增量最多等待这么久就发送
+     */
+    private long flushIntervalMs = 30;
+    
+    /**
+     * 单帧最大字节数(UTF-8),缓冲达到后立即发送
+     */
+    private int maxFrameBytes = 1024;
+}
@@ -0,0 +1,34 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * MinIO 上传配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "minio-upload")
+@Data
+public class MinioUploadConfig {
+    
+    /**
+     * 分片大小(字节),S3 要求除最后一片外不小于 5MB
+     */
+    private long partSize = 16L * 1024 * 1024;
+    
+    /**
+     * 超过该大小的本地文件按分片并行上传后在服务端合并
+     */
+    private long multipartThreshold = 64L * 1024 * 1024;
+    
+    /**
+     * 单个对象并行上传的分片数
+     */
+    private int partParallelism = 4;
+    
+    /**
+     * 从 URL 转存时的连接与读取超时(毫秒)
+     */
+    private int urlTimeoutMs = 30000;
+}
@@ -0,0 +1,24 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 执行计划缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "plan-cache")
+@Data
+public class PlanCacheConfig {
+    
+    /**
+     * 最多缓存的执行计划数量
+     */
+    private long maximumSize = 1000;
+    
+    /**
+     * 执行计划在最后一次访问后的过期时间(分钟)
+     */
+    private long expireAfterAccessMinutes = 60;
+}
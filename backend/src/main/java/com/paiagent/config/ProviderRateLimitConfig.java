@@ -0,0 +1,67 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 提供方限流配置
+ * 按 (提供方, API 密钥) 共享请求数/分钟与 token 数/分钟预算
+ */
+@Configuration
+@ConfigurationProperties(prefix = "provider-rate-limit")
+@Data
+public class ProviderRateLimitConfig {
+    
+    /**
+     * 是否启用限流
+     */
+    private boolean enabled = true;
+    
+    /**
+     * 未单独配置的提供方默认每分钟请求数,0 表示不限制
+     */
+    private int defaultRequestsPerMinute = 60;
+    
+    /**
+     * 未单独配置的提供方默认每分钟 token 数,0 表示不限制
+     */
+    private long defaultTokensPerMinute = 100000;
+    
+    /**
+     * 排队等待预算的最长时间(毫秒),超过后请求失败
+     */
+    private long maxWaitMs = 30000;
+    
+    /**
+     * 估算 token 数时每个 token 对应的字符数
+     */
+    private double charsPerToken = 2.0;
+    
+    /**
+     * 调用前预估的输出 token 数,调用完成后按实际用量校正
+     */
+    private long estimatedOutputTokens = 256;
+    
+    /**
+     * 按提供方(节点类型,TTS 为 dashscope-tts)覆盖默认预算
+     */
+    private Map<String, Limit> providers = new HashMap<>();
+    
+    @Data
+    public static class Limit {
+        
+        /**
+         * 每分钟请求数,0 表示不限制
+         */
+        private int requestsPerMinute;
+        
+        /**
+         * 每分钟 token 数(TTS 按字符数计),0 表示不限制
+         */
+        private long tokensPerMinute;
+    }
+}
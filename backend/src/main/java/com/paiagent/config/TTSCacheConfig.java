@@ -0,0 +1,39 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * TTS 片段音频缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "tts-cache")
+@Data
+public class TTSCacheConfig {
+    
+    /**
+     * 是否启用缓存(节点配置 cache: false 可单独关闭)
+     */
+    private boolean enabled = true;
+    
+    /**
+     * 本地磁盘层目录
+     */
+    private String diskDir = "tts_cache";
+    
+    /**
+     * 本地磁盘层容量上限(字节),超出后按最近最少使用淘汰
+     */
+    private long diskMaxBytes = 2L * 1024 * 1024 * 1024;
+    
+    /**
+     * 是否启用 MinIO 共享层(多实例共享缓存)
+     */
+    private boolean minioEnabled = true;
+    
+    /**
+     * MinIO 共享层对象前缀
+     */
+    private String minioPrefix = "tts-cache/";
+}
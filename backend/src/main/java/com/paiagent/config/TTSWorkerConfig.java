@@ -0,0 +1,39 @@
+package com.paiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * TTS 片段合成配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "tts-worker")
+@Data
+public class TTSWorkerConfig {
+    
+    /**
+     * 全局同时合成的片段数上限(所有 TTS 节点共享)
+     */
+    private int globalParallelism = 16;
+    
+    /**
+     * 单个 TTS 节点同时合成的片段数上限,节点配置 parallelism 可覆盖
+     */
+    private int nodeParallelism = 4;
+    
+    /**
+     * 单个片段最多尝试次数(含首次)
+     */
+    private int maxAttempts = 3;
+    
+    /**
+     * 首次重试等待时间(毫秒),之后按指数增长
+     */
+    private long initialBackoffMs = 500;
+    
+    /**
+     * 重试等待时间上限(毫秒)
+     */
+    private long maxBackoffMs = 5000;
+}
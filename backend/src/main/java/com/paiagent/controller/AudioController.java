@@ -0,0 +1,244 @@
+package com.paiagent.controller;
+
+import com.paiagent.config.AudioServingConfig;
+import com.paiagent.service.AudioFileService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 本地音频文件访问
+ * 
+ * 支持 Range(206/416)、If-None-Match/If-Range 与基于内容哈希的强 ETag。
+ * 发送时优先使用容器的 sendfile(Tomcat NIO 连接器,内核直接从页缓存发送),
+ * 否则依次使用热点集合的内存映射或 FileChannel.transferTo,文件内容不经过 Java 堆
+ */
+@Slf4j
+@Tag(name = "音频文件接口")
+@RestController
+public class AudioController {
+    
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    
+    @Autowired
+    private AudioFileService audioFileService;
+    
+    @Autowired
+    private AudioServingConfig servingConfig;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 字节区间,end 为包含的最后一个字节
+     */
+    record ByteRange(long start, long end) {
+        
+        long length() {
+            return end - start + 1;
+        }
+    }
+    
+    @Operation(summary = "获取音频文件")
+    @RequestMapping(value = "/audio/{*path}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serve(@PathVariable String path, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        AudioFileService.AudioFile file = audioFileService.resolve(path);
+        if (file == null) {
+            countRequest(HttpServletResponse.SC_NOT_FOUND);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        
+        response.setHeader(HttpHeaders.ETAG, file.etag());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + servingConfig.getCacheMaxAgeSeconds());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, file.lastModified());
+        
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), file.etag())) {
+            countRequest(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        
+        // If-Range 与当前 ETag 不一致时忽略 Range,返回完整内容
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.trim().equals(file.etag())) {
+            rangeHeader = null;
+        }
+        
+        ByteRange range;
+        int status;
+        if (rangeHeader == null) {
+            range = new ByteRange(0, file.size() - 1);
+            status = HttpServletResponse.SC_OK;
+        } else {
+            range = parseRange(rangeHeader, file.size());
+            if (range == null) {
+                countRequest(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.size());
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (range.start() == 0 && range.end() == file.size() - 1) {
+                status = HttpServletResponse.SC_OK;
+            } else {
+                status = HttpServletResponse.SC_PARTIAL_CONTENT;
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + range.start() + "-" + range.end() + "/" + file.size());
+            }
+        }
+        
+        response.setStatus(status);
+        response.setContentType(MediaTypeFactory.getMediaType(file.path().getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(Math.max(0, range.length()));
+        countRequest(status);
+        if ("HEAD".equals(request.getMethod()) || file.size() == 0) {
+            return;
+        }
+        
+        send(file, range, request, response);
+    }
+    
+    /**
+     * 发送文件区间
+     */
+    private void send(AudioFileService.AudioFile file, ByteRange range, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 交给连接器在请求处理结束后用 sendfile 发送
+            request.setAttribute(SENDFILE_FILENAME, file.path().toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.end() + 1);
+            countBytes("sendfile", range.length());
+            return;
+        }
+        
+        OutputStream outputStream = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        ByteBuffer mapped = audioFileService.mapped(file);
+        if (mapped != null) {
+            mapped.limit((int) range.end() + 1).position((int) range.start());
+            while (mapped.hasRemaining()) {
+                target.write(mapped);
+            }
+            countBytes("mapped", range.length());
+        } else {
+            try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+                long position = range.start();
+                long remaining = range.length();
+                while (remaining > 0) {
+                    long sent = channel.transferTo(position, remaining, target);
+                    if (sent <= 0) {
+                        break;
+                    }
+                    position += sent;
+                    remaining -= sent;
+                }
+            }
+            countBytes("transfer", range.length());
+        }
+        outputStream.flush();
+    }
+    
+    /**
+     * 解析单个 Range 区间
+     * 
+     * @return 可满足的区间;语法无法识别或包含多个区间时返回整个文件(按 RFC 9110 可忽略 Range),
+     *         区间起点超出文件长度时返回 null(416)
+     */
+    static ByteRange parseRange(String header, long size) {
+        ByteRange whole = new ByteRange(0, size - 1);
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return whole;
+        }
+        String spec = value.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (spec.indexOf(',') >= 0 || dash < 0) {
+            return whole;
+        }
+        
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // 后缀区间: 最后 N 个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    return null;
+                }
+                return new ByteRange(Math.max(0, size - suffix), size - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return whole;
+            }
+            if (start >= size) {
+                return null;
+            }
+            return new ByteRange(start, Math.min(end, size - 1));
+        } catch (NumberFormatException e) {
+            return whole;
+        }
+    }
+    
+    /**
+     * If-None-Match 弱比较: 支持 * 和逗号分隔的多个 ETag
+     */
+    static boolean etagMatches(String header, String etag) {
+        if (header == null) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void countRequest(int status) {
+        Counter.builder("audio.serve.requests")
+                .tag("status", String.valueOf(status))
+                .register(meterRegistry)
+                .increment();
+    }
+    
+    private void countBytes(String mode, long bytes) {
+        Counter.builder("audio.serve.bytes")
+                .tag("mode", mode)
+                .description("音频文件发送字节数")
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+}
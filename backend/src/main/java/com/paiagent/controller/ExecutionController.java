@@ -1,25 +1,39 @@
 package com.paiagent.controller;
 
 import com.paiagent.common.Result;
+import com.paiagent.dto.BatchExecutionRequest;
 import com.paiagent.dto.ExecutionEvent;
+import com.paiagent.dto.ExecutionJobResponse;
 import com.paiagent.dto.ExecutionRequest;
 import com.paiagent.dto.ExecutionResponse;
 import com.paiagent.engine.EngineSelector;
 import com.paiagent.engine.WorkflowExecutor;
+import com.paiagent.engine.runtime.ExecutionRuntime;
 import com.paiagent.entity.Workflow;
+import com.paiagent.service.BatchExecutionService;
+import com.paiagent.service.ExecutionJobService;
 import com.paiagent.service.WorkflowService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 @Slf4j
@@ -34,6 +48,17 @@ public class ExecutionController {
     @Autowired
     private EngineSelector engineSelector;
     
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    @Autowired
+    private ExecutionJobService executionJobService;
+    
+    @Autowired
+    private BatchExecutionService batchExecutionService;
+    
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
     private final Map<String, SseEmitter> emitters = new ConcurrentHashMap<>();
     
     @Operation(summary = "执行工作流")
@@ -47,13 +72,70 @@ public class ExecutionController {
         try {
             // 使用引擎选择器选择合适的执行引擎
             WorkflowExecutor executor = engineSelector.selectEngine(workflow);
-            ExecutionResponse response = executor.execute(workflow, request.getInputData());
+            // 经执行运行时调度,同步接口同样受在途执行上限约束
+            ExecutionResponse response = executionRuntime
+                    .submitWorkflow(() -> executor.execute(workflow, request.getInputData()))
+                    .join();
             return Result.success(response);
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return Result.error("工作流执行失败: " + cause.getMessage());
         } catch (Exception e) {
             return Result.error("工作流执行失败: " + e.getMessage());
         }
     }
     
+    @Operation(summary = "异步提交工作流执行")
+    @PostMapping("/{id}/execute/async")
+    public Result<ExecutionJobResponse> submitWorkflow(@PathVariable Long id, @Valid @RequestBody ExecutionRequest request) {
+        Workflow workflow = workflowService.getById(id);
+        if (workflow == null) {
+            return Result.error("工作流不存在");
+        }
+        
+        try {
+            Long executionId = executionJobService.submit(workflow, request.getInputData());
+            return Result.success(executionJobService.getStatus(executionId));
+        } catch (Exception e) {
+            return Result.error("提交执行失败: " + e.getMessage());
+        }
+    }
+    
+    @Operation(summary = "批量执行工作流(输入列表,NDJSON 流式返回)")
+    @PostMapping(value = "/{id}/execute/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> executeBatch(@PathVariable Long id,
+                                                              @Valid @RequestBody BatchExecutionRequest request) {
+        Workflow workflow = workflowService.getById(id);
+        if (workflow == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        
+        StreamingResponseBody body = out -> batchExecutionService.execute(
+                workflow, request.getInputs().stream().map(BatchExecutionService.BatchInput::of).iterator(),
+                request.getParallelism(), out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+    
+    @Operation(summary = "批量执行工作流(上传 NDJSON,NDJSON 流式返回)")
+    @PostMapping(value = "/{id}/execute/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> executeBatchUpload(@PathVariable Long id,
+                                                                    @RequestParam("file") MultipartFile file,
+                                                                    @RequestParam(required = false) Integer parallelism) {
+        Workflow workflow = workflowService.getById(id);
+        if (workflow == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        
+        // 边读上传内容边执行,不把整个文件读入内存
+        StreamingResponseBody body = out -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+                batchExecutionService.execute(workflow, batchExecutionService.readNdjson(reader), parallelism, out);
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+    
     @Operation(summary = "实时执行工作流(SSE)")
     @GetMapping(value = "/{id}/execute/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public SseEmitter executeWorkflowStream(@PathVariable Long id, @RequestParam String inputData) {
@@ -65,7 +147,10 @@ public class ExecutionController {
         emitter.onTimeout(() -> emitters.remove(emitterId));
         emitter.onError((e) -> emitters.remove(emitterId));
         
+        // 节点可能在多个虚拟线程上并发推送事件,逐个写出;不使用 synchronized 以免钉住载体线程
+        ReentrantLock sendLock = new ReentrantLock();
         Consumer<ExecutionEvent> eventCallback = event -> {
+            sendLock.lock();
             try {
                 emitter.send(SseEmitter.event()
                         .name(event.getEventType())
@@ -73,10 +158,12 @@ public class ExecutionController {
             } catch (IOException e) {
                 log.error("发送 SSE 事件失败", e);
                 emitters.remove(emitterId);
+            } finally {
+                sendLock.unlock();
             }
         };
         
-        new Thread(() -> {
+        executionRuntime.submitWorkflow(() -> {
             try {
                 Workflow workflow = workflowService.getById(id);
                 if (workflow == null) {
@@ -84,7 +171,7 @@ public class ExecutionController {
                             .name("ERROR")
                             .data(ExecutionEvent.workflowComplete("FAILED", "工作流不存在", 0)));
                     emitter.complete();
-                    return;
+                    return null;
                 }
                 
                 // 使用引擎选择器选择合适的执行引擎
@@ -102,7 +189,8 @@ public class ExecutionController {
                 }
                 emitter.complete();
             }
-        }).start();
+            return null;
+        });
         
         return emitter;
     }
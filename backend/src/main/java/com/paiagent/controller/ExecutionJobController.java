@@ -0,0 +1,112 @@
+package com.paiagent.controller;
+
+import com.paiagent.common.Result;
+import com.paiagent.dto.ExecutionEvent;
+import com.paiagent.dto.ExecutionJobResponse;
+import com.paiagent.dto.ExecutionResponse;
+import com.paiagent.service.ExecutionJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 异步执行任务控制器
+ */
+@Slf4j
+@Tag(name = "异步执行任务接口")
+@RestController
+@RequestMapping("/api/jobs")
+public class ExecutionJobController {
+    
+    @Autowired
+    private ExecutionJobService executionJobService;
+    
+    @Operation(summary = "查询任务状态")
+    @GetMapping("/{executionId}")
+    public Result<ExecutionJobResponse> getJob(@PathVariable Long executionId) {
+        ExecutionJobResponse response = executionJobService.getStatus(executionId);
+        if (response == null) {
+            return Result.error("任务不存在");
+        }
+        return Result.success(response);
+    }
+    
+    @Operation(summary = "获取任务结果(长轮询)")
+    @GetMapping("/{executionId}/result")
+    public DeferredResult<Result<ExecutionJobResponse>> getResult(@PathVariable Long executionId,
+                                                                  @RequestParam(defaultValue = "30000") long timeout) {
+        long waitMs = Math.max(0, Math.min(timeout, executionJobService.getMaxPollTimeoutMs()));
+        // 等待期间不占用请求线程,超时返回当前状态
+        DeferredResult<Result<ExecutionJobResponse>> deferred = new DeferredResult<>(waitMs);
+        
+        CompletableFuture<ExecutionJobResponse> completion = executionJobService.getCompletion(executionId);
+        if (completion == null) {
+            deferred.setResult(Result.error("任务不存在"));
+            return deferred;
+        }
+        
+        deferred.onTimeout(() -> deferred.setResult(Result.success(executionJobService.getStatus(executionId))));
+        completion.thenAccept(response -> deferred.setResult(Result.success(response)));
+        return deferred;
+    }
+    
+    @Operation(summary = "订阅任务事件(SSE)")
+    @GetMapping(value = "/{executionId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@PathVariable Long executionId) {
+        SseEmitter emitter = new SseEmitter(300000L);
+        
+        CompletableFuture<ExecutionJobResponse> completion = executionJobService.getCompletion(executionId);
+        if (completion == null) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name("ERROR")
+                        .data(ExecutionEvent.workflowComplete("FAILED", "任务不存在", 0)));
+            } catch (IOException e) {
+                log.error("发送错误事件失败", e);
+            }
+            emitter.complete();
+            return emitter;
+        }
+        
+        Consumer<ExecutionEvent> listener = event -> {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name(event.getEventType())
+                        .data(event));
+            } catch (IOException e) {
+                throw new IllegalStateException("SSE 连接已断开", e);
+            }
+        };
+        
+        emitter.onCompletion(() -> executionJobService.unsubscribe(executionId, listener));
+        emitter.onTimeout(() -> executionJobService.unsubscribe(executionId, listener));
+        emitter.onError(e -> executionJobService.unsubscribe(executionId, listener));
+        
+        try {
+            if (!executionJobService.subscribe(executionId, listener)) {
+                // 任务已结束并移出内存,只推送最终结果
+                listener.accept(toCompleteEvent(completion.join()));
+            }
+        } catch (IllegalStateException e) {
+            log.warn("回放任务 [{}] 事件失败: {}", executionId, e.getMessage());
+        }
+        completion.whenComplete((response, e) -> emitter.complete());
+        return emitter;
+    }
+    
+    private ExecutionEvent toCompleteEvent(ExecutionJobResponse response) {
+        ExecutionResponse result = response.getResult();
+        Object data = "SUCCESS".equals(response.getStatus()) && result != null ? result.getOutputData() : response.getErrorMessage();
+        int duration = result != null && result.getDuration() != null ? result.getDuration() : 0;
+        return ExecutionEvent.workflowComplete(response.getStatus(), data, duration);
+    }
+}
@@ -0,0 +1,84 @@
+package com.paiagent.controller;
+
+import com.paiagent.common.Result;
+import com.paiagent.dto.ExecutionDetail;
+import com.paiagent.dto.ExecutionHistoryPage;
+import com.paiagent.dto.ExecutionResponse;
+import com.paiagent.dto.NodeResultSummary;
+import com.paiagent.service.ExecutionRecordService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 执行记录控制器
+ */
+@Tag(name = "执行记录接口")
+@RestController
+@RequestMapping("/api/executions")
+public class ExecutionRecordController {
+    
+    @Autowired
+    private ExecutionRecordService executionRecordService;
+    
+    @Operation(summary = "查询执行历史(游标分页)")
+    @GetMapping
+    public Result<ExecutionHistoryPage> listHistory(
+            @RequestParam(required = false) Long flowId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return Result.success(executionRecordService.listHistory(flowId, status, from, to, cursor, size));
+        } catch (Exception e) {
+            return Result.error("查询执行历史失败: " + e.getMessage());
+        }
+    }
+    
+    @Operation(summary = "获取执行记录详情")
+    @GetMapping("/{executionId}")
+    public Result<ExecutionDetail> getDetail(@PathVariable Long executionId) {
+        try {
+            return Result.success(executionRecordService.getDetail(executionId));
+        } catch (Exception e) {
+            return Result.error("获取执行记录失败: " + e.getMessage());
+        }
+    }
+    
+    @Operation(summary = "从失败处恢复执行")
+    @PostMapping("/{executionId}/resume")
+    public Result<ExecutionResponse> resume(@PathVariable Long executionId) {
+        try {
+            return Result.success(executionRecordService.resume(executionId));
+        } catch (Exception e) {
+            return Result.error("恢复执行失败: " + e.getMessage());
+        }
+    }
+    
+    @Operation(summary = "获取执行的节点结果摘要")
+    @GetMapping("/{executionId}/nodes")
+    public Result<List<NodeResultSummary>> getNodeSummaries(@PathVariable Long executionId) {
+        try {
+            return Result.success(executionRecordService.getNodeSummaries(executionId));
+        } catch (Exception e) {
+            return Result.error("获取节点结果失败: " + e.getMessage());
+        }
+    }
+    
+    @Operation(summary = "获取单个节点的完整结果")
+    @GetMapping("/{executionId}/nodes/{seq}")
+    public Result<ExecutionResponse.NodeResult> getNodeDetail(@PathVariable Long executionId, @PathVariable Integer seq) {
+        try {
+            return Result.success(executionRecordService.getNodeDetail(executionId, seq));
+        } catch (Exception e) {
+            return Result.error("获取节点结果失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.paiagent.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量执行请求 DTO
+ */
+@Data
+public class BatchExecutionRequest {
+    
+    @NotEmpty(message = "输入列表不能为空")
+    private List<String> inputs;
+    
+    /**
+     * 并行度,为空时使用默认配置
+     */
+    private Integer parallelism;
+}
@@ -0,0 +1,24 @@
+package com.paiagent.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 执行记录详情 DTO
+ * 节点只返回摘要,单个节点的输入/输出通过节点详情接口按需加载
+ */
+@Data
+public class ExecutionDetail {
+    
+    private Long id;
+    private Long flowId;
+    private String runId;
+    private String status;
+    private String inputData;
+    private String outputData;
+    private String errorMessage;
+    private Integer duration;
+    private LocalDateTime executedAt;
+    private List<NodeResultSummary> nodes;
+}
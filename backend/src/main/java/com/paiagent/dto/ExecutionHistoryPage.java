@@ -0,0 +1,18 @@
+package com.paiagent.dto;
+
+import lombok.Data;
+import java.util.List;
+
+/**
+ * 执行历史分页 DTO
+ */
+@Data
+public class ExecutionHistoryPage {
+    
+    private List<ExecutionSummary> items;
+    
+    /**
+     * 下一页游标,原样传回即可继续翻页;没有更多数据时为 null
+     */
+    private String nextCursor;
+}
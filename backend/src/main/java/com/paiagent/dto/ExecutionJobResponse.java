@@ -0,0 +1,35 @@
+package com.paiagent.dto;
+
+import lombok.Data;
+
+/**
+ * 异步执行任务状态 DTO
+ */
+@Data
+public class ExecutionJobResponse {
+    
+    /**
+     * 执行记录 ID,提交时预分配并立即返回,任务结束后可直接查询执行记录
+     */
+    private Long executionId;
+    
+    private Long workflowId;
+    
+    /**
+     * 任务状态: QUEUED / RUNNING / SUCCESS / FAILED
+     */
+    private String status;
+    
+    private Long submittedAt;
+    
+    private Long startedAt;
+    
+    private Long finishedAt;
+    
+    /**
+     * 执行结果,任务结束后返回
+     */
+    private ExecutionResponse result;
+    
+    private String errorMessage;
+}
@@ -2,6 +2,7 @@ package com.paiagent.dto;
 
 import lombok.Data;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 工作流执行响应 DTO
@@ -19,10 +20,26 @@ public class ExecutionResponse {
     public static class NodeResult {
         private String nodeId;
         private String nodeName;
+        private String nodeType;
         private String status;
         private String input;
         private String output;
         private Integer duration;
         private String error;
+        private Integer inputTokens;
+        private Integer outputTokens;
+        private Integer totalTokens;
+        
+        /**
+         * 从节点输出中提取 LLM token 用量,非 LLM 节点保持为空
+         */
+        public void applyTokenUsage(Map<String, Object> output) {
+            if (output == null) {
+                return;
+            }
+            inputTokens = output.get("inputTokens") instanceof Number number ? number.intValue() : null;
+            outputTokens = output.get("outputTokens") instanceof Number number ? number.intValue() : null;
+            totalTokens = output.get("totalTokens") instanceof Number number ? number.intValue() : null;
+        }
     }
 }
@@ -0,0 +1,17 @@
+package com.paiagent.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 执行记录摘要 DTO(不含输入/输出和节点结果)
+ */
+@Data
+public class ExecutionSummary {
+    
+    private Long id;
+    private Long flowId;
+    private String status;
+    private Integer duration;
+    private LocalDateTime executedAt;
+}
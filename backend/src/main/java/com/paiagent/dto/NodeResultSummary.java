@@ -0,0 +1,23 @@
+package com.paiagent.dto;
+
+import lombok.Data;
+
+/**
+ * 节点执行结果摘要 DTO(不含输入/输出,按需通过详情接口加载)
+ */
+@Data
+public class NodeResultSummary {
+    
+    private Integer seq;
+    private String nodeId;
+    private String nodeName;
+    private String nodeType;
+    private String status;
+    private Integer duration;
+    private String error;
+    private Integer inputTokens;
+    private Integer outputTokens;
+    private Integer totalTokens;
+    private Integer inputSize;
+    private Integer outputSize;
+}
@@ -0,0 +1,47 @@
+package com.paiagent.engine;
+
+import com.paiagent.dto.ExecutionEvent;
+import com.paiagent.entity.ExecutionRecord;
+import lombok.Data;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 工作流执行选项
+ */
+@Data
+public class ExecutionOptions {
+    
+    /**
+     * 事件回调函数（用于 SSE 推送）,可为空
+     */
+    private Consumer<ExecutionEvent> eventCallback;
+    
+    /**
+     * 执行记录写入方式,为空时由引擎直接插入数据库
+     * 批量执行时交给批量写入器合并插入,此时响应中的 executionId 为空
+     */
+    private Consumer<ExecutionRecord> recordSink;
+    
+    /**
+     * 运行 ID,检查点按运行 ID 保存;为空时自动生成,恢复执行时沿用原运行 ID
+     */
+    private String runId;
+    
+    /**
+     * 恢复执行时加载的检查点(节点 ID -> 节点输出),引擎据此跳过可复用的节点
+     */
+    private Map<String, Map<String, Object>> checkpoints;
+    
+    /**
+     * 调用方已预分配的执行记录 ID(如异步任务提交时返回给客户端),为空时由引擎分配
+     */
+    private Long executionId;
+    
+    public static ExecutionOptions withCallback(Consumer<ExecutionEvent> eventCallback) {
+        ExecutionOptions options = new ExecutionOptions();
+        options.setEventCallback(eventCallback);
+        return options;
+    }
+}
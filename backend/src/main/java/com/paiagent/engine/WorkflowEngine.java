@@ -1,24 +1,24 @@
 package com.paiagent.engine;
 
 import com.alibaba.fastjson2.JSON;
+import com.paiagent.config.DagEngineConfig;
 import com.paiagent.dto.ExecutionEvent;
 import com.paiagent.dto.ExecutionResponse;
-import com.paiagent.engine.dag.DAGParser;
-import com.paiagent.engine.executor.NodeExecutor;
-import com.paiagent.engine.executor.NodeExecutorFactory;
-import com.paiagent.engine.model.WorkflowConfig;
+import com.paiagent.engine.checkpoint.CheckpointStore;
+import com.paiagent.engine.dag.ParallelDagScheduler;
 import com.paiagent.engine.model.WorkflowNode;
+import com.paiagent.engine.plan.ExecutionPlan;
+import com.paiagent.engine.plan.ExecutionPlanCache;
+import com.paiagent.engine.record.ExecutionRecordPersister;
+import com.paiagent.engine.stream.TextStream;
 import com.paiagent.entity.ExecutionRecord;
 import com.paiagent.entity.Workflow;
-import com.paiagent.mapper.ExecutionRecordMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 @Slf4j
@@ -26,13 +26,19 @@ import java.util.function.Consumer;
 public class WorkflowEngine implements WorkflowExecutor {
     
     @Autowired
-    private DAGParser dagParser;
+    private ExecutionPlanCache executionPlanCache;
     
     @Autowired
-    private NodeExecutorFactory executorFactory;
+    private ParallelDagScheduler parallelDagScheduler;
     
     @Autowired
-    private ExecutionRecordMapper executionRecordMapper;
+    private DagEngineConfig dagEngineConfig;
+    
+    @Autowired
+    private ExecutionRecordPersister executionRecordPersister;
+    
+    @Autowired
+    private CheckpointStore checkpointStore;
     
     @Override
     public ExecutionResponse execute(Workflow workflow, String inputData) {
@@ -41,13 +47,35 @@ public class WorkflowEngine implements WorkflowExecutor {
     
     @Override
     public ExecutionResponse executeWithCallback(Workflow workflow, String inputData, Consumer<ExecutionEvent> eventCallback) {
+        return executeWithOptions(workflow, inputData, ExecutionOptions.withCallback(eventCallback));
+    }
+    
+    @Override
+    public ExecutionResponse executeWithOptions(Workflow workflow, String inputData, ExecutionOptions options) {
+        Consumer<ExecutionEvent> eventCallback = options.getEventCallback();
         long startTime = System.currentTimeMillis();
         
-        WorkflowConfig config = JSON.parseObject(workflow.getFlowData(), WorkflowConfig.class);
-        List<WorkflowNode> sortedNodes = dagParser.parse(config);
+        ExecutionPlan plan = executionPlanCache.getPlan(workflow);
+        List<WorkflowNode> sortedNodes = plan.getSortedNodes();
+        
+        boolean parallel = dagEngineConfig.isParallel();
+        // 并行模式下多个节点可能同时推送事件,统一串行化回调
+        Consumer<ExecutionEvent> callback = parallel ? synchronizedCallback(eventCallback) : eventCallback;
         
-        List<ExecutionResponse.NodeResult> nodeResults = new ArrayList<>();
-        Map<String, Map<String, Object>> nodeOutputs = new HashMap<>();
+        List<ExecutionResponse.NodeResult> nodeResults = Collections.synchronizedList(new ArrayList<>());
+        
+        // 恢复执行时沿用原运行 ID,并跳过检查点可复用的节点
+        String runId = options.getRunId() != null ? options.getRunId() : UUID.randomUUID().toString();
+        Map<String, Map<String, Object>> reusableOutputs =
+                CheckpointStore.resolveReusable(plan.getDependencies(), options.getCheckpoints());
+        if (!reusableOutputs.isEmpty()) {
+            log.info("恢复执行 [{}]: 复用 {} 个节点的检查点", runId, reusableOutputs.size());
+        }
+        RunContext context = new RunContext(workflow, runId, reusableOutputs, callback, nodeResults);
+        
+        // 预分配记录 ID,开始事件即可携带;批量执行由调用方合并写入,不预分配
+        Long executionId = options.getExecutionId() != null ? options.getExecutionId()
+                : options.getRecordSink() == null ? executionRecordPersister.allocateId() : null;
         
         Map<String, Object> currentInput = new HashMap<>();
         currentInput.put("input", inputData);
@@ -59,81 +87,55 @@ public class WorkflowEngine implements WorkflowExecutor {
         ExecutionRecord record = new ExecutionRecord();
         
         try {
-            if (eventCallback != null) {
-                eventCallback.accept(ExecutionEvent.workflowStart(null));
+            if (callback != null) {
+                callback.accept(ExecutionEvent.workflowStart(executionId));
             }
             
-            for (WorkflowNode node : sortedNodes) {
-                long nodeStartTime = System.currentTimeMillis();
-                
-                if (eventCallback != null) {
-                    eventCallback.accept(ExecutionEvent.nodeStart(node.getId(), node.getType()));
+            if (parallel) {
+                Map<String, Map<String, Object>> nodeOutputs = parallelDagScheduler.schedule(
+                        sortedNodes,
+                        plan.getDependencies(),
+                        currentInput,
+                        dagEngineConfig.getMaxConcurrency(),
+                        streamingEdges(plan, reusableOutputs),
+                        (node, input) -> executeNode(plan.getPlannedNode(node.getId()), input, context)
+                );
+                // 与串行模式一致,以拓扑序最后一个节点的输出作为工作流输出
+                if (!sortedNodes.isEmpty()) {
+                    currentInput = nodeOutputs.get(sortedNodes.get(sortedNodes.size() - 1).getId());
                 }
-                
-                ExecutionResponse.NodeResult nodeResult = new ExecutionResponse.NodeResult();
-                nodeResult.setNodeId(node.getId());
-                nodeResult.setNodeName(node.getType());
-                nodeResult.setInput(JSON.toJSONString(currentInput));
-                
-                try {
-                    NodeExecutor executor = executorFactory.getExecutor(node.getType());
-                    Map<String, Object> output = executor.execute(node, currentInput, eventCallback);
-                    
-                    nodeOutputs.put(node.getId(), output);
-                    
-                    nodeResult.setStatus("SUCCESS");
-                    nodeResult.setOutput(JSON.toJSONString(output));
-                    
-                    long nodeEndTime = System.currentTimeMillis();
-                    int nodeDuration = (int) (nodeEndTime - nodeStartTime);
-                    nodeResult.setDuration(nodeDuration);
-                    
-                    if (eventCallback != null) {
-                        Map<String, Object> eventData = new HashMap<>();
-                        eventData.put("input", currentInput);
-                        eventData.put("output", output);
-                        eventData.put("duration", nodeDuration);
-                        eventCallback.accept(ExecutionEvent.nodeSuccess(node.getId(), node.getType(), eventData, nodeDuration));
-                    }
-                    
-                    currentInput = output;
-                    
-                } catch (Exception e) {
-                    log.error("节点执行失败: {}", node.getId(), e);
-                    nodeResult.setStatus("FAILED");
-                    nodeResult.setError(e.getMessage());
-                    status = "FAILED";
-                    errorMessage = "节点 " + node.getId() + " 执行失败: " + e.getMessage();
-                    
-                    if (eventCallback != null) {
-                        eventCallback.accept(ExecutionEvent.nodeError(node.getId(), node.getType(), e.getMessage()));
-                    }
-                    
-                    throw e;
-                } finally {
-                    long nodeEndTime = System.currentTimeMillis();
-                    nodeResult.setDuration((int) (nodeEndTime - nodeStartTime));
-                    nodeResults.add(nodeResult);
+            } else {
+                for (WorkflowNode node : sortedNodes) {
+                    currentInput = executeNode(plan.getPlannedNode(node.getId()), currentInput, context);
                 }
             }
             
             outputData = JSON.toJSONString(currentInput);
+            checkpointStore.clear(runId);
             
         } catch (Exception e) {
             status = "FAILED";
-            if (errorMessage == null) {
-                errorMessage = e.getMessage();
-            }
+            errorMessage = e.getMessage();
+        }
+        
+        if (parallel) {
+            // 并行模式下按拓扑顺序整理节点结果
+            List<String> order = sortedNodes.stream().map(WorkflowNode::getId).toList();
+            nodeResults.sort(Comparator.comparingInt(result -> order.indexOf(result.getNodeId())));
         }
         
         long endTime = System.currentTimeMillis();
         int duration = (int) (endTime - startTime);
         
-        if (eventCallback != null) {
-            eventCallback.accept(ExecutionEvent.workflowComplete(status, currentInput, duration));
+        if (callback != null) {
+            // 失败时与 LangGraph 引擎一致,推送错误信息而非中间输出
+            Object completeData = "SUCCESS".equals(status) ? currentInput : errorMessage;
+            callback.accept(ExecutionEvent.workflowComplete(status, completeData, duration));
         }
         
+        record.setId(executionId);
         record.setFlowId(workflow.getId());
+        record.setRunId(runId);
         Map<String, Object> inputDataMap = new HashMap<>();
         inputDataMap.put("input", inputData);
         String inputDataJson = JSON.toJSONString(inputDataMap);
@@ -142,10 +144,10 @@ public class WorkflowEngine implements WorkflowExecutor {
         record.setInputData(inputDataJson);
         record.setOutputData(outputData);
         record.setStatus(status);
-        record.setNodeResults(JSON.toJSONString(nodeResults));
+        record.setNodeResultRows(executionRecordPersister.encodeNodeResults(nodeResults));
         record.setErrorMessage(errorMessage);
         record.setDuration(duration);
-        executionRecordMapper.insert(record);
+        saveRecord(record, options);
         
         ExecutionResponse response = new ExecutionResponse();
         response.setExecutionId(record.getId());
@@ -157,8 +159,173 @@ public class WorkflowEngine implements WorkflowExecutor {
         return response;
     }
     
+    /**
+     * 执行单个节点,推送节点事件并记录节点结果
+     *
+     * @return 节点输出
+     */
+    private Map<String, Object> executeNode(ExecutionPlan.PlannedNode plannedNode, Map<String, Object> input,
+                                            RunContext context) {
+        WorkflowNode node = plannedNode.getNode();
+        Consumer<ExecutionEvent> eventCallback = context.eventCallback();
+        List<ExecutionResponse.NodeResult> nodeResults = context.nodeResults();
+        long nodeStartTime = System.currentTimeMillis();
+        
+        Map<String, Object> checkpointed = context.reusableOutputs().get(node.getId());
+        if (checkpointed != null) {
+            return resumeNode(node, input, checkpointed, context);
+        }
+        
+        if (eventCallback != null) {
+            eventCallback.accept(ExecutionEvent.nodeStart(node.getId(), node.getType()));
+        }
+        
+        ExecutionResponse.NodeResult nodeResult = new ExecutionResponse.NodeResult();
+        nodeResult.setNodeId(node.getId());
+        nodeResult.setNodeName(node.getType());
+        nodeResult.setNodeType(node.getType());
+        nodeResult.setInput(JSON.toJSONString(recordedInput(input)));
+        
+        try {
+            Map<String, Object> output = plannedNode.getExecutor()
+                    .execute(node, plannedNode.getCompiledConfig(), input, eventCallback);
+            checkpointStore.save(context.runId(), context.workflow(), node.getId(), output);
+            
+            nodeResult.setStatus("SUCCESS");
+            nodeResult.setOutput(JSON.toJSONString(output));
+            nodeResult.applyTokenUsage(output);
+            
+            long nodeEndTime = System.currentTimeMillis();
+            int nodeDuration = (int) (nodeEndTime - nodeStartTime);
+            nodeResult.setDuration(nodeDuration);
+            
+            if (eventCallback != null) {
+                Map<String, Object> eventData = new HashMap<>();
+                eventData.put("input", recordedInput(input));
+                eventData.put("output", output);
+                eventData.put("duration", nodeDuration);
+                eventCallback.accept(ExecutionEvent.nodeSuccess(node.getId(), node.getType(), eventData, nodeDuration));
+            }
+            
+            return output;
+            
+        } catch (Exception e) {
+            log.error("节点执行失败: {}", node.getId(), e);
+            nodeResult.setStatus("FAILED");
+            nodeResult.setError(e.getMessage());
+            
+            if (eventCallback != null) {
+                eventCallback.accept(ExecutionEvent.nodeError(node.getId(), node.getType(), e.getMessage()));
+            }
+            
+            throw new RuntimeException("节点 " + node.getId() + " 执行失败: " + e.getMessage(), e);
+        } finally {
+            long nodeEndTime = System.currentTimeMillis();
+            nodeResult.setDuration((int) (nodeEndTime - nodeStartTime));
+            nodeResults.add(nodeResult);
+        }
+    }
+    
+    /**
+     * 本次执行使用的流式边: 恢复执行时两端任一节点复用检查点的边退化为普通边
+     */
+    private Map<String, String> streamingEdges(ExecutionPlan plan, Map<String, Map<String, Object>> reusableOutputs) {
+        if (reusableOutputs.isEmpty()) {
+            return plan.getStreamingEdges();
+        }
+        Map<String, String> edges = new HashMap<>(plan.getStreamingEdges());
+        edges.entrySet().removeIf(edge ->
+                reusableOutputs.containsKey(edge.getKey()) || reusableOutputs.containsKey(edge.getValue()));
+        return edges;
+    }
+    
+    /**
+     * 去掉流式通道和汇聚节点附带的全部节点输出,用于记录和推送节点输入
+     * 全部节点输出已分别记录在各节点结果中,每个汇聚节点再记一份会使记录随图规模近似平方增长
+     */
+    private Map<String, Object> recordedInput(Map<String, Object> input) {
+        if (!input.containsKey(TextStream.OUTPUT_STREAM_KEY) && !input.containsKey(TextStream.INPUT_STREAM_KEY)
+                && !input.containsKey(ParallelDagScheduler.NODE_OUTPUTS_KEY)) {
+            return input;
+        }
+        Map<String, Object> copy = new HashMap<>(input);
+        copy.remove(TextStream.OUTPUT_STREAM_KEY);
+        copy.remove(TextStream.INPUT_STREAM_KEY);
+        copy.remove(ParallelDagScheduler.NODE_OUTPUTS_KEY);
+        return copy;
+    }
+    
+    /**
+     * 使用检查点中的输出代替执行节点
+     */
+    private Map<String, Object> resumeNode(WorkflowNode node, Map<String, Object> input,
+                                           Map<String, Object> output, RunContext context) {
+        ExecutionResponse.NodeResult nodeResult = new ExecutionResponse.NodeResult();
+        nodeResult.setNodeId(node.getId());
+        nodeResult.setNodeName(node.getType());
+        nodeResult.setNodeType(node.getType());
+        nodeResult.setInput(JSON.toJSONString(recordedInput(input)));
+        nodeResult.setStatus("SUCCESS");
+        nodeResult.setOutput(JSON.toJSONString(output));
+        nodeResult.setDuration(0);
+        context.nodeResults().add(nodeResult);
+        
+        if (context.eventCallback() != null) {
+            Map<String, Object> eventData = new HashMap<>();
+            eventData.put("input", recordedInput(input));
+            eventData.put("output", output);
+            eventData.put("duration", 0);
+            eventData.put("resumed", true);
+            context.eventCallback().accept(ExecutionEvent.nodeSuccess(node.getId(), node.getType(), eventData, 0));
+        }
+        
+        return new HashMap<>(output);
+    }
+    
+    /**
+     * 单次执行的上下文
+     *
+     * @param reusableOutputs 恢复执行时可直接复用的节点输出
+     */
+    private record RunContext(Workflow workflow,
+                              String runId,
+                              Map<String, Map<String, Object>> reusableOutputs,
+                              Consumer<ExecutionEvent> eventCallback,
+                              List<ExecutionResponse.NodeResult> nodeResults) {
+    }
+    
+    /**
+     * 保存执行记录,指定了写入方式时交由调用方处理,否则异步批量写入
+     */
+    private void saveRecord(ExecutionRecord record, ExecutionOptions options) {
+        if (options.getRecordSink() != null) {
+            options.getRecordSink().accept(record);
+        } else {
+            executionRecordPersister.submit(record);
+        }
+    }
+    
+    /**
+     * 包装事件回调,保证并发推送时逐个送达
+     * 使用 ReentrantLock 而非 synchronized,回调中的阻塞写出不会钉住虚拟线程的载体线程
+     */
+    private Consumer<ExecutionEvent> synchronizedCallback(Consumer<ExecutionEvent> eventCallback) {
+        if (eventCallback == null) {
+            return null;
+        }
+        ReentrantLock lock = new ReentrantLock();
+        return event -> {
+            lock.lock();
+            try {
+                eventCallback.accept(event);
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+    
     @Override
     public String getEngineType() {
         return "dag";
     }
-}
\ No newline at end of file
+}
@@ -37,6 +37,18 @@ public interface WorkflowExecutor {
         Consumer<ExecutionEvent> eventCallback
     );
     
+    /**
+     * 按执行选项执行工作流
+     * 
+     * @param workflow 工作流定义
+     * @param inputData 输入数据
+     * @param options 执行选项
+     * @return 执行结果
+     */
+    default ExecutionResponse executeWithOptions(Workflow workflow, String inputData, ExecutionOptions options) {
+        return executeWithCallback(workflow, inputData, options.getEventCallback());
+    }
+    
     /**
      * 获取引擎类型
      * 
@@ -0,0 +1,189 @@
+package com.paiagent.engine.audio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TTS 文本切分器
+ * 
+ * 单次扫描同时累计字符数和 UTF-8 字节数,超出上限时回退到窗口内最近的句末或分句标点,
+ * 整体为线性时间且不产生中间字符串。切分后再按总量均分各片段上限重新切分一次,
+ * 使并行合成的片段长度接近、同时完成
+ */
+public final class TextSegmenter {
+    
+    /**
+     * 句末标点,优先在此处切分
+     */
+    private static final String SENTENCE_ENDINGS = "。！？!?.\n";
+    
+    /**
+     * 分句标点,句末标点离窗口末尾太远时使用
+     */
+    private static final String CLAUSE_ENDINGS = "；，、：;,:";
+    
+    /**
+     * 均分时单片段上限相对平均值的余量,依次尝试: 先严格均分,片段数增加时放宽以容纳标点位置
+     */
+    private static final double[] BALANCE_SLACKS = {1.0, 1.15};
+    
+    private final int maxChars;
+    
+    private final int maxBytes;
+    
+    /**
+     * @param maxChars 单片段最大字符数(UTF-16 单元)
+     * @param maxBytes 单片段最大 UTF-8 字节数
+     */
+    public TextSegmenter(int maxChars, int maxBytes) {
+        if (maxChars < 2 || maxBytes < 4) {
+            throw new IllegalArgumentException("片段上限过小: maxChars=" + maxChars + ", maxBytes=" + maxBytes);
+        }
+        this.maxChars = maxChars;
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * 切分文本,片段按原文顺序排列,拼接后与原文一致(丢弃纯空白片段)
+     */
+    public List<String> split(String text) {
+        List<String> chunks = segment(text, maxChars, maxBytes);
+        if (chunks.size() < 2) {
+            return chunks;
+        }
+        
+        // 以贪心结果的片段数为准均分上限,片段数不增加时采用均分结果
+        int count = chunks.size();
+        long totalBytes = utf8Length(text);
+        for (double slack : BALANCE_SLACKS) {
+            int charLimit = balancedLimit(text.length(), count, slack, maxChars, 2);
+            int byteLimit = balancedLimit(totalBytes, count, slack, maxBytes, 4);
+            List<String> balanced = segment(text, charLimit, byteLimit);
+            if (balanced.size() <= count) {
+                return balanced;
+            }
+        }
+        return chunks;
+    }
+    
+    /**
+     * 计算字符串的 UTF-8 字节数,与 {@code getBytes(UTF_8).length} 一致(孤立代理项按 1 字节计)
+     */
+    public static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        int length = text.length();
+        for (int i = 0; i < length; ) {
+            int cp = Character.codePointAt(text, i);
+            bytes += utf8Length(cp);
+            i += Character.charCount(cp);
+        }
+        return bytes;
+    }
+    
+    private static int utf8Length(int cp) {
+        if (cp < 0x80 || cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE) {
+            return 1;
+        }
+        if (cp < 0x800) {
+            return 2;
+        }
+        return cp < 0x10000 ? 3 : 4;
+    }
+    
+    private static int balancedLimit(long total, int count, double slack, int max, int min) {
+        long average = (total + count - 1) / count;
+        return (int) Math.max(min, Math.min(max, (long) Math.ceil(average * slack)));
+    }
+    
+    /**
+     * 贪心切分: 逐码点前进,记录窗口内最近的句末、分句、空白位置及其累计字节数,
+     * 超限时按优先级选择切分点,剩余部分的字节数由累计值相减得到,无需回扫
+     */
+    private static List<String> segment(String text, int charLimit, int byteLimit) {
+        List<String> chunks = new ArrayList<>();
+        int length = text.length();
+        
+        int start = 0;
+        long startBytes = 0;
+        long bytes = 0;
+        int sentenceCut = -1;
+        long sentenceBytes = 0;
+        int clauseCut = -1;
+        long clauseBytes = 0;
+        int spaceCut = -1;
+        long spaceBytes = 0;
+        
+        int i = 0;
+        while (i < length) {
+            int cp = text.codePointAt(i);
+            int width = Character.charCount(cp);
+            int cpBytes = utf8Length(cp);
+            
+            if (i + width - start > charLimit || bytes + cpBytes - startBytes > byteLimit) {
+                // 句末或分句标点位于窗口后半段时直接使用,否则取两者中较靠后的,再退到空白,最后硬切
+                int half = start + (i - start) / 2;
+                int cut;
+                long cutBytes;
+                if (sentenceCut >= half) {
+                    cut = sentenceCut;
+                    cutBytes = sentenceBytes;
+                } else if (clauseCut >= half || clauseCut > sentenceCut) {
+                    cut = clauseCut;
+                    cutBytes = clauseBytes;
+                } else if (sentenceCut > start) {
+                    cut = sentenceCut;
+                    cutBytes = sentenceBytes;
+                } else if (spaceCut > start) {
+                    cut = spaceCut;
+                    cutBytes = spaceBytes;
+                } else {
+                    cut = i;
+                    cutBytes = bytes;
+                }
+                
+                addChunk(chunks, text, start, cut);
+                start = cut;
+                startBytes = cutBytes;
+                if (sentenceCut <= start) {
+                    sentenceCut = -1;
+                }
+                if (clauseCut <= start) {
+                    clauseCut = -1;
+                }
+                if (spaceCut <= start) {
+                    spaceCut = -1;
+                }
+                // 以新的窗口起点重新判断当前码点
+                continue;
+            }
+            
+            i += width;
+            bytes += cpBytes;
+            if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                char c = (char) cp;
+                if (SENTENCE_ENDINGS.indexOf(c) >= 0) {
+                    sentenceCut = i;
+                    sentenceBytes = bytes;
+                } else if (CLAUSE_ENDINGS.indexOf(c) >= 0) {
+                    clauseCut = i;
+                    clauseBytes = bytes;
+                } else if (Character.isWhitespace(c)) {
+                    spaceCut = i;
+                    spaceBytes = bytes;
+                }
+            }
+        }
+        addChunk(chunks, text, start, length);
+        return chunks;
+    }
+    
+    private static void addChunk(List<String> chunks, String text, int start, int end) {
+        if (end <= start) {
+            return;
+        }
+        String chunk = text.substring(start, end);
+        if (!chunk.isBlank()) {
+            chunks.add(chunk);
+        }
+    }
+}
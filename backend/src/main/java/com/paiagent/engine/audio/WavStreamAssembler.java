@@ -0,0 +1,195 @@
+package com.paiagent.engine.audio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * WAV 流式拼接器
+ * 
+ * 按顺序把多个 WAV 片段的 PCM 数据写入目标文件: 解析每个片段的 RIFF 子块定位 fmt 和 data,
+ * 不假设固定 44 字节文件头;数据经 FileChannel.transferTo 直接拷贝,内存占用与音频长度无关。
+ * 全部写完后回填 RIFF 和 data 的长度字段
+ */
+public class WavStreamAssembler implements Closeable {
+    
+    private static final long MAX_RIFF_SIZE = 0xFFFFFFFFL;
+    
+    /**
+     * fmt 子块长度上限(PCM 为 16,WAVE_FORMAT_EXTENSIBLE 为 40)
+     */
+    private static final long MAX_FORMAT_SIZE = 1024;
+    
+    private final FileChannel output;
+    
+    /**
+     * 第一个片段的 fmt 子块内容,后续片段必须一致
+     */
+    private byte[] format;
+    
+    /**
+     * 输出文件中 data 长度字段的位置
+     */
+    private long dataSizePosition;
+    
+    private long dataSize;
+    
+    private int chunkCount;
+    
+    public WavStreamAssembler(Path target) throws IOException {
+        this.output = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    
+    /**
+     * 追加一个 WAV 片段(按播放顺序调用)
+     */
+    public void append(Path wavChunk) throws IOException {
+        try (FileChannel input = FileChannel.open(wavChunk, StandardOpenOption.READ)) {
+            WavLayout layout = parse(input);
+            if (format == null) {
+                format = layout.format();
+                writeHeader();
+            } else if (!Arrays.equals(format, layout.format())) {
+                throw new IOException("第 " + (chunkCount + 1) + " 个音频片段的格式与首个片段不一致");
+            }
+            
+            long position = layout.dataOffset();
+            long end = position + layout.dataSize();
+            while (position < end) {
+                position += input.transferTo(position, end - position, output);
+            }
+            dataSize += layout.dataSize();
+            chunkCount++;
+        }
+    }
+    
+    /**
+     * 回填长度字段并刷盘
+     * 
+     * @return 文件总字节数
+     */
+    public long finish() throws IOException {
+        if (format == null) {
+            throw new IOException("音频片段列表为空");
+        }
+        // data 子块长度为奇数时按 RIFF 规范补一个填充字节(不计入 data 长度)
+        if ((dataSize & 1) == 1) {
+            output.write(ByteBuffer.wrap(new byte[1]));
+        }
+        long fileSize = output.position();
+        if (fileSize - 8 > MAX_RIFF_SIZE) {
+            throw new IOException("合并后的音频超过 WAV 格式 4GB 上限");
+        }
+        
+        output.write(uint32(fileSize - 8), 4);
+        output.write(uint32(dataSize), dataSizePosition);
+        output.force(false);
+        return fileSize;
+    }
+    
+    public int getChunkCount() {
+        return chunkCount;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+    
+    /**
+     * 写入文件头,RIFF 与 data 长度先写 0,结束时回填
+     */
+    private void writeHeader() throws IOException {
+        int padding = format.length & 1;
+        ByteBuffer header = ByteBuffer.allocate(12 + 8 + format.length + padding + 8).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(0).put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        header.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(format.length).put(format);
+        if (padding == 1) {
+            header.put((byte) 0);
+        }
+        header.put("data".getBytes(StandardCharsets.US_ASCII));
+        dataSizePosition = header.position();
+        header.putInt(0);
+        header.flip();
+        while (header.hasRemaining()) {
+            output.write(header);
+        }
+    }
+    
+    /**
+     * WAV 片段结构
+     * 
+     * @param format     fmt 子块内容
+     * @param dataOffset PCM 数据起始位置
+     * @param dataSize   PCM 数据长度
+     */
+    record WavLayout(byte[] format, long dataOffset, long dataSize) {
+    }
+    
+    /**
+     * 解析 RIFF 子块,定位 fmt 和 data
+     * 流式生成的 WAV 常把 data 长度写为 0 或 0xFFFFFFFF,此时以文件剩余长度为准
+     */
+    static WavLayout parse(FileChannel input) throws IOException {
+        long fileSize = input.size();
+        ByteBuffer riff = read(input, 0, 12);
+        if (!"RIFF".equals(fourCC(riff, 0)) || !"WAVE".equals(fourCC(riff, 8))) {
+            throw new IOException("无效的 WAV 文件格式");
+        }
+        
+        byte[] format = null;
+        long position = 12;
+        while (position + 8 <= fileSize) {
+            ByteBuffer chunkHeader = read(input, position, 8);
+            String id = fourCC(chunkHeader, 0);
+            long size = Integer.toUnsignedLong(chunkHeader.getInt(4));
+            long contentStart = position + 8;
+            
+            if ("fmt ".equals(id)) {
+                if (size > MAX_FORMAT_SIZE) {
+                    throw new IOException("无效的 WAV fmt 子块长度: " + size);
+                }
+                ByteBuffer content = read(input, contentStart, (int) size);
+                format = new byte[(int) size];
+                content.get(0, format);
+            } else if ("data".equals(id)) {
+                if (format == null) {
+                    throw new IOException("WAV 文件缺少 fmt 子块");
+                }
+                long available = fileSize - contentStart;
+                long dataSize = size == 0 || size > available ? available : size;
+                return new WavLayout(format, contentStart, dataSize);
+            }
+            // 子块按偶数字节对齐
+            position = contentStart + size + (size & 1);
+        }
+        throw new IOException("WAV 文件缺少 data 子块");
+    }
+    
+    private static ByteBuffer read(FileChannel input, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (input.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("WAV 文件不完整");
+            }
+        }
+        return buffer.flip();
+    }
+    
+    private static String fourCC(ByteBuffer buffer, int offset) {
+        byte[] id = new byte[4];
+        buffer.get(offset, id);
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+    
+    private static ByteBuffer uint32(long value) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) value).flip();
+    }
+}
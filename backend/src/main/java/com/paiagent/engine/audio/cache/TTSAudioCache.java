@@ -0,0 +1,318 @@
+package com.paiagent.engine.audio.cache;
+
+import com.alibaba.fastjson2.JSON;
+import com.paiagent.config.TTSCacheConfig;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import com.paiagent.service.MinioService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * TTS 片段音频缓存(内容寻址)
+ * 
+ * 缓存键为 (规范化文本, 模型, 音色, 语言类型) 的 SHA-256,值为片段 WAV 文件。
+ * 两级缓存: 本地磁盘层(按字节数 LRU 淘汰) + MinIO 共享层(多实例共享,不主动淘汰)。
+ * 命中时返回缓存文件的临时副本(优先硬链接),调用方可按普通片段文件处理和删除
+ */
+@Slf4j
+@Component
+public class TTSAudioCache {
+    
+    @Autowired
+    private TTSCacheConfig cacheConfig;
+    
+    @Autowired
+    private MinioService minioService;
+    
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Path diskDir;
+    
+    /**
+     * 磁盘层索引: 键 -> 文件字节数,按访问顺序排列(最久未使用在前)
+     */
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    
+    private final ReentrantLock indexLock = new ReentrantLock();
+    
+    private long diskBytes;
+    
+    private Counter diskHits;
+    
+    private Counter minioHits;
+    
+    private Counter misses;
+    
+    @PostConstruct
+    public void init() {
+        diskHits = Counter.builder("tts.cache.requests").tag("result", "disk_hit").register(meterRegistry);
+        minioHits = Counter.builder("tts.cache.requests").tag("result", "minio_hit").register(meterRegistry);
+        misses = Counter.builder("tts.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("tts.cache.disk.bytes", this, cache -> cache.diskBytes)
+                .description("TTS 磁盘缓存占用字节数")
+                .register(meterRegistry);
+        
+        if (!cacheConfig.isEnabled()) {
+            return;
+        }
+        diskDir = Paths.get(cacheConfig.getDiskDir());
+        try {
+            Files.createDirectories(diskDir);
+            loadIndex();
+        } catch (IOException e) {
+            log.warn("初始化 TTS 磁盘缓存失败,禁用磁盘层: {}", e.getMessage());
+            diskDir = null;
+        }
+    }
+    
+    public boolean isEnabled() {
+        return cacheConfig.isEnabled();
+    }
+    
+    /**
+     * 计算片段缓存键
+     * 文本做 Unicode NFC 规范化并折叠空白,仅排版差异的文本共享同一条目
+     */
+    public String key(String text, String model, String voice, String languageType) {
+        String normalizedText = Normalizer.normalize(text, Normalizer.Form.NFC).strip().replaceAll("\\s+", " ");
+        Map<String, Object> normalized = new LinkedHashMap<>();
+        normalized.put("text", normalizedText);
+        normalized.put("model", model);
+        normalized.put("voice", voice != null ? voice.toLowerCase() : null);
+        normalized.put("languageType", languageType);
+        return sha256(JSON.toJSONString(normalized));
+    }
+    
+    /**
+     * 查询缓存
+     * 
+     * @return 命中时返回可由调用方删除的临时文件,未命中返回 null
+     */
+    public Path get(String key) {
+        if (!cacheConfig.isEnabled()) {
+            return null;
+        }
+        
+        if (diskDir != null) {
+            Path cached = diskPath(key);
+            if (touch(key, cached)) {
+                try {
+                    Path copy = linkOrCopy(cached);
+                    diskHits.increment();
+                    return copy;
+                } catch (IOException e) {
+                    log.warn("读取 TTS 磁盘缓存失败: {}", e.getMessage());
+                }
+            }
+        }
+        
+        if (cacheConfig.isMinioEnabled()) {
+            Path downloaded = null;
+            try {
+                downloaded = Files.createTempFile("tts-cache-", ".wav");
+                if (minioService.downloadToFile(objectName(key), downloaded)) {
+                    minioHits.increment();
+                    storeOnDisk(key, downloaded);
+                    return downloaded;
+                }
+                Files.deleteIfExists(downloaded);
+            } catch (Exception e) {
+                log.warn("读取 TTS MinIO 缓存失败: {}", e.getMessage());
+                deleteQuietly(downloaded);
+            }
+        }
+        
+        misses.increment();
+        return null;
+    }
+    
+    /**
+     * 写入缓存: 同步写入磁盘层,后台上传 MinIO 共享层
+     * 
+     * @param audioFile 片段文件,调用方仍持有并负责删除
+     */
+    public void put(String key, Path audioFile) {
+        if (!cacheConfig.isEnabled()) {
+            return;
+        }
+        storeOnDisk(key, audioFile);
+        if (cacheConfig.isMinioEnabled()) {
+            Path source = diskDir != null ? diskPath(key) : audioFile;
+            executionRuntime.getBlockingExecutor().execute(() -> {
+                try {
+                    // 文件可能在上传开始前已被淘汰(或被调用方删除),此时放弃共享层写入
+                    if (Files.exists(source)) {
+                        minioService.uploadFromFile(source, objectName(key), "audio/wav");
+                    }
+                } catch (Exception e) {
+                    log.warn("上传 TTS 缓存到 MinIO 失败: {}", e.getMessage());
+                }
+            });
+        }
+    }
+    
+    /**
+     * 命中磁盘层时更新访问顺序和修改时间(重启后据此恢复 LRU 顺序)
+     */
+    private boolean touch(String key, Path cached) {
+        indexLock.lock();
+        try {
+            if (index.get(key) == null) {
+                return false;
+            }
+        } finally {
+            indexLock.unlock();
+        }
+        try {
+            Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (IOException e) {
+            // 文件已被外部删除
+            remove(key);
+            return false;
+        }
+    }
+    
+    private void storeOnDisk(String key, Path audioFile) {
+        if (diskDir == null) {
+            return;
+        }
+        Path file = diskPath(key);
+        try {
+            Files.createDirectories(file.getParent());
+            // 先写临时文件再原子替换,避免并发读到半个文件
+            Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.copy(audioFile, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            record(key, Files.size(file));
+        } catch (IOException e) {
+            log.warn("写入 TTS 磁盘缓存失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 登记条目并按字节数淘汰最久未使用的条目
+     */
+    private void record(String key, long size) {
+        List<String> evicted = new ArrayList<>();
+        indexLock.lock();
+        try {
+            Long previous = index.put(key, size);
+            diskBytes += size - (previous != null ? previous : 0);
+            Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+            while (diskBytes > cacheConfig.getDiskMaxBytes() && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                diskBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        } finally {
+            indexLock.unlock();
+        }
+        evicted.forEach(evictedKey -> deleteQuietly(diskPath(evictedKey)));
+    }
+    
+    private void remove(String key) {
+        indexLock.lock();
+        try {
+            Long size = index.remove(key);
+            if (size != null) {
+                diskBytes -= size;
+            }
+        } finally {
+            indexLock.unlock();
+        }
+    }
+    
+    /**
+     * 启动时扫描磁盘层,按修改时间恢复 LRU 顺序并清理残留的临时文件和命中副本
+     */
+    private void loadIndex() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(diskDir)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+        List<Map.Entry<Path, FileTime>> entries = new ArrayList<>();
+        for (Path file : files) {
+            if (file.toString().endsWith(".tmp") || file.toString().endsWith(".link")) {
+                deleteQuietly(file);
+            } else if (file.toString().endsWith(".wav")) {
+                entries.add(Map.entry(file, Files.getLastModifiedTime(file)));
+            }
+        }
+        entries.sort(Map.Entry.comparingByValue());
+        for (Map.Entry<Path, FileTime> entry : entries) {
+            String name = entry.getKey().getFileName().toString();
+            record(name.substring(0, name.length() - ".wav".length()), Files.size(entry.getKey()));
+        }
+        log.info("TTS 磁盘缓存已加载: 条目数={}, 占用={} bytes", entries.size(), diskBytes);
+    }
+    
+    /**
+     * 优先创建硬链接(无数据拷贝),跨文件系统等不支持时退化为复制
+     */
+    private Path linkOrCopy(Path cached) throws IOException {
+        Path target = cached.resolveSibling(cached.getFileName() + "." + UUID.randomUUID() + ".link");
+        try {
+            return Files.createLink(target, cached);
+        } catch (IOException | UnsupportedOperationException e) {
+            Path copy = Files.createTempFile("tts-cache-", ".wav");
+            Files.copy(cached, copy, StandardCopyOption.REPLACE_EXISTING);
+            return copy;
+        }
+    }
+    
+    /**
+     * 按键前两位分目录,避免单目录文件过多
+     */
+    private Path diskPath(String key) {
+        return diskDir.resolve(key.substring(0, 2)).resolve(key + ".wav");
+    }
+    
+    private String objectName(String key) {
+        return cacheConfig.getMinioPrefix() + key + ".wav";
+    }
+    
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("删除缓存文件失败: {}", file);
+        }
+    }
+    
+    private String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
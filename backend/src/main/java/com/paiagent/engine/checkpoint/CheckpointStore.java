@@ -0,0 +1,144 @@
+package com.paiagent.engine.checkpoint;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.paiagent.config.CheckpointConfig;
+import com.paiagent.entity.ExecutionCheckpoint;
+import com.paiagent.entity.Workflow;
+import com.paiagent.mapper.ExecutionCheckpointMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 检查点存储
+ * 
+ * 节点完成后保存其输出,执行失败后可从第一个失败或未完成的节点恢复,
+ * 复用已保存的上游输出,避免重复调用 LLM 等上游节点
+ */
+@Slf4j
+@Component
+public class CheckpointStore {
+    
+    @Autowired
+    private ExecutionCheckpointMapper checkpointMapper;
+    
+    @Autowired
+    private CheckpointConfig checkpointConfig;
+    
+    /**
+     * 保存节点输出
+     * 检查点写入失败不影响执行本身,只记录日志
+     */
+    public void save(String runId, Workflow workflow, String nodeId, Map<String, Object> output) {
+        save(runId, workflow.getId(), workflow.getUpdatedAt(), nodeId, output);
+    }
+    
+    /**
+     * 保存节点输出
+     * 
+     * @param flowVersion 工作流版本(更新时间)
+     */
+    public void save(String runId, Long flowId, LocalDateTime flowVersion, String nodeId, Map<String, Object> output) {
+        if (!checkpointConfig.isEnabled() || runId == null) {
+            return;
+        }
+        
+        try {
+            ExecutionCheckpoint checkpoint = new ExecutionCheckpoint();
+            checkpoint.setRunId(runId);
+            checkpoint.setFlowId(flowId);
+            checkpoint.setFlowVersion(flowVersion);
+            checkpoint.setNodeId(nodeId);
+            checkpoint.setNodeOutput(JSON.toJSONString(output));
+            // 自定义 SQL 不经过自动填充
+            checkpoint.setCreatedAt(LocalDateTime.now());
+            checkpointMapper.upsert(checkpoint);
+        } catch (Exception e) {
+            log.warn("保存节点 [{}] 检查点失败: runId={}, {}", nodeId, runId, e.getMessage());
+        }
+    }
+    
+    /**
+     * 加载运行的检查点
+     * 工作流已被修改(版本不一致)的检查点不再复用
+     * 
+     * @return 节点 ID -> 节点输出
+     */
+    public Map<String, Map<String, Object>> load(String runId, Workflow workflow) {
+        List<ExecutionCheckpoint> checkpoints = checkpointMapper.selectList(
+                new LambdaQueryWrapper<ExecutionCheckpoint>().eq(ExecutionCheckpoint::getRunId, runId));
+        
+        Map<String, Map<String, Object>> outputs = new HashMap<>();
+        for (ExecutionCheckpoint checkpoint : checkpoints) {
+            if (!Objects.equals(checkpoint.getFlowVersion(), workflow.getUpdatedAt())) {
+                log.info("工作流 [{}] 已修改,忽略节点 [{}] 的检查点", workflow.getId(), checkpoint.getNodeId());
+                continue;
+            }
+            JSONObject output = JSON.parseObject(checkpoint.getNodeOutput());
+            outputs.put(checkpoint.getNodeId(), output != null ? new HashMap<>(output) : new HashMap<>());
+        }
+        return outputs;
+    }
+    
+    /**
+     * 执行成功后清理检查点
+     */
+    public void clear(String runId) {
+        if (!checkpointConfig.isClearOnSuccess() || runId == null) {
+            return;
+        }
+        try {
+            checkpointMapper.delete(new LambdaQueryWrapper<ExecutionCheckpoint>().eq(ExecutionCheckpoint::getRunId, runId));
+        } catch (Exception e) {
+            log.warn("清理检查点失败: runId={}, {}", runId, e.getMessage());
+        }
+    }
+    
+    /**
+     * 计算可复用的节点输出
+     * 节点有检查点且所有前置节点均可复用时才复用,保证恢复后下游看到的输入与原执行一致
+     * 
+     * @param dependencies 节点 ID -> 前置节点 ID 列表
+     * @param checkpoints  已保存的节点输出
+     * @return 可复用的节点 ID -> 节点输出
+     */
+    public static Map<String, Map<String, Object>> resolveReusable(Map<String, List<String>> dependencies,
+                                                                   Map<String, Map<String, Object>> checkpoints) {
+        Map<String, Map<String, Object>> reusable = new HashMap<>();
+        if (checkpoints == null || checkpoints.isEmpty()) {
+            return reusable;
+        }
+        
+        Map<String, Boolean> memo = new HashMap<>();
+        for (String nodeId : dependencies.keySet()) {
+            if (isReusable(nodeId, dependencies, checkpoints, memo)) {
+                reusable.put(nodeId, checkpoints.get(nodeId));
+            }
+        }
+        return reusable;
+    }
+    
+    private static boolean isReusable(String nodeId, Map<String, List<String>> dependencies,
+                                      Map<String, Map<String, Object>> checkpoints, Map<String, Boolean> memo) {
+        Boolean cached = memo.get(nodeId);
+        if (cached != null) {
+            return cached;
+        }
+        boolean result = checkpoints.containsKey(nodeId);
+        if (result) {
+            for (String dep : dependencies.getOrDefault(nodeId, List.of())) {
+                if (!isReusable(dep, dependencies, checkpoints, memo)) {
+                    result = false;
+                    break;
+                }
+            }
+        }
+        memo.put(nodeId, result);
+        return result;
+    }
+}
@@ -19,7 +19,6 @@ public class DAGParser {
      */
     public List<WorkflowNode> parse(WorkflowConfig config) {
         List<WorkflowNode> nodes = config.getNodes();
-        List<WorkflowEdge> edges = config.getEdges();
         
         // 构建节点 ID 到节点的映射
         Map<String, WorkflowNode> nodeMap = new HashMap<>();
@@ -28,32 +27,34 @@ public class DAGParser {
         }
         
         // 构建依赖关系图: 节点 -> 它依赖的节点列表(前置节点)
-        Map<String, List<String>> dependencies = new HashMap<>();
-        // 构建反向依赖图: 节点 -> 依赖它的节点列表(后继节点)
-        Map<String, List<String>> dependents = new HashMap<>();
+        Map<String, List<String>> dependencies = buildDependencies(config);
         
-        // 初始化
-        for (WorkflowNode node : nodes) {
+        // 检测循环依赖
+        detectCycle(dependencies, nodes);
+        
+        // 拓扑排序
+        return topologicalSort(nodeMap, dependencies);
+    }
+    
+    /**
+     * 构建依赖关系图: 节点 ID -> 它依赖的节点 ID 列表(前置节点),按连线顺序排列
+     */
+    public Map<String, List<String>> buildDependencies(WorkflowConfig config) {
+        Map<String, List<String>> dependencies = new HashMap<>();
+        for (WorkflowNode node : config.getNodes()) {
             dependencies.put(node.getId(), new ArrayList<>());
-            dependents.put(node.getId(), new ArrayList<>());
         }
         
-        // 构建依赖关系
-        for (WorkflowEdge edge : edges) {
-            String source = edge.getSource();
-            String target = edge.getTarget();
-            
+        for (WorkflowEdge edge : config.getEdges()) {
+            List<String> deps = dependencies.get(edge.getTarget());
+            if (deps == null || !dependencies.containsKey(edge.getSource())) {
+                throw new RuntimeException("连线引用了不存在的节点: " + edge.getSource() + " -> " + edge.getTarget());
+            }
             // target 依赖 source
-            dependencies.get(target).add(source);
-            // source 的后继节点包含 target
-            dependents.get(source).add(target);
+            deps.add(edge.getSource());
         }
         
-        // 检测循环依赖
-        detectCycle(dependencies, nodes);
-        
-        // 拓扑排序
-        return topologicalSort(nodeMap, dependencies);
+        return dependencies;
     }
     
     /**
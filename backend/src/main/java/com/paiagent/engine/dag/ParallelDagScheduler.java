@@ -0,0 +1,207 @@
+package com.paiagent.engine.dag;
+
+import com.paiagent.engine.model.WorkflowNode;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import com.paiagent.engine.stream.TextStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 并行 DAG 调度器
+ * 前置节点全部完成的节点立即启动,单次执行内同时运行的节点数受并发上限约束。
+ * 流式边的下游节点在上游启动时即启动,通过 TextStream 边读边处理上游输出,提前启动的下游同样计入并发上限
+ */
+@Slf4j
+@Component
+public class ParallelDagScheduler {
+    
+    /**
+     * 汇聚节点输入中携带所有已完成节点输出的键(与 OutputNodeExecutor 约定一致)
+     */
+    public static final String NODE_OUTPUTS_KEY = "__nodeOutputs__";
+    
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    /**
+     * 节点执行任务
+     */
+    @FunctionalInterface
+    public interface NodeTask {
+        Map<String, Object> run(WorkflowNode node, Map<String, Object> input) throws Exception;
+    }
+    
+    /**
+     * 按依赖关系并行调度节点(无流式边)
+     */
+    public Map<String, Map<String, Object>> schedule(List<WorkflowNode> sortedNodes,
+                                                     Map<String, List<String>> dependencies,
+                                                     Map<String, Object> initialInput,
+                                                     int maxConcurrency,
+                                                     NodeTask task) throws Exception {
+        return schedule(sortedNodes, dependencies, initialInput, maxConcurrency, Map.of(), task);
+    }
+    
+    /**
+     * 按依赖关系并行调度节点
+     *
+     * @param sortedNodes    拓扑排序后的节点列表
+     * @param dependencies   节点 ID -> 前置节点 ID 列表
+     * @param initialInput   入口节点(无前置节点)的输入
+     * @param maxConcurrency 单次执行内最大并发节点数,随上游提前启动的流式下游同样计入;
+     *                       上限容纳不下上游及其全部流式下游时,这些边按普通边执行
+     * @param streamingEdges 流式边: 下游节点 ID -> 上游节点 ID
+     * @param task           节点执行逻辑
+     * @return 节点 ID -> 节点输出
+     */
+    public Map<String, Map<String, Object>> schedule(List<WorkflowNode> sortedNodes,
+                                                     Map<String, List<String>> dependencies,
+                                                     Map<String, Object> initialInput,
+                                                     int maxConcurrency,
+                                                     Map<String, String> streamingEdges,
+                                                     NodeTask task) throws Exception {
+        int concurrency = Math.max(1, maxConcurrency);
+        
+        // 拓扑序号,保证就绪队列按拓扑顺序出队,调度结果可复现
+        Map<String, Integer> order = new HashMap<>();
+        Map<String, Integer> remaining = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (int i = 0; i < sortedNodes.size(); i++) {
+            String nodeId = sortedNodes.get(i).getId();
+            order.put(nodeId, i);
+            remaining.put(nodeId, dependencies.get(nodeId).size());
+            dependents.put(nodeId, new ArrayList<>());
+        }
+        for (WorkflowNode node : sortedNodes) {
+            for (String dep : dependencies.get(node.getId())) {
+                dependents.get(dep).add(node.getId());
+            }
+        }
+        
+        Map<String, WorkflowNode> nodeMap = new HashMap<>();
+        PriorityQueue<WorkflowNode> ready = new PriorityQueue<>(Comparator.comparingInt(n -> order.get(n.getId())));
+        for (WorkflowNode node : sortedNodes) {
+            nodeMap.put(node.getId(), node);
+            if (remaining.get(node.getId()) == 0) {
+                ready.add(node);
+            }
+        }
+        
+        Map<String, Map<String, Object>> outputs = new ConcurrentHashMap<>();
+        CompletionService<Map<String, Object>> completionService = new ExecutorCompletionService<>(executionRuntime.getBlockingExecutor());
+        Map<Future<Map<String, Object>>, WorkflowNode> inFlight = new HashMap<>();
+        // 已随上游提前启动的流式下游节点
+        Set<String> startedEarly = new HashSet<>();
+        Exception failure = null;
+        
+        try {
+            while (!inFlight.isEmpty() || (failure == null && !ready.isEmpty())) {
+                // 启动所有就绪节点,直到达到并发上限;已有节点失败时不再启动新节点
+                while (failure == null && inFlight.size() < concurrency && !ready.isEmpty()) {
+                    WorkflowNode node = ready.peek();
+                    List<String> streamConsumers = dependents.get(node.getId()).stream()
+                            .filter(dependent -> node.getId().equals(streamingEdges.get(dependent)))
+                            .toList();
+                    // 上游与流式下游同时占用名额: 名额不足时等待在途节点完成;
+                    // 并发上限本身容纳不下时按普通边执行,下游在上游完成后按常规启动
+                    boolean streaming = !streamConsumers.isEmpty() && 1 + streamConsumers.size() <= concurrency;
+                    if (streaming && inFlight.size() + 1 + streamConsumers.size() > concurrency) {
+                        break;
+                    }
+                    ready.poll();
+                    Map<String, Object> input = joinInputs(dependencies.get(node.getId()), outputs, initialInput);
+                    if (!streaming) {
+                        inFlight.put(completionService.submit(() -> task.run(node, input)), node);
+                        continue;
+                    }
+                    
+                    TextStream stream = new TextStream();
+                    input.put(TextStream.OUTPUT_STREAM_KEY, stream);
+                    inFlight.put(completionService.submit(() -> runProducer(task, node, input, stream)), node);
+                    for (String consumerId : streamConsumers) {
+                        WorkflowNode consumer = nodeMap.get(consumerId);
+                        Map<String, Object> consumerInput = new HashMap<>();
+                        consumerInput.put(TextStream.INPUT_STREAM_KEY, stream);
+                        inFlight.put(completionService.submit(() -> task.run(consumer, consumerInput)), consumer);
+                        startedEarly.add(consumerId);
+                        log.info("流式边 {} -> {}: 下游节点随上游启动", node.getId(), consumerId);
+                    }
+                }
+                
+                Future<Map<String, Object>> done = completionService.take();
+                WorkflowNode node = inFlight.remove(done);
+                
+                try {
+                    Map<String, Object> output = done.get();
+                    outputs.put(node.getId(), output != null ? output : new HashMap<>());
+                    
+                    for (String dependent : dependents.get(node.getId())) {
+                        int left = remaining.merge(dependent, -1, Integer::sum);
+                        if (left == 0 && !startedEarly.contains(dependent)) {
+                            ready.add(nodeMap.get(dependent));
+                        }
+                    }
+                } catch (ExecutionException e) {
+                    // 记录第一个失败,等待已启动的节点结束后再抛出
+                    if (failure == null) {
+                        failure = e.getCause() instanceof Exception ex ? ex : new RuntimeException(e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            inFlight.keySet().forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        
+        if (failure != null) {
+            throw failure;
+        }
+        
+        return outputs;
+    }
+    
+    /**
+     * 执行流式上游节点,无论成功失败都结束输出通道,避免下游一直等待
+     */
+    private Map<String, Object> runProducer(NodeTask task, WorkflowNode node, Map<String, Object> input,
+                                            TextStream stream) throws Exception {
+        try {
+            Map<String, Object> output = task.run(node, input);
+            stream.complete();
+            return output;
+        } catch (Exception e) {
+            stream.fail(e);
+            throw e;
+        }
+    }
+    
+    /**
+     * 汇聚前置节点输出作为当前节点输入
+     * - 无前置节点: 使用工作流初始输入
+     * - 单个前置节点: 与串行模式一致,直接使用其输出
+     * - 多个前置节点: 按连线顺序合并所有前置输出,并附带全部已完成节点的输出供按节点引用
+     */
+    private Map<String, Object> joinInputs(List<String> parents,
+                                           Map<String, Map<String, Object>> outputs,
+                                           Map<String, Object> initialInput) {
+        if (parents.isEmpty()) {
+            return new HashMap<>(initialInput);
+        }
+        
+        if (parents.size() == 1) {
+            return new HashMap<>(outputs.get(parents.get(0)));
+        }
+        
+        Map<String, Object> joined = new LinkedHashMap<>();
+        for (String parent : parents) {
+            joined.putAll(outputs.get(parent));
+        }
+        joined.put(NODE_OUTPUTS_KEY, new HashMap<>(outputs));
+        return joined;
+    }
+}
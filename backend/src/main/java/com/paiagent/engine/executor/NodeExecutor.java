@@ -14,5 +14,46 @@ public interface NodeExecutor {
         return execute(node, input);
     }
     
+    /**
+     * 预编译节点配置,结果缓存在执行计划中供后续执行复用
+     *
+     * @return 类型化的节点配置,无需预编译时返回 null
+     */
+    default Object compileConfig(WorkflowNode node) {
+        return null;
+    }
+    
+    /**
+     * 使用预编译配置执行节点
+     *
+     * @param compiledConfig {@link #compileConfig(WorkflowNode)} 的返回值
+     */
+    default Map<String, Object> execute(WorkflowNode node, Object compiledConfig, Map<String, Object> input,
+                                        Consumer<ExecutionEvent> progressCallback) throws Exception {
+        return execute(node, input, progressCallback);
+    }
+    
+    /**
+     * 节点能否在执行过程中产出流式文本输出
+     * 返回 true 时引擎可能在输入中放入 {@link com.paiagent.engine.stream.TextStream#OUTPUT_STREAM_KEY},
+     * 执行器应边生成边写入,内容与输出 Map 中的文本一致
+     *
+     * @param compiledConfig {@link #compileConfig(WorkflowNode)} 的返回值
+     */
+    default boolean supportsStreamingOutput(WorkflowNode node, Object compiledConfig) {
+        return false;
+    }
+    
+    /**
+     * 节点能否以指定上游的流式文本作为输入
+     * 返回 true 时引擎可能在上游完成前启动本节点,输入中仅包含
+     * {@link com.paiagent.engine.stream.TextStream#INPUT_STREAM_KEY}
+     *
+     * @param upstreamNodeId 唯一的前置节点 ID
+     */
+    default boolean supportsStreamingInput(WorkflowNode node, String upstreamNodeId) {
+        return false;
+    }
+    
     String getSupportedNodeType();
-}
\ No newline at end of file
+}
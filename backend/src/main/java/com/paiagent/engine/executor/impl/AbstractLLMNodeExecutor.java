@@ -2,17 +2,37 @@ package com.paiagent.engine.executor.impl;
 
 import com.paiagent.dto.ExecutionEvent;
 import com.paiagent.engine.executor.NodeExecutor;
+import com.paiagent.config.LLMCacheConfig;
+import com.paiagent.config.LLMStreamConfig;
 import com.paiagent.engine.llm.ChatClientFactory;
 import com.paiagent.engine.llm.LLMNodeConfig;
+import com.paiagent.engine.llm.LLMResponse;
 import com.paiagent.engine.llm.PromptTemplateService;
+import com.paiagent.engine.llm.cache.LLMResponseCache;
+import com.paiagent.engine.llm.invoke.FailoverLLMInvoker;
+import com.paiagent.engine.llm.invoke.LLMEndpoint;
+import com.paiagent.engine.llm.stream.DeltaFrameCoalescer;
+import com.paiagent.engine.pool.CredentialPoolRegistry;
+import com.paiagent.engine.ratelimit.ProviderRateLimiter;
+import com.paiagent.engine.stream.TextStream;
+import com.paiagent.engine.runtime.ExecutionRuntime;
 import com.paiagent.engine.model.WorkflowNode;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 /**
@@ -28,6 +48,27 @@ public abstract class AbstractLLMNodeExecutor implements NodeExecutor {
     @Autowired
     protected PromptTemplateService promptTemplateService;
     
+    @Autowired
+    protected LLMResponseCache llmResponseCache;
+    
+    @Autowired
+    protected LLMCacheConfig llmCacheConfig;
+    
+    @Autowired
+    protected LLMStreamConfig llmStreamConfig;
+    
+    @Autowired
+    protected ExecutionRuntime executionRuntime;
+    
+    @Autowired
+    protected FailoverLLMInvoker failoverLLMInvoker;
+    
+    @Autowired
+    protected ProviderRateLimiter providerRateLimiter;
+    
+    @Autowired
+    protected CredentialPoolRegistry credentialPoolRegistry;
+    
     /**
      * 获取节点类型标识
      */
@@ -41,8 +82,21 @@ public abstract class AbstractLLMNodeExecutor implements NodeExecutor {
     @Override
     public Map<String, Object> execute(WorkflowNode node, Map<String, Object> input, 
                                        Consumer<ExecutionEvent> progressCallback) throws Exception {
-        // 1. 提取节点配置
-        LLMNodeConfig config = extractConfig(node);
+        return execute(node, extractConfig(node), input, progressCallback);
+    }
+    
+    @Override
+    public Object compileConfig(WorkflowNode node) {
+        return extractConfig(node);
+    }
+    
+    @Override
+    public Map<String, Object> execute(WorkflowNode node, Object compiledConfig, Map<String, Object> input, 
+                                       Consumer<ExecutionEvent> progressCallback) throws Exception {
+        // 1. 使用执行计划中预编译的节点配置
+        LLMNodeConfig config = (LLMNodeConfig) compiledConfig;
+        // 流式边的上游: 生成内容同时写入输出通道供下游节点边读边处理
+        TextStream outputStream = input.get(TextStream.OUTPUT_STREAM_KEY) instanceof TextStream stream ? stream : null;
         
         log.info("{} 节点配置 - API: {}, Model: {}, Temperature: {}", 
                 getNodeType().toUpperCase(), config.getApiUrl(), config.getModel(), config.getTemperature());
@@ -57,21 +111,47 @@ public abstract class AbstractLLMNodeExecutor implements NodeExecutor {
         );
         log.info("最终提示词: {}", finalPrompt);
         
-        // 3. 创建ChatClient
-        ChatClient chatClient = chatClientFactory.createClient(
-                getNodeType(),
-                config.getApiUrl(),
-                config.getApiKey(),
-                config.getModel(),
-                config.getTemperature()
-        );
+        // 3. 查询响应缓存（仅对开启缓存的节点）
+        String cacheKey = config.isCache()
+                ? llmResponseCache.key(getNodeType(), config.getApiUrl(), config.getModel(), config.getTemperature(), finalPrompt)
+                : null;
+        LLMResponse llmResponse = cacheKey != null ? llmResponseCache.get(cacheKey) : null;
+        boolean cached = llmResponse != null;
+        boolean streamed = false;
         
-        // 4. 调用LLM（支持流式和非流式）
-        LLMResponse llmResponse;
-        if (config.isStreaming() && progressCallback != null) {
-            llmResponse = executeStreaming(chatClient, finalPrompt, node, progressCallback);
+        if (cached) {
+            log.info("{} 命中响应缓存: {}", getNodeType().toUpperCase(), cacheKey);
+            if (config.isStreaming() && progressCallback != null) {
+                replayStreaming(llmResponse, node, progressCallback);
+            }
         } else {
-            llmResponse = executeNormal(chatClient, finalPrompt);
+            // 4. 调用LLM（支持流式和非流式）
+            // 端点链依次经熔断器尝试,主端点配置了对冲端点时对慢请求发起对冲
+            List<LLMEndpoint> chain = endpointChain(config);
+            AtomicReference<LLMEndpoint> answeredBy = new AtomicReference<>();
+            if (config.isStreaming() && (progressCallback != null || outputStream != null)) {
+                llmResponse = executeStreaming(chain, config, finalPrompt, node, progressCallback, outputStream, answeredBy);
+                streamed = true;
+            } else {
+                // 对冲时两个端点都可能返回,按返回对象识别实际被采用的端点
+                Map<LLMResponse, LLMEndpoint> answers = Collections.synchronizedMap(new IdentityHashMap<>());
+                llmResponse = failoverLLMInvoker.call(chain, config.getHedgeEndpoint(), config.getHedgePercentile(),
+                        endpoint -> credentialPoolRegistry.call(endpoint, (member, upstreamStarted) -> {
+                            LLMResponse response = executeNormal(member, finalPrompt, upstreamStarted);
+                            answers.put(response, member);
+                            return response;
+                        }));
+                answeredBy.set(answers.get(llmResponse));
+            }
+            
+            // 缓存键按主端点计算,故障转移、对冲或凭证池成员换用其他端点/模型给出的响应不写入
+            if (cacheKey != null && answeredByPrimary(answeredBy.get(), config)) {
+                llmResponseCache.put(cacheKey, llmResponse);
+            }
+        }
+        
+        if (outputStream != null && !streamed) {
+            outputStream.append(llmResponse.getContent());
         }
         
         log.info("{} API响应: {}", getNodeType().toUpperCase(), llmResponse.getContent());
@@ -81,43 +161,78 @@ public abstract class AbstractLLMNodeExecutor implements NodeExecutor {
                 llmResponse.getOutputTokens(),
                 llmResponse.getTotalTokens());
         
-        // 5. 构建输出
+        // 6. 构建输出
         Map<String, Object> output = buildOutput(llmResponse, config.getOutputParams());
+        if (cached) {
+            output.put("cached", true);
+        }
         log.info("{} 节点输出: {}", getNodeType().toUpperCase(), output);
         
         return output;
     }
     
     /**
-     * LLM响应包装类
+     * 节点的主端点
+     */
+    private LLMEndpoint primaryEndpoint(LLMNodeConfig config) {
+        return new LLMEndpoint(getNodeType(), config.getApiUrl(), config.getApiKey(),
+                config.getModel(), config.getTemperature(), config.getPool());
+    }
+    
+    /**
+     * 响应是否由主端点的提供方和模型给出(凭证池成员只替换地址、密钥时仍视为主端点)
+     */
+    private boolean answeredByPrimary(LLMEndpoint answered, LLMNodeConfig config) {
+        return answered != null
+                && getNodeType().equals(answered.provider())
+                && Objects.equals(config.getModel(), answered.model());
+    }
+    
+    /**
+     * 端点链: 主端点 + 故障转移端点
      */
-    private static class LLMResponse {
-        private final String content;
-        private final Integer inputTokens;
-        private final Integer outputTokens;
-        private final Integer totalTokens;
-        
-        public LLMResponse(String content, Integer inputTokens, Integer outputTokens, Integer totalTokens) {
-            this.content = content;
-            this.inputTokens = inputTokens != null ? inputTokens : 0;
-            this.outputTokens = outputTokens != null ? outputTokens : 0;
-            this.totalTokens = totalTokens != null ? totalTokens : (this.inputTokens + this.outputTokens);
+    private List<LLMEndpoint> endpointChain(LLMNodeConfig config) {
+        List<LLMEndpoint> chain = new ArrayList<>();
+        chain.add(primaryEndpoint(config));
+        if (config.getFallbackEndpoints() != null) {
+            chain.addAll(config.getFallbackEndpoints());
         }
-        
-        public String getContent() { return content; }
-        public Integer getInputTokens() { return inputTokens; }
-        public Integer getOutputTokens() { return outputTokens; }
-        public Integer getTotalTokens() { return totalTokens; }
+        return chain;
+    }
+    
+    /**
+     * 创建指定端点的ChatClient
+     */
+    private ChatClient createClient(LLMEndpoint endpoint) {
+        return chatClientFactory.createClient(
+                endpoint.provider(),
+                endpoint.apiUrl(),
+                endpoint.apiKey(),
+                endpoint.model(),
+                endpoint.temperature()
+        );
     }
     
     /**
      * 普通（非流式）调用
+     * 调用前按预估 token 数获取提供方限流许可,调用后按实际用量校正;调用失败时只按输入计,归还预留的输出额度
      */
-    private LLMResponse executeNormal(ChatClient chatClient, String prompt) {
-        var chatResponse = chatClient.prompt()
-                .user(prompt)
-                .call()
-                .chatResponse();
+    private LLMResponse executeNormal(LLMEndpoint endpoint, String prompt, Runnable upstreamStarted)
+            throws InterruptedException {
+        ProviderRateLimiter.Permit permit = providerRateLimiter.acquire(
+                endpoint.provider(), endpoint.apiKey(), providerRateLimiter.estimateCallTokens(prompt));
+        upstreamStarted.run();
+        
+        ChatResponse chatResponse;
+        try {
+            chatResponse = createClient(endpoint).prompt()
+                    .user(prompt)
+                    .call()
+                    .chatResponse();
+        } catch (RuntimeException e) {
+            permit.reconcile(providerRateLimiter.estimateTokens(prompt));
+            throw e;
+        }
         
         String content = chatResponse.getResult().getOutput().getContent();
         
@@ -133,38 +248,83 @@ public abstract class AbstractLLMNodeExecutor implements NodeExecutor {
             outputTokens = usage.getGenerationTokens() != null ? usage.getGenerationTokens().intValue() : null;
             totalTokens = usage.getTotalTokens() != null ? usage.getTotalTokens().intValue() : null;
         }
+        permit.reconcile(totalTokens);
         
         return new LLMResponse(content, inputTokens, outputTokens, totalTokens);
     }
     
     /**
      * 流式调用
+     * 片段经分帧器合并后以增量帧推送,完整内容随 NODE_SUCCESS 的节点输出发送一次;
+     * 存在输出通道时片段同时写入通道;最先输出内容的端点即被采用的端点(对冲按首个片段决出胜者),记入 answeredBy
      */
-    private LLMResponse executeStreaming(ChatClient chatClient, String prompt, 
-                                    WorkflowNode node, Consumer<ExecutionEvent> progressCallback) {
-        StringBuilder accumulated = new StringBuilder();
+    private LLMResponse executeStreaming(List<LLMEndpoint> chain, LLMNodeConfig config, String prompt, 
+                                    WorkflowNode node, Consumer<ExecutionEvent> progressCallback,
+                                    TextStream outputStream, AtomicReference<LLMEndpoint> answeredBy) {
+        StringBuilder content = new StringBuilder();
         
         // 注意：流式调用时无法获取token统计，因为metadata在流式模式下不可用
-        chatClient.prompt()
-                .user(prompt)
-                .stream()
-                .content()
-                .doOnNext(chunk -> {
-                    accumulated.append(chunk);
-                    if (progressCallback != null) {
-                        Map<String, Object> data = new HashMap<>();
-                        data.put("chunk", chunk);
-                        data.put("accumulated", accumulated.toString());
-                        progressCallback.accept(
-                                ExecutionEvent.nodeProgress(node.getId(), node.getType(),
-                                        "生成中...", data)
-                        );
-                    }
-                })
-                .blockLast();
+        try (DeltaFrameCoalescer coalescer = progressCallback != null ? newCoalescer(node, progressCallback) : null) {
+            failoverLLMInvoker.stream(chain, config.getHedgeEndpoint(), config.getHedgePercentile(),
+                            endpoint -> credentialPoolRegistry.stream(endpoint,
+                                    (member, upstreamStarted) -> streamEndpoint(member, prompt, upstreamStarted)
+                                            .doOnNext(chunk -> answeredBy.compareAndSet(null, member))))
+                    .doOnNext(chunk -> {
+                        content.append(chunk);
+                        if (coalescer != null) {
+                            coalescer.append(chunk);
+                        }
+                        if (outputStream != null) {
+                            outputStream.append(chunk);
+                        }
+                    })
+                    .blockLast();
+        }
         
         // 流式调用无token统计
-        return new LLMResponse(accumulated.toString(), null, null, null);
+        return new LLMResponse(content.toString(), null, null, null);
+    }
+    
+    /**
+     * 单个端点的流式调用
+     * 限流许可在阻塞执行器上获取,避免在 Reactor 调度线程上排队;流式无用量统计,按输入及已输出字符数校正。
+     * 校正放在 doFinally 中,出错或被取消(如对冲败者、故障切换)的流同样归还多预留的额度
+     */
+    private Flux<String> streamEndpoint(LLMEndpoint endpoint, String prompt, Runnable upstreamStarted) {
+        long estimated = providerRateLimiter.estimateCallTokens(prompt);
+        return Mono.fromCallable(() -> providerRateLimiter.acquire(endpoint.provider(), endpoint.apiKey(), estimated))
+                .subscribeOn(Schedulers.fromExecutor(executionRuntime.getBlockingExecutor()))
+                .flatMapMany(permit -> {
+                    upstreamStarted.run();
+                    StringBuilder streamed = new StringBuilder();
+                    return createClient(endpoint).prompt()
+                            .user(prompt)
+                            .stream()
+                            .content()
+                            .doOnNext(streamed::append)
+                            .doFinally(signal -> permit.reconcile(providerRateLimiter.estimateTokens(prompt)
+                                    + providerRateLimiter.estimateTokens(streamed.toString())));
+                });
+    }
+    
+    /**
+     * 以增量帧回放缓存内容,前端与实时流式输出处理方式一致
+     */
+    private void replayStreaming(LLMResponse llmResponse, WorkflowNode node, Consumer<ExecutionEvent> progressCallback) {
+        String content = llmResponse.getContent();
+        int chunkSize = Math.max(1, llmCacheConfig.getReplayChunkSize());
+        
+        try (DeltaFrameCoalescer coalescer = newCoalescer(node, progressCallback)) {
+            for (int start = 0; start < content.length(); start += chunkSize) {
+                coalescer.append(content.substring(start, Math.min(content.length(), start + chunkSize)));
+            }
+        }
+    }
+    
+    private DeltaFrameCoalescer newCoalescer(WorkflowNode node, Consumer<ExecutionEvent> progressCallback) {
+        return new DeltaFrameCoalescer(node, progressCallback, executionRuntime.getScheduler(),
+                executionRuntime.getBlockingExecutor(), llmStreamConfig.getFlushIntervalMs(),
+                llmStreamConfig.getMaxFrameBytes());
     }
     
     /**
@@ -185,6 +345,36 @@ public abstract class AbstractLLMNodeExecutor implements NodeExecutor {
         config.setInputParams((List<Map<String, Object>>) data.get("inputParams"));
         config.setOutputParams((List<Map<String, Object>>) data.get("outputParams"));
         config.setStreaming(Boolean.TRUE.equals(data.get("streaming")));
+        config.setCache(Boolean.TRUE.equals(data.get("cache")));
+        config.setPool(trimString(data.get("pool")));
+        
+        // 对冲备用端点: {"type": "qwen", "apiUrl": "...", "apiKey": "...", "model": "...", "percentile": 90}
+        LLMEndpoint primary = primaryEndpoint(config);
+        if (data.get("hedge") instanceof Map<?, ?> hedge) {
+            LLMEndpoint hedgeEndpoint = LLMEndpoint.fromMap((Map<String, Object>) hedge, primary);
+            if (!chatClientFactory.supports(hedgeEndpoint.provider())) {
+                throw new RuntimeException("不支持的对冲端点类型: " + hedgeEndpoint.provider());
+            }
+            config.setHedgeEndpoint(hedgeEndpoint);
+            config.setHedgePercentile(hedge.get("percentile") instanceof Number percentile
+                    ? percentile.doubleValue() : null);
+        }
+        
+        // 故障转移端点链: [{"type": "qwen", ...}, {"type": "openai", ...}],按顺序尝试
+        if (data.get("fallbacks") instanceof List<?> fallbacks) {
+            List<LLMEndpoint> fallbackEndpoints = new ArrayList<>();
+            for (Object fallback : fallbacks) {
+                if (!(fallback instanceof Map<?, ?> fallbackData)) {
+                    continue;
+                }
+                LLMEndpoint endpoint = LLMEndpoint.fromMap((Map<String, Object>) fallbackData, primary);
+                if (!chatClientFactory.supports(endpoint.provider())) {
+                    throw new RuntimeException("不支持的故障转移端点类型: " + endpoint.provider());
+                }
+                fallbackEndpoints.add(endpoint);
+            }
+            config.setFallbackEndpoints(fallbackEndpoints);
+        }
         
         return config;
     }
@@ -223,6 +413,14 @@ public abstract class AbstractLLMNodeExecutor implements NodeExecutor {
         return value != null ? value.toString().trim() : null;
     }
     
+    /**
+     * 开启流式输出的 LLM 节点可作为流式边的上游
+     */
+    @Override
+    public boolean supportsStreamingOutput(WorkflowNode node, Object compiledConfig) {
+        return compiledConfig instanceof LLMNodeConfig config && config.isStreaming();
+    }
+    
     @Override
     public String getSupportedNodeType() {
         return getNodeType();
@@ -4,22 +4,43 @@ import com.alibaba.dashscope.aigc.multimodalconversation.AudioParameters;
 import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversation;
 import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationParam;
 import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationResult;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.InputRequiredException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.paiagent.config.TTSWorkerConfig;
 import com.paiagent.dto.ExecutionEvent;
+import com.paiagent.engine.audio.TextSegmenter;
+import com.paiagent.engine.audio.WavStreamAssembler;
+import com.paiagent.engine.audio.cache.TTSAudioCache;
 import com.paiagent.engine.executor.NodeExecutor;
 import com.paiagent.engine.model.WorkflowNode;
+import com.paiagent.engine.pool.CredentialPoolRegistry;
+import com.paiagent.engine.ratelimit.ProviderRateLimiter;
+import com.paiagent.engine.ratelimit.RateLimitExceededException;
+import com.paiagent.engine.stream.TextStream;
 import com.paiagent.service.MinioService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.*;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
@@ -27,9 +48,87 @@ public class TTSNodeExecutor implements NodeExecutor {
     
     private static final int MAX_TTS_INPUT_LENGTH = 400;
     
+    /**
+     * DashScope TTS 单次输入的 UTF-8 字节上限
+     */
+    private static final int MAX_TTS_INPUT_BYTES = 600;
+    
+    private static final TextSegmenter SEGMENTER = new TextSegmenter(MAX_TTS_INPUT_LENGTH, MAX_TTS_INPUT_BYTES);
+    
+    /**
+     * DashScope TTS 在限流器中的提供方标识,token 预算按字符数计
+     */
+    private static final String RATE_LIMIT_PROVIDER = "dashscope-tts";
+    
+    /**
+     * 流式输入时首段的最小字符数,尽早开始合成
+     */
+    private static final int FIRST_STREAM_SEGMENT_LENGTH = 8;
+    
+    /**
+     * 流式输入时后续片段的最小字符数
+     */
+    private static final int STREAM_SEGMENT_LENGTH = 80;
+    
+    /**
+     * 流式切分使用的句末标点
+     */
+    private static final String SENTENCE_ENDINGS = "。！？；.!?;\n";
+    
     @Autowired
     private MinioService minioService;
     
+    @Autowired
+    private TTSWorkerConfig workerConfig;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private ProviderRateLimiter providerRateLimiter;
+    
+    @Autowired
+    private CredentialPoolRegistry credentialPoolRegistry;
+    
+    @Autowired
+    private TTSAudioCache ttsAudioCache;
+    
+    /**
+     * TTS 片段专用执行器(命名: tts-worker-N),与其他异步任务隔离,并发由全局和节点许可约束
+     */
+    private ExecutorService ttsExecutor;
+    
+    /**
+     * 全局片段并发许可
+     */
+    private Semaphore globalPermits;
+    
+    /**
+     * 复用的 DashScope 客户端
+     */
+    private MultiModalConversation conversation;
+    
+    private Counter retryCounter;
+    
+    @PostConstruct
+    public void init() {
+        ttsExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tts-worker-", 0).factory());
+        globalPermits = new Semaphore(workerConfig.getGlobalParallelism(), true);
+        conversation = new MultiModalConversation();
+        retryCounter = Counter.builder("tts.chunk.retries")
+                .description("TTS 片段重试次数")
+                .register(meterRegistry);
+        Gauge.builder("tts.chunk.active", globalPermits,
+                        permits -> workerConfig.getGlobalParallelism() - permits.availablePermits())
+                .description("正在合成的 TTS 片段数")
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        ttsExecutor.shutdown();
+    }
+    
     @Override
     public Map<String, Object> execute(WorkflowNode node, Map<String, Object> input) throws Exception {
         return execute(node, input, null);
@@ -37,140 +136,457 @@ public class TTSNodeExecutor implements NodeExecutor {
     
     @Override
     public Map<String, Object> execute(WorkflowNode node, Map<String, Object> input, Consumer<ExecutionEvent> progressCallback) throws Exception {
-        String text = extractInputText(node, input);
-        if (!StringUtils.hasText(text)) {
+        // 流式边的下游: 上游仍在生成时逐句合成
+        TextStream inputStream = input.get(TextStream.INPUT_STREAM_KEY) instanceof TextStream stream ? stream : null;
+        String text = inputStream == null ? extractInputText(node, input) : null;
+        if (inputStream == null && !StringUtils.hasText(text)) {
             throw new IllegalArgumentException("输入文本不能为空");
         }
         
         Map<String, Object> data = node.getData();
         String apiKey = (String) data.get("apiKey");
+        String pool = (String) data.get("pool");
         String model = (String) data.getOrDefault("model", "qwen3-tts-flash");
         String voiceStr = (String) data.getOrDefault("voice", "Cherry");
         String languageType = (String) data.getOrDefault("languageType", "Auto");
         
-        if (!StringUtils.hasText(apiKey)) {
+        if (!StringUtils.hasText(apiKey) && !StringUtils.hasText(pool)) {
             throw new IllegalArgumentException("阿里百炼 API Key 不能为空,请在节点配置中设置");
         }
         
         log.info("TTS 节点执行 - 模型: {}, 文本长度: {}, 音色: {}, 语言类型: {}", 
-                model, text.length(), voiceStr, languageType);
+                model, inputStream != null ? "流式" : text.length(), voiceStr, languageType);
+        
+        // 单节点并发上限,不超过全局上限
+        int parallelism = data.get("parallelism") instanceof Number number
+                ? number.intValue() : workerConfig.getNodeParallelism();
+        parallelism = Math.max(1, Math.min(parallelism, workerConfig.getGlobalParallelism()));
+        // 节点可通过 cache=false 关闭片段缓存(如需每次重新合成的随机音色)
+        boolean cacheEnabled = ttsAudioCache.isEnabled() && !Boolean.FALSE.equals(data.get("cache"));
+        TtsRequest request = new TtsRequest(node, progressCallback, new Semaphore(parallelism),
+                apiKey, pool, model, convertVoice(voiceStr), languageType, cacheEnabled);
+        
+        List<CompletableFuture<Path>> futures;
+        if (inputStream != null) {
+            futures = synthesizeStream(request, inputStream);
+        } else {
+            List<String> textChunks = SEGMENTER.split(text);
+            log.info("文本分割为 {} 个片段", textChunks.size());
+            
+            if (progressCallback != null) {
+                Map<String, Object> progressData = new HashMap<>();
+                progressData.put("totalChunks", textChunks.size());
+                progressData.put("currentChunk", 0);
+                progressCallback.accept(ExecutionEvent.nodeProgress(
+                    node.getId(), 
+                    node.getType(), 
+                    "文本已分割为 " + textChunks.size() + " 个片段", 
+                    progressData
+                ));
+            }
+            
+            futures = new ArrayList<>();
+            for (int i = 0; i < textChunks.size(); i++) {
+                futures.add(submitChunk(request, i, textChunks.get(i), textChunks.size()));
+            }
+        }
         
-        AudioParameters.Voice voice = convertVoice(voiceStr);
+        String fileName = "audio_" + UUID.randomUUID() + ".wav";
+        String objectName = "audio/" + fileName;
+        Path mergedFile = Files.createTempFile("tts-merged-", ".wav");
+        String minioUrl;
+        try {
+            // 按顺序等待各片段完成并立即写入合并文件,后续片段仍在并行合成;
+            // 任一片段失败即停止等待并取消其余片段,不再占用并发许可和提供方预算
+            CompletableFuture<Path> firstFailure = new CompletableFuture<>();
+            futures.forEach(future -> future.whenComplete((audioFile, e) -> {
+                if (e != null && !future.isCancelled()) {
+                    firstFailure.completeExceptionally(e);
+                }
+            }));
+            try (WavStreamAssembler assembler = new WavStreamAssembler(mergedFile)) {
+                for (CompletableFuture<Path> future : futures) {
+                    assembler.append((Path) CompletableFuture.anyOf(future, firstFailure).join());
+                }
+                assembler.finish();
+            } catch (Exception e) {
+                futures.forEach(future -> future.cancel(true));
+                throw e;
+            }
+            
+            if (progressCallback != null) {
+                progressCallback.accept(ExecutionEvent.nodeProgress(
+                    node.getId(), 
+                    node.getType(), 
+                    "已合并 " + futures.size() + " 个音频片段,正在上传...", 
+                    null
+                ));
+            }
+            // 合并文件上传完成后才有可访问的地址,此处同步上传;
+            // 上传完成即推送音频地址,前端无需等待节点完成事件(及后续输出处理)即可开始播放
+            minioUrl = minioService.uploadFromFile(mergedFile, objectName, "audio/wav");
+            if (progressCallback != null) {
+                Map<String, Object> progressData = new HashMap<>();
+                progressData.put("audioUrl", minioUrl);
+                progressCallback.accept(ExecutionEvent.nodeProgress(
+                    node.getId(), 
+                    node.getType(), 
+                    "音频已上传", 
+                    progressData
+                ));
+            }
+        } finally {
+            // 片段临时文件在任务完成后删除(包括失败时仍在进行的片段)
+            futures.forEach(future -> future.thenAccept(this::deleteQuietly));
+            deleteQuietly(mergedFile);
+        }
         
-        List<String> textChunks = splitText(text, MAX_TTS_INPUT_LENGTH);
-        log.info("文本分割为 {} 个片段", textChunks.size());
+        Map<String, Object> output = new HashMap<>();
+        output.put("audioUrl", minioUrl);
+        output.put("fileName", fileName);
+        output.put("output", minioUrl);
+        output.put("chunks", futures.size());
         
-        if (progressCallback != null) {
-            Map<String, Object> progressData = new HashMap<>();
-            progressData.put("totalChunks", textChunks.size());
-            progressData.put("currentChunk", 0);
-            progressCallback.accept(ExecutionEvent.nodeProgress(
-                node.getId(), 
-                node.getType(), 
-                "文本已分割为 " + textChunks.size() + " 个片段", 
-                progressData
-            ));
-        }
+        log.info("TTS 合并音频已上传到 MinIO: {}, 共 {} 个片段", minioUrl, futures.size());
         
-        List<byte[]> audioChunks = new ArrayList<>();
-        MultiModalConversation conv = new MultiModalConversation();
+        return output;
+    }
+    
+    /**
+     * 单次 TTS 执行的公共参数
+     */
+    private record TtsRequest(WorkflowNode node,
+                              Consumer<ExecutionEvent> progressCallback,
+                              Semaphore nodePermits,
+                              String apiKey,
+                              String pool,
+                              String model,
+                              AudioParameters.Voice voice,
+                              String languageType,
+                              boolean cacheEnabled) {
+    }
+    
+    /**
+     * 边读取上游流式文本边切分句子,每凑满一段立即提交合成,首段音频无需等待上游生成完毕
+     */
+    private List<CompletableFuture<Path>> synthesizeStream(TtsRequest request, TextStream inputStream) {
+        List<CompletableFuture<Path>> futures = new ArrayList<>();
+        StringBuilder pending = new StringBuilder();
+        int totalLength = 0;
         
-        List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+        try {
+            Iterator<String> reader = inputStream.reader();
+            while (reader.hasNext()) {
+                String chunk = reader.next();
+                pending.append(chunk);
+                totalLength += chunk.length();
+                
+                // 首段尽早提交以缩短首音频时间,之后按较长的段落合成以减少调用次数
+                int minLength = futures.isEmpty() ? FIRST_STREAM_SEGMENT_LENGTH : STREAM_SEGMENT_LENGTH;
+                int cut;
+                while ((cut = findSentenceEnd(pending, minLength)) > 0) {
+                    // 句子字符数未超限但字节数可能超限(如中文),再经切分器保证字节上限
+                    for (String piece : SEGMENTER.split(pending.substring(0, cut))) {
+                        futures.add(submitChunk(request, futures.size(), piece, null));
+                    }
+                    pending.delete(0, cut);
+                    minLength = STREAM_SEGMENT_LENGTH;
+                }
+                // 长时间没有句末标点时按长度切分,保留最后一段继续累积
+                if (pending.length() > MAX_TTS_INPUT_LENGTH) {
+                    List<String> pieces = SEGMENTER.split(pending.toString());
+                    for (int i = 0; i < pieces.size() - 1; i++) {
+                        futures.add(submitChunk(request, futures.size(), pieces.get(i), null));
+                    }
+                    pending.setLength(0);
+                    if (!pieces.isEmpty()) {
+                        pending.append(pieces.get(pieces.size() - 1));
+                    }
+                }
+            }
+            
+            if (!pending.toString().isBlank()) {
+                for (String piece : SEGMENTER.split(pending.toString())) {
+                    futures.add(submitChunk(request, futures.size(), piece, null));
+                }
+            }
+        } catch (RuntimeException e) {
+            // 上游失败(TextStream.fail)时取消已提交的片段,不再占用并发许可和提供方预算,完成后删除临时文件
+            futures.forEach(future -> {
+                future.cancel(true);
+                future.thenAccept(this::deleteQuietly);
+            });
+            throw e;
+        }
         
-        for (int i = 0; i < textChunks.size(); i++) {
-            final int chunkIndex = i;
-            final String chunk = textChunks.get(i);
+        if (futures.isEmpty()) {
+            throw new IllegalArgumentException("输入文本不能为空");
+        }
+        log.info("流式输入结束, 文本长度: {}, 共 {} 个片段", totalLength, futures.size());
+        return futures;
+    }
+    
+    /**
+     * 查找不早于 minLength、不超过单段上限的最后一个句末位置
+     * 
+     * @return 切分位置(不含),没有合适位置时返回 -1
+     */
+    private int findSentenceEnd(CharSequence text, int minLength) {
+        int limit = Math.min(text.length(), MAX_TTS_INPUT_LENGTH);
+        for (int i = limit - 1; i >= minLength - 1; i--) {
+            if (SENTENCE_ENDINGS.indexOf(text.charAt(i)) >= 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * 提交一个片段的合成与下载任务
+     * 返回的 future 被取消时中断仍在排队或合成的任务;取消后才完成的片段文件直接删除
+     * 
+     * @param totalChunks 片段总数,流式输入时未知为 null
+     */
+    private CompletableFuture<Path> submitChunk(TtsRequest request, int chunkIndex, String chunk, Integer totalChunks) {
+        WorkflowNode node = request.node();
+        Consumer<ExecutionEvent> progressCallback = request.progressCallback();
+        String label = totalChunks != null ? (chunkIndex + 1) + "/" + totalChunks : String.valueOf(chunkIndex + 1);
+        
+        Supplier<Path> work = () -> {
+            long utf8ByteLength = TextSegmenter.utf8Length(chunk);
+            log.info("处理第 {} 个片段, 字符数: {}, UTF-8 字节数: {}", label, chunk.length(), utf8ByteLength);
             
-            CompletableFuture<byte[]> future = CompletableFuture.supplyAsync(() -> {
-                try {
-                    int utf8ByteLength = chunk.getBytes(java.nio.charset.StandardCharsets.UTF_8).length;
-                    log.info("处理第 {}/{} 个片段, 字符数: {}, UTF-8 字节数: {}", 
-                            chunkIndex + 1, textChunks.size(), chunk.length(), utf8ByteLength);
-                    
+            if (progressCallback != null) {
+                Map<String, Object> progressData = new HashMap<>();
+                progressData.put("totalChunks", totalChunks);
+                progressData.put("currentChunk", chunkIndex + 1);
+                progressData.put("chunkText", chunk.substring(0, Math.min(50, chunk.length())) + "...");
+                progressCallback.accept(ExecutionEvent.nodeProgress(
+                    node.getId(), 
+                    node.getType(), 
+                    "正在处理第 " + label + " 个片段", 
+                    progressData
+                ));
+            }
+            
+            long start = System.nanoTime();
+            // 命中缓存的片段直接复用,只有未缓存的片段占用并发许可并调用 DashScope
+            String cacheKey = null;
+            if (request.cacheEnabled()) {
+                cacheKey = ttsAudioCache.key(chunk, request.model(), request.voice().name(), request.languageType());
+                Path cached = ttsAudioCache.get(cacheKey);
+                if (cached != null) {
+                    chunkTimer("cached").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    log.info("第 {} 个片段命中缓存", label);
                     if (progressCallback != null) {
                         Map<String, Object> progressData = new HashMap<>();
-                        progressData.put("totalChunks", textChunks.size());
+                        progressData.put("totalChunks", totalChunks);
                         progressData.put("currentChunk", chunkIndex + 1);
-                        progressData.put("chunkText", chunk.substring(0, Math.min(50, chunk.length())) + "...");
+                        progressData.put("completedChunks", chunkIndex + 1);
+                        progressData.put("cached", true);
                         progressCallback.accept(ExecutionEvent.nodeProgress(
                             node.getId(), 
                             node.getType(), 
-                            "正在处理第 " + (chunkIndex + 1) + "/" + textChunks.size() + " 个片段", 
+                            "已完成第 " + label + " 个片段(缓存)", 
                             progressData
                         ));
                     }
-                    
-                    MultiModalConversationParam param = MultiModalConversationParam.builder()
-                            .apiKey(apiKey)
-                            .model(model)
-                            .text(chunk)
-                            .voice(voice)
-                            .languageType(languageType)
-                            .build();
-                    
-                    MultiModalConversationResult result = conv.call(param);
-                    String audioUrl = result.getOutput().getAudio().getUrl();
-                    
-                    if (!StringUtils.hasText(audioUrl)) {
-                        throw new RuntimeException("阿里百炼 TTS 返回的音频URL为空 (片段 " + (chunkIndex + 1) + ")");
+                    return cached;
+                }
+            }
+            
+            Exception lastError = null;
+            for (int attempt = 1; attempt <= workerConfig.getMaxAttempts(); attempt++) {
+                try {
+                    ChunkAudio audio = synthesizeChunk(request, chunk, label);
+                    Path audioFile = audio.file();
+                    if (cacheKey != null) {
+                        // 凭证池成员可能替换模型,按实际合成所用的模型写入,不混入节点模型的缓存
+                        ttsAudioCache.put(audio.model().equals(request.model()) ? cacheKey
+                                : ttsAudioCache.key(chunk, audio.model(), request.voice().name(), request.languageType()),
+                                audioFile);
                     }
-                    
-                    log.info("第 {}/{} 个片段音频URL: {}", chunkIndex + 1, textChunks.size(), audioUrl);
-                    
-                    byte[] audioData = downloadAudio(audioUrl);
+                    chunkTimer("success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
                     
                     if (progressCallback != null) {
                         Map<String, Object> progressData = new HashMap<>();
-                        progressData.put("totalChunks", textChunks.size());
+                        progressData.put("totalChunks", totalChunks);
                         progressData.put("currentChunk", chunkIndex + 1);
                         progressData.put("completedChunks", chunkIndex + 1);
+                        progressData.put("attempts", attempt);
                         progressCallback.accept(ExecutionEvent.nodeProgress(
                             node.getId(), 
                             node.getType(), 
-                            "已完成第 " + (chunkIndex + 1) + "/" + textChunks.size() + " 个片段", 
+                            "已完成第 " + label + " 个片段", 
                             progressData
                         ));
                     }
-                    
-                    return audioData;
+                    return audioFile;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("处理第 " + (chunkIndex + 1) + " 个片段时被中断", e);
                 } catch (Exception e) {
-                    throw new RuntimeException("处理第 " + (chunkIndex + 1) + " 个片段失败: " + e.getMessage(), e);
+                    // 只有临时错误值得重试;密钥、参数、4xx 和本地限流超时重试也不会成功,立即失败
+                    if (!isTransient(e) || Thread.currentThread().isInterrupted()) {
+                        chunkTimer("failure").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        log.warn("第 {} 个片段合成失败且不可重试: {}", label, e.getMessage());
+                        if (e instanceof RuntimeException runtime) {
+                            throw runtime;
+                        }
+                        throw new RuntimeException("处理第 " + (chunkIndex + 1) + " 个片段失败: " + e.getMessage(), e);
+                    }
+                    lastError = e;
+                    if (attempt < workerConfig.getMaxAttempts()) {
+                        long backoff = backoffMs(attempt);
+                        log.warn("第 {} 个片段第 {} 次合成失败, {}ms 后重试: {}", label, attempt, backoff, e.getMessage());
+                        retryCounter.increment();
+                        sleepQuietly(backoff);
+                    }
                 }
-            });
-            
-            futures.add(future);
+            }
+            chunkTimer("failure").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw new RuntimeException("处理第 " + (chunkIndex + 1) + " 个片段失败: " + lastError.getMessage(), lastError);
+        };
+        
+        CompletableFuture<Path> result = new CompletableFuture<>();
+        Future<?> task = ttsExecutor.submit(() -> {
+            try {
+                Path audioFile = work.get();
+                if (!result.complete(audioFile)) {
+                    deleteQuietly(audioFile);
+                }
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((audioFile, e) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * 片段音频及实际合成所用的模型
+     */
+    private record ChunkAudio(Path file, String model) {
+    }
+    
+    /**
+     * 合成并下载一个片段(单次尝试)
+     * 先占用节点并发许可再占用全局许可,等待中的片段不会占住全局名额
+     */
+    private ChunkAudio synthesizeChunk(TtsRequest request, String chunk, String label) throws Exception {
+        request.nodePermits().acquire();
+        try {
+            globalPermits.acquire();
+            try {
+                // 配置了凭证池时每个片段租用一个成员的密钥,并发片段分摊到多个账号
+                CredentialPoolRegistry.Lease lease = StringUtils.hasText(request.pool())
+                        ? credentialPoolRegistry.acquire(request.pool()) : null;
+                String chunkApiKey = lease != null ? lease.apiKey() : request.apiKey();
+                String chunkModel = lease != null && lease.model() != null ? lease.model() : request.model();
+                
+                MultiModalConversationParam param = MultiModalConversationParam.builder()
+                        .apiKey(chunkApiKey)
+                        .model(chunkModel)
+                        .text(chunk)
+                        .voice(request.voice())
+                        .languageType(request.languageType())
+                        .build();
+                
+                MultiModalConversationResult result;
+                try {
+                    // 并发片段共享同一 API Key 的 QPS 预算,超出时排队而不是触发限流错误
+                    providerRateLimiter.acquire(RATE_LIMIT_PROVIDER, chunkApiKey, chunk.length());
+                    if (lease != null) {
+                        lease.upstreamStarted();
+                    }
+                    result = conversation.call(param);
+                    if (lease != null) {
+                        lease.success();
+                    }
+                } catch (RateLimitExceededException | InterruptedException e) {
+                    if (lease != null) {
+                        lease.release();
+                    }
+                    throw e;
+                } catch (Exception e) {
+                    if (lease != null) {
+                        lease.failure();
+                    }
+                    throw e;
+                }
+                String audioUrl = result.getOutput().getAudio().getUrl();
+                
+                if (!StringUtils.hasText(audioUrl)) {
+                    throw new RuntimeException("阿里百炼 TTS 返回的音频URL为空 (片段 " + label + ")");
+                }
+                
+                log.info("第 {} 个片段音频URL: {}", label, audioUrl);
+                
+                return new ChunkAudio(downloadAudio(audioUrl), chunkModel);
+            } finally {
+                globalPermits.release();
+            }
+        } finally {
+            request.nodePermits().release();
         }
-        
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-        
-        for (CompletableFuture<byte[]> future : futures) {
-            audioChunks.add(future.get());
+    }
+    
+    /**
+     * 是否为可重试的临时错误: 网络 IO 与超时、上游 5xx 和 408
+     */
+    static boolean isTransient(Throwable e) {
+        if (e instanceof RateLimitExceededException || e instanceof IllegalArgumentException
+                || e instanceof NoApiKeyException || e instanceof InputRequiredException) {
+            return false;
         }
-        
-        if (progressCallback != null) {
-            progressCallback.accept(ExecutionEvent.nodeProgress(
-                node.getId(), 
-                node.getType(), 
-                "正在合并 " + audioChunks.size() + " 个音频片段...", 
-                null
-            ));
+        if (e instanceof AudioDownloadException download) {
+            return isTransientStatus(download.getStatusCode());
         }
-        
-        byte[] mergedAudio = mergeWavFiles(audioChunks);
-        
-        String fileName = "audio_" + UUID.randomUUID() + ".wav";
-        String objectName = "audio/" + fileName;
-        String minioUrl = minioService.uploadFromBytes(mergedAudio, objectName, "audio/wav");
-        
-        Map<String, Object> output = new HashMap<>();
-        output.put("audioUrl", minioUrl);
-        output.put("fileName", fileName);
-        output.put("output", minioUrl);
-        output.put("chunks", textChunks.size());
-        
-        log.info("TTS 合并音频已上传到 MinIO: {}, 共 {} 个片段", minioUrl, textChunks.size());
-        
-        return output;
+        if (e instanceof ApiException api && api.getStatus() != null) {
+            Integer statusCode = api.getStatus().getStatusCode();
+            if (statusCode != null && statusCode > 0) {
+                return isTransientStatus(statusCode);
+            }
+        }
+        // 连接失败、读写超时等网络错误,SDK 可能将其包装为 cause
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isTransientStatus(int statusCode) {
+        return statusCode >= 500 || statusCode == 408;
+    }
+    
+    /**
+     * 指数退避(带随机抖动),避免同时失败的片段同时重试
+     */
+    private long backoffMs(int attempt) {
+        long backoff = Math.min(workerConfig.getMaxBackoffMs(), workerConfig.getInitialBackoffMs() << (attempt - 1));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+    
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待重试时被中断", e);
+        }
+    }
+    
+    private Timer chunkTimer(String result) {
+        return Timer.builder("tts.chunk.duration")
+                .description("TTS 片段合成与下载耗时(含重试)")
+                .tag("result", result)
+                .register(meterRegistry);
     }
     
     private AudioParameters.Voice convertVoice(String voiceStr) {
@@ -223,131 +639,85 @@ public class TTSNodeExecutor implements NodeExecutor {
         return (String) input.get("text");
     }
     
+    /**
+     * 文本参数引用的正是上游节点(或未配置文本参数)时,可直接消费上游的流式输出;
+     * 静态文本或引用其他节点时仍需等待上游完成
+     */
     @Override
-    public String getSupportedNodeType() {
-        return "tts";
-    }
-    
-    private List<String> splitText(String text, int maxLength) {
-        List<String> chunks = new ArrayList<>();
-        int start = 0;
-        
-        while (start < text.length()) {
-            int end = Math.min(start + maxLength, text.length());
-            
-            while (end > start) {
-                String candidate = text.substring(start, end);
-                int byteLength = candidate.getBytes(java.nio.charset.StandardCharsets.UTF_8).length;
-                
-                if (byteLength <= 600) {
-                    if (end < text.length()) {
-                        int lastPunctuation = findLastPunctuation(text, start, end);
-                        if (lastPunctuation > start) {
-                            end = lastPunctuation + 1;
-                            candidate = text.substring(start, end);
-                        }
-                    }
-                    
-                    chunks.add(candidate);
-                    start = end;
-                    break;
-                }
-                
-                end -= 10;
+    @SuppressWarnings("unchecked")
+    public boolean supportsStreamingInput(WorkflowNode node, String upstreamNodeId) {
+        Map<String, Object> data = node.getData();
+        if (data == null || !(data.get("inputParams") instanceof List<?> inputParams)) {
+            return true;
+        }
+        for (Map<String, Object> param : (List<Map<String, Object>>) inputParams) {
+            if (!"text".equals(param.get("name"))) {
+                continue;
             }
-            
-            if (end <= start) {
-                end = start + 1;
-                while (end <= text.length()) {
-                    String candidate = text.substring(start, end);
-                    int byteLength = candidate.getBytes(java.nio.charset.StandardCharsets.UTF_8).length;
-                    if (byteLength > 600) {
-                        if (end - 1 > start) {
-                            chunks.add(text.substring(start, end - 1));
-                            start = end - 1;
-                        } else {
-                            throw new IllegalArgumentException("单个字符超过 600 字节,无法处理");
-                        }
-                        break;
-                    }
-                    end++;
-                }
+            if (!"reference".equals(param.get("type"))) {
+                return false;
             }
+            String referenceNode = (String) param.get("referenceNode");
+            return StringUtils.hasText(referenceNode) && referenceNode.startsWith(upstreamNodeId + ".");
         }
-        
-        return chunks;
+        return true;
     }
     
-    private int findLastPunctuation(String text, int start, int end) {
-        String punctuations = "。！？；,.!?;";
-        for (int i = end - 1; i >= start; i--) {
-            if (punctuations.indexOf(text.charAt(i)) >= 0) {
-                return i;
-            }
-        }
-        return -1;
+    @Override
+    public String getSupportedNodeType() {
+        return "tts";
     }
     
-    private byte[] downloadAudio(String audioUrl) throws Exception {
+    /**
+     * 下载片段音频到临时文件
+     */
+    private Path downloadAudio(String audioUrl) throws Exception {
         URL url = new URL(audioUrl);
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
         conn.setRequestMethod("GET");
         conn.setConnectTimeout(30000);
         conn.setReadTimeout(30000);
         
-        try (InputStream is = conn.getInputStream();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = is.read(buffer)) != -1) {
-                baos.write(buffer, 0, bytesRead);
-            }
-            return baos.toByteArray();
+        int statusCode = conn.getResponseCode();
+        if (statusCode >= 400) {
+            conn.disconnect();
+            throw new AudioDownloadException(statusCode);
+        }
+        
+        Path file = Files.createTempFile("tts-chunk-", ".wav");
+        try (InputStream is = conn.getInputStream()) {
+            Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        } catch (Exception e) {
+            deleteQuietly(file);
+            throw e;
         } finally {
             conn.disconnect();
         }
     }
     
-    private byte[] mergeWavFiles(List<byte[]> audioChunks) throws Exception {
-        if (audioChunks.isEmpty()) {
-            throw new IllegalArgumentException("音频片段列表为空");
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除临时音频文件失败: {}", file, e);
         }
+    }
+    
+    /**
+     * 下载片段音频时服务端返回错误状态码
+     */
+    static final class AudioDownloadException extends IOException {
         
-        if (audioChunks.size() == 1) {
-            return audioChunks.get(0);
-        }
+        private final int statusCode;
         
-        byte[] firstChunk = audioChunks.get(0);
-        if (firstChunk.length < 44) {
-            throw new IllegalArgumentException("无效的 WAV 文件格式");
+        AudioDownloadException(int statusCode) {
+            super("下载 TTS 音频失败, HTTP 状态码: " + statusCode);
+            this.statusCode = statusCode;
         }
         
-        ByteArrayOutputStream mergedStream = new ByteArrayOutputStream();
-        
-        byte[] header = Arrays.copyOf(firstChunk, 44);
-        mergedStream.write(header);
-        
-        for (byte[] chunk : audioChunks) {
-            if (chunk.length > 44) {
-                mergedStream.write(chunk, 44, chunk.length - 44);
-            }
+        int getStatusCode() {
+            return statusCode;
         }
-        
-        byte[] mergedData = mergedStream.toByteArray();
-        
-        int dataSize = mergedData.length - 44;
-        int fileSize = mergedData.length - 8;
-        
-        mergedData[4] = (byte) (fileSize & 0xFF);
-        mergedData[5] = (byte) ((fileSize >> 8) & 0xFF);
-        mergedData[6] = (byte) ((fileSize >> 16) & 0xFF);
-        mergedData[7] = (byte) ((fileSize >> 24) & 0xFF);
-        
-        mergedData[40] = (byte) (dataSize & 0xFF);
-        mergedData[41] = (byte) ((dataSize >> 8) & 0xFF);
-        mergedData[42] = (byte) ((dataSize >> 16) & 0xFF);
-        mergedData[43] = (byte) ((dataSize >> 24) & 0xFF);
-        
-        return mergedData;
     }
-}
\ No newline at end of file
+}
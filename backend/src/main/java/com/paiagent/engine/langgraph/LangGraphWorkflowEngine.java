@@ -3,15 +3,21 @@ package com.paiagent.engine.langgraph;
 import com.alibaba.fastjson2.JSON;
 import com.paiagent.dto.ExecutionEvent;
 import com.paiagent.dto.ExecutionResponse;
+import com.paiagent.engine.ExecutionOptions;
 import com.paiagent.engine.WorkflowExecutor;
-import com.paiagent.engine.langgraph.builder.GraphBuilder;
+import com.paiagent.engine.checkpoint.CheckpointStore;
+import com.paiagent.engine.dag.DAGParser;
+import com.paiagent.engine.langgraph.cache.CompiledGraphCache;
+import com.paiagent.engine.langgraph.checkpoint.PersistentCheckpointSaver;
+import com.paiagent.engine.langgraph.state.EventSinkRegistry;
 import com.paiagent.engine.langgraph.state.StateManager;
 import com.paiagent.engine.model.WorkflowConfig;
+import com.paiagent.engine.record.ExecutionRecordPersister;
 import com.paiagent.entity.ExecutionRecord;
 import com.paiagent.entity.Workflow;
-import com.paiagent.mapper.ExecutionRecordMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.RunnableConfig;
 import org.bsc.langgraph4j.state.AgentState;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -19,6 +25,7 @@ import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Consumer;
 
 /**
@@ -32,13 +39,25 @@ import java.util.function.Consumer;
 public class LangGraphWorkflowEngine implements WorkflowExecutor {
     
     @Autowired
-    private GraphBuilder graphBuilder;
+    private CompiledGraphCache compiledGraphCache;
+    
+    @Autowired
+    private EventSinkRegistry eventSinkRegistry;
     
     @Autowired
     private StateManager stateManager;
     
     @Autowired
-    private ExecutionRecordMapper executionRecordMapper;
+    private ExecutionRecordPersister executionRecordPersister;
+    
+    @Autowired
+    private CheckpointStore checkpointStore;
+    
+    @Autowired
+    private PersistentCheckpointSaver checkpointSaver;
+    
+    @Autowired
+    private DAGParser dagParser;
     
     @Override
     public ExecutionResponse execute(Workflow workflow, String inputData) {
@@ -50,33 +69,52 @@ public class LangGraphWorkflowEngine implements WorkflowExecutor {
             Workflow workflow, 
             String inputData, 
             Consumer<ExecutionEvent> eventCallback) {
-        
+        return executeWithOptions(workflow, inputData, ExecutionOptions.withCallback(eventCallback));
+    }
+    
+    @Override
+    public ExecutionResponse executeWithOptions(Workflow workflow, String inputData, ExecutionOptions options) {
+        Consumer<ExecutionEvent> eventCallback = options.getEventCallback();
         long startTime = System.currentTimeMillis();
         String status = "SUCCESS";
         String errorMessage = null;
         
         log.info("开始执行工作流 [{}] - 使用 LangGraph 引擎", workflow.getName());
         
+        // 登记本次执行的事件回调,共享的编译图通过状态中的执行键找到它
+        String executionKey = eventSinkRegistry.register(eventCallback);
+        
+        // 运行 ID 同时作为 LangGraph 的 threadId,恢复执行时沿用原运行 ID
+        String runId = options.getRunId() != null ? options.getRunId() : UUID.randomUUID().toString();
+        RunnableConfig runnableConfig = RunnableConfig.builder().threadId(runId).build();
+        
+        // 预分配记录 ID,开始事件即可携带;批量执行由调用方合并写入,不预分配
+        Long executionId = options.getExecutionId() != null ? options.getExecutionId()
+                : options.getRecordSink() == null ? executionRecordPersister.allocateId() : null;
+        
         try {
             // 触发工作流开始事件
             if (eventCallback != null) {
-                eventCallback.accept(ExecutionEvent.workflowStart(null));
+                eventCallback.accept(ExecutionEvent.workflowStart(executionId));
             }
             
-            // 1. 解析工作流配置
-            WorkflowConfig config = JSON.parseObject(workflow.getFlowData(), WorkflowConfig.class);
-            log.info("工作流配置解析完成: 节点数={}, 边数={}", 
-                config.getNodes().size(), config.getEdges().size());
-            
-            // 2. 构建 LangGraph
-            CompiledGraph<AgentState> compiledGraph = graphBuilder.buildGraph(config, eventCallback);
+            // 1-2. 获取工作流配置和编译后的 LangGraph（按工作流版本缓存）
+            CompiledGraphCache.CachedGraph cachedGraph = compiledGraphCache.getGraph(workflow);
+            WorkflowConfig config = cachedGraph.config();
+            CompiledGraph<AgentState> compiledGraph = cachedGraph.graph();
             
             // 3. 初始化状态（使用 AgentState）
-            Map<String, Object> initialStateData = stateManager.initializeState(inputData);
+            Map<String, Object> initialStateData = stateManager.initializeState(inputData, executionKey);
+            Map<String, Map<String, Object>> reusableOutputs =
+                CheckpointStore.resolveReusable(dagParser.buildDependencies(config), options.getCheckpoints());
+            if (!reusableOutputs.isEmpty()) {
+                log.info("恢复执行 [{}]: 复用 {} 个节点的检查点", runId, reusableOutputs.size());
+            }
+            stateManager.applyRunContext(initialStateData, runId, workflow, reusableOutputs);
             
             // 4. 执行图
             log.info("开始执行 LangGraph");
-            var result = compiledGraph.invoke(initialStateData);
+            var result = compiledGraph.invoke(initialStateData, runnableConfig);
             
             // 提取最终状态
             Map<String, Object> finalState;
@@ -92,6 +130,8 @@ public class LangGraphWorkflowEngine implements WorkflowExecutor {
             if (!stateManager.isSuccessful(finalState)) {
                 status = "FAILED";
                 errorMessage = stateManager.getErrorMessage(finalState);
+            } else {
+                checkpointStore.clear(runId);
             }
             
             // 6. 提取输出数据
@@ -101,12 +141,27 @@ public class LangGraphWorkflowEngine implements WorkflowExecutor {
             // 7. 提取节点执行结果
             var nodeResultsList = stateManager.extractNodeResults(finalState, config);
             
+            // 转换为 ExecutionResponse.NodeResult 格式
+            java.util.List<ExecutionResponse.NodeResult> nodeResults = new ArrayList<>();
+            for (Map<String, Object> nodeResultMap : nodeResultsList) {
+                ExecutionResponse.NodeResult nodeResult = new ExecutionResponse.NodeResult();
+                nodeResult.setNodeId((String) nodeResultMap.get("nodeId"));
+                nodeResult.setNodeName((String) nodeResultMap.get("nodeName"));
+                nodeResult.setNodeType((String) nodeResultMap.get("nodeType"));
+                nodeResult.setStatus((String) nodeResultMap.get("status"));
+                nodeResult.setOutput((String) nodeResultMap.get("output"));
+                nodeResult.applyTokenUsage(nodeResultMap);
+                nodeResults.add(nodeResult);
+            }
+            
             // 8. 保存执行记录
             long endTime = System.currentTimeMillis();
             int duration = (int) (endTime - startTime);
             
             ExecutionRecord record = new ExecutionRecord();
+            record.setId(executionId);
             record.setFlowId(workflow.getId());
+            record.setRunId(runId);
             
             Map<String, Object> inputDataMap = new HashMap<>();
             inputDataMap.put("input", inputData);
@@ -114,11 +169,11 @@ public class LangGraphWorkflowEngine implements WorkflowExecutor {
             
             record.setOutputData(outputDataJson);
             record.setStatus(status);
-            record.setNodeResults(JSON.toJSONString(nodeResultsList));
+            record.setNodeResultRows(executionRecordPersister.encodeNodeResults(nodeResults));
             record.setErrorMessage(errorMessage);
             record.setDuration(duration);
             
-            executionRecordMapper.insert(record);
+            saveRecord(record, options);
             
             // 9. 触发工作流完成事件
             if (eventCallback != null) {
@@ -129,17 +184,6 @@ public class LangGraphWorkflowEngine implements WorkflowExecutor {
             ExecutionResponse response = new ExecutionResponse();
             response.setExecutionId(record.getId());
             response.setStatus(status);
-            
-            // 转换为 ExecutionResponse.NodeResult 格式
-            java.util.List<ExecutionResponse.NodeResult> nodeResults = new ArrayList<>();
-            for (Map<String, Object> nodeResultMap : nodeResultsList) {
-                ExecutionResponse.NodeResult nodeResult = new ExecutionResponse.NodeResult();
-                nodeResult.setNodeId((String) nodeResultMap.get("nodeId"));
-                nodeResult.setNodeName((String) nodeResultMap.get("nodeName"));
-                nodeResult.setStatus((String) nodeResultMap.get("status"));
-                nodeResult.setOutput((String) nodeResultMap.get("output"));
-                nodeResults.add(nodeResult);
-            }
             response.setNodeResults(nodeResults);
             
             response.setOutputData(outputDataJson);
@@ -165,12 +209,14 @@ public class LangGraphWorkflowEngine implements WorkflowExecutor {
             int duration = (int) (endTime - startTime);
             
             ExecutionRecord record = new ExecutionRecord();
+            record.setId(executionId);
             record.setFlowId(workflow.getId());
+            record.setRunId(runId);
             record.setInputData(JSON.toJSONString(Map.of("input", inputData)));
             record.setStatus("FAILED");
             record.setErrorMessage(errorMessage);
             record.setDuration(duration);
-            executionRecordMapper.insert(record);
+            saveRecord(record, options);
             
             // 返回错误响应
             ExecutionResponse response = new ExecutionResponse();
@@ -181,6 +227,20 @@ public class LangGraphWorkflowEngine implements WorkflowExecutor {
             response.setDuration(duration);
             
             return response;
+        } finally {
+            eventSinkRegistry.unregister(executionKey);
+            checkpointSaver.clear(runnableConfig);
+        }
+    }
+    
+    /**
+     * 保存执行记录,指定了写入方式时交由调用方处理,否则异步批量写入
+     */
+    private void saveRecord(ExecutionRecord record, ExecutionOptions options) {
+        if (options.getRecordSink() != null) {
+            options.getRecordSink().accept(record);
+        } else {
+            executionRecordPersister.submit(record);
         }
     }
     
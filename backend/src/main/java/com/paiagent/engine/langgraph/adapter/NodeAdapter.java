@@ -4,6 +4,8 @@ import com.paiagent.dto.ExecutionEvent;
 import com.paiagent.engine.executor.NodeExecutor;
 import com.paiagent.engine.executor.NodeExecutorFactory;
 import com.paiagent.engine.langgraph.WorkflowState;
+import com.paiagent.engine.langgraph.state.EventSinkRegistry;
+import com.paiagent.engine.langgraph.state.StateManager;
 import com.paiagent.engine.model.WorkflowNode;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.action.AsyncNodeAction;
@@ -29,17 +31,33 @@ public class NodeAdapter {
     @Autowired
     private NodeExecutorFactory executorFactory;
     
+    @Autowired
+    private EventSinkRegistry eventSinkRegistry;
+    
     /**
      * 将 WorkflowNode 适配为 LangGraph AsyncNodeAction
      * 
+     * 生成的节点动作不捕获任何请求级数据,事件回调在运行时按状态中的执行键获取,
+     * 因此编译后的图可以被并发执行共享
+     * 
      * @param node 工作流节点定义
-     * @param eventCallback 事件回调函数（可选）
      * @return LangGraph AsyncNodeAction
      */
-    public AsyncNodeAction<AgentState> adaptNode(WorkflowNode node, Consumer<ExecutionEvent> eventCallback) {
+    public AsyncNodeAction<AgentState> adaptNode(WorkflowNode node) {
         
         return (AgentState state) -> {
             long startTime = System.currentTimeMillis();
+            Consumer<ExecutionEvent> eventCallback =
+                eventSinkRegistry.get((String) state.data().get(StateManager.EXECUTION_KEY));
+            
+            // 恢复执行: 检查点中可复用的节点直接使用已保存的输出
+            @SuppressWarnings("unchecked")
+            Map<String, Map<String, Object>> resumeOutputs =
+                (Map<String, Map<String, Object>>) state.data().get(StateManager.RESUME_OUTPUTS_KEY);
+            if (resumeOutputs != null && resumeOutputs.containsKey(node.getId())) {
+                return CompletableFuture.completedFuture(
+                    resumeNode(node, state.data(), resumeOutputs.get(node.getId()), eventCallback));
+            }
             
             try {
                 // 触发节点开始事件
@@ -111,21 +129,45 @@ public class NodeAdapter {
         };
     }
     
+    /**
+     * 使用检查点中的输出代替执行节点,状态更新方式与正常执行一致
+     */
+    private Map<String, Object> resumeNode(WorkflowNode node, Map<String, Object> stateData,
+                                           Map<String, Object> output, Consumer<ExecutionEvent> eventCallback) {
+        Map<String, Object> newStateData = new HashMap<>(stateData);
+        
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> nodeOutputs = 
+            (Map<String, Map<String, Object>>) newStateData.getOrDefault("nodeOutputs", new HashMap<>());
+        nodeOutputs.put(node.getId(), output);
+        newStateData.put("nodeOutputs", nodeOutputs);
+        newStateData.put("currentInput", output);
+        newStateData.put("currentNodeId", node.getId());
+        
+        if (eventCallback != null) {
+            Map<String, Object> eventData = new HashMap<>();
+            eventData.put("input", stateData.get("currentInput"));
+            eventData.put("output", output);
+            eventData.put("duration", 0);
+            eventData.put("resumed", true);
+            eventCallback.accept(ExecutionEvent.nodeSuccess(node.getId(), node.getType(), eventData, 0));
+        }
+        
+        return newStateData;
+    }
+    
     /**
      * 批量适配多个节点
      * 
      * @param nodes 节点列表
-     * @param eventCallback 事件回调
      * @return 节点ID到AsyncNodeAction的映射
      */
-    public Map<String, AsyncNodeAction<AgentState>> adaptNodes(
-            java.util.List<WorkflowNode> nodes, 
-            Consumer<ExecutionEvent> eventCallback) {
+    public Map<String, AsyncNodeAction<AgentState>> adaptNodes(java.util.List<WorkflowNode> nodes) {
         
         Map<String, AsyncNodeAction<AgentState>> adaptedNodes = new HashMap<>();
         
         for (WorkflowNode node : nodes) {
-            adaptedNodes.put(node.getId(), adaptNode(node, eventCallback));
+            adaptedNodes.put(node.getId(), adaptNode(node));
         }
         
         return adaptedNodes;
@@ -1,19 +1,18 @@
 package com.paiagent.engine.langgraph.builder;
 
-import com.paiagent.dto.ExecutionEvent;
 import com.paiagent.engine.langgraph.adapter.NodeAdapter;
+import com.paiagent.engine.langgraph.checkpoint.PersistentCheckpointSaver;
 import com.paiagent.engine.model.WorkflowConfig;
 import com.paiagent.engine.model.WorkflowEdge;
 import com.paiagent.engine.model.WorkflowNode;
 import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.CompileConfig;
 import org.bsc.langgraph4j.StateGraph;
 import org.bsc.langgraph4j.state.AgentState;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
-import java.util.Map;
-import java.util.function.Consumer;
 
 /**
  * 图构建器
@@ -28,17 +27,19 @@ public class GraphBuilder {
     @Autowired
     private NodeAdapter nodeAdapter;
     
+    @Autowired
+    private PersistentCheckpointSaver checkpointSaver;
+    
     /**
      * 构建 LangGraph StateGraph
      * 
+     * 构建结果不依赖任何请求级数据,可缓存并在并发执行间共享
+     * 
      * @param config 工作流配置
-     * @param eventCallback 事件回调（可选）
      * @return 编译后的 StateGraph
      * @throws Exception 图构建异常
      */
-    public org.bsc.langgraph4j.CompiledGraph<AgentState> buildGraph(
-            WorkflowConfig config, 
-            Consumer<ExecutionEvent> eventCallback) throws Exception {
+    public org.bsc.langgraph4j.CompiledGraph<AgentState> buildGraph(WorkflowConfig config) throws Exception {
         
         log.info("开始构建 LangGraph: 节点数={}, 边数={}", 
             config.getNodes().size(), config.getEdges().size());
@@ -47,7 +48,7 @@ public class GraphBuilder {
         StateGraph<AgentState> graph = new StateGraph<>(AgentState::new);
         
         // 添加所有节点
-        addNodes(graph, config.getNodes(), eventCallback);
+        addNodes(graph, config.getNodes());
         
         // 添加所有边
         addEdges(graph, config.getEdges());
@@ -55,8 +56,10 @@ public class GraphBuilder {
         // 设置入口和出口
         setEntryAndExit(graph, config.getNodes(), config.getEdges());
         
-        // 编译图
-        var compiled = graph.compile();
+        // 编译图（节点完成后经检查点保存器持久化节点输出）
+        var compiled = graph.compile(CompileConfig.builder()
+            .checkpointSaver(checkpointSaver)
+            .build());
         
         log.info("LangGraph 构建完成");
         return compiled;
@@ -65,16 +68,13 @@ public class GraphBuilder {
     /**
      * 添加节点到图中
      */
-    private void addNodes(
-            StateGraph<AgentState> graph, 
-            List<WorkflowNode> nodes,
-            Consumer<ExecutionEvent> eventCallback) throws Exception {
+    private void addNodes(StateGraph<AgentState> graph, List<WorkflowNode> nodes) throws Exception {
         
         for (WorkflowNode node : nodes) {
             log.debug("添加节点: id={}, type={}", node.getId(), node.getType());
             
             // 使用 NodeAdapter 将节点适配为 LangGraph NodeAction
-            var nodeAction = nodeAdapter.adaptNode(node, eventCallback);
+            var nodeAction = nodeAdapter.adaptNode(node);
             
             graph.addNode(node.getId(), nodeAction);
         }
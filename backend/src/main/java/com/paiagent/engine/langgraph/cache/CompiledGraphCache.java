@@ -0,0 +1,114 @@
+package com.paiagent.engine.langgraph.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.paiagent.config.PlanCacheConfig;
+import com.paiagent.engine.langgraph.builder.GraphBuilder;
+import com.paiagent.engine.llm.ChatClientFactory;
+import com.paiagent.engine.model.WorkflowConfig;
+import com.paiagent.entity.Workflow;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.state.AgentState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 编译图缓存
+ *
+ * 按 (工作流 ID, 更新时间) 缓存 LangGraph 编译结果,图构建成本从每次请求降为每次编辑。
+ * 容量和过期策略与执行计划缓存共用 plan-cache 配置
+ */
+@Slf4j
+@Component
+public class CompiledGraphCache {
+    
+    @Autowired
+    private GraphBuilder graphBuilder;
+    
+    @Autowired
+    private PlanCacheConfig planCacheConfig;
+    
+    @Autowired
+    private ChatClientFactory chatClientFactory;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Cache<GraphKey, CachedGraph> cache;
+    
+    /**
+     * 缓存键: 工作流 ID + 版本 + 流程定义哈希
+     * updated_at 只精确到秒,同一秒内的两次编辑靠 flowData 哈希区分
+     */
+    private record GraphKey(Long workflowId, LocalDateTime version, int flowHash) {
+    }
+    
+    /**
+     * 缓存项: 工作流配置 + 编译后的图
+     */
+    public record CachedGraph(WorkflowConfig config, CompiledGraph<AgentState> graph) {
+    }
+    
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(planCacheConfig.getMaximumSize())
+                .expireAfterAccess(Duration.ofMinutes(planCacheConfig.getExpireAfterAccessMinutes()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "langgraph_compiled_graph");
+    }
+    
+    /**
+     * 获取工作流当前版本的编译图,未命中时构建并缓存
+     * 未持久化的工作流(无 ID 或更新时间)每次重新构建且不入缓存
+     */
+    public CachedGraph getGraph(Workflow workflow) {
+        if (workflow.getId() == null || workflow.getUpdatedAt() == null) {
+            return build(workflow);
+        }
+        
+        GraphKey key = new GraphKey(workflow.getId(), workflow.getUpdatedAt(), Objects.hashCode(workflow.getFlowData()));
+        return cache.get(key, k -> build(workflow));
+    }
+    
+    /**
+     * 失效指定工作流的所有版本
+     */
+    public void invalidate(Long workflowId) {
+        if (workflowId == null) {
+            return;
+        }
+        cache.asMap().keySet().removeIf(key -> workflowId.equals(key.workflowId()));
+        log.info("已失效工作流 [{}] 的编译图缓存", workflowId);
+    }
+    
+    /**
+     * 缓存命中/未命中统计
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+    
+    private CachedGraph build(Workflow workflow) {
+        WorkflowConfig config = WorkflowConfig.parse(workflow.getFlowData());
+        log.info("工作流配置解析完成: 节点数={}, 边数={}",
+            config.getNodes().size(), config.getEdges().size());
+        chatClientFactory.prewarm(config);
+        
+        try {
+            return new CachedGraph(config, graphBuilder.buildGraph(config));
+        } catch (Exception e) {
+            throw new RuntimeException("构建 LangGraph 失败: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.paiagent.engine.langgraph.checkpoint;
+
+import com.paiagent.engine.checkpoint.CheckpointStore;
+import com.paiagent.engine.langgraph.state.StateManager;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.StateGraph;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.bsc.langgraph4j.checkpoint.MemorySaver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 持久化检查点保存器
+ * 
+ * 在 MemorySaver 的基础上,每个节点完成后把该节点输出写入检查点存储,
+ * 与 DAG 引擎共用同一张检查点表,失败后可按运行 ID 恢复。
+ * 内存中的检查点按运行(threadId)在执行结束后清理
+ */
+@Slf4j
+@Component
+public class PersistentCheckpointSaver extends MemorySaver {
+    
+    @Autowired
+    private CheckpointStore checkpointStore;
+    
+    @Override
+    public RunnableConfig put(RunnableConfig config, Checkpoint checkpoint) throws Exception {
+        RunnableConfig result = super.put(config, checkpoint);
+        persist(checkpoint);
+        return result;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void persist(Checkpoint checkpoint) {
+        String nodeId = checkpoint.getNodeId();
+        if (nodeId == null || StateGraph.START.equals(nodeId) || StateGraph.END.equals(nodeId)) {
+            return;
+        }
+        
+        Map<String, Object> state = checkpoint.getState();
+        // 节点失败时 NodeAdapter 返回 FAILED 状态,此后的节点不再保存
+        if ("FAILED".equals(state.get("status"))) {
+            return;
+        }
+        
+        String runId = (String) state.get(StateManager.RUN_ID_KEY);
+        Map<String, Map<String, Object>> nodeOutputs = (Map<String, Map<String, Object>>) state.get("nodeOutputs");
+        if (runId == null || nodeOutputs == null || !nodeOutputs.containsKey(nodeId)) {
+            return;
+        }
+        
+        checkpointStore.save(runId,
+                (Long) state.get(StateManager.FLOW_ID_KEY),
+                (LocalDateTime) state.get(StateManager.FLOW_VERSION_KEY),
+                nodeId,
+                nodeOutputs.get(nodeId));
+    }
+}
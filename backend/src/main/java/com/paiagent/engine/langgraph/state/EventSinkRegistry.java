@@ -0,0 +1,55 @@
+package com.paiagent.engine.langgraph.state;
+
+import com.paiagent.dto.ExecutionEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 事件回调注册表
+ * 
+ * 编译后的图被同一工作流版本的所有执行共享,不能在节点闭包中捕获某次请求的回调。
+ * 每次执行开始时在此登记回调并把执行键写入图状态,节点运行时再按执行键取回回调
+ */
+@Slf4j
+@Component
+public class EventSinkRegistry {
+    
+    private final Map<String, Consumer<ExecutionEvent>> sinks = new ConcurrentHashMap<>();
+    
+    /**
+     * 登记本次执行的事件回调
+     * 
+     * @param eventCallback 事件回调(可为 null)
+     * @return 执行键,需写入图状态
+     */
+    public String register(Consumer<ExecutionEvent> eventCallback) {
+        String executionKey = UUID.randomUUID().toString();
+        if (eventCallback != null) {
+            sinks.put(executionKey, eventCallback);
+        }
+        return executionKey;
+    }
+    
+    /**
+     * 获取执行键对应的事件回调
+     * 
+     * @return 事件回调,未登记时返回 null
+     */
+    public Consumer<ExecutionEvent> get(String executionKey) {
+        return executionKey != null ? sinks.get(executionKey) : null;
+    }
+    
+    /**
+     * 执行结束后注销回调
+     */
+    public void unregister(String executionKey) {
+        if (executionKey != null) {
+            sinks.remove(executionKey);
+        }
+    }
+}
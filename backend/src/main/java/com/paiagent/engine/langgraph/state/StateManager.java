@@ -1,6 +1,7 @@
 package com.paiagent.engine.langgraph.state;
 
 import com.paiagent.engine.langgraph.WorkflowState;
+import com.paiagent.entity.Workflow;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -17,6 +18,25 @@ import java.util.Map;
 @Component
 public class StateManager {
     
+    /**
+     * 状态中保存执行键的字段,用于在共享的图中定位本次执行的事件回调
+     */
+    public static final String EXECUTION_KEY = "executionKey";
+    
+    /**
+     * 状态中保存运行 ID 及工作流版本的字段,检查点保存器据此持久化节点输出
+     */
+    public static final String RUN_ID_KEY = "runId";
+    
+    public static final String FLOW_ID_KEY = "flowId";
+    
+    public static final String FLOW_VERSION_KEY = "flowVersion";
+    
+    /**
+     * 状态中保存恢复执行时可复用节点输出的字段
+     */
+    public static final String RESUME_OUTPUTS_KEY = "resumeOutputs";
+    
     /**
      * 初始化工作流状态
      * 
@@ -24,10 +44,24 @@ public class StateManager {
      * @return LangGraph 状态 Map
      */
     public Map<String, Object> initializeState(String inputData) {
+        return initializeState(inputData, null);
+    }
+    
+    /**
+     * 初始化工作流状态
+     * 
+     * @param inputData 原始输入数据
+     * @param executionKey 执行键（见 {@link EventSinkRegistry}）
+     * @return LangGraph 状态 Map
+     */
+    public Map<String, Object> initializeState(String inputData, String executionKey) {
         Map<String, Object> state = new HashMap<>();
         
         // 设置原始输入
         state.put("inputData", inputData);
+        if (executionKey != null) {
+            state.put(EXECUTION_KEY, executionKey);
+        }
         
         // 初始化当前输入（用于节点间传递）
         Map<String, Object> currentInput = new HashMap<>();
@@ -46,6 +80,28 @@ public class StateManager {
         return state;
     }
     
+    /**
+     * 写入运行信息,用于检查点保存和恢复执行
+     * 
+     * @param state 初始状态
+     * @param runId 运行 ID
+     * @param workflow 工作流定义
+     * @param reusableOutputs 可复用的节点输出（节点 ID -> 输出）
+     */
+    public void applyRunContext(Map<String, Object> state, String runId, Workflow workflow,
+                                Map<String, Map<String, Object>> reusableOutputs) {
+        state.put(RUN_ID_KEY, runId);
+        if (workflow.getId() != null) {
+            state.put(FLOW_ID_KEY, workflow.getId());
+        }
+        if (workflow.getUpdatedAt() != null) {
+            state.put(FLOW_VERSION_KEY, workflow.getUpdatedAt());
+        }
+        if (reusableOutputs != null && !reusableOutputs.isEmpty()) {
+            state.put(RESUME_OUTPUTS_KEY, new HashMap<>(reusableOutputs));
+        }
+    }
+    
     /**
      * 从 LangGraph 状态提取 WorkflowState
      * 
@@ -138,10 +194,10 @@ public class StateManager {
             return results;
         }
         
-        // 创建节点 ID 到名称的映射
-        Map<String, String> nodeIdToName = new HashMap<>();
+        // 创建节点 ID 到类型的映射
+        Map<String, String> nodeIdToType = new HashMap<>();
         for (var node : config.getNodes()) {
-            nodeIdToName.put(node.getId(), node.getType());
+            nodeIdToType.put(node.getId(), node.getType());
         }
         
         // 转换为 NodeResult 格式
@@ -151,9 +207,15 @@ public class StateManager {
             
             Map<String, Object> nodeResult = new HashMap<>();
             nodeResult.put("nodeId", nodeId);
-            nodeResult.put("nodeName", nodeIdToName.getOrDefault(nodeId, nodeId));
+            nodeResult.put("nodeName", nodeIdToType.getOrDefault(nodeId, nodeId));
+            nodeResult.put("nodeType", nodeIdToType.get(nodeId));
             nodeResult.put("status", "SUCCESS");
             nodeResult.put("output", com.alibaba.fastjson2.JSON.toJSONString(output));
+            if (output != null) {
+                nodeResult.put("inputTokens", output.get("inputTokens"));
+                nodeResult.put("outputTokens", output.get("outputTokens"));
+                nodeResult.put("totalTokens", output.get("totalTokens"));
+            }
             
             results.add(nodeResult);
         }
@@ -1,23 +1,38 @@
 package com.paiagent.engine.llm;
 
+import com.paiagent.config.LLMClientConfig;
+import com.paiagent.engine.llm.client.LLMClientRegistry;
+import com.paiagent.engine.model.WorkflowConfig;
+import com.paiagent.engine.model.WorkflowNode;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.model.ChatModel;
-import org.springframework.ai.openai.OpenAiChatModel;
-import org.springframework.ai.openai.OpenAiChatOptions;
-import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+import java.util.Set;
+
 /**
  * ChatClient动态工厂
- * 根据节点配置在运行时创建不同类型的ChatClient实例
+ * 根据节点配置获取对应的ChatClient实例,实例由 LLMClientRegistry 按端点复用
  */
 @Slf4j
 @Component
 public class ChatClientFactory {
     
     /**
-     * 根据节点类型和配置创建ChatClient
+     * 支持的节点类型（均通过OpenAI兼容接口调用）
+     */
+    private static final Set<String> OPENAI_COMPATIBLE_TYPES = Set.of("openai", "deepseek", "qwen");
+    
+    @Autowired
+    private LLMClientRegistry clientRegistry;
+    
+    @Autowired
+    private LLMClientConfig clientConfig;
+    
+    /**
+     * 根据节点类型和配置获取ChatClient
      *
      * @param nodeType    节点类型 (openai/deepseek/qwen)
      * @param apiUrl      API端点URL
@@ -28,32 +43,45 @@ public class ChatClientFactory {
      */
     public ChatClient createClient(String nodeType, String apiUrl, String apiKey, 
                                    String model, Double temperature) {
-        log.info("创建ChatClient - 类型: {}, URL: {}, 模型: {}, 温度: {}", 
+        log.debug("获取ChatClient - 类型: {}, URL: {}, 模型: {}, 温度: {}", 
                 nodeType, apiUrl, model, temperature);
         
-        ChatModel chatModel = switch (nodeType) {
-            case "openai", "deepseek", "qwen" -> createOpenAICompatibleModel(apiUrl, apiKey, model, temperature);
-            default -> throw new IllegalArgumentException("不支持的节点类型: " + nodeType);
-        };
+        if (!supports(nodeType)) {
+            throw new IllegalArgumentException("不支持的节点类型: " + nodeType);
+        }
         
-        return ChatClient.builder(chatModel).build();
+        return clientRegistry.getClient(apiUrl, apiKey, model, temperature);
     }
     
     /**
-     * 创建OpenAI兼容的ChatModel
-     * 支持OpenAI、DeepSeek和通义千问（通过OpenAI兼容接口）
+     * 是否为支持的 LLM 节点类型
      */
-    private ChatModel createOpenAICompatibleModel(String apiUrl, String apiKey, 
-                                                   String model, Double temperature) {
-        // 使用构造函数创建OpenAiApi（支持自定义baseUrl）
-        OpenAiApi openAiApi = new OpenAiApi(apiUrl, apiKey);
-        
-        // 创建ChatModel并配置选项
-        OpenAiChatOptions options = OpenAiChatOptions.builder()
-                .model(model)
-                .temperature(temperature)
-                .build();
+    public boolean supports(String nodeType) {
+        return nodeType != null && OPENAI_COMPATIBLE_TYPES.contains(nodeType);
+    }
+    
+    /**
+     * 加载工作流时预热其中 LLM 节点的连接（需开启 llm-client.prewarm）
+     */
+    public void prewarm(WorkflowConfig config) {
+        if (!clientConfig.isPrewarm() || config == null || config.getNodes() == null) {
+            return;
+        }
         
-        return new OpenAiChatModel(openAiApi, options);
+        for (WorkflowNode node : config.getNodes()) {
+            Map<String, Object> data = node.getData();
+            if (!supports(node.getType()) || data == null || data.get("apiUrl") == null || data.get("apiKey") == null) {
+                continue;
+            }
+            try {
+                clientRegistry.prewarm(
+                        data.get("apiUrl").toString().trim(),
+                        data.get("apiKey").toString().trim(),
+                        data.get("model") != null ? data.get("model").toString().trim() : null,
+                        data.get("temperature") instanceof Number number ? number.doubleValue() : 0.7);
+            } catch (Exception e) {
+                log.warn("预热节点 [{}] 的 LLM 连接失败: {}", node.getId(), e.getMessage());
+            }
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.paiagent.engine.llm;
 
+import com.paiagent.engine.llm.invoke.LLMEndpoint;
 import lombok.Data;
 
 import java.util.List;
@@ -21,6 +22,11 @@ public class LLMNodeConfig {
      */
     private String apiKey;
     
+    /**
+     * 凭证池名称,配置后每次调用从池中选取 API 密钥/端点,apiKey/apiUrl 可留空
+     */
+    private String pool;
+    
     /**
      * 模型名称
      */
@@ -50,4 +56,24 @@ public class LLMNodeConfig {
      * 是否启用流式输出
      */
     private boolean streaming;
+    
+    /**
+     * 是否启用响应缓存(相同模型、温度和最终提示词的请求直接复用结果)
+     */
+    private boolean cache;
+    
+    /**
+     * 对冲备用端点,主端点超过延迟百分位未返回时发起同样的请求,为空时不对冲
+     */
+    private LLMEndpoint hedgeEndpoint;
+    
+    /**
+     * 对冲触发百分位,为空时使用 llm-hedge 全局配置
+     */
+    private Double hedgePercentile;
+    
+    /**
+     * 故障转移端点链,主端点失败或熔断时按顺序尝试
+     */
+    private List<LLMEndpoint> fallbackEndpoints;
 }
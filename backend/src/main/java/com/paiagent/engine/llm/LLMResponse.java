@@ -0,0 +1,30 @@
+package com.paiagent.engine.llm;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * LLM响应包装类
+ */
+@Data
+@NoArgsConstructor
+public class LLMResponse {
+    
+    /**
+     * 生成内容
+     */
+    private String content;
+    
+    private Integer inputTokens;
+    
+    private Integer outputTokens;
+    
+    private Integer totalTokens;
+    
+    public LLMResponse(String content, Integer inputTokens, Integer outputTokens, Integer totalTokens) {
+        this.content = content;
+        this.inputTokens = inputTokens != null ? inputTokens : 0;
+        this.outputTokens = outputTokens != null ? outputTokens : 0;
+        this.totalTokens = totalTokens != null ? totalTokens : (this.inputTokens + this.outputTokens);
+    }
+}
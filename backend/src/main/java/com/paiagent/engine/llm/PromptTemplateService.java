@@ -1,5 +1,6 @@
 package com.paiagent.engine.llm;
 
+import com.paiagent.engine.dag.ParallelDagScheduler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -71,9 +72,18 @@ public class PromptTemplateService {
                 String reference = (String) param.get("referenceNode");
                 if (reference != null && reference.contains(".")) {
                     String[] parts = reference.split("\\.");
+                    String refNodeId = parts[0];
                     String refParamName = parts[parts.length - 1];
                     
-                    Object refValue = runtimeInput.get(refParamName);
+                    // 汇聚节点优先按节点 ID 精确取值,避免多个上游的同名输出互相覆盖
+                    Object refValue = null;
+                    if (runtimeInput.get(ParallelDagScheduler.NODE_OUTPUTS_KEY) instanceof Map<?, ?> nodeOutputs
+                            && nodeOutputs.get(refNodeId) instanceof Map<?, ?> nodeOutput) {
+                        refValue = nodeOutput.get(refParamName);
+                    }
+                    if (refValue == null) {
+                        refValue = runtimeInput.get(refParamName);
+                    }
                     // 兼容处理：user_input 可能存储为 input
                     if (refValue == null && "user_input".equals(refParamName)) {
                         refValue = runtimeInput.get("input");
@@ -0,0 +1,230 @@
+package com.paiagent.engine.llm.cache;
+
+import com.alibaba.fastjson2.JSON;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paiagent.config.LLMCacheConfig;
+import com.paiagent.engine.llm.LLMResponse;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * LLM 响应缓存
+ * 
+ * 两级缓存: 内存层(Caffeine,容量 + 写入后过期) + 本地磁盘层(每个条目一个 JSON 文件)。
+ * 缓存键为规范化请求(节点类型、API 地址、模型、温度、最终提示词)的 SHA-256。
+ * 仅对显式开启缓存的节点/工作流生效,适合温度为 0 的回归和预览运行
+ */
+@Slf4j
+@Component
+public class LLMResponseCache {
+    
+    @Autowired
+    private LLMCacheConfig cacheConfig;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    private Cache<String, LLMResponse> memoryCache;
+    
+    private Path diskDir;
+    
+    private Counter memoryHits;
+    
+    private Counter diskHits;
+    
+    private Counter misses;
+    
+    @PostConstruct
+    public void init() {
+        memoryCache = Caffeine.newBuilder()
+                .maximumSize(cacheConfig.getMaximumSize())
+                .expireAfterWrite(Duration.ofMinutes(cacheConfig.getExpireAfterWriteMinutes()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memoryCache, "llm_response");
+        
+        memoryHits = Counter.builder("llm.cache.requests").tag("result", "memory_hit").register(meterRegistry);
+        diskHits = Counter.builder("llm.cache.requests").tag("result", "disk_hit").register(meterRegistry);
+        misses = Counter.builder("llm.cache.requests").tag("result", "miss").register(meterRegistry);
+        
+        if (cacheConfig.isDiskEnabled()) {
+            diskDir = Paths.get(cacheConfig.getDiskDir());
+            try {
+                Files.createDirectories(diskDir);
+                // 启动时在后台清理过期的磁盘条目
+                executionRuntime.getBlockingExecutor().execute(this::purgeExpired);
+            } catch (IOException e) {
+                log.warn("创建 LLM 缓存目录失败,禁用磁盘层: {}", e.getMessage());
+                diskDir = null;
+            }
+        }
+    }
+    
+    /**
+     * 计算规范化请求的缓存键
+     */
+    public String key(String nodeType, String apiUrl, String model, Double temperature, String prompt) {
+        Map<String, Object> normalized = new LinkedHashMap<>();
+        normalized.put("type", nodeType);
+        normalized.put("url", normalizeUrl(apiUrl));
+        normalized.put("model", model);
+        normalized.put("temperature", temperature != null
+                ? BigDecimal.valueOf(temperature).stripTrailingZeros().toPlainString() : null);
+        normalized.put("prompt", prompt);
+        return sha256(JSON.toJSONString(normalized));
+    }
+    
+    /**
+     * 查询缓存,内存层未命中时查磁盘层并回填内存层
+     * 
+     * @return 命中的响应,未命中返回 null
+     */
+    public LLMResponse get(String key) {
+        LLMResponse response = memoryCache.getIfPresent(key);
+        if (response != null) {
+            memoryHits.increment();
+            return response;
+        }
+        
+        response = readDisk(key);
+        if (response != null) {
+            diskHits.increment();
+            memoryCache.put(key, response);
+            return response;
+        }
+        
+        misses.increment();
+        return null;
+    }
+    
+    /**
+     * 写入缓存,磁盘层在后台写入
+     */
+    public void put(String key, LLMResponse response) {
+        if (response == null || response.getContent() == null) {
+            return;
+        }
+        memoryCache.put(key, response);
+        if (diskDir != null) {
+            executionRuntime.getBlockingExecutor().execute(() -> writeDisk(key, response));
+        }
+    }
+    
+    private LLMResponse readDisk(String key) {
+        if (diskDir == null) {
+            return null;
+        }
+        Path file = diskPath(key);
+        try {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            if (isExpired(Files.getLastModifiedTime(file))) {
+                deleteQuietly(file);
+                return null;
+            }
+            return JSON.parseObject(Files.readString(file, StandardCharsets.UTF_8), LLMResponse.class);
+        } catch (Exception e) {
+            log.warn("读取 LLM 磁盘缓存失败: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private void writeDisk(String key, LLMResponse response) {
+        Path file = diskPath(key);
+        try {
+            Files.createDirectories(file.getParent());
+            // 先写临时文件再原子替换,避免并发读到半个文件
+            Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.writeString(tmp, JSON.toJSONString(response), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("写入 LLM 磁盘缓存失败: {}", e.getMessage());
+        }
+    }
+    
+    private void purgeExpired() {
+        try (Stream<Path> files = Files.walk(diskDir)) {
+            List<Path> expired = files.filter(Files::isRegularFile)
+                    .filter(file -> {
+                        try {
+                            return file.toString().endsWith(".tmp") || isExpired(Files.getLastModifiedTime(file));
+                        } catch (IOException e) {
+                            return false;
+                        }
+                    })
+                    .toList();
+            expired.forEach(this::deleteQuietly);
+            int purged = expired.size();
+            if (purged > 0) {
+                log.info("已清理 {} 个过期的 LLM 磁盘缓存条目", purged);
+            }
+        } catch (IOException e) {
+            log.warn("清理 LLM 磁盘缓存失败: {}", e.getMessage());
+        }
+    }
+    
+    private boolean isExpired(FileTime modified) {
+        return modified.toInstant().isBefore(Instant.now().minus(Duration.ofHours(cacheConfig.getDiskTtlHours())));
+    }
+    
+    /**
+     * 按键前两位分目录,避免单目录文件过多
+     */
+    private Path diskPath(String key) {
+        return diskDir.resolve(key.substring(0, 2)).resolve(key + ".json");
+    }
+    
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("删除缓存文件失败: {}", file);
+        }
+    }
+    
+    private String normalizeUrl(String apiUrl) {
+        if (apiUrl == null) {
+            return null;
+        }
+        String url = apiUrl.trim().toLowerCase();
+        while (url.endsWith("/")) {
+            url = url.substring(0, url.length() - 1);
+        }
+        return url;
+    }
+    
+    private String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
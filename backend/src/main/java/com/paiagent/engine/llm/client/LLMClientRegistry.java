@@ -0,0 +1,288 @@
+package com.paiagent.engine.llm.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.paiagent.config.LLMClientConfig;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LLM 客户端注册表
+ * 
+ * 按 (API 地址, API 密钥哈希, 模型) 复用 OpenAiApi / ChatClient,所有客户端共享一个
+ * JDK HttpClient,其内部按目标主机维护保持连接(keep-alive)的连接池,避免每次调用重新握手。
+ * 客户端空闲超时后从注册表移除,空闲连接由 HttpClient 按 keep-alive 时间关闭。
+ * 
+ * keep-alive 时间只能通过 JVM 启动参数 -Djdk.httpclient.keepalive.timeout=秒数 设置
+ * (HttpClient 连接池首次创建时读取一次,且对进程内所有 HttpClient 生效),不在应用配置中提供。
+ * HttpClient 不暴露连接池的空闲连接数,这里按端点统计进行中的请求数(HTTP/1.1 下即占用的连接数)
+ */
+@Slf4j
+@Component
+public class LLMClientRegistry {
+    
+    @Autowired
+    private LLMClientConfig clientConfig;
+    
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private HttpClient httpClient;
+    
+    private Cache<ClientKey, ClientEntry> clients;
+    
+    private final Map<String, Counter> requestCounters = new ConcurrentHashMap<>();
+    
+    private final Map<String, Timer> callTimers = new ConcurrentHashMap<>();
+    
+    private final Map<String, AtomicInteger> activeRequests = new ConcurrentHashMap<>();
+    
+    /**
+     * 注册表键: API 地址 + API 密钥哈希 + 模型(不保存明文密钥)
+     */
+    private record ClientKey(String apiUrl, String apiKeyHash, String model) {
+    }
+    
+    /**
+     * 注册表条目: 共享的 OpenAiApi 及按温度缓存的 ChatClient
+     */
+    private static final class ClientEntry {
+        
+        private final OpenAiApi openAiApi;
+        
+        private final Map<String, ChatClient> clientsByTemperature = new ConcurrentHashMap<>();
+        
+        private ClientEntry(OpenAiApi openAiApi) {
+            this.openAiApi = openAiApi;
+        }
+    }
+    
+    @PostConstruct
+    public void init() {
+        log.info("LLM HttpClient 空闲连接保持时间: {}",
+                System.getProperty("jdk.httpclient.keepalive.timeout", "JDK 默认值"));
+        
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(clientConfig.getConnectTimeoutSeconds()))
+                .executor(executionRuntime.getBlockingExecutor())
+                .build();
+        
+        clients = Caffeine.newBuilder()
+                .maximumSize(clientConfig.getMaximumClients())
+                .expireAfterAccess(Duration.ofMinutes(clientConfig.getIdleMinutes()))
+                .removalListener((ClientKey key, ClientEntry entry, RemovalCause cause) ->
+                        log.info("移除 LLM 客户端: url={}, model={}, 原因={}",
+                                key != null ? key.apiUrl() : null, key != null ? key.model() : null, cause))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, clients, "llm_client");
+        Gauge.builder("llm.client.registry.size", clients, Cache::estimatedSize)
+                .description("已缓存的 LLM 客户端数")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 获取(或创建)指定端点、密钥、模型和温度的 ChatClient
+     */
+    public ChatClient getClient(String apiUrl, String apiKey, String model, Double temperature) {
+        ClientKey key = new ClientKey(normalizeUrl(apiUrl), sha256(apiKey), model);
+        ClientEntry entry = clients.get(key, k -> createEntry(apiUrl, apiKey));
+        
+        return entry.clientsByTemperature.computeIfAbsent(String.valueOf(temperature), t -> {
+            OpenAiChatOptions options = OpenAiChatOptions.builder()
+                    .model(model)
+                    .temperature(temperature)
+                    .build();
+            return ChatClient.builder(new OpenAiChatModel(entry.openAiApi, options)).build();
+        });
+    }
+    
+    /**
+     * 预热: 创建客户端并向端点发起一次轻量请求,提前完成 DNS 解析和 TLS 握手,连接留在池中复用
+     */
+    public void prewarm(String apiUrl, String apiKey, String model, Double temperature) {
+        getClient(apiUrl, apiKey, model, temperature);
+        
+        String endpoint = normalizeUrl(apiUrl);
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint))
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .timeout(Duration.ofSeconds(clientConfig.getConnectTimeoutSeconds()))
+                    .build();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, e) -> {
+                        if (e != null) {
+                            log.debug("预热 LLM 端点 {} 失败: {}", endpoint, e.getMessage());
+                        } else {
+                            log.info("已预热 LLM 端点 {}", endpoint);
+                        }
+                    });
+        } catch (IllegalArgumentException e) {
+            log.warn("LLM 端点地址无效,跳过预热: {}", endpoint);
+        }
+    }
+    
+    /**
+     * 注册表统计: 缓存命中、创建和淘汰次数
+     */
+    public CacheStats getStats() {
+        return clients.stats();
+    }
+    
+    /**
+     * 当前缓存的客户端数
+     */
+    public long size() {
+        return clients.estimatedSize();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        clients.invalidateAll();
+        httpClient.close();
+    }
+    
+    private ClientEntry createEntry(String apiUrl, String apiKey) {
+        String endpoint = normalizeUrl(apiUrl);
+        log.info("创建 LLM 客户端: url={}", endpoint);
+        
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofSeconds(clientConfig.getReadTimeoutSeconds()));
+        
+        RestClient.Builder restClientBuilder = RestClient.builder()
+                .requestFactory(requestFactory)
+                .requestInterceptor(callMetrics(endpoint));
+        WebClient.Builder webClientBuilder = WebClient.builder()
+                .clientConnector(new JdkClientHttpConnector(httpClient))
+                .filter(streamMetrics(endpoint));
+        
+        return new ClientEntry(new OpenAiApi(apiUrl, apiKey, restClientBuilder, webClientBuilder));
+    }
+    
+    /**
+     * 非流式调用计数、耗时与进行中请求数
+     */
+    private ClientHttpRequestInterceptor callMetrics(String endpoint) {
+        Counter counter = requestCounter(endpoint, "call");
+        AtomicInteger active = activeRequests(endpoint);
+        Timer timer = callTimers.computeIfAbsent(endpoint, e -> Timer.builder("llm.http.call.duration")
+                .tag("endpoint", e)
+                .register(meterRegistry));
+        return (request, body, execution) -> {
+            counter.increment();
+            active.incrementAndGet();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                return execution.execute(request, body);
+            } finally {
+                sample.stop(timer);
+                active.decrementAndGet();
+            }
+        };
+    }
+    
+    /**
+     * 流式调用计数与进行中请求数,响应体读完、出错或取消时结束
+     */
+    private ExchangeFilterFunction streamMetrics(String endpoint) {
+        Counter counter = requestCounter(endpoint, "stream");
+        AtomicInteger active = activeRequests(endpoint);
+        return (request, next) -> Mono.defer(() -> {
+            counter.increment();
+            active.incrementAndGet();
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    active.decrementAndGet();
+                }
+            };
+            return next.exchange(request)
+                    .map(response -> response.mutate()
+                            .body(flux -> flux.doFinally(signal -> release.run()))
+                            .build())
+                    .doOnError(e -> release.run())
+                    .doOnCancel(release);
+        });
+    }
+    
+    private AtomicInteger activeRequests(String endpoint) {
+        return activeRequests.computeIfAbsent(endpoint, e -> {
+            AtomicInteger active = new AtomicInteger();
+            Gauge.builder("llm.http.active.requests", active, AtomicInteger::get)
+                    .description("进行中的 LLM HTTP 请求数")
+                    .tag("endpoint", e)
+                    .register(meterRegistry);
+            return active;
+        });
+    }
+    
+    private Counter requestCounter(String endpoint, String mode) {
+        return requestCounters.computeIfAbsent(endpoint + "|" + mode, k -> Counter.builder("llm.http.requests")
+                .tag("endpoint", endpoint)
+                .tag("mode", mode)
+                .register(meterRegistry));
+    }
+    
+    private String normalizeUrl(String apiUrl) {
+        if (apiUrl == null) {
+            return "";
+        }
+        String url = apiUrl.trim();
+        while (url.endsWith("/")) {
+            url = url.substring(0, url.length() - 1);
+        }
+        return url;
+    }
+    
+    private String sha256(String text) {
+        if (text == null) {
+            return "";
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.paiagent.engine.llm.invoke;
+
+import com.paiagent.config.LLMCircuitBreakerConfig;
+import com.paiagent.engine.llm.LLMResponse;
+import com.paiagent.engine.ratelimit.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * LLM 端点熔断器注册表
+ * 
+ * 按端点(地址 + 模型)维护熔断器,包装每一次实际发出的 LLM 调用。
+ * 熔断状态以 llm.circuit.state{endpoint} 暴露: 0=CLOSED, 1=OPEN, 2=HALF_OPEN
+ */
+@Slf4j
+@Component
+public class CircuitBreakerRegistry {
+    
+    @Autowired
+    private LLMCircuitBreakerConfig breakerConfig;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<String, EndpointCircuitBreaker> breakers = new ConcurrentHashMap<>();
+    
+    /**
+     * 按端点缓存的拒绝计数器,避免每次拒绝都走一遍 Meter 注册查找
+     */
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+    
+    /**
+     * 在熔断器保护下执行一次调用
+     */
+    public LLMResponse execute(LLMEndpoint endpoint, HedgedLLMInvoker.LLMCall call) throws Exception {
+        if (!breakerConfig.isEnabled()) {
+            return call.call(endpoint);
+        }
+        EndpointCircuitBreaker breaker = acquire(endpoint);
+        try {
+            LLMResponse response = call.call(endpoint);
+            breaker.onSuccess();
+            return response;
+        } catch (Exception e) {
+            // 对冲败者被中断取消、本地限流排队超时,均不代表端点故障
+            if (Thread.currentThread().isInterrupted() || e instanceof InterruptedException
+                    || e instanceof RateLimitExceededException) {
+                breaker.onIgnored();
+            } else {
+                breaker.onFailure();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * 在熔断器保护下订阅一次流式调用
+     */
+    public Flux<String> guard(LLMEndpoint endpoint, Supplier<Flux<String>> stream) {
+        if (!breakerConfig.isEnabled()) {
+            return stream.get();
+        }
+        return Flux.defer(() -> {
+            EndpointCircuitBreaker breaker;
+            try {
+                breaker = acquire(endpoint);
+            } catch (CircuitOpenException e) {
+                return Flux.error(e);
+            }
+            return stream.get()
+                    .doOnComplete(breaker::onSuccess)
+                    .doOnError(e -> {
+                        if (e instanceof RateLimitExceededException) {
+                            breaker.onIgnored();
+                        } else {
+                            breaker.onFailure();
+                        }
+                    })
+                    .doOnCancel(breaker::onIgnored);
+        });
+    }
+    
+    /**
+     * 各端点当前熔断状态
+     */
+    public Map<String, String> getStates() {
+        Map<String, String> states = new LinkedHashMap<>();
+        breakers.forEach((key, breaker) -> states.put(key, breaker.getState().name()));
+        return states;
+    }
+    
+    private EndpointCircuitBreaker acquire(LLMEndpoint endpoint) {
+        EndpointCircuitBreaker breaker = breakers.computeIfAbsent(endpoint.key(), this::createBreaker);
+        if (!breaker.tryAcquire()) {
+            rejectedCounters.computeIfAbsent(endpoint.key(), key -> Counter.builder("llm.circuit.rejected")
+                    .description("被熔断拒绝的 LLM 请求数")
+                    .tag("endpoint", key)
+                    .register(meterRegistry))
+                    .increment();
+            throw new CircuitOpenException(endpoint);
+        }
+        return breaker;
+    }
+    
+    private EndpointCircuitBreaker createBreaker(String key) {
+        Map<EndpointCircuitBreaker.State, Counter> transitions = new EnumMap<>(EndpointCircuitBreaker.State.class);
+        for (EndpointCircuitBreaker.State state : EndpointCircuitBreaker.State.values()) {
+            transitions.put(state, Counter.builder("llm.circuit.transitions")
+                    .description("熔断状态变更次数")
+                    .tag("endpoint", key)
+                    .tag("state", state.name())
+                    .register(meterRegistry));
+        }
+        EndpointCircuitBreaker breaker = new EndpointCircuitBreaker(breakerConfig, state -> {
+            log.warn("LLM 端点 {} 熔断状态变更为 {}", key, state);
+            transitions.get(state).increment();
+        });
+        Gauge.builder("llm.circuit.state", breaker, b -> b.getState().ordinal())
+                .description("LLM 端点熔断状态: 0=CLOSED, 1=OPEN, 2=HALF_OPEN")
+                .tag("endpoint", key)
+                .register(meterRegistry);
+        return breaker;
+    }
+}
@@ -0,0 +1,11 @@
+package com.paiagent.engine.llm.invoke;
+
+/**
+ * 端点处于熔断状态,请求被直接拒绝
+ */
+public class CircuitOpenException extends RuntimeException {
+    
+    public CircuitOpenException(LLMEndpoint endpoint) {
+        super("端点 " + endpoint.key() + " 熔断中,请求被拒绝");
+    }
+}
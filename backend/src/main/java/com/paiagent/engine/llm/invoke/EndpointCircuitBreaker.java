@@ -0,0 +1,184 @@
+package com.paiagent.engine.llm.invoke;
+
+import com.paiagent.config.LLMCircuitBreakerConfig;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 单个端点的熔断器
+ * 
+ * CLOSED: 正常放行,最近窗口内失败率或连续失败次数超过阈值时转为 OPEN;
+ * OPEN: 直接拒绝,熔断时间到后转为 HALF_OPEN;
+ * HALF_OPEN: 放行有限个探测请求,全部成功转为 CLOSED,任一失败重新 OPEN。
+ * 状态变更只涉及内存计数,使用 ReentrantLock 保护(调用路径在虚拟线程上,避免 synchronized 钉住载体线程),
+ * 状态变更监听在锁外回调
+ */
+public class EndpointCircuitBreaker {
+    
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    private final LLMCircuitBreakerConfig config;
+    
+    private final Consumer<State> transitionListener;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    /**
+     * 最近调用结果环形缓冲,true 表示失败
+     */
+    private final boolean[] outcomes;
+    
+    private State state = State.CLOSED;
+    
+    private int index;
+    
+    private int calls;
+    
+    private int failures;
+    
+    private int consecutiveFailures;
+    
+    private long openedAt;
+    
+    private int probesInFlight;
+    
+    private int probeSuccesses;
+    
+    public EndpointCircuitBreaker(LLMCircuitBreakerConfig config, Consumer<State> transitionListener) {
+        this.config = config;
+        this.transitionListener = transitionListener;
+        this.outcomes = new boolean[Math.max(1, config.getWindowSize())];
+    }
+    
+    /**
+     * 申请调用许可
+     * 
+     * @return false 表示端点熔断中,调用方应直接失败
+     */
+    public boolean tryAcquire() {
+        State changed = null;
+        lock.lock();
+        try {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < TimeUnit.SECONDS.toMillis(config.getOpenDurationSeconds())) {
+                    return false;
+                }
+                changed = transition(State.HALF_OPEN);
+            }
+            if (probesInFlight >= config.getHalfOpenProbes()) {
+                return false;
+            }
+            probesInFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+            notifyTransition(changed);
+        }
+    }
+    
+    public void onSuccess() {
+        State changed = null;
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+                if (++probeSuccesses >= config.getHalfOpenProbes()) {
+                    changed = transition(State.CLOSED);
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+                consecutiveFailures = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyTransition(changed);
+    }
+    
+    public void onFailure() {
+        State changed = null;
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                changed = transition(State.OPEN);
+            } else if (state == State.CLOSED) {
+                record(true);
+                consecutiveFailures++;
+                boolean rateExceeded = calls >= config.getMinimumCalls()
+                        && failures * 100.0 / calls >= config.getFailureRateThreshold();
+                if (rateExceeded || consecutiveFailures >= config.getConsecutiveFailures()) {
+                    changed = transition(State.OPEN);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyTransition(changed);
+    }
+    
+    /**
+     * 调用被取消(如对冲败者),不计入成功或失败,仅归还探测许可
+     */
+    public void onIgnored() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void record(boolean failed) {
+        if (calls == outcomes.length) {
+            if (outcomes[index]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        outcomes[index] = failed;
+        if (failed) {
+            failures++;
+        }
+        index = (index + 1) % outcomes.length;
+    }
+    
+    private State transition(State target) {
+        state = target;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (target == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        } else if (target == State.CLOSED) {
+            index = 0;
+            calls = 0;
+            failures = 0;
+            consecutiveFailures = 0;
+        }
+        return target;
+    }
+    
+    private void notifyTransition(State changed) {
+        if (changed != null) {
+            transitionListener.accept(changed);
+        }
+    }
+}
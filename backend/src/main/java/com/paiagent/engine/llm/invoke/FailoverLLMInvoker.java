@@ -0,0 +1,118 @@
+package com.paiagent.engine.llm.invoke;
+
+import com.paiagent.engine.llm.LLMResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 故障转移调用器
+ * 
+ * 按节点配置的端点链(主端点 + fallbacks)依次尝试: 每个端点的调用都经过熔断器,
+ * 熔断中的端点立即失败并切换到下一个端点,不再等待超时。
+ * 对冲(hedge)只作用于主端点
+ */
+@Slf4j
+@Component
+public class FailoverLLMInvoker {
+    
+    @Autowired
+    private HedgedLLMInvoker hedgedLLMInvoker;
+    
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<String, Counter> failoverCounters = new ConcurrentHashMap<>();
+    
+    /**
+     * 非流式调用
+     * 
+     * @param chain      端点链,第一个为主端点
+     * @param hedge      主端点的对冲端点,可为空
+     * @param percentile 对冲触发百分位,可为空
+     * @param call       调用逻辑
+     */
+    public LLMResponse call(List<LLMEndpoint> chain, LLMEndpoint hedge, Double percentile,
+                            HedgedLLMInvoker.LLMCall call) throws Exception {
+        Exception failure = null;
+        for (int i = 0; i < chain.size(); i++) {
+            LLMEndpoint endpoint = chain.get(i);
+            try {
+                LLMResponse response = hedgedLLMInvoker.call(endpoint, i == 0 ? hedge : null, percentile,
+                        ep -> circuitBreakerRegistry.execute(ep, call));
+                if (i > 0) {
+                    countFailover(endpoint);
+                }
+                return response;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+                if (i + 1 < chain.size()) {
+                    log.warn("端点 {} 调用失败,切换到 {}: {}", endpoint, chain.get(i + 1), e.getMessage());
+                }
+            }
+        }
+        if (chain.size() == 1) {
+            throw failure;
+        }
+        throw new RuntimeException("所有 LLM 端点调用失败: " + failure.getMessage(), failure);
+    }
+    
+    /**
+     * 流式调用
+     * 只有在尚未输出任何内容时才切换端点,已输出部分内容后的失败直接返回给调用方
+     */
+    public Flux<String> stream(List<LLMEndpoint> chain, LLMEndpoint hedge, Double percentile,
+                               Function<LLMEndpoint, Flux<String>> stream) {
+        return attemptStream(chain, 0, hedge, percentile, stream);
+    }
+    
+    private Flux<String> attemptStream(List<LLMEndpoint> chain, int index, LLMEndpoint hedge, Double percentile,
+                                       Function<LLMEndpoint, Flux<String>> stream) {
+        LLMEndpoint endpoint = chain.get(index);
+        AtomicBoolean emitted = new AtomicBoolean();
+        Flux<String> flux = hedgedLLMInvoker.stream(endpoint, index == 0 ? hedge : null, percentile,
+                        ep -> circuitBreakerRegistry.guard(ep, () -> stream.apply(ep)))
+                .doOnNext(chunk -> {
+                    if (index > 0 && emitted.compareAndSet(false, true)) {
+                        countFailover(endpoint);
+                    }
+                    emitted.set(true);
+                });
+        if (index + 1 >= chain.size()) {
+            return flux;
+        }
+        return flux.onErrorResume(e -> {
+            if (emitted.get()) {
+                return Flux.error(e);
+            }
+            log.warn("端点 {} 流式调用失败,切换到 {}: {}", endpoint, chain.get(index + 1), e.getMessage());
+            return attemptStream(chain, index + 1, hedge, percentile, stream);
+        });
+    }
+    
+    private void countFailover(LLMEndpoint endpoint) {
+        failoverCounters.computeIfAbsent(endpoint.key(), key -> Counter.builder("llm.failover")
+                .description("由备用端点完成的 LLM 请求数")
+                .tag("endpoint", key)
+                .register(meterRegistry))
+                .increment();
+    }
+}
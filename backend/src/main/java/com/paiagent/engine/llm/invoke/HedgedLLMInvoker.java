@@ -0,0 +1,272 @@
+package com.paiagent.engine.llm.invoke;
+
+import com.paiagent.config.LLMHedgeConfig;
+import com.paiagent.engine.llm.LLMResponse;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 对冲请求调用器
+ * 
+ * 主端点在其近期延迟的指定百分位内没有返回(流式调用为没有收到首个 token)时,
+ * 向备用端点/模型发起一次相同的请求,先返回者胜出,另一方被取消。
+ * 对冲率受统计窗口内的比例上限约束,避免端点整体变慢时请求量翻倍
+ */
+@Slf4j
+@Component
+public class HedgedLLMInvoker {
+    
+    private static final String PRIMARY = "primary";
+    
+    private static final String HEDGE = "hedge";
+    
+    private static final String MODE_CALL = "call";
+    
+    private static final String MODE_STREAM = "stream";
+    
+    @Autowired
+    private LLMHedgeConfig hedgeConfig;
+    
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 端点延迟统计,键为 "模式|端点标识";流式调用统计首 token 延迟
+     */
+    private final Map<String, LatencyTracker> trackers = new ConcurrentHashMap<>();
+    
+    private final ReentrantLock rateLock = new ReentrantLock();
+    
+    private long rateWindowStart = System.currentTimeMillis();
+    
+    private long windowRequests;
+    
+    private long windowHedges;
+    
+    private Counter hedgeFired;
+    
+    private Counter hedgeSkipped;
+    
+    private Counter primaryWins;
+    
+    private Counter hedgeWins;
+    
+    private Counter winnerTokens;
+    
+    /**
+     * 单次 LLM 调用
+     */
+    @FunctionalInterface
+    public interface LLMCall {
+        LLMResponse call(LLMEndpoint endpoint) throws Exception;
+    }
+    
+    @PostConstruct
+    public void init() {
+        hedgeFired = Counter.builder("llm.hedge.fired")
+                .description("发出的对冲请求数(额外请求)")
+                .register(meterRegistry);
+        hedgeSkipped = Counter.builder("llm.hedge.skipped")
+                .description("因对冲率上限未发出的对冲请求数")
+                .register(meterRegistry);
+        primaryWins = Counter.builder("llm.hedge.wins").tag("winner", PRIMARY).register(meterRegistry);
+        hedgeWins = Counter.builder("llm.hedge.wins").tag("winner", HEDGE).register(meterRegistry);
+        // 败者请求被中途取消,拿不到用量;胜者用量可作为每次对冲额外花费的上限估算
+        winnerTokens = Counter.builder("llm.hedge.winner.tokens")
+                .description("发生对冲的非流式调用中胜出请求的 token 数")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 非流式调用
+     * 
+     * @param primary    主端点
+     * @param hedge      备用端点,为空时不对冲
+     * @param percentile 对冲触发百分位,为空时使用全局配置
+     * @param call       调用逻辑
+     */
+    public LLMResponse call(LLMEndpoint primary, LLMEndpoint hedge, Double percentile, LLMCall call) throws Exception {
+        if (hedge == null) {
+            return timedCall(primary, call);
+        }
+        countRequest();
+        
+        CompletionService<LLMResponse> completion = new ExecutorCompletionService<>(executionRuntime.getBlockingExecutor());
+        Map<Future<LLMResponse>, String> attempts = new HashMap<>();
+        attempts.put(completion.submit(() -> timedCall(primary, call)), PRIMARY);
+        
+        long delayMs = hedgeDelay(MODE_CALL, primary, percentile);
+        Future<LLMResponse> done = completion.poll(delayMs, TimeUnit.MILLISECONDS);
+        boolean hedged = false;
+        if (done == null && tryAcquireHedge()) {
+            log.info("主端点 {} 超过 {}ms 未返回,向 {} 发起对冲请求", primary, delayMs, hedge);
+            hedgeFired.increment();
+            hedged = true;
+            attempts.put(completion.submit(() -> timedCall(hedge, call)), HEDGE);
+        }
+        
+        Exception failure = null;
+        try {
+            while (!attempts.isEmpty()) {
+                if (done == null) {
+                    done = completion.take();
+                }
+                String role = attempts.remove(done);
+                try {
+                    LLMResponse response = done.get();
+                    if (hedged) {
+                        (HEDGE.equals(role) ? hedgeWins : primaryWins).increment();
+                        if (response.getTotalTokens() != null) {
+                            winnerTokens.increment(response.getTotalTokens());
+                        }
+                    }
+                    return response;
+                } catch (ExecutionException e) {
+                    Exception cause = e.getCause() instanceof Exception ex ? ex : new RuntimeException(e.getCause());
+                    log.warn("{} 请求失败: {}", role, cause.getMessage());
+                    if (failure == null) {
+                        failure = cause;
+                    }
+                }
+                done = null;
+            }
+        } finally {
+            // 取消仍在进行的请求(中断阻塞的 HTTP 调用)
+            attempts.keySet().forEach(future -> future.cancel(true));
+        }
+        throw failure;
+    }
+    
+    /**
+     * 流式调用
+     * 在首 token 延迟超过阈值时订阅备用端点,先产出 token 的流胜出,另一条流被取消
+     * 
+     * @param primary    主端点
+     * @param hedge      备用端点,为空时不对冲
+     * @param percentile 对冲触发百分位,为空时使用全局配置
+     * @param stream     创建流式调用的逻辑
+     */
+    public Flux<String> stream(LLMEndpoint primary, LLMEndpoint hedge, Double percentile,
+                               Function<LLMEndpoint, Flux<String>> stream) {
+        if (hedge == null) {
+            return timedStream(primary, stream);
+        }
+        countRequest();
+        
+        long delayMs = hedgeDelay(MODE_STREAM, primary, percentile);
+        AtomicBoolean hedged = new AtomicBoolean();
+        AtomicReference<String> winner = new AtomicReference<>();
+        
+        Flux<String> primaryFlux = timedStream(primary, stream)
+                .doOnNext(chunk -> onFirstToken(winner, PRIMARY, hedged));
+        Flux<String> hedgeFlux = Flux.defer(() -> {
+                    if (!tryAcquireHedge()) {
+                        return Flux.<String>empty();
+                    }
+                    log.info("主端点 {} 超过 {}ms 未返回首个 token,向 {} 发起对冲请求", primary, delayMs, hedge);
+                    hedgeFired.increment();
+                    hedged.set(true);
+                    return timedStream(hedge, stream).doOnNext(chunk -> onFirstToken(winner, HEDGE, hedged));
+                })
+                .delaySubscription(Duration.ofMillis(delayMs));
+        
+        // 先产出值的流胜出,其余流被取消
+        return Flux.firstWithValue(primaryFlux, hedgeFlux);
+    }
+    
+    /**
+     * 端点当前的对冲延迟
+     */
+    long hedgeDelay(String mode, LLMEndpoint endpoint, Double percentile) {
+        LatencyTracker tracker = tracker(mode, endpoint);
+        if (tracker.count() < hedgeConfig.getMinSamples()) {
+            return hedgeConfig.getInitialDelayMs();
+        }
+        long latency = tracker.percentile(percentile != null ? percentile : hedgeConfig.getPercentile());
+        return Math.max(hedgeConfig.getMinDelayMs(), Math.min(hedgeConfig.getMaxDelayMs(), latency));
+    }
+    
+    private LLMResponse timedCall(LLMEndpoint endpoint, LLMCall call) throws Exception {
+        long start = System.nanoTime();
+        LLMResponse response = call.call(endpoint);
+        tracker(MODE_CALL, endpoint).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return response;
+    }
+    
+    private Flux<String> timedStream(LLMEndpoint endpoint, Function<LLMEndpoint, Flux<String>> stream) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean(true);
+            return stream.apply(endpoint).doOnNext(chunk -> {
+                if (first.compareAndSet(true, false)) {
+                    tracker(MODE_STREAM, endpoint).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+            });
+        });
+    }
+    
+    private void onFirstToken(AtomicReference<String> winner, String role, AtomicBoolean hedged) {
+        if (winner.get() == null && winner.compareAndSet(null, role) && hedged.get()) {
+            (HEDGE.equals(role) ? hedgeWins : primaryWins).increment();
+        }
+    }
+    
+    private LatencyTracker tracker(String mode, LLMEndpoint endpoint) {
+        return trackers.computeIfAbsent(mode + "|" + endpoint.key(), k -> new LatencyTracker(hedgeConfig.getWindowSize()));
+    }
+    
+    private void countRequest() {
+        rateLock.lock();
+        try {
+            rotateRateWindow();
+            windowRequests++;
+        } finally {
+            rateLock.unlock();
+        }
+    }
+    
+    /**
+     * 对冲率未超过上限时占用一次对冲配额
+     */
+    private boolean tryAcquireHedge() {
+        rateLock.lock();
+        try {
+            rotateRateWindow();
+            if (windowHedges + 1 > Math.max(1, hedgeConfig.getMaxHedgeRate() * windowRequests)) {
+                hedgeSkipped.increment();
+                return false;
+            }
+            windowHedges++;
+            return true;
+        } finally {
+            rateLock.unlock();
+        }
+    }
+    
+    private void rotateRateWindow() {
+        long now = System.currentTimeMillis();
+        if (now - rateWindowStart >= TimeUnit.SECONDS.toMillis(hedgeConfig.getRateWindowSeconds())) {
+            rateWindowStart = now;
+            windowRequests = 0;
+            windowHedges = 0;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.paiagent.engine.llm.invoke;
+
+import java.util.Map;
+
+/**
+ * LLM 调用目标: 提供方类型、端点、密钥、模型和温度
+ *
+ * @param provider    提供方(节点类型,如 openai/deepseek/qwen)
+ * @param apiUrl      API端点URL
+ * @param apiKey      API密钥
+ * @param model       模型名称
+ * @param temperature 温度参数
+ * @param pool        凭证池名称,非空时每次调用从池中选取密钥/端点
+ */
+public record LLMEndpoint(String provider, String apiUrl, String apiKey, String model, Double temperature, String pool) {
+    
+    public LLMEndpoint(String provider, String apiUrl, String apiKey, String model, Double temperature) {
+        this(provider, apiUrl, apiKey, model, temperature, null);
+    }
+    
+    /**
+     * 端点标识(地址或凭证池 + 模型),用于延迟统计和监控指标,不含密钥
+     */
+    public String key() {
+        return (pool != null ? "pool:" + pool : apiUrl) + "|" + model;
+    }
+    
+    /**
+     * 从节点配置中的端点描述解析,缺省字段继承自 defaults
+     * 
+     * @param data     端点描述,如 {"type": "qwen", "apiUrl": "...", "apiKey": "...", "model": "..."} 或 {"type": "qwen", "pool": "..."}
+     * @param defaults 缺省值来源(通常为节点主端点)
+     */
+    public static LLMEndpoint fromMap(Map<String, Object> data, LLMEndpoint defaults) {
+        return new LLMEndpoint(
+                stringOr(data.get("type"), defaults.provider()),
+                stringOr(data.get("apiUrl"), defaults.apiUrl()),
+                stringOr(data.get("apiKey"), defaults.apiKey()),
+                stringOr(data.get("model"), defaults.model()),
+                data.get("temperature") instanceof Number number ? number.doubleValue() : defaults.temperature(),
+                // 单独指定了密钥的端点不继承默认凭证池
+                stringOr(data.get("pool"), data.get("apiKey") != null ? null : defaults.pool()));
+    }
+    
+    @Override
+    public String toString() {
+        // 不输出密钥
+        return "LLMEndpoint[" + provider + ", " + (pool != null ? "pool:" + pool : apiUrl) + ", " + model + "]";
+    }
+    
+    private static String stringOr(Object value, String fallback) {
+        return value != null ? value.toString().trim() : fallback;
+    }
+}
@@ -0,0 +1,73 @@
+package com.paiagent.engine.llm.invoke;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 滑动窗口延迟统计
+ * 保存最近 N 次调用的耗时,用于计算百分位延迟;在虚拟线程上调用,使用 ReentrantLock 而非 synchronized
+ */
+public class LatencyTracker {
+    
+    private final long[] samples;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    private int next;
+    
+    private int count;
+    
+    public LatencyTracker(int windowSize) {
+        this.samples = new long[Math.max(1, windowSize)];
+    }
+    
+    /**
+     * 记录一次耗时
+     */
+    public void record(long latencyMs) {
+        lock.lock();
+        try {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) {
+                count++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 窗口内样本数
+     */
+    public int count() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 计算百分位延迟
+     * 
+     * @param percentile 百分位(0-100)
+     * @return 百分位延迟,无样本时返回 -1
+     */
+    public long percentile(double percentile) {
+        long[] sorted;
+        lock.lock();
+        try {
+            if (count == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        } finally {
+            lock.unlock();
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,223 @@
+package com.paiagent.engine.llm.stream;
+
+import com.paiagent.dto.ExecutionEvent;
+import com.paiagent.engine.model.WorkflowNode;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 流式增量分帧器
+ * 
+ * 把逐 token 到达的片段合并为帧,按时间(flushIntervalMs)或大小(maxFrameBytes)触发发送。
+ * 每帧只携带增量文本及序号和偏移量,客户端按序拼接即可还原全文;完整内容只在 NODE_SUCCESS 中发送一次。
+ * 帧数据: {seq, offset, delta}
+ * 
+ * 帧在 lock 内组装并按序放入待发送队列,释放 lock 后再由 sendLock 串行发送,
+ * 慢客户端只阻塞当前流的发送,不会阻塞追加片段。定时刷新由共享定时线程触发,实际发送交给阻塞任务线程
+ */
+public class DeltaFrameCoalescer implements AutoCloseable {
+    
+    private final WorkflowNode node;
+    
+    private final Consumer<ExecutionEvent> progressCallback;
+    
+    private final ScheduledExecutorService scheduler;
+    
+    private final Executor sendExecutor;
+    
+    private final long flushIntervalMs;
+    
+    private final int maxFrameBytes;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    /**
+     * 保证帧按序号顺序发送
+     */
+    private final ReentrantLock sendLock = new ReentrantLock();
+    
+    /**
+     * 已组装、待发送的帧,受 lock 保护
+     */
+    private final Queue<ExecutionEvent> outbox = new ArrayDeque<>();
+    
+    private final StringBuilder buffer = new StringBuilder();
+    
+    private int bufferedBytes;
+    
+    /**
+     * 下一帧序号
+     */
+    private int seq;
+    
+    /**
+     * 已发送的字符数,即下一帧增量在全文中的起始位置
+     */
+    private int offset;
+    
+    private ScheduledFuture<?> pendingFlush;
+    
+    private boolean closed;
+    
+    /**
+     * @param scheduler    触发定时刷新的定时线程,任务只负责把刷新交给 sendExecutor
+     * @param sendExecutor 执行定时刷新(可能阻塞在客户端写出上)的线程池
+     */
+    public DeltaFrameCoalescer(WorkflowNode node, Consumer<ExecutionEvent> progressCallback,
+                               ScheduledExecutorService scheduler, Executor sendExecutor,
+                               long flushIntervalMs, int maxFrameBytes) {
+        this.node = node;
+        this.progressCallback = progressCallback;
+        this.scheduler = scheduler;
+        this.sendExecutor = sendExecutor;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxFrameBytes = Math.max(1, maxFrameBytes);
+    }
+    
+    /**
+     * 追加一个片段
+     */
+    public void append(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        boolean send = false;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            buffer.append(chunk);
+            bufferedBytes += utf8Length(chunk);
+            
+            if (bufferedBytes >= maxFrameBytes) {
+                send = enqueueFrameLocked();
+            } else if (pendingFlush == null) {
+                // 缓冲从空变为非空时安排一次定时刷新,同一时刻每个流最多一个待执行的定时任务
+                pendingFlush = scheduler.schedule(() -> sendExecutor.execute(this::flush),
+                        flushIntervalMs, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (send) {
+            drain();
+        }
+    }
+    
+    /**
+     * 立即发送缓冲中的增量
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            enqueueFrameLocked();
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+    
+    /**
+     * 已发送的帧数
+     */
+    public int getFrameCount() {
+        return seq;
+    }
+    
+    /**
+     * 发送剩余增量并停止定时刷新
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            enqueueFrameLocked();
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+    
+    /**
+     * 把缓冲中的增量组装为一帧放入待发送队列
+     * 
+     * @return 是否有新帧
+     */
+    private boolean enqueueFrameLocked() {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        if (buffer.isEmpty()) {
+            return false;
+        }
+        
+        String delta = buffer.toString();
+        Map<String, Object> data = new HashMap<>();
+        data.put("seq", seq++);
+        data.put("offset", offset);
+        data.put("delta", delta);
+        offset += delta.length();
+        buffer.setLength(0);
+        bufferedBytes = 0;
+        
+        outbox.add(ExecutionEvent.nodeProgress(node.getId(), node.getType(), "生成中...", data));
+        return true;
+    }
+    
+    /**
+     * 在 lock 之外按入队顺序发送待发送的帧
+     */
+    private void drain() {
+        sendLock.lock();
+        try {
+            while (true) {
+                ExecutionEvent frame;
+                lock.lock();
+                try {
+                    frame = outbox.poll();
+                } finally {
+                    lock.unlock();
+                }
+                if (frame == null) {
+                    return;
+                }
+                progressCallback.accept(frame);
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+    
+    /**
+     * UTF-8 编码长度(不分配字节数组)
+     */
+    private static int utf8Length(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
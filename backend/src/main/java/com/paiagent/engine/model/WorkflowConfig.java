@@ -1,5 +1,6 @@
 package com.paiagent.engine.model;
 
+import com.alibaba.fastjson2.JSON;
 import lombok.Data;
 import java.util.List;
 
@@ -18,4 +19,24 @@ public class WorkflowConfig {
      * 连线列表
      */
     private List<WorkflowEdge> edges;
+    
+    /**
+     * 工作流级 LLM 响应缓存开关,开启后未单独配置 cache 的 LLM 节点默认启用缓存
+     */
+    private Boolean llmCache;
+    
+    /**
+     * 解析工作流配置,并把工作流级设置下发到节点配置
+     */
+    public static WorkflowConfig parse(String flowData) {
+        WorkflowConfig config = JSON.parseObject(flowData, WorkflowConfig.class);
+        if (config != null && Boolean.TRUE.equals(config.getLlmCache()) && config.getNodes() != null) {
+            for (WorkflowNode node : config.getNodes()) {
+                if (node.getData() != null) {
+                    node.getData().putIfAbsent("cache", true);
+                }
+            }
+        }
+        return config;
+    }
 }
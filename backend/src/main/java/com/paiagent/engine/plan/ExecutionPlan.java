@@ -0,0 +1,95 @@
+package com.paiagent.engine.plan;
+
+import com.paiagent.engine.executor.NodeExecutor;
+import com.paiagent.engine.model.WorkflowNode;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 已编译的执行计划(不可变)
+ * 
+ * 保存工作流某一版本的拓扑顺序、依赖关系、节点执行器和预编译的节点配置,
+ * 可被同一版本的所有执行并发共享
+ */
+@Getter
+public final class ExecutionPlan {
+    
+    /**
+     * 工作流 ID
+     */
+    private final Long workflowId;
+    
+    /**
+     * 工作流版本(更新时间)
+     */
+    private final LocalDateTime version;
+    
+    /**
+     * 拓扑排序后的节点列表
+     */
+    private final List<WorkflowNode> sortedNodes;
+    
+    /**
+     * 依赖关系: 节点 ID -> 前置节点 ID 列表
+     */
+    private final Map<String, List<String>> dependencies;
+    
+    /**
+     * 节点 ID -> 计划节点
+     */
+    private final Map<String, PlannedNode> plannedNodes;
+    
+    /**
+     * 流式边: 下游节点 ID -> 上游节点 ID
+     * 上游可产出流式输出、下游可消费流式输入且下游只有这一个前置节点时,下游在上游开始执行时即可启动
+     */
+    private final Map<String, String> streamingEdges;
+    
+    public ExecutionPlan(Long workflowId, LocalDateTime version, List<WorkflowNode> sortedNodes,
+                         Map<String, List<String>> dependencies, Map<String, PlannedNode> plannedNodes,
+                         Map<String, String> streamingEdges) {
+        this.workflowId = workflowId;
+        this.version = version;
+        this.sortedNodes = List.copyOf(sortedNodes);
+        Map<String, List<String>> deps = new HashMap<>();
+        dependencies.forEach((nodeId, parents) -> deps.put(nodeId, List.copyOf(parents)));
+        this.dependencies = Collections.unmodifiableMap(deps);
+        this.plannedNodes = Map.copyOf(plannedNodes);
+        this.streamingEdges = Map.copyOf(streamingEdges);
+    }
+    
+    /**
+     * 获取节点对应的计划节点
+     */
+    public PlannedNode getPlannedNode(String nodeId) {
+        PlannedNode plannedNode = plannedNodes.get(nodeId);
+        if (plannedNode == null) {
+            throw new RuntimeException("执行计划中不存在节点: " + nodeId);
+        }
+        return plannedNode;
+    }
+    
+    /**
+     * 计划节点: 节点定义 + 已解析的执行器 + 预编译配置
+     */
+    @Getter
+    public static final class PlannedNode {
+        
+        private final WorkflowNode node;
+        
+        private final NodeExecutor executor;
+        
+        /**
+         * 预编译的类型化配置,执行器不需要时为 null
+         */
+        private final Object compiledConfig;
+        
+        public PlannedNode(WorkflowNode node, NodeExecutor executor, Object compiledConfig) {
+            this.node = node;
+            this.executor = executor;
+            this.compiledConfig = compiledConfig;
+        }
+    }
+}
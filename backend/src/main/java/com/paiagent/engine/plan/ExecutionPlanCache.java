@@ -0,0 +1,148 @@
+package com.paiagent.engine.plan;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.paiagent.config.PlanCacheConfig;
+import com.paiagent.engine.dag.DAGParser;
+import com.paiagent.engine.executor.NodeExecutor;
+import com.paiagent.engine.executor.NodeExecutorFactory;
+import com.paiagent.engine.llm.ChatClientFactory;
+import com.paiagent.engine.model.WorkflowConfig;
+import com.paiagent.engine.model.WorkflowNode;
+import com.paiagent.entity.Workflow;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 执行计划缓存
+ *
+ * 按 (工作流 ID, 更新时间) 缓存编译后的执行计划,避免每次执行重复解析 JSON、
+ * 检测循环依赖、拓扑排序和提取节点配置。工作流更新或删除时由 WorkflowService 主动失效
+ */
+@Slf4j
+@Component
+public class ExecutionPlanCache {
+    
+    @Autowired
+    private DAGParser dagParser;
+    
+    @Autowired
+    private NodeExecutorFactory executorFactory;
+    
+    @Autowired
+    private PlanCacheConfig planCacheConfig;
+    
+    @Autowired
+    private ChatClientFactory chatClientFactory;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Cache<PlanKey, ExecutionPlan> cache;
+    
+    /**
+     * 缓存键: 工作流 ID + 版本 + 流程定义哈希
+     * updated_at 只精确到秒,同一秒内的两次编辑靠 flowData 哈希区分
+     */
+    private record PlanKey(Long workflowId, LocalDateTime version, int flowHash) {
+    }
+    
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(planCacheConfig.getMaximumSize())
+                .expireAfterAccess(Duration.ofMinutes(planCacheConfig.getExpireAfterAccessMinutes()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "execution_plan");
+    }
+    
+    /**
+     * 获取工作流当前版本的执行计划,未命中时编译并缓存
+     * 未持久化的工作流(无 ID 或更新时间)无法区分版本,每次重新编译且不入缓存
+     */
+    public ExecutionPlan getPlan(Workflow workflow) {
+        if (workflow.getId() == null || workflow.getUpdatedAt() == null) {
+            return compile(workflow);
+        }
+        
+        PlanKey key = new PlanKey(workflow.getId(), workflow.getUpdatedAt(), Objects.hashCode(workflow.getFlowData()));
+        return cache.get(key, k -> compile(workflow));
+    }
+    
+    /**
+     * 失效指定工作流的所有版本
+     */
+    public void invalidate(Long workflowId) {
+        if (workflowId == null) {
+            return;
+        }
+        cache.asMap().keySet().removeIf(key -> workflowId.equals(key.workflowId()));
+        log.info("已失效工作流 [{}] 的执行计划缓存", workflowId);
+    }
+    
+    /**
+     * 缓存命中/未命中统计
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+    
+    /**
+     * 编译执行计划
+     */
+    private ExecutionPlan compile(Workflow workflow) {
+        long startTime = System.currentTimeMillis();
+        
+        WorkflowConfig config = WorkflowConfig.parse(workflow.getFlowData());
+        List<WorkflowNode> sortedNodes = dagParser.parse(config);
+        chatClientFactory.prewarm(config);
+        Map<String, List<String>> dependencies = dagParser.buildDependencies(config);
+        
+        Map<String, ExecutionPlan.PlannedNode> plannedNodes = new HashMap<>();
+        for (WorkflowNode node : sortedNodes) {
+            NodeExecutor executor = executorFactory.getExecutor(node.getType());
+            plannedNodes.put(node.getId(), new ExecutionPlan.PlannedNode(node, executor, executor.compileConfig(node)));
+        }
+        
+        Map<String, String> streamingEdges = resolveStreamingEdges(dependencies, plannedNodes);
+        
+        ExecutionPlan plan = new ExecutionPlan(workflow.getId(), workflow.getUpdatedAt(), sortedNodes, dependencies,
+                plannedNodes, streamingEdges);
+        log.info("编译工作流 [{}] 执行计划完成: 节点数={}, 流式边={}, 耗时={}ms",
+                workflow.getId(), sortedNodes.size(), streamingEdges.size(), System.currentTimeMillis() - startTime);
+        return plan;
+    }
+    
+    /**
+     * 找出可以流式衔接的边: 下游只有一个前置节点,且上游支持流式输出、下游支持流式输入
+     */
+    private Map<String, String> resolveStreamingEdges(Map<String, List<String>> dependencies,
+                                                      Map<String, ExecutionPlan.PlannedNode> plannedNodes) {
+        Map<String, String> streamingEdges = new HashMap<>();
+        dependencies.forEach((nodeId, parents) -> {
+            if (parents.size() != 1) {
+                return;
+            }
+            ExecutionPlan.PlannedNode consumer = plannedNodes.get(nodeId);
+            ExecutionPlan.PlannedNode producer = plannedNodes.get(parents.get(0));
+            if (producer.getExecutor().supportsStreamingOutput(producer.getNode(), producer.getCompiledConfig())
+                    && consumer.getExecutor().supportsStreamingInput(consumer.getNode(), parents.get(0))) {
+                streamingEdges.put(nodeId, parents.get(0));
+            }
+        });
+        return streamingEdges;
+    }
+}
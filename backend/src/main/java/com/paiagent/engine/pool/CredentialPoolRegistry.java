@@ -0,0 +1,336 @@
+package com.paiagent.engine.pool;
+
+import com.paiagent.config.CredentialPoolConfig;
+import com.paiagent.engine.llm.LLMResponse;
+import com.paiagent.engine.llm.invoke.LLMEndpoint;
+import com.paiagent.engine.llm.invoke.LatencyTracker;
+import com.paiagent.engine.ratelimit.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * 凭证池注册表
+ * 
+ * 每次调用从命名池中租用一个成员(API Key / 镜像端点): 按在途请求数或延迟加权选择,
+ * 连续失败的成员暂时剔除。每个成员各自占用一份提供方限流预算,吞吐随成员数线性扩展。
+ * 成员利用率以 credential.pool.* 指标暴露;成员延迟只统计上游调用,不含本地限流排队
+ */
+@Slf4j
+@Component
+public class CredentialPoolRegistry {
+    
+    private static final String LATENCY_WEIGHTED = "latency-weighted";
+    
+    /**
+     * 尚无延迟样本的成员按该延迟计算,保证新成员能分到请求
+     */
+    private static final long DEFAULT_LATENCY_MS = 1000;
+    
+    /**
+     * 未引用凭证池的端点没有成员延迟需要记录
+     */
+    private static final Runnable NOT_TIMED = () -> { };
+    
+    @Autowired
+    private CredentialPoolConfig poolConfig;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<String, List<PoolMember>> pools = new ConcurrentHashMap<>();
+    
+    /**
+     * 在租用成员上执行的调用
+     */
+    @FunctionalInterface
+    public interface MemberCall {
+        
+        /**
+         * @param member          替换为成员地址、密钥、模型后的端点
+         * @param upstreamStarted 本地限流排队结束、即将发起上游请求时回调,成员延迟从此刻开始计时
+         */
+        LLMResponse call(LLMEndpoint member, Runnable upstreamStarted) throws Exception;
+    }
+    
+    /**
+     * 在凭证池成员上执行一次调用;端点未引用凭证池时直接调用
+     */
+    public LLMResponse call(LLMEndpoint endpoint, MemberCall call) throws Exception {
+        if (endpoint.pool() == null) {
+            return call.call(endpoint, NOT_TIMED);
+        }
+        Lease lease = acquire(endpoint.pool());
+        try {
+            LLMResponse response = call.call(lease.resolve(endpoint), lease::upstreamStarted);
+            lease.success();
+            return response;
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted() || e instanceof InterruptedException
+                    || e instanceof RateLimitExceededException) {
+                lease.release();
+            } else {
+                lease.failure();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * 在凭证池成员上订阅一次流式调用;端点未引用凭证池时直接调用
+     * 
+     * @param stream 参数为成员端点与上游开始回调,含义同 {@link MemberCall}
+     */
+    public Flux<String> stream(LLMEndpoint endpoint, BiFunction<LLMEndpoint, Runnable, Flux<String>> stream) {
+        if (endpoint.pool() == null) {
+            return stream.apply(endpoint, NOT_TIMED);
+        }
+        return Flux.defer(() -> {
+            Lease lease = acquire(endpoint.pool());
+            return stream.apply(lease.resolve(endpoint), lease::upstreamStarted)
+                    .doOnComplete(lease::success)
+                    .doOnError(e -> {
+                        if (e instanceof RateLimitExceededException) {
+                            lease.release();
+                        } else {
+                            lease.failure();
+                        }
+                    })
+                    .doOnCancel(lease::release);
+        });
+    }
+    
+    /**
+     * 从凭证池租用一个成员,调用结束后必须调用 success/failure/release 之一归还
+     */
+    public Lease acquire(String poolName) {
+        List<PoolMember> members = pools.computeIfAbsent(poolName, this::createPool);
+        PoolMember member = select(poolName, members);
+        member.outstanding.incrementAndGet();
+        member.requests.increment();
+        return new Lease(member);
+    }
+    
+    private PoolMember select(String poolName, List<PoolMember> members) {
+        long now = System.currentTimeMillis();
+        List<PoolMember> healthy = members.stream().filter(member -> !member.isEjected(now)).toList();
+        if (healthy.isEmpty()) {
+            // 全部被剔除时选最早恢复的成员,而不是直接失败
+            return members.stream().min(Comparator.comparingLong(member -> member.ejectedUntil)).orElseThrow();
+        }
+        
+        boolean latencyWeighted = LATENCY_WEIGHTED.equals(poolConfig.getPools().get(poolName).getStrategy());
+        // 从随机位置开始比较,得分相同时均匀分摊
+        int offset = ThreadLocalRandom.current().nextInt(healthy.size());
+        PoolMember best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (int i = 0; i < healthy.size(); i++) {
+            PoolMember member = healthy.get((offset + i) % healthy.size());
+            double score = member.outstanding.get() + 1;
+            if (latencyWeighted) {
+                long latency = member.latency.count() > 0 ? member.latency.percentile(50) : DEFAULT_LATENCY_MS;
+                score *= Math.max(1, latency);
+            }
+            if (score < bestScore) {
+                best = member;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+    
+    private List<PoolMember> createPool(String poolName) {
+        CredentialPoolConfig.Pool pool = poolConfig.getPools().get(poolName);
+        if (pool == null || pool.getMembers().isEmpty()) {
+            throw new RuntimeException("凭证池不存在或没有成员: " + poolName);
+        }
+        
+        List<PoolMember> members = new ArrayList<>();
+        for (int i = 0; i < pool.getMembers().size(); i++) {
+            CredentialPoolConfig.Member config = pool.getMembers().get(i);
+            String name = config.getName() != null ? config.getName() : String.valueOf(i);
+            PoolMember member = new PoolMember(poolName, name, config);
+            
+            Gauge.builder("credential.pool.outstanding", member.outstanding, AtomicInteger::get)
+                    .description("凭证池成员在途请求数")
+                    .tags("pool", poolName, "member", name)
+                    .register(meterRegistry);
+            Gauge.builder("credential.pool.ejected", member, m -> m.isEjected(System.currentTimeMillis()) ? 1 : 0)
+                    .description("凭证池成员是否被剔除")
+                    .tags("pool", poolName, "member", name)
+                    .register(meterRegistry);
+            Gauge.builder("credential.pool.latency.p50", member.latency, tracker -> tracker.percentile(50))
+                    .description("凭证池成员最近上游调用 p50 延迟(毫秒),无样本时为 -1")
+                    .tags("pool", poolName, "member", name)
+                    .register(meterRegistry);
+            members.add(member);
+        }
+        log.info("初始化凭证池 {}: 成员数={}, 策略={}", poolName, members.size(), pool.getStrategy());
+        return List.copyOf(members);
+    }
+    
+    /**
+     * 凭证池成员及其运行状态
+     */
+    private final class PoolMember {
+        
+        private final String pool;
+        
+        private final String name;
+        
+        private final CredentialPoolConfig.Member config;
+        
+        private final AtomicInteger outstanding = new AtomicInteger();
+        
+        private final LatencyTracker latency = new LatencyTracker(100);
+        
+        private final Counter requests;
+        
+        private final Counter failures;
+        
+        private final ReentrantLock lock = new ReentrantLock();
+        
+        private int consecutiveFailures;
+        
+        private volatile long ejectedUntil;
+        
+        private PoolMember(String pool, String name, CredentialPoolConfig.Member config) {
+            this.pool = pool;
+            this.name = name;
+            this.config = config;
+            this.requests = Counter.builder("credential.pool.requests")
+                    .description("分配到凭证池成员的请求数")
+                    .tags("pool", pool, "member", name)
+                    .register(meterRegistry);
+            this.failures = Counter.builder("credential.pool.failures")
+                    .description("凭证池成员失败请求数")
+                    .tags("pool", pool, "member", name)
+                    .register(meterRegistry);
+        }
+        
+        private boolean isEjected(long now) {
+            return ejectedUntil > now;
+        }
+        
+        private void onSuccess(long latencyMs) {
+            lock.lock();
+            try {
+                consecutiveFailures = 0;
+            } finally {
+                lock.unlock();
+            }
+            if (latencyMs >= 0) {
+                latency.record(latencyMs);
+            }
+        }
+        
+        private void onFailure() {
+            failures.increment();
+            lock.lock();
+            try {
+                long now = System.currentTimeMillis();
+                if (ejectedUntil != 0 && !isEjected(now)) {
+                    // 剔除已到期,重新放回的成员从零开始累计连续失败
+                    ejectedUntil = 0;
+                    consecutiveFailures = 0;
+                }
+                if (++consecutiveFailures >= poolConfig.getEjectAfterFailures()) {
+                    ejectedUntil = now + TimeUnit.SECONDS.toMillis(poolConfig.getEjectSeconds());
+                    log.warn("凭证池 {} 成员 {} 连续失败 {} 次,剔除 {} 秒",
+                            pool, name, consecutiveFailures, poolConfig.getEjectSeconds());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * 一次成员租用
+     */
+    public final class Lease {
+        
+        private final PoolMember member;
+        
+        /**
+         * 上游调用开始时间,未开始(如限流排队中)时为 0
+         */
+        private volatile long upstreamStart;
+        
+        private final AtomicBoolean returned = new AtomicBoolean();
+        
+        private Lease(PoolMember member) {
+            this.member = member;
+        }
+        
+        /**
+         * 成员的 API 密钥
+         */
+        public String apiKey() {
+            return member.config.getApiKey();
+        }
+        
+        /**
+         * 成员的模型,未配置时为空
+         */
+        public String model() {
+            return member.config.getModel();
+        }
+        
+        /**
+         * 用成员的地址、密钥、模型替换端点中的对应字段,未配置的字段保持节点配置
+         */
+        public LLMEndpoint resolve(LLMEndpoint endpoint) {
+            CredentialPoolConfig.Member config = member.config;
+            return new LLMEndpoint(endpoint.provider(),
+                    config.getApiUrl() != null ? config.getApiUrl() : endpoint.apiUrl(),
+                    config.getApiKey(),
+                    config.getModel() != null ? config.getModel() : endpoint.model(),
+                    endpoint.temperature());
+        }
+        
+        /**
+         * 标记上游调用开始,在本地限流许可获取之后调用;成员延迟只统计此后的耗时
+         */
+        public void upstreamStarted() {
+            upstreamStart = System.nanoTime();
+        }
+        
+        public void success() {
+            if (returned.compareAndSet(false, true)) {
+                member.outstanding.decrementAndGet();
+                long started = upstreamStart;
+                member.onSuccess(started != 0 ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) : -1);
+            }
+        }
+        
+        public void failure() {
+            if (returned.compareAndSet(false, true)) {
+                member.outstanding.decrementAndGet();
+                member.onFailure();
+            }
+        }
+        
+        /**
+         * 归还但不计入成功或失败(取消、本地限流超时)
+         */
+        public void release() {
+            if (returned.compareAndSet(false, true)) {
+                member.outstanding.decrementAndGet();
+            }
+        }
+    }
+}
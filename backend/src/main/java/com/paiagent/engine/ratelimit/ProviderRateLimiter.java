@@ -0,0 +1,301 @@
+package com.paiagent.engine.ratelimit;
+
+import com.paiagent.config.ProviderRateLimitConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 提供方令牌桶限流器
+ * 
+ * 按 (提供方, API 密钥哈希) 维护请求数与 token 数两个令牌桶,所有执行共享。
+ * 调用前按提示词长度预估 token 数并预留,调用完成后按实际用量校正差额。
+ * 预算不足时请求经公平锁按到达顺序排队等待,超过最长等待时间才失败
+ */
+@Slf4j
+@Component
+public class ProviderRateLimiter {
+    
+    @Autowired
+    private ProviderRateLimitConfig rateLimitConfig;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<LimiterKey, KeyLimiter> limiters = new ConcurrentHashMap<>();
+    
+    private final AtomicInteger waiting = new AtomicInteger();
+    
+    private final Map<String, Counter> timeoutCounters = new ConcurrentHashMap<>();
+    
+    /**
+     * 限流键: 提供方 + API 密钥哈希(不保存明文密钥)
+     */
+    private record LimiterKey(String provider, String apiKeyHash) {
+    }
+    
+    @PostConstruct
+    public void init() {
+        Gauge.builder("provider.ratelimit.waiting", waiting, AtomicInteger::get)
+                .description("排队等待提供方调用预算的请求数")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 获取一次调用许可,预算不足时排队等待
+     * 
+     * @param provider        提供方
+     * @param apiKey          API 密钥
+     * @param estimatedTokens 预估 token 数
+     * @return 调用许可,可在调用完成后按实际用量校正
+     * @throws RateLimitExceededException 超过最长等待时间
+     */
+    public Permit acquire(String provider, String apiKey, long estimatedTokens) throws InterruptedException {
+        if (!rateLimitConfig.isEnabled()) {
+            return Permit.NOOP;
+        }
+        KeyLimiter limiter = limiters.computeIfAbsent(new LimiterKey(provider, sha256(apiKey)),
+                key -> createLimiter(key.provider()));
+        
+        long start = System.nanoTime();
+        long maxWaitMs = rateLimitConfig.getMaxWaitMs();
+        waiting.incrementAndGet();
+        try {
+            // 公平锁保证先到先得,持锁者等待桶中令牌恢复,后来者在锁上排队
+            if (!limiter.queue.tryLock(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                throw timeout(provider, start);
+            }
+            try {
+                while (true) {
+                    long waitMs = limiter.tryTake(estimatedTokens);
+                    if (waitMs <= 0) {
+                        break;
+                    }
+                    if (elapsedMs(start) + waitMs > maxWaitMs) {
+                        throw timeout(provider, start);
+                    }
+                    Thread.sleep(waitMs);
+                }
+            } finally {
+                limiter.queue.unlock();
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+        
+        long waitedNanos = System.nanoTime() - start;
+        Timer.builder("provider.ratelimit.wait")
+                .description("等待提供方调用预算的时间")
+                .tag("provider", provider)
+                .register(meterRegistry)
+                .record(waitedNanos, TimeUnit.NANOSECONDS);
+        if (TimeUnit.NANOSECONDS.toMillis(waitedNanos) > 1000) {
+            log.info("提供方 {} 限流排队 {}ms", provider, TimeUnit.NANOSECONDS.toMillis(waitedNanos));
+        }
+        return new Permit(limiter, estimatedTokens);
+    }
+    
+    /**
+     * 按字符数估算 token 数
+     */
+    public long estimateTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return (long) Math.ceil(text.length() / rateLimitConfig.getCharsPerToken());
+    }
+    
+    /**
+     * 预估一次 LLM 调用的 token 数: 提示词 + 预期输出
+     */
+    public long estimateCallTokens(String prompt) {
+        return estimateTokens(prompt) + rateLimitConfig.getEstimatedOutputTokens();
+    }
+    
+    private RateLimitExceededException timeout(String provider, long start) {
+        timeoutCounters.computeIfAbsent(provider, key -> Counter.builder("provider.ratelimit.timeouts")
+                .description("排队超时的请求数")
+                .tag("provider", key)
+                .register(meterRegistry))
+                .increment();
+        return new RateLimitExceededException(provider, elapsedMs(start));
+    }
+    
+    private KeyLimiter createLimiter(String provider) {
+        ProviderRateLimitConfig.Limit limit = rateLimitConfig.getProviders().get(provider);
+        int rpm = limit != null ? limit.getRequestsPerMinute() : rateLimitConfig.getDefaultRequestsPerMinute();
+        long tpm = limit != null ? limit.getTokensPerMinute() : rateLimitConfig.getDefaultTokensPerMinute();
+        log.info("创建提供方限流器: provider={}, requestsPerMinute={}, tokensPerMinute={}", provider, rpm, tpm);
+        return new KeyLimiter(new TokenBucket(rpm), new TokenBucket(tpm));
+    }
+    
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+    
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * 调用许可
+     */
+    public static final class Permit {
+        
+        static final Permit NOOP = new Permit(null, 0);
+        
+        private final KeyLimiter limiter;
+        
+        private final long reservedTokens;
+        
+        private Permit(KeyLimiter limiter, long reservedTokens) {
+            this.limiter = limiter;
+            this.reservedTokens = reservedTokens;
+        }
+        
+        private final AtomicBoolean reconciled = new AtomicBoolean();
+        
+        /**
+         * 按实际 token 用量校正预留额度: 多退少补,只生效一次
+         * 
+         * @param actualTokens 实际用量,为空时保持预估值
+         */
+        public void reconcile(Number actualTokens) {
+            if (limiter == null || actualTokens == null || !reconciled.compareAndSet(false, true)) {
+                return;
+            }
+            limiter.adjustTokens(reservedTokens - actualTokens.longValue());
+        }
+    }
+    
+    /**
+     * 单个 (提供方, 密钥) 的限流状态
+     */
+    private static final class KeyLimiter {
+        
+        private final ReentrantLock queue = new ReentrantLock(true);
+        
+        /**
+         * 保护两个桶的余量;排队线程与校正线程都在虚拟线程上,不使用 synchronized
+         */
+        private final ReentrantLock bucketLock = new ReentrantLock();
+        
+        private final TokenBucket requests;
+        
+        private final TokenBucket tokens;
+        
+        private KeyLimiter(TokenBucket requests, TokenBucket tokens) {
+            this.requests = requests;
+            this.tokens = tokens;
+        }
+        
+        /**
+         * 两个桶都有足够余量时扣减并返回 0,否则返回需要等待的毫秒数
+         */
+        private long tryTake(long estimatedTokens) {
+            bucketLock.lock();
+            try {
+                long now = System.nanoTime();
+                requests.refill(now);
+                tokens.refill(now);
+                long waitMs = Math.max(requests.waitMs(1), tokens.waitMs(estimatedTokens));
+                if (waitMs > 0) {
+                    return waitMs;
+                }
+                requests.take(1);
+                tokens.take(estimatedTokens);
+                return 0;
+            } finally {
+                bucketLock.unlock();
+            }
+        }
+        
+        private void adjustTokens(long delta) {
+            bucketLock.lock();
+            try {
+                tokens.refill(System.nanoTime());
+                tokens.give(delta);
+            } finally {
+                bucketLock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * 令牌桶: 容量为每分钟预算,按预算匀速补充;余量可因校正变为负数(透支),透支部分由后续请求等待偿还
+     */
+    private static final class TokenBucket {
+        
+        private final double capacity;
+        
+        private final double perNano;
+        
+        private double available;
+        
+        private long lastRefill = System.nanoTime();
+        
+        private TokenBucket(long perMinute) {
+            this.capacity = perMinute;
+            this.perNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.available = perMinute;
+        }
+        
+        private boolean unlimited() {
+            return capacity <= 0;
+        }
+        
+        private void refill(long now) {
+            if (unlimited()) {
+                return;
+            }
+            available = Math.min(capacity, available + (now - lastRefill) * perNano);
+            lastRefill = now;
+        }
+        
+        private long waitMs(long amount) {
+            if (unlimited()) {
+                return 0;
+            }
+            // 单次需求超过桶容量时按满桶处理,避免永远等不到
+            double need = Math.min(amount, capacity);
+            if (available >= need) {
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((need - available) / perNano / TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+        
+        private void take(long amount) {
+            if (!unlimited()) {
+                available -= amount;
+            }
+        }
+        
+        private void give(long amount) {
+            if (!unlimited()) {
+                available = Math.min(capacity, available + amount);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.paiagent.engine.ratelimit;
+
+/**
+ * 在最长等待时间内未获得提供方调用预算
+ */
+public class RateLimitExceededException extends RuntimeException {
+    
+    public RateLimitExceededException(String provider, long waitedMs) {
+        super("提供方 " + provider + " 调用预算不足,排队 " + waitedMs + "ms 后仍未获得许可");
+    }
+}
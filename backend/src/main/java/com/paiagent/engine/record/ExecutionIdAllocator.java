@@ -0,0 +1,124 @@
+package com.paiagent.engine.record;
+
+import com.paiagent.config.ExecutionRecordPersistConfig;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import com.paiagent.mapper.ExecutionRecordMapper;
+import com.paiagent.mapper.IdSequenceMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 执行记录 ID 分配器
+ * 
+ * 按号段从 id_sequence 表预领 ID,执行开始时即可确定记录 ID,事件与记录在写入前就能关联。
+ * 多实例各自持有不重叠的号段;当前号段用掉一半时后台预取下一段,数据库短暂不可用不影响分配
+ */
+@Slf4j
+@Component
+public class ExecutionIdAllocator {
+    
+    private static final String SEQUENCE_NAME = "execution_record";
+    
+    @Autowired
+    private IdSequenceMapper idSequenceMapper;
+    
+    @Autowired
+    private ExecutionRecordMapper executionRecordMapper;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private ExecutionRecordPersistConfig persistConfig;
+    
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    /**
+     * 当前号段 [next, end)
+     */
+    private long next;
+    
+    private long end;
+    
+    /**
+     * 预取中的下一号段起点
+     */
+    private CompletableFuture<Long> prefetch;
+    
+    /**
+     * 分配一个 ID
+     * 
+     * @throws RuntimeException 号段耗尽且无法从数据库领取新号段
+     */
+    public long next() {
+        lock.lock();
+        try {
+            if (next >= end) {
+                long start = prefetch != null ? awaitPrefetch() : fetchSegment();
+                next = start;
+                end = start + persistConfig.getIdSegmentSize();
+            }
+            long id = next++;
+            if (prefetch == null && end - next <= persistConfig.getIdSegmentSize() / 2) {
+                prefetch = CompletableFuture.supplyAsync(this::fetchSegment, executionRuntime.getBlockingExecutor());
+            }
+            return id;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 分配 ID,失败时返回 null(由写入线程在写库前补分配)
+     */
+    public Long tryNext() {
+        try {
+            return next();
+        } catch (Exception e) {
+            log.warn("预分配执行记录 ID 失败,将在写入时分配: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private long awaitPrefetch() {
+        CompletableFuture<Long> pending = prefetch;
+        prefetch = null;
+        try {
+            return pending.join();
+        } catch (Exception e) {
+            // 预取失败时同步重试一次
+            return fetchSegment();
+        }
+    }
+    
+    /**
+     * 在事务内锁定序列行并推进一个号段
+     * 
+     * @return 号段起点
+     */
+    private long fetchSegment() {
+        int step = persistConfig.getIdSegmentSize();
+        Long start = transactionTemplate.execute(status -> {
+            Long nextId = idSequenceMapper.selectNextIdForUpdate(SEQUENCE_NAME);
+            if (nextId == null) {
+                idSequenceMapper.insertIfAbsent(SEQUENCE_NAME, executionRecordMapper.selectMaxId() + 1);
+                nextId = idSequenceMapper.selectNextIdForUpdate(SEQUENCE_NAME);
+            }
+            idSequenceMapper.advance(SEQUENCE_NAME, step);
+            return nextId;
+        });
+        if (start == null) {
+            throw new RuntimeException("领取执行记录 ID 号段失败");
+        }
+        log.info("领取执行记录 ID 号段: [{}, {})", start, start + step);
+        return start;
+    }
+}
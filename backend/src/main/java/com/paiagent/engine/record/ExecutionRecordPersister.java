@@ -0,0 +1,497 @@
+package com.paiagent.engine.record;
+
+import com.alibaba.fastjson2.JSON;
+import com.paiagent.config.ExecutionRecordPersistConfig;
+import com.paiagent.dto.ExecutionResponse;
+import com.paiagent.engine.audio.TextSegmenter;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import com.paiagent.entity.ExecutionNodeResult;
+import com.paiagent.entity.ExecutionRecord;
+import com.paiagent.mapper.ExecutionNodeResultMapper;
+import com.paiagent.mapper.ExecutionRecordMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 执行记录异步写入器(write-behind)
+ * 
+ * 执行线程只把记录放入有界队列,由单独的写入线程按条数或时间阈值攒批,以多行 INSERT 写入。
+ * 写库失败或队列已满时记录追加到本地溢出文件(fsync 后才返回),数据库恢复后定时回放;
+ * 溢出记录按 ID 建索引,回放前仍可查询。反复因数据错误回放失败的文件移入 dead-letter 子目录。
+ * 记录 ID 在执行开始时预分配,写入语句按主键幂等,回放可安全重复
+ */
+@Slf4j
+@Component
+public class ExecutionRecordPersister {
+    
+    @Autowired
+    private ExecutionRecordMapper executionRecordMapper;
+    
+    @Autowired
+    private ExecutionNodeResultMapper nodeResultMapper;
+    
+    @Autowired
+    private ExecutionIdAllocator idAllocator;
+    
+    @Autowired
+    private ExecutionRecordPersistConfig persistConfig;
+    
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private BlockingQueue<ExecutionRecord> queue;
+    
+    /**
+     * 已提交但尚未写库的记录,供按 ID 查询(如恢复执行)
+     */
+    private final Map<Long, ExecutionRecord> pending = new ConcurrentHashMap<>();
+    
+    /**
+     * 已落盘但尚未回放的记录 ID -> 所在溢出文件,查询时从文件读取
+     */
+    private final Map<Long, Path> spilled = new ConcurrentHashMap<>();
+    
+    /**
+     * 溢出文件因数据错误回放失败的次数
+     */
+    private final Map<Path, Integer> replayFailures = new ConcurrentHashMap<>();
+    
+    private final ReentrantLock spillLock = new ReentrantLock();
+    
+    private final AtomicLong spillSequence = new AtomicLong();
+    
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    
+    private Path spillDir;
+    
+    private Path deadLetterDir;
+    
+    private Thread flusher;
+    
+    private volatile boolean running;
+    
+    private Counter spilledCounter;
+    
+    private Counter replayedCounter;
+    
+    private Counter deadLetteredCounter;
+    
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(persistConfig.getQueueCapacity());
+        spillDir = Paths.get(persistConfig.getSpillDir());
+        deadLetterDir = spillDir.resolve("dead-letter");
+        
+        Gauge.builder("execution.record.queue.depth", queue, BlockingQueue::size)
+                .description("等待写入的执行记录数")
+                .register(meterRegistry);
+        spilledCounter = Counter.builder("execution.record.spilled")
+                .description("写入本地溢出文件的执行记录数")
+                .register(meterRegistry);
+        replayedCounter = Counter.builder("execution.record.replayed")
+                .description("从溢出文件回放写库的执行记录数")
+                .register(meterRegistry);
+        deadLetteredCounter = Counter.builder("execution.record.dead.lettered")
+                .description("回放反复失败、移入 dead-letter 目录的溢出文件数")
+                .register(meterRegistry);
+        
+        if (!persistConfig.isEnabled()) {
+            return;
+        }
+        // 重启前落盘的记录重新建立索引
+        listSpillFiles(spillDir).forEach(this::indexSpillFile);
+        listSpillFiles(deadLetterDir).forEach(this::indexSpillFile);
+        running = true;
+        flusher = Thread.ofVirtual().name("execution-record-flusher").start(this::flushLoop);
+        executionRuntime.getScheduler().scheduleWithFixedDelay(
+                () -> executionRuntime.getBlockingExecutor().execute(this::replaySpills),
+                persistConfig.getReplayIntervalMs(), persistConfig.getReplayIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        // 停止接收后写完队列中剩余的记录
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        List<ExecutionRecord> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+    }
+    
+    /**
+     * 预分配执行记录 ID,执行开始时调用以便事件携带记录 ID
+     * 
+     * @return 分配失败时返回 null,记录在写库前补分配
+     */
+    public Long allocateId() {
+        return idAllocator.tryNext();
+    }
+    
+    /**
+     * 提交执行记录,立即返回
+     * 关闭异步写入时在当前线程同步插入
+     */
+    public void submit(ExecutionRecord record) {
+        // 自定义批量 SQL 不经过自动填充
+        if (record.getExecutedAt() == null) {
+            record.setExecutedAt(LocalDateTime.now());
+        }
+        if (!persistConfig.isEnabled()) {
+            insert(List.of(record));
+            return;
+        }
+        
+        if (record.getId() != null) {
+            pending.put(record.getId(), record);
+        }
+        if (!running || !queue.offer(record)) {
+            log.warn("执行记录队列已满,写入溢出文件: id={}", record.getId());
+            spill(List.of(record));
+        }
+    }
+    
+    /**
+     * 同步写入一批记录(含节点结果),由自行攒批的调用方使用
+     * 写库失败时与异步写入一致整批落盘,由回放补写,记录仍可按 ID 查询
+     */
+    public void write(List<ExecutionRecord> records) {
+        if (!records.isEmpty()) {
+            flush(records);
+        }
+    }
+    
+    /**
+     * 将节点结果转为 execution_node_result 行,输入/输出超过阈值时压缩
+     * 在执行线程上调用,压缩开销不占用写入线程
+     */
+    public List<ExecutionNodeResult> encodeNodeResults(List<ExecutionResponse.NodeResult> nodeResults) {
+        int threshold = persistConfig.getPayloadCompressThreshold();
+        List<ExecutionNodeResult> rows = new ArrayList<>(nodeResults.size());
+        for (int i = 0; i < nodeResults.size(); i++) {
+            ExecutionResponse.NodeResult nodeResult = nodeResults.get(i);
+            ExecutionNodeResult row = new ExecutionNodeResult();
+            row.setSeq(i);
+            row.setNodeId(nodeResult.getNodeId());
+            row.setNodeName(nodeResult.getNodeName());
+            row.setNodeType(nodeResult.getNodeType());
+            row.setStatus(nodeResult.getStatus());
+            row.setDuration(nodeResult.getDuration());
+            row.setInputTokens(nodeResult.getInputTokens());
+            row.setOutputTokens(nodeResult.getOutputTokens());
+            row.setTotalTokens(nodeResult.getTotalTokens());
+            row.setErrorMessage(nodeResult.getError());
+            row.setInputPayload(PayloadCodec.encode(nodeResult.getInput(), threshold));
+            row.setOutputPayload(PayloadCodec.encode(nodeResult.getOutput(), threshold));
+            row.setInputSize(utf8Size(nodeResult.getInput()));
+            row.setOutputSize(utf8Size(nodeResult.getOutput()));
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    private static Integer utf8Size(String text) {
+        return text != null ? (int) TextSegmenter.utf8Length(text) : null;
+    }
+    
+    /**
+     * 查询尚未写库的记录: 先查内存队列,再查溢出文件(含 dead-letter)
+     */
+    public ExecutionRecord findPending(Long id) {
+        if (id == null) {
+            return null;
+        }
+        ExecutionRecord record = pending.get(id);
+        if (record != null) {
+            return record;
+        }
+        Path file = spilled.get(id);
+        if (file == null) {
+            return null;
+        }
+        try {
+            return readSpillFile(file).stream().filter(spilledRecord -> id.equals(spilledRecord.getId()))
+                    .findFirst().orElse(null);
+        } catch (Exception e) {
+            // 文件刚被回放删除或移动,记录已在数据库或新位置
+            log.debug("读取执行记录溢出文件失败: {}, 原因={}", file.getFileName(), e.getMessage());
+            Path moved = spilled.get(id);
+            return moved != null && !moved.equals(file) ? findPending(id) : null;
+        }
+    }
+    
+    /**
+     * 写入循环: 取到第一条后最多等待 flushIntervalMs 或攒满 batchSize 条再写入
+     */
+    private void flushLoop() {
+        int batchSize = persistConfig.getBatchSize();
+        while (running) {
+            List<ExecutionRecord> batch = new ArrayList<>(batchSize);
+            try {
+                // 限时等待,关闭时无需中断正在写库的线程即可退出
+                ExecutionRecord first = queue.poll(persistConfig.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(persistConfig.getFlushIntervalMs());
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    ExecutionRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // 先写完已取出的记录再恢复中断标志退出
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+        }
+    }
+    
+    /**
+     * 批量写库,失败时整批落盘
+     */
+    private void flush(List<ExecutionRecord> batch) {
+        long start = System.nanoTime();
+        try {
+            insert(batch);
+            flushTimer("success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batch.forEach(this::forget);
+        } catch (Exception e) {
+            flushTimer("failure").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.error("批量写入执行记录失败,写入溢出文件: 条数={}, 原因={}", batch.size(), e.getMessage());
+            spill(batch);
+        }
+    }
+    
+    /**
+     * 写库前为未预分配 ID 的记录补分配,保证所有记录都带主键写入,与其他实例的号段不冲突
+     * 先写执行记录再写节点结果,两者均按主键/唯一键幂等,中途失败整批回放即可
+     */
+    private void insert(List<ExecutionRecord> records) {
+        List<ExecutionNodeResult> rows = new ArrayList<>();
+        for (ExecutionRecord record : records) {
+            if (record.getId() == null) {
+                record.setId(idAllocator.next());
+            }
+            if (record.getNodeResultRows() != null) {
+                for (ExecutionNodeResult row : record.getNodeResultRows()) {
+                    row.setExecutionId(record.getId());
+                    rows.add(row);
+                }
+            }
+        }
+        executionRecordMapper.insertBatchWithIds(records);
+        for (int i = 0; i < rows.size(); i += persistConfig.getBatchSize()) {
+            nodeResultMapper.insertBatch(rows.subList(i, Math.min(rows.size(), i + persistConfig.getBatchSize())));
+        }
+    }
+    
+    /**
+     * 追加到溢出文件(NDJSON),fsync 后返回
+     * 落盘后记录不再保留在内存中,由回放负责写库
+     */
+    private void spill(List<ExecutionRecord> records) {
+        StringBuilder lines = new StringBuilder();
+        for (ExecutionRecord record : records) {
+            lines.append(JSON.toJSONString(record)).append('\n');
+        }
+        byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+        
+        spillLock.lock();
+        try {
+            Files.createDirectories(spillDir);
+            // 写入 .tmp 文件后改名,回放线程只处理完整的 .ndjson 文件
+            String name = "spill-" + System.currentTimeMillis() + "-" + spillSequence.incrementAndGet();
+            Path tmp = spillDir.resolve(name + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Path file = spillDir.resolve(name + ".ndjson");
+            Files.move(tmp, file);
+            // 先建索引再移出 pending,查询不会出现空档
+            records.forEach(record -> {
+                if (record.getId() != null) {
+                    spilled.put(record.getId(), file);
+                }
+            });
+            spilledCounter.increment(records.size());
+        } catch (IOException e) {
+            log.error("写入执行记录溢出文件失败,记录丢失: 条数={}", records.size(), e);
+        } finally {
+            spillLock.unlock();
+        }
+        records.forEach(this::forget);
+    }
+    
+    private void forget(ExecutionRecord record) {
+        if (record.getId() != null) {
+            pending.remove(record.getId());
+        }
+    }
+    
+    /**
+     * 回放一轮溢出文件;回放交给阻塞线程池后固定延迟不再等待上一轮结束,上一轮未结束时直接跳过,
+     * 避免两轮同时处理同一文件造成重复写入、重复计数和提前移入 dead-letter
+     */
+    private void replaySpills() {
+        if (!replaying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            replaySpillFiles();
+        } finally {
+            replaying.set(false);
+        }
+    }
+    
+    /**
+     * 按文件名顺序回放溢出文件,整文件写库成功后删除
+     * 数据库不可用时停止本轮,等待下一轮;单个文件因数据错误失败时跳过继续回放其余文件,
+     * 累计失败 maxReplayAttempts 次后移入 dead-letter 子目录
+     */
+    private void replaySpillFiles() {
+        for (Path file : listSpillFiles(spillDir)) {
+            try {
+                List<ExecutionRecord> records = readSpillFile(file);
+                for (int i = 0; i < records.size(); i += persistConfig.getBatchSize()) {
+                    insert(records.subList(i, Math.min(records.size(), i + persistConfig.getBatchSize())));
+                }
+                Files.delete(file);
+                replayFailures.remove(file);
+                records.forEach(record -> spilled.remove(record.getId(), file));
+                replayedCounter.increment(records.size());
+                log.info("已回放执行记录溢出文件: {}, 条数={}", file.getFileName(), records.size());
+            } catch (DataAccessResourceFailureException | TransientDataAccessException | RecoverableDataAccessException e) {
+                log.warn("数据库不可用,溢出文件稍后重试: {}, 原因={}", file.getFileName(), e.getMessage());
+                return;
+            } catch (Exception e) {
+                int failures = replayFailures.merge(file, 1, Integer::sum);
+                if (failures < persistConfig.getMaxReplayAttempts()) {
+                    log.warn("回放执行记录溢出文件失败({}/{}),稍后重试: {}, 原因={}",
+                            failures, persistConfig.getMaxReplayAttempts(), file.getFileName(), e.getMessage());
+                } else {
+                    deadLetter(file, e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 将反复回放失败的文件移入 dead-letter 子目录,其中的记录仍可按 ID 查询,需人工处理
+     */
+    private void deadLetter(Path file, Exception cause) {
+        try {
+            Files.createDirectories(deadLetterDir);
+            Path target = deadLetterDir.resolve(file.getFileName());
+            Files.move(file, target);
+            spilled.replaceAll((id, path) -> path.equals(file) ? target : path);
+            replayFailures.remove(file);
+            deadLetteredCounter.increment();
+            log.error("执行记录溢出文件回放失败 {} 次,已移入 dead-letter 目录: {}, 原因={}",
+                    persistConfig.getMaxReplayAttempts(), target, cause.getMessage());
+        } catch (IOException e) {
+            log.error("移动执行记录溢出文件到 dead-letter 目录失败: {}", file.getFileName(), e);
+        }
+    }
+    
+    private List<Path> listSpillFiles(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.filter(file -> file.getFileName().toString().endsWith(".ndjson")).sorted().toList();
+        } catch (IOException e) {
+            log.warn("读取执行记录溢出目录失败: {}", e.getMessage());
+            return List.of();
+        }
+    }
+    
+    private List<ExecutionRecord> readSpillFile(Path file) throws IOException {
+        List<ExecutionRecord> records = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    records.add(JSON.parseObject(line, ExecutionRecord.class));
+                }
+            }
+        }
+        return records;
+    }
+    
+    private void indexSpillFile(Path file) {
+        try {
+            for (ExecutionRecord record : readSpillFile(file)) {
+                if (record.getId() != null) {
+                    spilled.put(record.getId(), file);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("索引执行记录溢出文件失败: {}, 原因={}", file.getFileName(), e.getMessage());
+        }
+    }
+    
+    private Timer flushTimer(String result) {
+        return Timer.builder("execution.record.flush.duration")
+                .tag("result", result)
+                .description("执行记录批量写入耗时")
+                .register(meterRegistry);
+    }
+}
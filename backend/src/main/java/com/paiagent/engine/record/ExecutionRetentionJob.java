@@ -0,0 +1,254 @@
+package com.paiagent.engine.record;
+
+import com.paiagent.config.ExecutionRetentionConfig;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import com.paiagent.entity.ExecutionRecord;
+import com.paiagent.entity.TablePartition;
+import com.paiagent.mapper.ExecutionCheckpointMapper;
+import com.paiagent.mapper.ExecutionFlowStatsMapper;
+import com.paiagent.mapper.ExecutionNodeResultMapper;
+import com.paiagent.mapper.ExecutionRecordMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 执行记录分区维护与过期清理
+ * 
+ * execution_record 按 executed_at 做月度 RANGE 分区。任务定时从 p_future 拆出未来几个月的分区,
+ * 并删除整体早于保留期限的分区: 先按 (工作流, 日期) 汇总到 execution_flow_stats,再分批清理对应的
+ * 节点结果和检查点,最后 DROP PARTITION。删除分区只修改元数据,不再产生大范围 DELETE 扫描。
+ * 多实例部署时通过 MySQL 命名锁(GET_LOCK)保证同一时间只有一个实例执行 DDL。
+ * 分区上界由数据库按会话时区换算,应用与数据库需使用相同时区
+ */
+@Slf4j
+@Component
+public class ExecutionRetentionJob {
+    
+    private static final String FUTURE_PARTITION = "p_future";
+    
+    private static final String LOCK_NAME = "paiagent.execution_retention";
+    
+    private static final Pattern PARTITION_NAME = Pattern.compile("p\\w+");
+    
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd 00:00:00");
+    
+    @Autowired
+    private ExecutionRecordMapper executionRecordMapper;
+    
+    @Autowired
+    private ExecutionNodeResultMapper nodeResultMapper;
+    
+    @Autowired
+    private ExecutionCheckpointMapper checkpointMapper;
+    
+    @Autowired
+    private ExecutionFlowStatsMapper flowStatsMapper;
+    
+    @Autowired
+    private ExecutionRetentionConfig retentionConfig;
+    
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    private volatile boolean unpartitionedLogged;
+    
+    private Counter droppedCounter;
+    
+    private Counter premakeSkippedCounter;
+    
+    @PostConstruct
+    public void init() {
+        droppedCounter = Counter.builder("execution.retention.partitions.dropped")
+                .description("过期删除的执行记录分区数")
+                .register(meterRegistry);
+        premakeSkippedCounter = Counter.builder("execution.retention.premake.skipped")
+                .description("p_future 已有数据而跳过的预建分区次数")
+                .register(meterRegistry);
+        if (!retentionConfig.isEnabled()) {
+            return;
+        }
+        executionRuntime.getScheduler().scheduleWithFixedDelay(
+                () -> executionRuntime.getBlockingExecutor().execute(this::run),
+                retentionConfig.getInitialDelayMs(), retentionConfig.getIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 执行一轮分区维护,其他线程或实例持有命名锁时直接跳过
+     * 命名锁属于会话,获取与释放使用同一连接,实例宕机时随连接断开自动释放
+     */
+    public void run() {
+        try (Connection lockConnection = dataSource.getConnection()) {
+            if (!tryLock(lockConnection)) {
+                return;
+            }
+            try {
+                maintainPartitions();
+            } finally {
+                releaseLock(lockConnection);
+            }
+        } catch (Exception e) {
+            log.error("执行记录分区维护失败", e);
+        }
+    }
+    
+    private void maintainPartitions() {
+        List<TablePartition> partitions = executionRecordMapper.selectPartitions();
+        if (partitions.isEmpty() || partitions.get(0).getName() == null) {
+            if (!unpartitionedLogged) {
+                log.warn("execution_record 未分区,跳过分区维护和过期清理");
+                unpartitionedLogged = true;
+            }
+            return;
+        }
+        premakePartitions(partitions);
+        dropExpiredPartitions(partitions);
+    }
+    
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            statement.setString(1, LOCK_NAME);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getInt(1) == 1;
+            }
+        }
+    }
+    
+    private static void releaseLock(Connection connection) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery().close();
+        } catch (SQLException e) {
+            log.warn("释放分区维护锁失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 从 p_future 拆出月分区,覆盖到当前月之后 premakeMonths 个月
+     * p_future 已有数据时 REORGANIZE 会在锁表状态下逐行搬迁,此时跳过并告警,由人工处理
+     */
+    private void premakePartitions(List<TablePartition> partitions) {
+        Set<String> names = partitions.stream().map(TablePartition::getName).collect(Collectors.toSet());
+        if (!names.contains(FUTURE_PARTITION)) {
+            log.warn("execution_record 缺少 {} 分区,无法预建分区", FUTURE_PARTITION);
+            return;
+        }
+        
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        LocalDate month = partitions.stream()
+                .map(ExecutionRetentionJob::upperBound)
+                .filter(Objects::nonNull)
+                .max(Long::compare)
+                .map(bound -> toDate(bound).withDayOfMonth(1))
+                .orElse(currentMonth);
+        LocalDate horizon = currentMonth.plusMonths(retentionConfig.getPremakeMonths());
+        if (month.isAfter(horizon)) {
+            return;
+        }
+        if (executionRecordMapper.futurePartitionHasRows()) {
+            premakeSkippedCounter.increment();
+            log.error("execution_record 的 {} 分区已有数据,跳过预建分区以免 REORGANIZE 搬迁数据,请人工拆分", FUTURE_PARTITION);
+            return;
+        }
+        
+        while (!month.isAfter(horizon)) {
+            String name = "p" + month.format(MONTH_FORMAT);
+            LocalDate next = month.plusMonths(1);
+            if (!names.contains(name)) {
+                executionRecordMapper.splitFuturePartition(name, next.format(BOUND_FORMAT));
+                log.info("已创建执行记录分区 {}: executed_at < {}", name, next);
+            }
+            month = next;
+        }
+    }
+    
+    /**
+     * 删除上界早于保留期限的分区,删除前先汇总统计并清理节点结果和检查点
+     */
+    private void dropExpiredPartitions(List<TablePartition> partitions) {
+        long cutoff = Instant.now().minus(Duration.ofDays(retentionConfig.getRetentionDays())).getEpochSecond();
+        for (TablePartition partition : partitions) {
+            Long bound = upperBound(partition);
+            if (bound == null || bound > cutoff) {
+                continue;
+            }
+            String name = partition.getName();
+            if (!PARTITION_NAME.matcher(name).matches()) {
+                log.warn("跳过无法识别的分区名: {}", name);
+                continue;
+            }
+            
+            long startTime = System.currentTimeMillis();
+            flowStatsMapper.rollupPartition(name);
+            long purged = purgeDependents(name);
+            executionRecordMapper.dropPartition(name);
+            droppedCounter.increment();
+            log.info("已删除过期分区 {}: 记录数约 {}, 清理节点结果 {} 行, 耗时 {}ms",
+                    name, partition.getTableRows(), purged, System.currentTimeMillis() - startTime);
+        }
+    }
+    
+    /**
+     * 按主键分批删除分区内执行记录的节点结果和检查点,返回删除的节点结果行数
+     */
+    private long purgeDependents(String partition) {
+        long purged = 0;
+        long afterId = 0;
+        while (true) {
+            List<ExecutionRecord> keys = executionRecordMapper.selectKeysInPartition(partition, afterId, retentionConfig.getCleanupBatchSize());
+            if (keys.isEmpty()) {
+                return purged;
+            }
+            List<Long> ids = keys.stream().map(ExecutionRecord::getId).toList();
+            purged += nodeResultMapper.deleteByExecutionIds(ids);
+            List<String> runIds = keys.stream().map(ExecutionRecord::getRunId).filter(Objects::nonNull).toList();
+            if (!runIds.isEmpty()) {
+                checkpointMapper.deleteByRunIds(runIds);
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+    
+    /**
+     * 分区上界(UNIX 秒),MAXVALUE 分区返回 null
+     */
+    static Long upperBound(TablePartition partition) {
+        String description = partition.getDescription();
+        if (description == null || "MAXVALUE".equalsIgnoreCase(description)) {
+            return null;
+        }
+        return Long.parseLong(description.trim());
+    }
+    
+    private static LocalDate toDate(long epochSecond) {
+        return Instant.ofEpochSecond(epochSecond).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
@@ -0,0 +1,100 @@
+package com.paiagent.engine.record;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 节点载荷编码
+ * 
+ * 首字节为格式标记: 0 为原始 UTF-8,1 为 deflate 压缩。
+ * 超过阈值的文本才压缩,且压缩后未变小时保留原文,短文本不付出压缩开销
+ */
+public final class PayloadCodec {
+    
+    private static final byte RAW = 0;
+    
+    private static final byte DEFLATE = 1;
+    
+    private PayloadCodec() {
+    }
+    
+    /**
+     * 编码文本
+     * 
+     * @param threshold 压缩阈值(UTF-8 字节数)
+     * @return 文本为 null 时返回 null
+     */
+    public static byte[] encode(String text, int threshold) {
+        if (text == null) {
+            return null;
+        }
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        if (raw.length >= threshold) {
+            byte[] compressed = deflate(raw);
+            if (compressed.length < raw.length) {
+                return compressed;
+            }
+        }
+        byte[] encoded = new byte[raw.length + 1];
+        encoded[0] = RAW;
+        System.arraycopy(raw, 0, encoded, 1, raw.length);
+        return encoded;
+    }
+    
+    /**
+     * 解码 {@link #encode} 的结果
+     */
+    public static String decode(byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            return null;
+        }
+        if (payload[0] == RAW) {
+            return new String(payload, 1, payload.length - 1, StandardCharsets.UTF_8);
+        }
+        if (payload[0] == DEFLATE) {
+            return new String(inflate(payload), StandardCharsets.UTF_8);
+        }
+        throw new IllegalArgumentException("未知的载荷编码: " + payload[0]);
+    }
+    
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 16);
+            out.write(DEFLATE);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static byte[] inflate(byte[] payload) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload, 1, payload.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("载荷数据不完整");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("载荷解压失败: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
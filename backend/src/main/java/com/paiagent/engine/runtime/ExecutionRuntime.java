@@ -0,0 +1,150 @@
+package com.paiagent.engine.runtime;
+
+import com.paiagent.config.ExecutionRuntimeConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 工作流执行运行时
+ * 
+ * 基于 JDK 21 虚拟线程统一承载工作流执行、节点调度以及 LLM/TTS/MinIO 等阻塞调用。
+ * 等待中的执行只占用一个挂起的虚拟线程,不再为每个长时间的 LLM 等待占用一个系统线程
+ */
+@Slf4j
+@Component
+public class ExecutionRuntime {
+    
+    @Autowired
+    private ExecutionRuntimeConfig runtimeConfig;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 工作流执行线程(命名: workflow-run-N)
+     */
+    private ExecutorService workflowExecutor;
+    
+    /**
+     * 节点与阻塞 I/O 线程(命名: workflow-io-N)
+     */
+    private ExecutorService blockingExecutor;
+    
+    /**
+     * 定时任务(流式分帧刷新、超时等),任务本身应尽快返回
+     */
+    private ScheduledExecutorService scheduler;
+    
+    /**
+     * 在途工作流许可,公平模式保证先到先执行
+     */
+    private Semaphore inFlightPermits;
+    
+    private final AtomicInteger active = new AtomicInteger();
+    
+    private final AtomicInteger queued = new AtomicInteger();
+    
+    private Counter completedCounter;
+    
+    private Counter failedCounter;
+    
+    @PostConstruct
+    public void init() {
+        workflowExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("workflow-run-", 0).factory());
+        blockingExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("workflow-io-", 0).factory());
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("workflow-timer").daemon().factory());
+        inFlightPermits = new Semaphore(runtimeConfig.getMaxInFlight(), true);
+        
+        Gauge.builder("workflow.runtime.active", active, AtomicInteger::get)
+                .description("正在运行的工作流数")
+                .register(meterRegistry);
+        Gauge.builder("workflow.runtime.queued", queued, AtomicInteger::get)
+                .description("等待运行许可的工作流数")
+                .register(meterRegistry);
+        completedCounter = Counter.builder("workflow.runtime.completed")
+                .description("已完成的工作流数")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("workflow.runtime.failed")
+                .description("执行异常结束的工作流数")
+                .register(meterRegistry);
+        
+        log.info("工作流执行运行时已启动: maxInFlight={}", runtimeConfig.getMaxInFlight());
+    }
+    
+    /**
+     * 提交一次工作流执行
+     * 超过在途上限时在虚拟线程上排队,直到获得许可
+     * 
+     * @param task 执行任务
+     * @return 执行结果
+     */
+    public <T> CompletableFuture<T> submitWorkflow(Callable<T> task) {
+        queued.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                inFlightPermits.acquire();
+            } catch (InterruptedException e) {
+                queued.decrementAndGet();
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            try {
+                T result = task.call();
+                completedCounter.increment();
+                return result;
+            } catch (Exception e) {
+                failedCounter.increment();
+                throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+            } finally {
+                active.decrementAndGet();
+                inFlightPermits.release();
+            }
+        }, workflowExecutor);
+    }
+    
+    /**
+     * 节点调度与阻塞 I/O(LLM、TTS、下载、MinIO 上传)使用的执行器
+     */
+    public ExecutorService getBlockingExecutor() {
+        return blockingExecutor;
+    }
+    
+    /**
+     * 轻量定时任务调度器
+     */
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+    
+    /**
+     * 正在运行的工作流数
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+    
+    /**
+     * 排队中的工作流数
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        workflowExecutor.shutdown();
+        blockingExecutor.shutdown();
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,143 @@
+package com.paiagent.engine.stream;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 流式边上的文本通道
+ * 
+ * 上游节点边生成边写入,下游节点在上游完成之前即可逐段读取。
+ * 单写多读,已写入的片段会保留,晚订阅的读者从头读取,不会丢失内容。
+ * 读取在虚拟线程上阻塞等待,使用 ReentrantLock/Condition 不会钉住载体线程
+ */
+public class TextStream {
+    
+    /**
+     * 上游节点输入中携带输出通道的键
+     */
+    public static final String OUTPUT_STREAM_KEY = "__outputStream__";
+    
+    /**
+     * 下游节点输入中携带输入通道的键
+     */
+    public static final String INPUT_STREAM_KEY = "__inputStream__";
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    private final Condition changed = lock.newCondition();
+    
+    private final List<String> chunks = new ArrayList<>();
+    
+    private boolean completed;
+    
+    private Throwable failure;
+    
+    /**
+     * 写入一个片段
+     */
+    public void append(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (completed) {
+                return;
+            }
+            chunks.add(chunk);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 正常结束,重复调用无副作用
+     */
+    public void complete() {
+        lock.lock();
+        try {
+            completed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 异常结束,读者在读完已写入的片段后收到异常
+     */
+    public void fail(Throwable error) {
+        lock.lock();
+        try {
+            if (completed) {
+                return;
+            }
+            failure = error;
+            completed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 从头读取的阻塞迭代器: hasNext() 在没有新片段且未结束时等待
+     * 
+     * @throws IllegalStateException 上游异常结束
+     */
+    public Iterator<String> reader() {
+        return new Iterator<>() {
+            
+            private int position;
+            
+            @Override
+            public boolean hasNext() {
+                lock.lock();
+                try {
+                    while (position >= chunks.size() && !completed) {
+                        changed.await();
+                    }
+                    if (position < chunks.size()) {
+                        return true;
+                    }
+                    if (failure != null) {
+                        throw new IllegalStateException("上游节点流式输出失败: " + failure.getMessage(), failure);
+                    }
+                    return false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("等待上游流式输出时被中断", e);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lock.lock();
+                try {
+                    return chunks.get(position++);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+    
+    /**
+     * 读取全部内容(阻塞到上游结束)
+     */
+    public String readAll() {
+        StringBuilder content = new StringBuilder();
+        reader().forEachRemaining(content::append);
+        return content.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package com.paiagent.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 执行检查点实体类
+ */
+@Data
+@TableName("execution_checkpoint")
+public class ExecutionCheckpoint {
+    
+    /**
+     * 检查点主键 ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    /**
+     * 运行 ID(同一次执行及其恢复共用)
+     */
+    private String runId;
+    
+    /**
+     * 工作流 ID
+     */
+    private Long flowId;
+    
+    /**
+     * 工作流版本(工作流更新时间),版本变化后检查点不再复用
+     */
+    private LocalDateTime flowVersion;
+    
+    /**
+     * 节点 ID
+     */
+    private String nodeId;
+    
+    /**
+     * 节点输出 - JSON 格式
+     */
+    private String nodeOutput;
+    
+    /**
+     * 创建时间
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+}
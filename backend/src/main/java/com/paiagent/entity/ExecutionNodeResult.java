@@ -0,0 +1,100 @@
+package com.paiagent.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 节点执行结果实体类
+ * 每个节点一行,输入/输出载荷以 {@link com.paiagent.engine.record.PayloadCodec} 编码,超过阈值时压缩
+ */
+@Data
+@TableName("execution_node_result")
+public class ExecutionNodeResult {
+    
+    /**
+     * 主键 ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    /**
+     * 执行记录 ID
+     */
+    private Long executionId;
+    
+    /**
+     * 节点在本次执行中的顺序(从 0 开始)
+     */
+    private Integer seq;
+    
+    /**
+     * 节点 ID
+     */
+    private String nodeId;
+    
+    /**
+     * 节点名称
+     */
+    private String nodeName;
+    
+    /**
+     * 节点类型
+     */
+    private String nodeType;
+    
+    /**
+     * 执行状态(SUCCESS/FAILED)
+     */
+    private String status;
+    
+    /**
+     * 执行耗时(毫秒)
+     */
+    private Integer duration;
+    
+    /**
+     * 输入 token 数(LLM 节点)
+     */
+    private Integer inputTokens;
+    
+    /**
+     * 输出 token 数(LLM 节点)
+     */
+    private Integer outputTokens;
+    
+    /**
+     * 总 token 数(LLM 节点)
+     */
+    private Integer totalTokens;
+    
+    /**
+     * 输入原始大小(UTF-8 字节)
+     */
+    private Integer inputSize;
+    
+    /**
+     * 输出原始大小(UTF-8 字节)
+     */
+    private Integer outputSize;
+    
+    /**
+     * 输入载荷(编码后)
+     */
+    private byte[] inputPayload;
+    
+    /**
+     * 输出载荷(编码后)
+     */
+    private byte[] outputPayload;
+    
+    /**
+     * 错误信息
+     */
+    private String errorMessage;
+    
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+}
@@ -3,6 +3,7 @@ package com.paiagent.entity;
 import com.baomidou.mybatisplus.annotation.*;
 import lombok.Data;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 执行记录实体类
@@ -22,6 +23,11 @@ public class ExecutionRecord {
      */
     private Long flowId;
     
+    /**
+     * 运行 ID,关联执行检查点,用于失败后恢复
+     */
+    private String runId;
+    
     /**
      * 输入数据 - JSON 格式
      */
@@ -39,6 +45,7 @@ public class ExecutionRecord {
     
     /**
      * 每个节点的执行结果 - JSON 格式
+     * 仅历史记录使用,新记录的节点结果写入 execution_node_result 表
      */
     private String nodeResults;
     
@@ -53,7 +60,7 @@ public class ExecutionRecord {
     private Integer duration;
     
     /**
-     * 执行时间
+     * 执行时间,同时是表的分区键
      */
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime executedAt;
@@ -63,4 +70,10 @@ public class ExecutionRecord {
      */
     @TableLogic
     private Integer deleted;
+    
+    /**
+     * 待写入 execution_node_result 表的节点结果,不对应 execution_record 的列
+     */
+    @TableField(exist = false)
+    private List<ExecutionNodeResult> nodeResultRows;
 }
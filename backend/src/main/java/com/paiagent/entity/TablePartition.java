@@ -0,0 +1,25 @@
+package com.paiagent.entity;
+
+import lombok.Data;
+
+/**
+ * 表分区信息,来自 information_schema.PARTITIONS
+ */
+@Data
+public class TablePartition {
+    
+    /**
+     * 分区名,表未分区时为 null
+     */
+    private String name;
+    
+    /**
+     * RANGE 分区上界(不含): UNIX 时间戳秒数,最后一个分区为 MAXVALUE
+     */
+    private String description;
+    
+    /**
+     * 估算行数
+     */
+    private Long tableRows;
+}
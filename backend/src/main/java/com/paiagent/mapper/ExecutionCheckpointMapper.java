@@ -0,0 +1,35 @@
+package com.paiagent.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.paiagent.entity.ExecutionCheckpoint;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 执行检查点 Mapper 接口
+ */
+@Mapper
+public interface ExecutionCheckpointMapper extends BaseMapper<ExecutionCheckpoint> {
+    
+    /**
+     * 写入检查点,同一运行同一节点重复写入时覆盖
+     */
+    @Insert("INSERT INTO execution_checkpoint (run_id, flow_id, flow_version, node_id, node_output, created_at) " +
+            "VALUES (#{runId}, #{flowId}, #{flowVersion}, #{nodeId}, #{nodeOutput}, #{createdAt}) " +
+            "ON DUPLICATE KEY UPDATE flow_version = VALUES(flow_version), node_output = VALUES(node_output), " +
+            "created_at = VALUES(created_at)")
+    int upsert(ExecutionCheckpoint checkpoint);
+    
+    /**
+     * 删除指定运行的检查点,用于分区过期清理
+     */
+    @Delete("<script>" +
+            "DELETE FROM execution_checkpoint WHERE run_id IN " +
+            "<foreach collection='runIds' item='runId' open='(' separator=',' close=')'>#{runId}</foreach>" +
+            "</script>")
+    int deleteByRunIds(@Param("runIds") List<String> runIds);
+}
@@ -0,0 +1,25 @@
+package com.paiagent.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 执行统计汇总 Mapper 接口
+ */
+@Mapper
+public interface ExecutionFlowStatsMapper {
+    
+    /**
+     * 按 (工作流, 日期) 汇总一个执行记录分区
+     * 一天只会落在一个月分区内,重复汇总直接覆盖,删除分区前中断后可安全重跑
+     */
+    @Insert("INSERT INTO execution_flow_stats (flow_id, stat_date, total_count, success_count, failed_count, total_duration, max_duration) " +
+            "SELECT flow_id, DATE(executed_at), COUNT(*), SUM(status = 'SUCCESS'), SUM(status = 'FAILED'), " +
+            "COALESCE(SUM(duration), 0), COALESCE(MAX(duration), 0) " +
+            "FROM execution_record PARTITION (${partition}) WHERE deleted = 0 " +
+            "GROUP BY flow_id, DATE(executed_at) " +
+            "ON DUPLICATE KEY UPDATE total_count = VALUES(total_count), success_count = VALUES(success_count), " +
+            "failed_count = VALUES(failed_count), total_duration = VALUES(total_duration), max_duration = VALUES(max_duration)")
+    int rollupPartition(@Param("partition") String partition);
+}
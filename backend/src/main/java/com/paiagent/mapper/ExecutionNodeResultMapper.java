@@ -0,0 +1,53 @@
+package com.paiagent.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.paiagent.entity.ExecutionNodeResult;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * 节点执行结果 Mapper 接口
+ */
+@Mapper
+public interface ExecutionNodeResultMapper extends BaseMapper<ExecutionNodeResult> {
+    
+    /**
+     * 多行 INSERT 批量写入,(execution_id, seq) 唯一,回放时已写入的行经 ON DUPLICATE KEY UPDATE id = id 跳过
+     */
+    @Insert("<script>" +
+            "INSERT INTO execution_node_result (execution_id, seq, node_id, node_name, node_type, status, duration, input_tokens, output_tokens, total_tokens, input_size, output_size, input_payload, output_payload, error_message) VALUES " +
+            "<foreach collection='results' item='r' separator=','>" +
+            "(#{r.executionId}, #{r.seq}, #{r.nodeId}, #{r.nodeName}, #{r.nodeType}, #{r.status}, #{r.duration}, #{r.inputTokens}, #{r.outputTokens}, #{r.totalTokens}, #{r.inputSize}, #{r.outputSize}, #{r.inputPayload}, #{r.outputPayload}, #{r.errorMessage})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE id = id" +
+            "</script>")
+    int insertBatch(@Param("results") List<ExecutionNodeResult> results);
+    
+    /**
+     * 查询执行的节点结果摘要,不读取载荷列
+     */
+    @Select("SELECT id, execution_id, seq, node_id, node_name, node_type, status, duration, input_tokens, output_tokens, total_tokens, " +
+            "input_size, output_size, error_message, created_at " +
+            "FROM execution_node_result WHERE execution_id = #{executionId} ORDER BY seq")
+    List<ExecutionNodeResult> selectSummaries(@Param("executionId") Long executionId);
+    
+    /**
+     * 按需读取单个节点的完整结果(含载荷)
+     */
+    @Select("SELECT * FROM execution_node_result WHERE execution_id = #{executionId} AND seq = #{seq}")
+    ExecutionNodeResult selectBySeq(@Param("executionId") Long executionId, @Param("seq") Integer seq);
+    
+    /**
+     * 删除指定执行记录的节点结果,用于分区过期清理
+     */
+    @Delete("<script>" +
+            "DELETE FROM execution_node_result WHERE execution_id IN " +
+            "<foreach collection='executionIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteByExecutionIds(@Param("executionIds") List<Long> executionIds);
+}
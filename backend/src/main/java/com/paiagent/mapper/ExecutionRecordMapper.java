@@ -2,11 +2,107 @@ package com.paiagent.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.paiagent.entity.ExecutionRecord;
+import com.paiagent.entity.TablePartition;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 执行记录 Mapper 接口
  */
 @Mapper
 public interface ExecutionRecordMapper extends BaseMapper<ExecutionRecord> {
+    
+    /**
+     * 多行 INSERT 写入已预分配 ID 的执行记录
+     * 主键冲突时 ON DUPLICATE KEY UPDATE id = id 不做修改,溢出文件回放时已写入的记录被跳过,回放可重复执行;
+     * 不使用 INSERT IGNORE,以免截断、非空等数据错误被降级为警告而静默写入。
+     * 自定义 SQL 不经过自动填充,executedAt 需由调用方设置
+     */
+    @Insert("<script>" +
+            "INSERT INTO execution_record (id, flow_id, run_id, input_data, output_data, status, node_results, error_message, duration, executed_at) VALUES " +
+            "<foreach collection='records' item='r' separator=','>" +
+            "(#{r.id}, #{r.flowId}, #{r.runId}, #{r.inputData}, #{r.outputData}, #{r.status}, #{r.nodeResults}, #{r.errorMessage}, #{r.duration}, #{r.executedAt})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE id = id" +
+            "</script>")
+    int insertBatchWithIds(@Param("records") List<ExecutionRecord> records);
+    
+    /**
+     * 按 (executed_at, id) 倒序的游标分页查询,只取摘要列
+     * 查询列均在 idx_history / idx_flow_history 覆盖索引内,排序沿 (executed_at, id) 索引顺序,翻页深度不影响耗时
+     *
+     * @param cursorTime 上一页最后一条的执行时间,首页为 null
+     * @param cursorId   上一页最后一条的 ID,首页为 null
+     * @param from       执行时间下界(含),可为 null
+     * @param to         执行时间上界(不含),可为 null
+     */
+    @Select("<script>" +
+            "SELECT id, flow_id, status, duration, executed_at FROM execution_record " +
+            "WHERE deleted = 0" +
+            "<if test='flowId != null'> AND flow_id = #{flowId}</if>" +
+            "<if test='status != null'> AND status = #{status}</if>" +
+            "<if test='from != null'> AND executed_at &gt;= #{from}</if>" +
+            "<if test='to != null'> AND executed_at &lt; #{to}</if>" +
+            "<if test='cursorTime != null'>" +
+            " AND (executed_at &lt; #{cursorTime} OR (executed_at = #{cursorTime} AND id &lt; #{cursorId}))" +
+            "</if>" +
+            " ORDER BY executed_at DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<ExecutionRecord> selectHistory(@Param("flowId") Long flowId,
+                                        @Param("status") String status,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to,
+                                        @Param("cursorTime") LocalDateTime cursorTime,
+                                        @Param("cursorId") Long cursorId,
+                                        @Param("limit") int limit);
+    
+    /**
+     * 当前最大 ID(含逻辑删除的记录),用于初始化 ID 号段
+     */
+    @Select("SELECT COALESCE(MAX(id), 0) FROM execution_record")
+    long selectMaxId();
+    
+    /**
+     * 按顺序列出 execution_record 的分区,表未分区时返回一行且分区名为 null
+     */
+    @Select("SELECT PARTITION_NAME AS name, PARTITION_DESCRIPTION AS description, TABLE_ROWS AS table_rows " +
+            "FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'execution_record' " +
+            "ORDER BY PARTITION_ORDINAL_POSITION")
+    List<TablePartition> selectPartitions();
+    
+    /**
+     * 分批读取分区内记录的 ID 与运行 ID,用于清理节点结果和检查点
+     */
+    @Select("SELECT id, run_id FROM execution_record PARTITION (${partition}) WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<ExecutionRecord> selectKeysInPartition(@Param("partition") String partition,
+                                                @Param("afterId") long afterId,
+                                                @Param("limit") int limit);
+    
+    /**
+     * p_future 分区是否已有数据,有数据时 REORGANIZE 需要逐行搬迁
+     */
+    @Select("SELECT EXISTS (SELECT 1 FROM execution_record PARTITION (p_future))")
+    boolean futurePartitionHasRows();
+    
+    /**
+     * 从 p_future 中拆出一个新分区,上界为指定时间(不含)
+     * 仅在 p_future 为空时调用,此时只修改元数据
+     */
+    @Update("ALTER TABLE execution_record REORGANIZE PARTITION p_future INTO (" +
+            "PARTITION ${partition} VALUES LESS THAN (UNIX_TIMESTAMP('${lessThan}')), " +
+            "PARTITION p_future VALUES LESS THAN MAXVALUE)")
+    void splitFuturePartition(@Param("partition") String partition, @Param("lessThan") String lessThan);
+    
+    /**
+     * 删除整个分区,只修改元数据,不逐行扫描
+     */
+    @Update("ALTER TABLE execution_record DROP PARTITION ${partition}")
+    void dropPartition(@Param("partition") String partition);
 }
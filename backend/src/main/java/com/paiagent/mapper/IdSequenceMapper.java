@@ -0,0 +1,33 @@
+package com.paiagent.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+/**
+ * ID 号段 Mapper 接口
+ * 每个实例按号段从 id_sequence 预领一批 ID,需在同一事务内先加锁读取再推进
+ */
+@Mapper
+public interface IdSequenceMapper {
+    
+    /**
+     * 锁定并读取下一个可用 ID,序列不存在时返回 null
+     */
+    @Select("SELECT next_id FROM id_sequence WHERE name = #{name} FOR UPDATE")
+    Long selectNextIdForUpdate(@Param("name") String name);
+    
+    /**
+     * 推进序列
+     */
+    @Update("UPDATE id_sequence SET next_id = next_id + #{step} WHERE name = #{name}")
+    int advance(@Param("name") String name, @Param("step") long step);
+    
+    /**
+     * 初始化序列,已存在时忽略
+     */
+    @Insert("INSERT INTO id_sequence (name, next_id) VALUES (#{name}, #{nextId}) ON DUPLICATE KEY UPDATE name = name")
+    int insertIfAbsent(@Param("name") String name, @Param("nextId") long nextId);
+}
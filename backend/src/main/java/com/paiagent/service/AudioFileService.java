@@ -0,0 +1,156 @@
+package com.paiagent.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paiagent.config.AudioServingConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地音频文件服务
+ * 负责路径解析、基于内容哈希的强 ETag 以及热点文件的内存映射
+ */
+@Slf4j
+@Service
+public class AudioFileService {
+    
+    @Autowired
+    private AudioServingConfig servingConfig;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Path root;
+    
+    private Cache<FileVersion, String> etags;
+    
+    private Cache<FileVersion, MappedByteBuffer> hotSet;
+    
+    private Cache<FileVersion, AtomicInteger> hits;
+    
+    /**
+     * 文件版本: 路径 + 大小 + 修改时间,任一变化即视为新内容
+     */
+    private record FileVersion(Path path, long size, long lastModified) {
+    }
+    
+    /**
+     * 待发送的音频文件
+     */
+    public record AudioFile(Path path, long size, long lastModified, String etag) {
+    }
+    
+    @PostConstruct
+    public void init() {
+        root = Paths.get(servingConfig.getDir()).toAbsolutePath().normalize();
+        etags = Caffeine.newBuilder()
+                .maximumSize(servingConfig.getEtagCacheSize())
+                .recordStats()
+                .build();
+        hotSet = Caffeine.newBuilder()
+                .maximumWeight(servingConfig.getHotSetMaxBytes())
+                .weigher((FileVersion version, MappedByteBuffer buffer) -> (int) Math.min(Integer.MAX_VALUE, version.size()))
+                .recordStats()
+                .build();
+        hits = Caffeine.newBuilder()
+                .maximumSize(servingConfig.getEtagCacheSize())
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, etags, "audio_etag");
+        CaffeineCacheMetrics.monitor(meterRegistry, hotSet, "audio_hot_set");
+        log.info("音频文件目录: {}, 热点集合: {}", root, servingConfig.isHotSetEnabled() ? "启用" : "关闭");
+    }
+    
+    /**
+     * 解析请求路径对应的文件
+     * 
+     * @return 文件不存在或路径越出音频目录时返回 null
+     */
+    public AudioFile resolve(String relativePath) throws IOException {
+        String normalized = relativePath.startsWith("/") ? relativePath.substring(1) : relativePath;
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        Path path = root.resolve(normalized).normalize();
+        if (!path.startsWith(root) || !Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+            return null;
+        }
+        
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        FileVersion version = new FileVersion(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+        String etag = etags.get(version, this::computeEtag);
+        return new AudioFile(path, version.size(), version.lastModified(), etag);
+    }
+    
+    /**
+     * 获取热点文件的只读映射,未启用、文件过大或访问次数不足时返回 null
+     * 返回的 buffer 为独立视图,调用方可自由调整 position/limit
+     */
+    public ByteBuffer mapped(AudioFile file) {
+        if (!servingConfig.isHotSetEnabled() || file.size() > servingConfig.getHotSetMaxFileBytes()) {
+            return null;
+        }
+        FileVersion version = new FileVersion(file.path(), file.size(), file.lastModified());
+        MappedByteBuffer buffer = hotSet.getIfPresent(version);
+        if (buffer == null) {
+            int count = hits.get(version, k -> new AtomicInteger()).incrementAndGet();
+            if (count < servingConfig.getHotSetAdmitHits()) {
+                return null;
+            }
+            buffer = hotSet.get(version, this::map);
+            if (buffer == null) {
+                return null;
+            }
+        }
+        return buffer.duplicate();
+    }
+    
+    private MappedByteBuffer map(FileVersion version) {
+        try (FileChannel channel = FileChannel.open(version.path(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, version.size());
+            buffer.load();
+            log.info("音频文件映射进热点集合: {}, 大小: {} bytes", version.path().getFileName(), version.size());
+            return buffer;
+        } catch (IOException e) {
+            log.warn("映射音频文件失败: {}, {}", version.path(), e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 以内容 SHA-256 作为强 ETag,同一内容在不同实例、重新生成后仍保持一致
+     */
+    private String computeEtag(FileVersion version) {
+        try (FileChannel channel = FileChannel.open(version.path(), StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+        } catch (Exception e) {
+            throw new RuntimeException("计算音频文件 ETag 失败: " + e.getMessage(), e);
+        }
+    }
+}
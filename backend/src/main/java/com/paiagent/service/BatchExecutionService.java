@@ -0,0 +1,339 @@
+package com.paiagent.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.paiagent.config.BatchExecutionConfig;
+import com.paiagent.dto.ExecutionResponse;
+import com.paiagent.engine.EngineSelector;
+import com.paiagent.engine.ExecutionOptions;
+import com.paiagent.engine.WorkflowExecutor;
+import com.paiagent.engine.record.ExecutionRecordPersister;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import com.paiagent.entity.ExecutionRecord;
+import com.paiagent.entity.Workflow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 批量执行服务
+ * 
+ * 同一工作流对多条输入执行: 工作流只加载一次,执行计划/编译图按版本缓存只构建一次;
+ * 各条输入在执行运行时上按并行度并发执行,结果完成一条写出一行 NDJSON,执行记录合并批量写入
+ */
+@Slf4j
+@Service
+public class BatchExecutionService {
+    
+    @Autowired
+    private EngineSelector engineSelector;
+    
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    @Autowired
+    private ExecutionRecordPersister executionRecordPersister;
+    
+    @Autowired
+    private BatchExecutionConfig batchConfig;
+    
+    /**
+     * 一条批量输入: 解析成功时 error 为空,否则该条直接记为失败,不影响后续输入
+     */
+    public record BatchInput(String inputData, String error) {
+        
+        public static BatchInput of(String inputData) {
+            return inputData != null ? new BatchInput(inputData, null) : invalid("输入为空");
+        }
+        
+        public static BatchInput invalid(String error) {
+            return new BatchInput(null, error);
+        }
+    }
+    
+    /**
+     * 执行批量任务并以 NDJSON 写出结果
+     * 每条结果一行: {index, status, outputData, duration, errorMessage},最后一行为汇总
+     * 
+     * @param workflow    工作流
+     * @param inputs      输入迭代器(可惰性读取上传内容),读取出错时停止读取,已提交的输入仍会执行完并写出汇总
+     * @param parallelism 并行度,为空时使用默认配置
+     * @param out         响应输出流
+     */
+    public void execute(Workflow workflow, Iterator<BatchInput> inputs, Integer parallelism, OutputStream out) throws IOException {
+        int concurrency = resolveParallelism(parallelism);
+        WorkflowExecutor executor = engineSelector.selectEngine(workflow);
+        RecordBatchWriter recordWriter = new RecordBatchWriter();
+        NdjsonWriter resultWriter = new NdjsonWriter(out);
+        
+        ExecutionOptions options = new ExecutionOptions();
+        options.setRecordSink(recordWriter::add);
+        
+        Semaphore permits = new Semaphore(concurrency);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long startTime = System.currentTimeMillis();
+        int submitted = 0;
+        String readError = null;
+        
+        log.info("开始批量执行工作流 [{}]: 并行度={}", workflow.getId(), concurrency);
+        
+        try {
+            while (!resultWriter.isClosed()) {
+                BatchInput input;
+                try {
+                    if (!inputs.hasNext()) {
+                        break;
+                    }
+                    if (submitted >= batchConfig.getMaxItems()) {
+                        log.warn("批量执行输入超过上限 {},其余输入被忽略", batchConfig.getMaxItems());
+                        break;
+                    }
+                    input = inputs.next();
+                } catch (RuntimeException e) {
+                    log.warn("读取批量执行输入失败,停止读取: {}", e.getMessage());
+                    readError = "读取输入失败: " + e.getMessage();
+                    break;
+                }
+                int index = submitted++;
+                
+                if (input.error() != null) {
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("index", index);
+                    line.put("status", "FAILED");
+                    line.put("errorMessage", input.error());
+                    failed.incrementAndGet();
+                    resultWriter.write(line);
+                    continue;
+                }
+                
+                permits.acquire();
+                executionRuntime.submitWorkflow(() -> executor.executeWithOptions(workflow, input.inputData(), options))
+                        .whenComplete((response, error) -> {
+                            try {
+                                Map<String, Object> line = new LinkedHashMap<>();
+                                line.put("index", index);
+                                if (error == null) {
+                                    line.put("status", response.getStatus());
+                                    line.put("outputData", response.getOutputData());
+                                    line.put("duration", response.getDuration());
+                                    line.put("errorMessage", firstError(response));
+                                } else {
+                                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                            ? error.getCause() : error;
+                                    line.put("status", "FAILED");
+                                    line.put("errorMessage", cause.getMessage());
+                                }
+                                if ("SUCCESS".equals(line.get("status"))) {
+                                    succeeded.incrementAndGet();
+                                } else {
+                                    failed.incrementAndGet();
+                                }
+                                resultWriter.write(line);
+                            } finally {
+                                permits.release();
+                            }
+                        });
+            }
+            
+            // 等待所有已提交的输入执行完成
+            permits.acquire(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("批量执行被中断", e);
+        } finally {
+            recordWriter.flush();
+        }
+        
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("summary", true);
+        summary.put("total", submitted);
+        summary.put("succeeded", succeeded.get());
+        summary.put("failed", failed.get());
+        summary.put("duration", System.currentTimeMillis() - startTime);
+        if (readError != null) {
+            summary.put("errorMessage", readError);
+        }
+        resultWriter.write(summary);
+        
+        log.info("批量执行工作流 [{}] 完成: 总数={}, 成功={}, 失败={}",
+                workflow.getId(), submitted, succeeded.get(), failed.get());
+    }
+    
+    /**
+     * 惰性读取 NDJSON 输入
+     * 每行可以是 JSON 字符串、含 inputData 字段的 JSON 对象,或纯文本;空行忽略。
+     * 无法解析或缺少 inputData 的行返回失败项,继续读取后续行
+     */
+    public Iterator<BatchInput> readNdjson(BufferedReader reader) {
+        return new Iterator<>() {
+            private BatchInput next;
+            
+            private boolean done;
+            
+            private void advance() {
+                if (next != null || done) {
+                    return;
+                }
+                String line;
+                try {
+                    do {
+                        line = reader.readLine();
+                    } while (line != null && line.isBlank());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (line == null) {
+                    done = true;
+                } else {
+                    next = parseLine(line.trim());
+                }
+            }
+            
+            @Override
+            public boolean hasNext() {
+                advance();
+                return next != null;
+            }
+            
+            @Override
+            public BatchInput next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                BatchInput current = next;
+                next = null;
+                return current;
+            }
+        };
+    }
+    
+    private BatchInput parseLine(String line) {
+        try {
+            if (line.startsWith("\"")) {
+                return BatchInput.of(JSON.parseObject(line, String.class));
+            }
+            if (line.startsWith("{")) {
+                String inputData = JSONObject.parseObject(line).getString("inputData");
+                return inputData != null ? BatchInput.of(inputData) : BatchInput.invalid("缺少 inputData 字段");
+            }
+            return BatchInput.of(line);
+        } catch (Exception e) {
+            return BatchInput.invalid("无法解析输入: " + e.getMessage());
+        }
+    }
+    
+    private int resolveParallelism(Integer parallelism) {
+        int value = parallelism != null ? parallelism : batchConfig.getDefaultParallelism();
+        return Math.max(1, Math.min(value, batchConfig.getMaxParallelism()));
+    }
+    
+    private String firstError(ExecutionResponse response) {
+        if (response.getNodeResults() == null) {
+            return null;
+        }
+        return response.getNodeResults().stream()
+                .map(ExecutionResponse.NodeResult::getError)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+    }
+    
+    /**
+     * 执行记录批量写入器: 攒够一批后以多行 INSERT 写入
+     */
+    private class RecordBatchWriter {
+        
+        private final ReentrantLock lock = new ReentrantLock();
+        
+        private List<ExecutionRecord> buffer = new ArrayList<>();
+        
+        void add(ExecutionRecord record) {
+            // 自定义批量 SQL 不经过自动填充
+            record.setExecutedAt(LocalDateTime.now());
+            List<ExecutionRecord> full = null;
+            lock.lock();
+            try {
+                buffer.add(record);
+                if (buffer.size() >= batchConfig.getRecordBatchSize()) {
+                    full = buffer;
+                    buffer = new ArrayList<>();
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (full != null) {
+                insert(full);
+            }
+        }
+        
+        void flush() {
+            List<ExecutionRecord> rest;
+            lock.lock();
+            try {
+                rest = buffer;
+                buffer = new ArrayList<>();
+            } finally {
+                lock.unlock();
+            }
+            if (!rest.isEmpty()) {
+                insert(rest);
+            }
+        }
+        
+        private void insert(List<ExecutionRecord> records) {
+            // 与单次执行共用写入路径: 号段分配 ID,节点结果写入 execution_node_result,失败时落盘回放
+            executionRecordPersister.write(records);
+        }
+    }
+    
+    /**
+     * NDJSON 结果写出器,客户端断开后停止写出
+     */
+    private static class NdjsonWriter {
+        
+        private final OutputStream out;
+        
+        private final ReentrantLock lock = new ReentrantLock();
+        
+        private final AtomicBoolean closed = new AtomicBoolean();
+        
+        NdjsonWriter(OutputStream out) {
+            this.out = out;
+        }
+        
+        void write(Map<String, Object> line) {
+            if (closed.get()) {
+                return;
+            }
+            byte[] bytes = (JSON.toJSONString(line) + "\n").getBytes(StandardCharsets.UTF_8);
+            lock.lock();
+            try {
+                out.write(bytes);
+                out.flush();
+            } catch (IOException e) {
+                log.warn("写出批量执行结果失败,客户端可能已断开: {}", e.getMessage());
+                closed.set(true);
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        boolean isClosed() {
+            return closed.get();
+        }
+    }
+}
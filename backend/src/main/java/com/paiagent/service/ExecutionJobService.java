@@ -0,0 +1,311 @@
+package com.paiagent.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.paiagent.config.ExecutionJobConfig;
+import com.paiagent.dto.ExecutionEvent;
+import com.paiagent.dto.ExecutionJobResponse;
+import com.paiagent.dto.ExecutionResponse;
+import com.paiagent.engine.EngineSelector;
+import com.paiagent.engine.ExecutionOptions;
+import com.paiagent.engine.WorkflowExecutor;
+import com.paiagent.engine.record.ExecutionIdAllocator;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import com.paiagent.entity.ExecutionRecord;
+import com.paiagent.entity.Workflow;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 异步执行任务服务
+ * 
+ * 提交时预分配执行记录 ID 并立即返回,任务进入有界队列由工作线程执行,
+ * 执行本身仍通过 WorkflowExecutor 完成并以该 ID 写入 ExecutionRecord,两种引擎均适用。
+ * 内存中只保留运行中和刚结束的任务,之后的查询回落到执行记录
+ */
+@Slf4j
+@Service
+public class ExecutionJobService {
+    
+    @Autowired
+    private EngineSelector engineSelector;
+    
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    @Autowired
+    private ExecutionJobConfig jobConfig;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private ExecutionIdAllocator idAllocator;
+    
+    @Autowired
+    private ExecutionRecordService executionRecordService;
+    
+    private ThreadPoolExecutor jobExecutor;
+    
+    private Cache<Long, ExecutionJob> jobs;
+    
+    @PostConstruct
+    public void init() {
+        jobExecutor = new ThreadPoolExecutor(
+                jobConfig.getWorkers(),
+                jobConfig.getWorkers(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(jobConfig.getQueueCapacity()),
+                Thread.ofVirtual().name("workflow-job-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        long retentionNanos = Duration.ofMinutes(jobConfig.getRetentionMinutes()).toNanos();
+        // 运行中的任务不过期,结束后从结束时刻开始计算保留时间
+        jobs = Caffeine.newBuilder()
+                .expireAfter(new Expiry<Long, ExecutionJob>() {
+                    @Override
+                    public long expireAfterCreate(Long key, ExecutionJob job, long currentTime) {
+                        return job.finishedAt == null ? Long.MAX_VALUE : retentionNanos;
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(Long key, ExecutionJob job, long currentTime, long currentDuration) {
+                        return job.finishedAt == null ? Long.MAX_VALUE : retentionNanos;
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(Long key, ExecutionJob job, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        
+        Gauge.builder("workflow.job.queue.size", jobExecutor, executor -> executor.getQueue().size())
+                .description("等待执行的异步任务数")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 提交异步执行任务
+     * 
+     * @return 预分配的执行记录 ID
+     * @throws RuntimeException 队列已满或无法分配执行记录 ID
+     */
+    public Long submit(Workflow workflow, String inputData) {
+        ExecutionJob job = new ExecutionJob(idAllocator.next(), workflow.getId());
+        jobs.put(job.id, job);
+        
+        try {
+            jobExecutor.execute(() -> run(job, workflow, inputData));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.id);
+            throw new RuntimeException("执行队列已满,请稍后重试");
+        }
+        
+        log.info("异步任务 [{}] 已提交: workflowId={}", job.id, workflow.getId());
+        return job.id;
+    }
+    
+    /**
+     * 查询任务状态,内存中已没有该任务时从执行记录恢复
+     * 
+     * @return 任务状态,任务和执行记录都不存在时返回 null
+     */
+    public ExecutionJobResponse getStatus(Long executionId) {
+        ExecutionJob job = jobs.getIfPresent(executionId);
+        if (job != null) {
+            return job.toResponse();
+        }
+        ExecutionRecord record = executionRecordService.findRecord(executionId);
+        return record != null ? fromRecord(record) : null;
+    }
+    
+    /**
+     * 任务结束时完成的 Future,已结束的任务从执行记录恢复,任务不存在时返回 null
+     */
+    public CompletableFuture<ExecutionJobResponse> getCompletion(Long executionId) {
+        ExecutionJob job = jobs.getIfPresent(executionId);
+        if (job != null) {
+            return job.completion;
+        }
+        ExecutionRecord record = executionRecordService.findRecord(executionId);
+        return record != null ? CompletableFuture.completedFuture(fromRecord(record)) : null;
+    }
+    
+    /**
+     * 订阅任务事件: 先回放已缓存的事件,再接收后续事件
+     * 
+     * @return 任务是否仍在内存中,已结束并移出内存的任务返回 false
+     */
+    public boolean subscribe(Long executionId, Consumer<ExecutionEvent> listener) {
+        ExecutionJob job = jobs.getIfPresent(executionId);
+        if (job == null) {
+            return false;
+        }
+        job.subscribe(listener);
+        return true;
+    }
+    
+    /**
+     * 取消订阅任务事件
+     */
+    public void unsubscribe(Long executionId, Consumer<ExecutionEvent> listener) {
+        ExecutionJob job = jobs.getIfPresent(executionId);
+        if (job != null) {
+            job.listeners.remove(listener);
+        }
+    }
+    
+    /**
+     * 长轮询允许的最大等待时间
+     */
+    public long getMaxPollTimeoutMs() {
+        return jobConfig.getMaxPollTimeoutMs();
+    }
+    
+    private void run(ExecutionJob job, Workflow workflow, String inputData) {
+        job.status = "RUNNING";
+        job.startedAt = System.currentTimeMillis();
+        
+        try {
+            WorkflowExecutor executor = engineSelector.selectEngine(workflow);
+            ExecutionOptions options = ExecutionOptions.withCallback(job::publish);
+            options.setExecutionId(job.id);
+            ExecutionResponse response = executionRuntime
+                    .submitWorkflow(() -> executor.executeWithOptions(workflow, inputData, options))
+                    .join();
+            job.result = response;
+            job.status = response.getStatus();
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("异步任务 [{}] 执行失败", job.id, cause);
+            job.status = "FAILED";
+            job.errorMessage = cause.getMessage();
+        } finally {
+            job.finishedAt = System.currentTimeMillis();
+            // 重新写入以从结束时刻开始计算保留时间
+            jobs.put(job.id, job);
+            job.completion.complete(job.toResponse());
+        }
+    }
+    
+    /**
+     * 由执行记录构造任务状态,节点结果通过执行记录接口按需查询
+     */
+    private ExecutionJobResponse fromRecord(ExecutionRecord record) {
+        ExecutionResponse result = new ExecutionResponse();
+        result.setExecutionId(record.getId());
+        result.setStatus(record.getStatus());
+        result.setOutputData(record.getOutputData());
+        result.setDuration(record.getDuration());
+        
+        ExecutionJobResponse response = new ExecutionJobResponse();
+        response.setExecutionId(record.getId());
+        response.setWorkflowId(record.getFlowId());
+        response.setStatus(record.getStatus());
+        if (record.getExecutedAt() != null) {
+            response.setFinishedAt(record.getExecutedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        response.setResult(result);
+        response.setErrorMessage(record.getErrorMessage());
+        return response;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdown();
+    }
+    
+    /**
+     * 异步执行任务
+     */
+    private class ExecutionJob {
+        
+        private final Long id;
+        
+        private final Long workflowId;
+        
+        private final long submittedAt = System.currentTimeMillis();
+        
+        private volatile String status = "QUEUED";
+        
+        private volatile Long startedAt;
+        
+        private volatile Long finishedAt;
+        
+        private volatile ExecutionResponse result;
+        
+        private volatile String errorMessage;
+        
+        private final CompletableFuture<ExecutionJobResponse> completion = new CompletableFuture<>();
+        
+        private final List<ExecutionEvent> events = new ArrayList<>();
+        
+        private final List<Consumer<ExecutionEvent>> listeners = new CopyOnWriteArrayList<>();
+        
+        /**
+         * 保证回放与实时推送之间不丢失、不乱序
+         */
+        private final ReentrantLock eventLock = new ReentrantLock();
+        
+        ExecutionJob(Long id, Long workflowId) {
+            this.id = id;
+            this.workflowId = workflowId;
+        }
+        
+        void publish(ExecutionEvent event) {
+            eventLock.lock();
+            try {
+                if (events.size() < jobConfig.getMaxBufferedEvents()) {
+                    events.add(event);
+                }
+                for (Consumer<ExecutionEvent> listener : listeners) {
+                    try {
+                        listener.accept(event);
+                    } catch (Exception e) {
+                        log.warn("推送任务 [{}] 事件失败,移除订阅者: {}", id, e.getMessage());
+                        listeners.remove(listener);
+                    }
+                }
+            } finally {
+                eventLock.unlock();
+            }
+        }
+        
+        void subscribe(Consumer<ExecutionEvent> listener) {
+            eventLock.lock();
+            try {
+                events.forEach(listener);
+                listeners.add(listener);
+            } finally {
+                eventLock.unlock();
+            }
+        }
+        
+        ExecutionJobResponse toResponse() {
+            ExecutionJobResponse response = new ExecutionJobResponse();
+            response.setExecutionId(id);
+            response.setWorkflowId(workflowId);
+            response.setStatus(status);
+            response.setSubmittedAt(submittedAt);
+            response.setStartedAt(startedAt);
+            response.setFinishedAt(finishedAt);
+            response.setResult(result);
+            response.setErrorMessage(errorMessage);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.paiagent.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.paiagent.dto.ExecutionDetail;
+import com.paiagent.dto.ExecutionHistoryPage;
+import com.paiagent.dto.ExecutionResponse;
+import com.paiagent.dto.ExecutionSummary;
+import com.paiagent.dto.NodeResultSummary;
+import com.paiagent.engine.EngineSelector;
+import com.paiagent.engine.ExecutionOptions;
+import com.paiagent.engine.WorkflowExecutor;
+import com.paiagent.engine.audio.TextSegmenter;
+import com.paiagent.engine.checkpoint.CheckpointStore;
+import com.paiagent.engine.record.ExecutionRecordPersister;
+import com.paiagent.engine.record.PayloadCodec;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import com.paiagent.entity.ExecutionNodeResult;
+import com.paiagent.entity.ExecutionRecord;
+import com.paiagent.entity.Workflow;
+import com.paiagent.mapper.ExecutionNodeResultMapper;
+import com.paiagent.mapper.ExecutionRecordMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 执行记录服务
+ */
+@Slf4j
+@Service
+public class ExecutionRecordService extends ServiceImpl<ExecutionRecordMapper, ExecutionRecord> {
+    
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    @Autowired
+    private WorkflowService workflowService;
+    
+    @Autowired
+    private EngineSelector engineSelector;
+    
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    @Autowired
+    private CheckpointStore checkpointStore;
+    
+    @Autowired
+    private ExecutionRecordPersister executionRecordPersister;
+    
+    @Autowired
+    private ExecutionNodeResultMapper nodeResultMapper;
+    
+    /**
+     * 按 ID 查询执行记录,数据库中没有时查找仍在异步写入队列中的记录
+     * 
+     * @return 执行记录,不存在时返回 null
+     */
+    public ExecutionRecord findRecord(Long executionId) {
+        ExecutionRecord record = this.getById(executionId);
+        return record != null ? record : executionRecordPersister.findPending(executionId);
+    }
+    
+    /**
+     * 从失败的执行恢复
+     * 沿用原运行 ID 和输入,从第一个失败或未完成的节点开始执行,已保存检查点的上游节点直接复用输出。
+     * 恢复执行会产生一条新的执行记录
+     */
+    public ExecutionResponse resume(Long executionId) {
+        ExecutionRecord record = findRecord(executionId);
+        if (record == null) {
+            throw new RuntimeException("执行记录不存在");
+        }
+        if ("SUCCESS".equals(record.getStatus())) {
+            throw new RuntimeException("执行已成功,无需恢复");
+        }
+        if (record.getRunId() == null) {
+            throw new RuntimeException("该执行记录没有运行 ID,无法恢复");
+        }
+        
+        Workflow workflow = workflowService.getById(record.getFlowId());
+        if (workflow == null) {
+            throw new RuntimeException("工作流不存在");
+        }
+        
+        JSONObject inputJson = JSON.parseObject(record.getInputData());
+        String inputData = inputJson != null ? inputJson.getString("input") : null;
+        
+        Map<String, Map<String, Object>> checkpoints = checkpointStore.load(record.getRunId(), workflow);
+        log.info("恢复执行记录 [{}]: runId={}, 检查点数={}", executionId, record.getRunId(), checkpoints.size());
+        
+        ExecutionOptions options = new ExecutionOptions();
+        options.setRunId(record.getRunId());
+        options.setCheckpoints(checkpoints);
+        
+        WorkflowExecutor executor = engineSelector.selectEngine(workflow);
+        try {
+            return executionRuntime
+                    .submitWorkflow(() -> executor.executeWithOptions(workflow, inputData, options))
+                    .join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+    
+    /**
+     * 游标分页查询执行历史,按执行时间倒序,只返回摘要
+     *
+     * @param cursor 上一页返回的 nextCursor,首页传 null
+     */
+    public ExecutionHistoryPage listHistory(Long flowId, String status, LocalDateTime from, LocalDateTime to,
+                                            String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        LocalDateTime cursorTime = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            int separator = cursor.lastIndexOf('_');
+            try {
+                cursorTime = LocalDateTime.parse(cursor.substring(0, separator));
+                cursorId = Long.parseLong(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("无效的分页游标: " + cursor);
+            }
+        }
+        
+        // 多取一条判断是否还有下一页
+        List<ExecutionRecord> records = baseMapper.selectHistory(flowId, status, from, to, cursorTime, cursorId, limit + 1);
+        boolean hasMore = records.size() > limit;
+        if (hasMore) {
+            records = records.subList(0, limit);
+        }
+        
+        ExecutionHistoryPage page = new ExecutionHistoryPage();
+        page.setItems(records.stream().map(this::toExecutionSummary).toList());
+        if (hasMore) {
+            ExecutionRecord last = records.get(records.size() - 1);
+            page.setNextCursor(last.getExecutedAt() + "_" + last.getId());
+        }
+        return page;
+    }
+    
+    /**
+     * 查询执行记录详情,包含输入/输出和节点结果摘要
+     */
+    public ExecutionDetail getDetail(Long executionId) {
+        ExecutionRecord record = findRecord(executionId);
+        if (record == null) {
+            throw new RuntimeException("执行记录不存在");
+        }
+        
+        ExecutionDetail detail = new ExecutionDetail();
+        detail.setId(record.getId());
+        detail.setFlowId(record.getFlowId());
+        detail.setRunId(record.getRunId());
+        detail.setStatus(record.getStatus());
+        detail.setInputData(record.getInputData());
+        detail.setOutputData(record.getOutputData());
+        detail.setErrorMessage(record.getErrorMessage());
+        detail.setDuration(record.getDuration());
+        detail.setExecutedAt(record.getExecutedAt());
+        detail.setNodes(getNodeSummaries(executionId));
+        return detail;
+    }
+    
+    /**
+     * 查询执行的节点结果摘要,不加载输入/输出
+     * 新记录读取 execution_node_result 表,历史记录从 node_results 列解析
+     */
+    public List<NodeResultSummary> getNodeSummaries(Long executionId) {
+        List<ExecutionNodeResult> rows = nodeResultMapper.selectSummaries(executionId);
+        if (rows.isEmpty()) {
+            rows = pendingRows(executionId);
+        }
+        if (!rows.isEmpty()) {
+            return rows.stream().map(this::toSummary).toList();
+        }
+        
+        List<ExecutionResponse.NodeResult> legacy = legacyNodeResults(executionId);
+        List<NodeResultSummary> summaries = new ArrayList<>(legacy.size());
+        for (int i = 0; i < legacy.size(); i++) {
+            ExecutionResponse.NodeResult nodeResult = legacy.get(i);
+            NodeResultSummary summary = new NodeResultSummary();
+            summary.setSeq(i);
+            summary.setNodeId(nodeResult.getNodeId());
+            summary.setNodeName(nodeResult.getNodeName());
+            summary.setNodeType(nodeResult.getNodeType());
+            summary.setStatus(nodeResult.getStatus());
+            summary.setDuration(nodeResult.getDuration());
+            summary.setError(nodeResult.getError());
+            summary.setInputSize(utf8Size(nodeResult.getInput()));
+            summary.setOutputSize(utf8Size(nodeResult.getOutput()));
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+    
+    /**
+     * 查询单个节点的完整结果(含解压后的输入/输出)
+     */
+    public ExecutionResponse.NodeResult getNodeDetail(Long executionId, Integer seq) {
+        ExecutionNodeResult row = nodeResultMapper.selectBySeq(executionId, seq);
+        if (row == null) {
+            row = pendingRows(executionId).stream()
+                    .filter(pending -> seq.equals(pending.getSeq()))
+                    .findFirst()
+                    .orElse(null);
+        }
+        if (row != null) {
+            ExecutionResponse.NodeResult nodeResult = new ExecutionResponse.NodeResult();
+            nodeResult.setNodeId(row.getNodeId());
+            nodeResult.setNodeName(row.getNodeName());
+            nodeResult.setNodeType(row.getNodeType());
+            nodeResult.setStatus(row.getStatus());
+            nodeResult.setDuration(row.getDuration());
+            nodeResult.setError(row.getErrorMessage());
+            nodeResult.setInputTokens(row.getInputTokens());
+            nodeResult.setOutputTokens(row.getOutputTokens());
+            nodeResult.setTotalTokens(row.getTotalTokens());
+            nodeResult.setInput(PayloadCodec.decode(row.getInputPayload()));
+            nodeResult.setOutput(PayloadCodec.decode(row.getOutputPayload()));
+            return nodeResult;
+        }
+        
+        List<ExecutionResponse.NodeResult> legacy = legacyNodeResults(executionId);
+        if (seq < 0 || seq >= legacy.size()) {
+            throw new RuntimeException("节点结果不存在");
+        }
+        return legacy.get(seq);
+    }
+    
+    private List<ExecutionNodeResult> pendingRows(Long executionId) {
+        ExecutionRecord pending = executionRecordPersister.findPending(executionId);
+        return pending != null && pending.getNodeResultRows() != null ? pending.getNodeResultRows() : List.of();
+    }
+    
+    private List<ExecutionResponse.NodeResult> legacyNodeResults(Long executionId) {
+        ExecutionRecord record = this.getById(executionId);
+        if (record == null) {
+            throw new RuntimeException("执行记录不存在");
+        }
+        if (record.getNodeResults() == null) {
+            return List.of();
+        }
+        return JSON.parseArray(record.getNodeResults(), ExecutionResponse.NodeResult.class);
+    }
+    
+    private ExecutionSummary toExecutionSummary(ExecutionRecord record) {
+        ExecutionSummary summary = new ExecutionSummary();
+        summary.setId(record.getId());
+        summary.setFlowId(record.getFlowId());
+        summary.setStatus(record.getStatus());
+        summary.setDuration(record.getDuration());
+        summary.setExecutedAt(record.getExecutedAt());
+        return summary;
+    }
+    
+    private NodeResultSummary toSummary(ExecutionNodeResult row) {
+        NodeResultSummary summary = new NodeResultSummary();
+        summary.setSeq(row.getSeq());
+        summary.setNodeId(row.getNodeId());
+        summary.setNodeName(row.getNodeName());
+        summary.setNodeType(row.getNodeType());
+        summary.setStatus(row.getStatus());
+        summary.setDuration(row.getDuration());
+        summary.setError(row.getErrorMessage());
+        summary.setInputTokens(row.getInputTokens());
+        summary.setOutputTokens(row.getOutputTokens());
+        summary.setTotalTokens(row.getTotalTokens());
+        summary.setInputSize(row.getInputSize());
+        summary.setOutputSize(row.getOutputSize());
+        return summary;
+    }
+    
+    /**
+     * 历史记录的输入/输出大小与新记录一致,按 UTF-8 字节计
+     */
+    private static Integer utf8Size(String text) {
+        return text != null ? (int) TextSegmenter.utf8Length(text) : null;
+    }
+}
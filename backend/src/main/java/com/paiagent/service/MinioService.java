@@ -1,75 +1,166 @@
 package com.paiagent.service;
 
 import com.paiagent.config.MinioConfig;
+import com.paiagent.config.MinioUploadConfig;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.minio.BucketExistsArgs;
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
+import io.minio.GetObjectArgs;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.errors.ErrorResponseException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @Service
 public class MinioService {
     
+    /**
+     * 分片临时对象前缀,合并完成后删除
+     */
+    private static final String PART_PREFIX = ".parts/";
+    
+    /**
+     * 服务端合并要求除最后一片外每片不小于 5MB
+     */
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    
     @Autowired
     private MinioClient minioClient;
     
     @Autowired
     private MinioConfig minioConfig;
     
+    @Autowired
+    private MinioUploadConfig uploadConfig;
+    
+    @Autowired
+    private ExecutionRuntime executionRuntime;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * bucket 已确认存在,之后的上传不再检查
+     */
+    private volatile boolean bucketReady;
+    
+    private final ReentrantLock bucketLock = new ReentrantLock();
+    
     /**
      * 确保 bucket 存在
+     * 只在首次调用时检查/创建并记住结果,bucket 被外部删除时由 {@link #withBucket} 重置后重试
      */
     private void ensureBucketExists() throws Exception {
-        boolean exists = minioClient.bucketExists(
-                BucketExistsArgs.builder()
-                        .bucket(minioConfig.getBucketName())
-                        .build()
-        );
-        
-        if (!exists) {
-            minioClient.makeBucket(
-                    MakeBucketArgs.builder()
+        if (bucketReady) {
+            return;
+        }
+        bucketLock.lock();
+        try {
+            if (bucketReady) {
+                return;
+            }
+            boolean exists = minioClient.bucketExists(
+                    BucketExistsArgs.builder()
                             .bucket(minioConfig.getBucketName())
                             .build()
             );
-            log.info("创建 MinIO bucket: {}", minioConfig.getBucketName());
+            
+            if (!exists) {
+                minioClient.makeBucket(
+                        MakeBucketArgs.builder()
+                                .bucket(minioConfig.getBucketName())
+                                .build()
+                );
+                log.info("创建 MinIO bucket: {}", minioConfig.getBucketName());
+            }
+            bucketReady = true;
+        } finally {
+            bucketLock.unlock();
+        }
+    }
+    
+    /**
+     * 在 bucket 就绪后执行操作,遇到 NoSuchBucket 时清除记忆的状态并重试一次
+     */
+    private <T> T withBucket(BucketOperation<T> operation) throws Exception {
+        ensureBucketExists();
+        try {
+            return operation.run();
+        } catch (ErrorResponseException e) {
+            if (!"NoSuchBucket".equals(e.errorResponse().code())) {
+                throw e;
+            }
+            log.warn("MinIO bucket 不存在,重新创建: {}", minioConfig.getBucketName());
+            bucketReady = false;
+            ensureBucketExists();
+            return operation.run();
         }
     }
     
+    @FunctionalInterface
+    private interface BucketOperation<T> {
+        T run() throws Exception;
+    }
+    
     /**
      * 上传文件到 MinIO
      * @param objectName 对象名称 (如: audio/xxx.wav)
      * @param inputStream 文件流
      * @param contentType 文件类型
+     * @param size 文件大小,未知时传 -1 按配置的分片大小流式上传
      * @return 文件的公共访问 URL
      */
     public String uploadFile(String objectName, InputStream inputStream, String contentType, long size) throws Exception {
+        long start = System.nanoTime();
+        // 调用方的流只能读取一次,此处不做 NoSuchBucket 重试,由可重新打开数据源的调用方包装 withBucket
         ensureBucketExists();
-        
         minioClient.putObject(
                 PutObjectArgs.builder()
                         .bucket(minioConfig.getBucketName())
                         .object(objectName)
-                        .stream(inputStream, size, -1)
+                        .stream(inputStream, size, size < 0 ? uploadConfig.getPartSize() : -1)
                         .contentType(contentType)
                         .build()
         );
+        uploadTimer("single").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         
         log.info("文件上传成功到 MinIO: {}", objectName);
         
-        // 返回公共访问 URL
-        return minioConfig.getPublicUrl() + "/" + minioConfig.getBucketName() + "/" + objectName;
+        return publicUrl(objectName);
     }
     
     /**
      * 从 URL 下载文件并上传到 MinIO
+     * 同一连接内读取长度并转存,不再为获取长度单独请求一次
      * @param fileUrl 文件 URL
      * @param objectName 对象名称
      * @param contentType 文件类型
@@ -78,10 +169,66 @@ public class MinioService {
     public String uploadFromUrl(String fileUrl, String objectName, String contentType) throws Exception {
         log.info("从 URL 下载文件: {}", fileUrl);
         
-        URL url = new URL(fileUrl);
-        try (InputStream inputStream = url.openStream()) {
-            long size = url.openConnection().getContentLengthLong();
-            return uploadFile(objectName, inputStream, contentType, size);
+        URLConnection connection = new URL(fileUrl).openConnection();
+        connection.setConnectTimeout(uploadConfig.getUrlTimeoutMs());
+        connection.setReadTimeout(uploadConfig.getUrlTimeoutMs());
+        try (InputStream inputStream = connection.getInputStream()) {
+            return uploadFile(objectName, inputStream, contentType, connection.getContentLengthLong());
+        } finally {
+            if (connection instanceof HttpURLConnection httpConnection) {
+                httpConnection.disconnect();
+            }
+        }
+    }
+    
+    /**
+     * 从本地文件上传到 MinIO
+     * 按文件流读取,内存占用与文件大小无关;超过分片阈值时各分片并行上传后在服务端合并
+     * @param file 本地文件
+     * @param objectName 对象名称
+     * @param contentType 文件类型
+     * @return MinIO 公共 URL
+     */
+    public String uploadFromFile(Path file, String objectName, String contentType) throws Exception {
+        long size = Files.size(file);
+        log.info("从本地文件上传到 MinIO: {}, 大小: {} bytes", objectName, size);
+        
+        if (size > uploadConfig.getMultipartThreshold() && size > Math.max(MIN_PART_SIZE, uploadConfig.getPartSize())) {
+            return withBucket(() -> uploadParts(file, size, objectName, contentType));
+        }
+        return withBucket(() -> {
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                return uploadFile(objectName, inputStream, contentType, size);
+            }
+        });
+    }
+    
+    /**
+     * 下载对象到本地文件
+     * @param objectName 对象名称
+     * @param target 目标文件
+     * @return 对象不存在时返回 false
+     */
+    public boolean downloadToFile(String objectName, Path target) throws Exception {
+        ensureBucketExists();
+        
+        try (InputStream inputStream = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(minioConfig.getBucketName())
+                        .object(objectName)
+                        .build())) {
+            Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (ErrorResponseException e) {
+            String code = e.errorResponse().code();
+            if ("NoSuchKey".equals(code)) {
+                return false;
+            }
+            if ("NoSuchBucket".equals(code)) {
+                bucketReady = false;
+                return false;
+            }
+            throw e;
         }
     }
     
@@ -95,8 +242,112 @@ public class MinioService {
     public String uploadFromBytes(byte[] data, String objectName, String contentType) throws Exception {
         log.info("从字节数组上传文件到 MinIO: {}, 大小: {} bytes", objectName, data.length);
         
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(data)) {
-            return uploadFile(objectName, inputStream, contentType, data.length);
+        return withBucket(() -> {
+            try (ByteArrayInputStream inputStream = new ByteArrayInputStream(data)) {
+                return uploadFile(objectName, inputStream, contentType, data.length);
+            }
+        });
+    }
+    
+    /**
+     * 分片并行上传: 各分片作为临时对象并行写入,再由服务端 composeObject 合并,最后删除临时对象
+     * 合并在服务端完成,不经过本机重新传输数据
+     */
+    private String uploadParts(Path file, long size, String objectName, String contentType) throws Exception {
+        long start = System.nanoTime();
+        long partSize = Math.max(MIN_PART_SIZE, uploadConfig.getPartSize());
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        String partPrefix = PART_PREFIX + UUID.randomUUID() + "/";
+        Semaphore permits = new Semaphore(Math.max(1, uploadConfig.getPartParallelism()));
+        
+        List<String> partNames = new ArrayList<>(partCount);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(partCount);
+        for (int i = 0; i < partCount; i++) {
+            long offset = i * partSize;
+            long length = Math.min(partSize, size - offset);
+            String partName = partPrefix + i;
+            partNames.add(partName);
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    permits.acquire();
+                    try {
+                        uploadPart(file, offset, length, partName);
+                    } finally {
+                        permits.release();
+                    }
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executionRuntime.getBlockingExecutor()));
         }
+        
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            
+            List<ComposeSource> sources = partNames.stream()
+                    .map(partName -> ComposeSource.builder()
+                            .bucket(minioConfig.getBucketName())
+                            .object(partName)
+                            .build())
+                    .toList();
+            minioClient.composeObject(
+                    ComposeObjectArgs.builder()
+                            .bucket(minioConfig.getBucketName())
+                            .object(objectName)
+                            .sources(sources)
+                            .headers(Map.of("Content-Type", contentType))
+                            .build()
+            );
+            uploadTimer("multipart").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.info("文件分片上传成功到 MinIO: {}, 分片数: {}", objectName, partCount);
+            return publicUrl(objectName);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            // 失败时仍在进行的分片完成后一并清理
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .handleAsync((result, error) -> {
+                        partNames.forEach(this::removeQuietly);
+                        return null;
+                    }, executionRuntime.getBlockingExecutor());
+        }
+    }
+    
+    private void uploadPart(Path file, long offset, long length, String partName) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(offset);
+            InputStream inputStream = Channels.newInputStream(channel);
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(minioConfig.getBucketName())
+                            .object(partName)
+                            .stream(inputStream, length, -1)
+                            .build()
+            );
+        }
+    }
+    
+    private void removeQuietly(String objectName) {
+        try {
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(minioConfig.getBucketName())
+                            .object(objectName)
+                            .build()
+            );
+        } catch (Exception e) {
+            log.warn("删除 MinIO 临时分片失败: {}, {}", objectName, e.getMessage());
+        }
+    }
+    
+    private Timer uploadTimer(String mode) {
+        return Timer.builder("minio.upload.duration")
+                .tag("mode", mode)
+                .description("MinIO 上传耗时")
+                .register(meterRegistry);
+    }
+    
+    private String publicUrl(String objectName) {
+        return minioConfig.getPublicUrl() + "/" + minioConfig.getBucketName() + "/" + objectName;
     }
-}
\ No newline at end of file
+}
@@ -4,11 +4,16 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.paiagent.dto.WorkflowRequest;
 import com.paiagent.dto.WorkflowResponse;
+import com.paiagent.engine.langgraph.cache.CompiledGraphCache;
+import com.paiagent.engine.plan.ExecutionPlanCache;
 import com.paiagent.entity.Workflow;
 import com.paiagent.mapper.WorkflowMapper;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -18,6 +23,12 @@ import java.util.stream.Collectors;
 @Service
 public class WorkflowService extends ServiceImpl<WorkflowMapper, Workflow> {
     
+    @Autowired
+    private ExecutionPlanCache executionPlanCache;
+    
+    @Autowired
+    private CompiledGraphCache compiledGraphCache;
+    
     /**
      * 创建工作流
      */
@@ -46,8 +57,12 @@ public class WorkflowService extends ServiceImpl<WorkflowMapper, Workflow> {
         workflow.setDescription(request.getDescription());
         workflow.setFlowData(request.getFlowData());
         workflow.setEngineType(request.getEngineType());
+        // 自动填充不覆盖已有值,需显式推进版本,否则 updateById 会写回旧的 updated_at
+        workflow.setUpdatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
         
         this.updateById(workflow);
+        executionPlanCache.invalidate(id);
+        compiledGraphCache.invalidate(id);
         
         return toResponse(workflow);
     }
@@ -57,6 +72,8 @@ public class WorkflowService extends ServiceImpl<WorkflowMapper, Workflow> {
      */
     public void deleteWorkflow(Long id) {
         this.removeById(id);
+        executionPlanCache.invalidate(id);
+        compiledGraphCache.invalidate(id);
     }
     
     /**
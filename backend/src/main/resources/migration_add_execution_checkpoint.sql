@@ -0,0 +1,23 @@
+-- 添加执行检查点支持
+-- 执行日期: 2026-10-18
+-- 用途: 节点完成后保存输出,失败的执行可从失败节点恢复
+
+USE paiagent;
+
+-- 1. execution_record 添加 run_id 列,关联检查点
+ALTER TABLE execution_record
+ADD COLUMN run_id VARCHAR(64) COMMENT '运行 ID(关联执行检查点)'
+AFTER flow_id,
+ADD INDEX idx_run_id (run_id);
+
+-- 2. 创建执行检查点表
+CREATE TABLE IF NOT EXISTS execution_checkpoint (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '检查点主键 ID',
+    run_id VARCHAR(64) NOT NULL COMMENT '运行 ID',
+    flow_id BIGINT COMMENT '工作流 ID',
+    flow_version TIMESTAMP NULL COMMENT '工作流版本(更新时间)',
+    node_id VARCHAR(100) NOT NULL COMMENT '节点 ID',
+    node_output JSON COMMENT '节点输出',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY uk_run_node (run_id, node_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='执行检查点表';
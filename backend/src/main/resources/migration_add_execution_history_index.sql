@@ -0,0 +1,20 @@
+-- 为 execution_record 表添加执行历史覆盖索引
+-- 执行日期: 2026-10-18
+-- 用途: 执行历史按 (executed_at, id) 游标分页,摘要查询只走索引不回表
+--       id 紧跟 executed_at,排序与游标条件可直接按索引顺序扫描,无需 filesort
+
+USE paiagent;
+
+-- 1. 全量历史(可按状态/工作流过滤)
+ALTER TABLE execution_record
+ADD INDEX idx_history (deleted, executed_at, id, status, flow_id, duration);
+
+-- 2. 按工作流查询历史,前缀覆盖原 idx_flow_id
+ALTER TABLE execution_record
+ADD INDEX idx_flow_history (flow_id, deleted, executed_at, id, status, duration);
+
+ALTER TABLE execution_record DROP INDEX idx_flow_id;
+
+-- 3. 验证(Extra 应为 Using where; Using index,不应出现 Using filesort)
+EXPLAIN SELECT id, flow_id, status, duration, executed_at FROM execution_record
+WHERE deleted = 0 AND flow_id = 1 ORDER BY executed_at DESC, id DESC LIMIT 21;
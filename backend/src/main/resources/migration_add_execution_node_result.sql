@@ -0,0 +1,26 @@
+-- 添加节点执行结果表
+-- 执行日期: 2026-10-18
+-- 用途: 节点结果按行存储,载荷压缩并按需加载;新记录不再写入 execution_record.node_results
+
+USE paiagent;
+
+CREATE TABLE IF NOT EXISTS execution_node_result (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键 ID',
+    execution_id BIGINT NOT NULL COMMENT '执行记录 ID',
+    seq INT NOT NULL COMMENT '节点在本次执行中的顺序',
+    node_id VARCHAR(100) NOT NULL COMMENT '节点 ID',
+    node_name VARCHAR(100) COMMENT '节点名称',
+    node_type VARCHAR(50) COMMENT '节点类型',
+    status VARCHAR(50) NOT NULL COMMENT '执行状态(SUCCESS/FAILED)',
+    duration INT COMMENT '执行耗时(毫秒)',
+    input_tokens INT COMMENT '输入 token 数',
+    output_tokens INT COMMENT '输出 token 数',
+    total_tokens INT COMMENT '总 token 数',
+    input_size INT COMMENT '输入原始大小(字节)',
+    output_size INT COMMENT '输出原始大小(字节)',
+    input_payload MEDIUMBLOB COMMENT '输入载荷(首字节为编码标记,超过阈值时 deflate 压缩)',
+    output_payload MEDIUMBLOB COMMENT '输出载荷(首字节为编码标记,超过阈值时 deflate 压缩)',
+    error_message TEXT COMMENT '错误信息',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY uk_execution_seq (execution_id, seq)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='节点执行结果表';
@@ -0,0 +1,16 @@
+-- 添加执行记录 ID 号段支持
+-- 执行日期: 2026-10-18
+-- 用途: 执行记录异步批量写入,执行开始时预分配记录 ID
+
+USE paiagent;
+
+-- 1. 创建 ID 号段表
+CREATE TABLE IF NOT EXISTS id_sequence (
+    name VARCHAR(64) PRIMARY KEY COMMENT '序列名称',
+    next_id BIGINT NOT NULL COMMENT '下一个未分配的 ID'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='ID 号段表';
+
+-- 2. 从现有执行记录的最大 ID 之后开始分配
+INSERT INTO id_sequence (name, next_id)
+SELECT 'execution_record', COALESCE(MAX(id), 0) + 1 FROM execution_record
+ON DUPLICATE KEY UPDATE name = name;
@@ -0,0 +1,38 @@
+-- execution_record 按执行时间分区并添加统计汇总表
+-- 执行日期: 2026-10-18
+-- 用途: 过期执行记录按分区整体删除,替代逻辑删除和大范围 DELETE
+-- 注意: 第 2 步会重建整张表,请在低峰期执行
+
+USE paiagent;
+
+-- 1. 创建统计汇总表
+CREATE TABLE IF NOT EXISTS execution_flow_stats (
+    flow_id BIGINT NOT NULL COMMENT '工作流 ID',
+    stat_date DATE NOT NULL COMMENT '统计日期',
+    total_count INT NOT NULL DEFAULT 0 COMMENT '执行次数',
+    success_count INT NOT NULL DEFAULT 0 COMMENT '成功次数',
+    failed_count INT NOT NULL DEFAULT 0 COMMENT '失败次数',
+    total_duration BIGINT NOT NULL DEFAULT 0 COMMENT '总耗时(毫秒)',
+    max_duration INT NOT NULL DEFAULT 0 COMMENT '最大耗时(毫秒)',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (flow_id, stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='执行统计汇总表';
+
+-- 2. 分区列必须包含在主键中且不能为空
+UPDATE execution_record SET executed_at = CURRENT_TIMESTAMP WHERE executed_at IS NULL;
+
+ALTER TABLE execution_record
+MODIFY COLUMN executed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '执行时间',
+DROP PRIMARY KEY,
+ADD PRIMARY KEY (id, executed_at);
+
+-- 3. 现有数据全部放入 p_history,之后的月分区由应用的保留任务从 p_future 拆出
+ALTER TABLE execution_record
+PARTITION BY RANGE (UNIX_TIMESTAMP(executed_at)) (
+    PARTITION p_history VALUES LESS THAN (UNIX_TIMESTAMP('2026-11-01 00:00:00')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
+
+-- 4. 验证
+SELECT PARTITION_NAME, PARTITION_DESCRIPTION, TABLE_ROWS FROM information_schema.PARTITIONS
+WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'execution_record';
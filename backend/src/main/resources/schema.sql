@@ -33,22 +33,89 @@ CREATE TABLE IF NOT EXISTS node_definition (
     INDEX idx_category (category)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='节点定义表';
 
--- 执行记录表
+-- 执行记录表(按 executed_at 月度分区,分区由 ExecutionRetentionJob 预建和过期删除)
 CREATE TABLE IF NOT EXISTS execution_record (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '执行记录主键 ID',
+    id BIGINT AUTO_INCREMENT COMMENT '执行记录主键 ID',
     flow_id BIGINT NOT NULL COMMENT '工作流 ID',
+    run_id VARCHAR(64) COMMENT '运行 ID(关联执行检查点)',
     input_data JSON COMMENT '输入数据',
     output_data JSON COMMENT '输出数据',
     status VARCHAR(50) NOT NULL COMMENT '执行状态(SUCCESS/FAILED)',
     node_results JSON COMMENT '每个节点的执行结果',
     error_message TEXT COMMENT '错误信息',
     duration INT COMMENT '执行耗时(毫秒)',
-    executed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '执行时间',
+    executed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '执行时间',
     deleted TINYINT DEFAULT 0 COMMENT '逻辑删除标识(0-未删除,1-已删除)',
-    INDEX idx_flow_id (flow_id),
+    -- 分区表的主键必须包含分区列
+    PRIMARY KEY (id, executed_at),
     INDEX idx_executed_at (executed_at),
-    INDEX idx_status (status)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='执行记录表';
+    INDEX idx_status (status),
+    INDEX idx_run_id (run_id),
+    -- 执行历史游标分页的覆盖索引,id 紧跟 executed_at 以便按 (executed_at, id) 顺序扫描
+    INDEX idx_history (deleted, executed_at, id, status, flow_id, duration),
+    INDEX idx_flow_history (flow_id, deleted, executed_at, id, status, duration)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='执行记录表'
+PARTITION BY RANGE (UNIX_TIMESTAMP(executed_at)) (
+    PARTITION p_history VALUES LESS THAN (UNIX_TIMESTAMP('2026-11-01 00:00:00')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
+
+-- 执行统计汇总表(执行记录分区过期删除前汇总)
+CREATE TABLE IF NOT EXISTS execution_flow_stats (
+    flow_id BIGINT NOT NULL COMMENT '工作流 ID',
+    stat_date DATE NOT NULL COMMENT '统计日期',
+    total_count INT NOT NULL DEFAULT 0 COMMENT '执行次数',
+    success_count INT NOT NULL DEFAULT 0 COMMENT '成功次数',
+    failed_count INT NOT NULL DEFAULT 0 COMMENT '失败次数',
+    total_duration BIGINT NOT NULL DEFAULT 0 COMMENT '总耗时(毫秒)',
+    max_duration INT NOT NULL DEFAULT 0 COMMENT '最大耗时(毫秒)',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (flow_id, stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='执行统计汇总表';
+
+-- 节点执行结果表
+CREATE TABLE IF NOT EXISTS execution_node_result (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键 ID',
+    execution_id BIGINT NOT NULL COMMENT '执行记录 ID',
+    seq INT NOT NULL COMMENT '节点在本次执行中的顺序',
+    node_id VARCHAR(100) NOT NULL COMMENT '节点 ID',
+    node_name VARCHAR(100) COMMENT '节点名称',
+    node_type VARCHAR(50) COMMENT '节点类型',
+    status VARCHAR(50) NOT NULL COMMENT '执行状态(SUCCESS/FAILED)',
+    duration INT COMMENT '执行耗时(毫秒)',
+    input_tokens INT COMMENT '输入 token 数',
+    output_tokens INT COMMENT '输出 token 数',
+    total_tokens INT COMMENT '总 token 数',
+    input_size INT COMMENT '输入原始大小(字节)',
+    output_size INT COMMENT '输出原始大小(字节)',
+    input_payload MEDIUMBLOB COMMENT '输入载荷(首字节为编码标记,超过阈值时 deflate 压缩)',
+    output_payload MEDIUMBLOB COMMENT '输出载荷(首字节为编码标记,超过阈值时 deflate 压缩)',
+    error_message TEXT COMMENT '错误信息',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY uk_execution_seq (execution_id, seq)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='节点执行结果表';
+
+-- 执行检查点表
+CREATE TABLE IF NOT EXISTS execution_checkpoint (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '检查点主键 ID',
+    run_id VARCHAR(64) NOT NULL COMMENT '运行 ID',
+    flow_id BIGINT COMMENT '工作流 ID',
+    flow_version TIMESTAMP NULL COMMENT '工作流版本(更新时间)',
+    node_id VARCHAR(100) NOT NULL COMMENT '节点 ID',
+    node_output JSON COMMENT '节点输出',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY uk_run_node (run_id, node_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='执行检查点表';
+
+-- ID 号段表
+CREATE TABLE IF NOT EXISTS id_sequence (
+    name VARCHAR(64) PRIMARY KEY COMMENT '序列名称',
+    next_id BIGINT NOT NULL COMMENT '下一个未分配的 ID'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='ID 号段表';
+
+INSERT INTO id_sequence (name, next_id)
+SELECT 'execution_record', COALESCE(MAX(id), 0) + 1 FROM execution_record
+ON DUPLICATE KEY UPDATE name = name;
 
 -- 插入预置节点定义数据
 INSERT INTO node_definition (node_type, display_name, category, icon, input_schema, output_schema, config_schema) VALUES
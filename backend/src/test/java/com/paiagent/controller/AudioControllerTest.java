@@ -0,0 +1,42 @@
+package com.paiagent.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 音频 Range / ETag 解析测试
+ */
+class AudioControllerTest {
+    
+    @Test
+    void testParseRange() {
+        assertEquals(new AudioController.ByteRange(0, 99), AudioController.parseRange("bytes=0-99", 1000));
+        assertEquals(new AudioController.ByteRange(500, 999), AudioController.parseRange("bytes=500-", 1000));
+        assertEquals(new AudioController.ByteRange(900, 999), AudioController.parseRange("bytes=-100", 1000));
+        assertEquals(new AudioController.ByteRange(0, 999), AudioController.parseRange("bytes=-5000", 1000));
+        assertEquals(new AudioController.ByteRange(990, 999), AudioController.parseRange("bytes=990-2000", 1000));
+    }
+    
+    @Test
+    void testUnsatisfiableAndIgnoredRanges() {
+        assertNull(AudioController.parseRange("bytes=1000-", 1000));
+        assertNull(AudioController.parseRange("bytes=-0", 1000));
+        // 无法识别或多区间时按完整文件返回
+        AudioController.ByteRange whole = new AudioController.ByteRange(0, 999);
+        assertEquals(whole, AudioController.parseRange("items=0-10", 1000));
+        assertEquals(whole, AudioController.parseRange("bytes=0-10,20-30", 1000));
+        assertEquals(whole, AudioController.parseRange("bytes=20-10", 1000));
+        assertEquals(whole, AudioController.parseRange("bytes=abc-", 1000));
+    }
+    
+    @Test
+    void testEtagMatches() {
+        String etag = "\"abc\"";
+        assertTrue(AudioController.etagMatches("\"abc\"", etag));
+        assertTrue(AudioController.etagMatches("\"x\", W/\"abc\"", etag));
+        assertTrue(AudioController.etagMatches("*", etag));
+        assertFalse(AudioController.etagMatches("\"abd\"", etag));
+        assertFalse(AudioController.etagMatches(null, etag));
+    }
+}
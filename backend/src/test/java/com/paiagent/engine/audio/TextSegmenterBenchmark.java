@@ -0,0 +1,124 @@
+package com.paiagent.engine.audio;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TTS 文本切分基准测试: 单次扫描切分器 vs 原按子串重复编码的切分实现
+ * 
+ * 运行: 在 IDE 中执行 main,或 mvn test-compile 后以 test classpath 运行本类
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextSegmenterBenchmark {
+    
+    private static final String SENTENCE = "今天天气很好，我们一起去公园散步，顺便聊聊最近读的书";
+    
+    @Param({"10240", "102400", "1048576"})
+    public int sizeBytes;
+    
+    private String text;
+    
+    private final TextSegmenter segmenter = new TextSegmenter(400, 600);
+    
+    @Setup
+    public void setUp() {
+        // 中英文混排,句末标点间隔随机,贴近 LLM 输出
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder();
+        while (TextSegmenter.utf8Length(builder) < sizeBytes) {
+            builder.append(SENTENCE, 0, 8 + random.nextInt(SENTENCE.length() - 8));
+            builder.append(random.nextInt(4) == 0 ? "Hello world, " : "");
+            builder.append(random.nextInt(3) == 0 ? "。" : "，");
+        }
+        text = builder.toString();
+    }
+    
+    @Benchmark
+    public List<String> segmenter() {
+        return segmenter.split(text);
+    }
+    
+    @Benchmark
+    public List<String> legacy() {
+        return legacySplit(text, 400);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(TextSegmenterBenchmark.class.getSimpleName()).build()).run();
+    }
+    
+    /**
+     * 原 TTSNodeExecutor.splitText 实现,仅作对照
+     */
+    private static List<String> legacySplit(String text, int maxLength) {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        
+        while (start < text.length()) {
+            int end = Math.min(start + maxLength, text.length());
+            
+            while (end > start) {
+                String candidate = text.substring(start, end);
+                int byteLength = candidate.getBytes(StandardCharsets.UTF_8).length;
+                
+                if (byteLength <= 600) {
+                    if (end < text.length()) {
+                        int lastPunctuation = legacyFindLastPunctuation(text, start, end);
+                        if (lastPunctuation > start) {
+                            end = lastPunctuation + 1;
+                            candidate = text.substring(start, end);
+                        }
+                    }
+                    
+                    chunks.add(candidate);
+                    start = end;
+                    break;
+                }
+                
+                end -= 10;
+            }
+            
+            if (end <= start) {
+                end = start + 1;
+                while (end <= text.length()) {
+                    String candidate = text.substring(start, end);
+                    int byteLength = candidate.getBytes(StandardCharsets.UTF_8).length;
+                    if (byteLength > 600) {
+                        if (end - 1 > start) {
+                            chunks.add(text.substring(start, end - 1));
+                            start = end - 1;
+                        } else {
+                            throw new IllegalArgumentException("单个字符超过 600 字节,无法处理");
+                        }
+                        break;
+                    }
+                    end++;
+                }
+            }
+        }
+        
+        return chunks;
+    }
+    
+    private static int legacyFindLastPunctuation(String text, int start, int end) {
+        String punctuations = "。！？；,.!?;";
+        for (int i = end - 1; i >= start; i--) {
+            if (punctuations.indexOf(text.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,59 @@
+package com.paiagent.engine.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TTS 文本切分测试
+ */
+class TextSegmenterTest {
+    
+    private final TextSegmenter segmenter = new TextSegmenter(400, 600);
+    
+    @Test
+    void testChunksRespectLimitsAndPreserveText() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            builder.append("第").append(i).append("句话，包含表情😀和 English words");
+            builder.append(i % 3 == 0 ? "。" : "，");
+        }
+        String text = builder.toString();
+        
+        List<String> chunks = segmenter.split(text);
+        
+        assertEquals(text, String.join("", chunks));
+        for (String chunk : chunks) {
+            assertTrue(chunk.length() <= 400);
+            assertTrue(chunk.getBytes(StandardCharsets.UTF_8).length <= 600);
+            assertEquals(chunk.getBytes(StandardCharsets.UTF_8).length, TextSegmenter.utf8Length(chunk));
+            assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)), "不能拆开代理对");
+        }
+    }
+    
+    @Test
+    void testPrefersSentenceBoundaryAndBalancesChunks() {
+        // 约 700 字节: 贪心切分为 600 + 100,均分后两段接近
+        String text = "一".repeat(110) + "。" + "二".repeat(122) + "。";
+        
+        List<String> chunks = segmenter.split(text);
+        
+        assertEquals(2, chunks.size());
+        assertTrue(chunks.get(0).endsWith("。"));
+        assertEquals("一".repeat(110) + "。", chunks.get(0));
+    }
+    
+    @Test
+    void testHardCutWithoutPunctuation() {
+        String text = "字".repeat(450);
+        
+        List<String> chunks = segmenter.split(text);
+        
+        assertEquals(text, String.join("", chunks));
+        assertEquals(3, chunks.size());
+        assertTrue(chunks.stream().allMatch(chunk -> chunk.length() == 150));
+    }
+}
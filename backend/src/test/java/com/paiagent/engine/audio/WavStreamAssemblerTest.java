@@ -0,0 +1,97 @@
+package com.paiagent.engine.audio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * WAV 流式拼接测试
+ * 覆盖带 LIST 子块(文件头非 44 字节)和 data 长度未知(流式生成)的片段
+ */
+class WavStreamAssemblerTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    void testAppendChunksWithNonStandardHeaders() throws Exception {
+        Path first = write("first.wav", wav(new byte[]{1, 2, 3, 4}, true, 4));
+        Path second = write("second.wav", wav(new byte[]{5, 6, 7, 8, 9, 10}, false, 0));
+        Path merged = tempDir.resolve("merged.wav");
+        
+        long size;
+        try (WavStreamAssembler assembler = new WavStreamAssembler(merged)) {
+            assembler.append(first);
+            assembler.append(second);
+            size = assembler.finish();
+        }
+        
+        byte[] bytes = Files.readAllBytes(merged);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(size, bytes.length);
+        assertEquals("RIFF", new String(bytes, 0, 4, StandardCharsets.US_ASCII));
+        assertEquals(bytes.length - 8, buffer.getInt(4));
+        assertEquals("data", new String(bytes, 36, 4, StandardCharsets.US_ASCII));
+        assertEquals(10, buffer.getInt(40));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 1, bytes[44 + i]);
+        }
+    }
+    
+    @Test
+    void testRejectMismatchedFormat() throws Exception {
+        Path first = write("first.wav", wav(new byte[]{1, 2}, false, 2));
+        byte[] other = wav(new byte[]{3, 4}, false, 2);
+        other[24] = 0x11; // 修改采样率
+        Path second = write("second.wav", other);
+        
+        try (WavStreamAssembler assembler = new WavStreamAssembler(tempDir.resolve("merged.wav"))) {
+            assembler.append(first);
+            assertThrows(java.io.IOException.class, () -> assembler.append(second));
+        }
+    }
+    
+    private Path write(String name, byte[] content) throws Exception {
+        return Files.write(tempDir.resolve(name), content);
+    }
+    
+    /**
+     * 构造 16-bit 单声道 PCM WAV
+     * 
+     * @param withList       是否在 fmt 和 data 之间插入 LIST 子块
+     * @param declaredSize   data 子块声明的长度(0 表示流式生成未回填)
+     */
+    private static byte[] wav(byte[] pcm, boolean withList, int declaredSize) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer fmt = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        fmt.putShort((short) 1).putShort((short) 1).putInt(24000).putInt(48000).putShort((short) 2).putShort((short) 16);
+        
+        out.writeBytes("RIFF".getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(int32(0));
+        out.writeBytes("WAVE".getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes("fmt ".getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(int32(16));
+        out.writeBytes(fmt.array());
+        if (withList) {
+            out.writeBytes("LIST".getBytes(StandardCharsets.US_ASCII));
+            out.writeBytes(int32(3));
+            out.writeBytes(new byte[]{'a', 'b', 'c', 0});
+        }
+        out.writeBytes("data".getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(int32(declaredSize));
+        out.writeBytes(pcm);
+        return out.toByteArray();
+    }
+    
+    private static byte[] int32(int value) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+    }
+}
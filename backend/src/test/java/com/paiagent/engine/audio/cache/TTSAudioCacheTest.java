@@ -0,0 +1,66 @@
+package com.paiagent.engine.audio.cache;
+
+import com.paiagent.config.TTSCacheConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TTS 片段缓存测试(仅磁盘层)
+ */
+class TTSAudioCacheTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private TTSAudioCache cache;
+    
+    @BeforeEach
+    void setUp() {
+        TTSCacheConfig config = new TTSCacheConfig();
+        config.setDiskDir(tempDir.resolve("cache").toString());
+        config.setDiskMaxBytes(10);
+        config.setMinioEnabled(false);
+        
+        cache = new TTSAudioCache();
+        ReflectionTestUtils.setField(cache, "cacheConfig", config);
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        cache.init();
+    }
+    
+    @Test
+    void testKeyIgnoresWhitespaceDifferences() {
+        String key = cache.key("你好, 世界。", "qwen3-tts-flash", "CHERRY", "Auto");
+        assertEquals(key, cache.key("  你好,   世界。\n", "qwen3-tts-flash", "cherry", "Auto"));
+        assertNotEquals(key, cache.key("你好, 世界。", "qwen3-tts-flash", "ETHAN", "Auto"));
+    }
+    
+    @Test
+    void testHitReturnsIndependentCopyAndEvictsLeastRecentlyUsed() throws Exception {
+        cache.put("aa01", write("a.wav", 4));
+        cache.put("bb02", write("b.wav", 4));
+        
+        Path hit = cache.get("aa01");
+        assertNotNull(hit);
+        assertEquals(4, Files.size(hit));
+        Files.delete(hit);
+        assertNotNull(cache.get("aa01"), "删除命中副本不影响缓存条目");
+        
+        // 超出 10 字节上限,最久未访问的 bb02 被淘汰
+        cache.put("cc03", write("c.wav", 4));
+        assertNull(cache.get("bb02"));
+        assertNotNull(cache.get("aa01"));
+        assertNotNull(cache.get("cc03"));
+    }
+    
+    private Path write(String name, int size) throws Exception {
+        return Files.write(tempDir.resolve(name), new byte[size]);
+    }
+}
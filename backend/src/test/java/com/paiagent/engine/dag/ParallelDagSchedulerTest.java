@@ -0,0 +1,282 @@
+package com.paiagent.engine.dag;
+
+import com.paiagent.engine.model.WorkflowNode;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import com.paiagent.engine.stream.TextStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 并行 DAG 调度器测试: 并发上限、汇聚输入顺序、首个失败后等待在途节点、节点启动/结束顺序,
+ * 以及流式边的上下游联动、上游失败传递和提前启动的下游计入并发上限
+ */
+class ParallelDagSchedulerTest {
+    
+    private ExecutorService executor;
+    
+    private ParallelDagScheduler scheduler;
+    
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+        ExecutionRuntime runtime = mock(ExecutionRuntime.class);
+        when(runtime.getBlockingExecutor()).thenReturn(executor);
+        
+        scheduler = new ParallelDagScheduler();
+        ReflectionTestUtils.setField(scheduler, "executionRuntime", runtime);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void concurrentNodesAreCappedPerExecution() throws Exception {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        for (int i = 0; i < 6; i++) {
+            dependencies.put("n" + i, List.of());
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        
+        Map<String, Map<String, Object>> outputs = scheduler.schedule(nodes(dependencies), dependencies,
+                Map.of("input", "x"), 2, (node, input) -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(30);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                    return Map.of("output", node.getId());
+                });
+        
+        assertEquals(6, outputs.size());
+        assertEquals(2, maxInFlight.get());
+    }
+    
+    @Test
+    void fanInMergesParentsInConnectionOrderWithNodeOutputs() throws Exception {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("a", List.of());
+        dependencies.put("b", List.of());
+        dependencies.put("join", List.of("b", "a"));
+        Map<String, Map<String, Object>> joinInput = new HashMap<>();
+        
+        scheduler.schedule(nodes(dependencies), dependencies, Map.of("input", "x"), 4, (node, input) -> {
+            switch (node.getId()) {
+                case "a":
+                    return Map.of("value", "A", "onlyA", 1);
+                case "b":
+                    return Map.of("value", "B");
+                default:
+                    joinInput.put("input", input);
+                    return Map.of();
+            }
+        });
+        
+        Map<String, Object> input = joinInput.get("input");
+        // 同名输出以连线顺序中靠后的前置节点为准
+        assertEquals("A", input.get("value"));
+        assertEquals(1, input.get("onlyA"));
+        Map<?, ?> nodeOutputs = (Map<?, ?>) input.get(ParallelDagScheduler.NODE_OUTPUTS_KEY);
+        assertEquals(Map.of("value", "B"), nodeOutputs.get("b"));
+        assertEquals(Map.of("value", "A", "onlyA", 1), nodeOutputs.get("a"));
+    }
+    
+    @Test
+    void firstFailureWaitsForInFlightNodesAndSkipsDependents() throws Exception {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("fail", List.of());
+        dependencies.put("slow", List.of());
+        dependencies.put("after", List.of("fail"));
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicInteger slowFinished = new AtomicInteger();
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> scheduler.schedule(
+                nodes(dependencies), dependencies, Map.of(), 4, (node, input) -> {
+                    started.add(node.getId());
+                    if ("fail".equals(node.getId())) {
+                        failed.countDown();
+                        throw new IllegalStateException("节点失败");
+                    }
+                    // 在失败之后才结束,调度器应等待其完成再抛出
+                    assertTrue(failed.await(2, TimeUnit.SECONDS));
+                    Thread.sleep(50);
+                    slowFinished.incrementAndGet();
+                    return Map.of();
+                }));
+        
+        assertEquals("节点失败", e.getMessage());
+        assertEquals(1, slowFinished.get());
+        assertFalse(started.contains("after"));
+    }
+    
+    @Test
+    void eachNodeStartsAfterItsParentsFinish() throws Exception {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("input", List.of());
+        dependencies.put("left", List.of("input"));
+        dependencies.put("right", List.of("input"));
+        dependencies.put("output", List.of("left", "right"));
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        
+        scheduler.schedule(nodes(dependencies), dependencies, Map.of(), 4, (node, input) -> {
+            events.add("start:" + node.getId());
+            Thread.sleep(10);
+            events.add("end:" + node.getId());
+            return Map.of();
+        });
+        
+        assertEquals(8, events.size());
+        for (Map.Entry<String, List<String>> entry : dependencies.entrySet()) {
+            int start = events.indexOf("start:" + entry.getKey());
+            assertTrue(start < events.indexOf("end:" + entry.getKey()));
+            assertEquals(1, Collections.frequency(events, "start:" + entry.getKey()));
+            for (String parent : entry.getValue()) {
+                assertTrue(events.indexOf("end:" + parent) < start, entry.getKey() + " 应在 " + parent + " 结束后启动");
+            }
+        }
+    }
+    
+    @Test
+    void streamingConsumerReadsWhileProducerRuns() throws Exception {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("llm", List.of());
+        dependencies.put("tts", List.of("llm"));
+        CountDownLatch firstChunkRead = new CountDownLatch(1);
+        
+        Map<String, Map<String, Object>> outputs = scheduler.schedule(nodes(dependencies), dependencies, Map.of(), 4,
+                Map.of("tts", "llm"), (node, input) -> {
+                    if ("llm".equals(node.getId())) {
+                        TextStream stream = (TextStream) input.get(TextStream.OUTPUT_STREAM_KEY);
+                        stream.append("你好,");
+                        // 下游读到首个片段时上游仍在运行
+                        assertTrue(firstChunkRead.await(2, TimeUnit.SECONDS));
+                        stream.append("世界");
+                        return Map.of("output", "你好,世界");
+                    }
+                    Iterator<String> reader = ((TextStream) input.get(TextStream.INPUT_STREAM_KEY)).reader();
+                    StringBuilder text = new StringBuilder(reader.next());
+                    firstChunkRead.countDown();
+                    reader.forEachRemaining(text::append);
+                    return Map.of("output", text.toString());
+                });
+        
+        assertEquals("你好,世界", outputs.get("tts").get("output"));
+    }
+    
+    @Test
+    void producerFailureReachesStreamingConsumer() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("llm", List.of());
+        dependencies.put("tts", List.of("llm"));
+        IllegalStateException upstreamError = new IllegalStateException("LLM 连接断开");
+        AtomicReference<Throwable> consumerError = new AtomicReference<>();
+        
+        Exception e = assertThrows(Exception.class, () -> scheduler.schedule(nodes(dependencies), dependencies,
+                Map.of(), 4, Map.of("tts", "llm"), (node, input) -> {
+                    if ("llm".equals(node.getId())) {
+                        ((TextStream) input.get(TextStream.OUTPUT_STREAM_KEY)).append("半句");
+                        throw upstreamError;
+                    }
+                    try {
+                        return Map.of("output", ((TextStream) input.get(TextStream.INPUT_STREAM_KEY)).readAll());
+                    } catch (RuntimeException readError) {
+                        consumerError.set(readError);
+                        throw readError;
+                    }
+                }));
+        
+        assertTrue(hasCause(e, upstreamError));
+        assertNotNull(consumerError.get(), "下游读取应收到上游异常而不是一直等待");
+        assertSame(upstreamError, consumerError.get().getCause());
+    }
+    
+    @Test
+    void earlyStartedConsumersCountAgainstConcurrencyCap() throws Exception {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("other", List.of());
+        dependencies.put("llm", List.of());
+        dependencies.put("tts", List.of("llm"));
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Map<String, Boolean> consumerStreamed = new HashMap<>();
+        
+        scheduler.schedule(nodes(dependencies), dependencies, Map.of(), 2, Map.of("tts", "llm"), (node, input) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                if (input.get(TextStream.OUTPUT_STREAM_KEY) instanceof TextStream stream) {
+                    stream.append("内容");
+                } else if (input.get(TextStream.INPUT_STREAM_KEY) instanceof TextStream stream) {
+                    consumerStreamed.put(node.getId(), true);
+                    stream.readAll();
+                }
+                Thread.sleep(30);
+                return Map.of();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        
+        assertEquals(2, maxInFlight.get());
+        assertEquals(Map.of("tts", true), consumerStreamed);
+    }
+    
+    @Test
+    void streamingEdgeFallsBackWhenCapCannotHoldBothEnds() throws Exception {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("llm", List.of());
+        dependencies.put("tts", List.of("llm"));
+        Map<String, Map<String, Object>> inputs = new HashMap<>();
+        
+        scheduler.schedule(nodes(dependencies), dependencies, Map.of(), 1, Map.of("tts", "llm"), (node, input) -> {
+            inputs.put(node.getId(), input);
+            return Map.of("output", "完整内容");
+        });
+        
+        assertFalse(inputs.get("llm").containsKey(TextStream.OUTPUT_STREAM_KEY));
+        assertFalse(inputs.get("tts").containsKey(TextStream.INPUT_STREAM_KEY));
+        assertEquals("完整内容", inputs.get("tts").get("output"));
+    }
+    
+    private static boolean hasCause(Throwable e, Throwable expected) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause == expected) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static List<WorkflowNode> nodes(Map<String, List<String>> dependencies) {
+        List<WorkflowNode> nodes = new ArrayList<>();
+        for (String id : dependencies.keySet()) {
+            WorkflowNode node = new WorkflowNode();
+            node.setId(id);
+            node.setType("test");
+            nodes.add(node);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,326 @@
+package com.paiagent.engine.executor.impl;
+
+import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversation;
+import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationParam;
+import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationResult;
+import com.paiagent.config.TTSWorkerConfig;
+import com.paiagent.engine.audio.cache.TTSAudioCache;
+import com.paiagent.engine.model.WorkflowNode;
+import com.paiagent.engine.pool.CredentialPoolRegistry;
+import com.paiagent.engine.ratelimit.ProviderRateLimiter;
+import com.paiagent.engine.ratelimit.RateLimitExceededException;
+import com.paiagent.engine.stream.TextStream;
+import com.paiagent.service.MinioService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * TTS 节点执行器测试
+ * DashScope 客户端以 mock 替代,片段音频由本地桩 HTTP 服务提供;
+ * 覆盖临时错误重试、不可重试错误立即失败、片段缓存键使用实际模型、上游流式失败时取消已提交片段,
+ * 以及节点与全局并发许可
+ */
+class TTSNodeExecutorTest {
+    
+    private static final byte[] WAV = wav();
+    
+    private HttpServer server;
+    
+    private final AtomicInteger flakyFailures = new AtomicInteger();
+    
+    private TTSWorkerConfig workerConfig;
+    
+    private SimpleMeterRegistry meterRegistry;
+    
+    private ProviderRateLimiter providerRateLimiter;
+    
+    private MultiModalConversation conversation;
+    
+    private TTSAudioCache audioCache;
+    
+    private CredentialPoolRegistry credentialPoolRegistry;
+    
+    private TTSNodeExecutor executor;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok.wav", exchange -> respond(exchange, 200, WAV));
+        server.createContext("/flaky.wav", exchange -> {
+            if (flakyFailures.getAndDecrement() > 0) {
+                respond(exchange, 503, new byte[0]);
+            } else {
+                respond(exchange, 200, WAV);
+            }
+        });
+        server.createContext("/missing.wav", exchange -> respond(exchange, 404, new byte[0]));
+        server.start();
+        
+        workerConfig = new TTSWorkerConfig();
+        workerConfig.setInitialBackoffMs(1);
+        workerConfig.setMaxBackoffMs(1);
+        meterRegistry = new SimpleMeterRegistry();
+        providerRateLimiter = mock(ProviderRateLimiter.class);
+        audioCache = mock(TTSAudioCache.class);
+        when(audioCache.isEnabled()).thenReturn(false);
+        MinioService minioService = mock(MinioService.class);
+        when(minioService.uploadFromFile(any(), anyString(), anyString())).thenReturn("http://minio/audio.wav");
+        conversation = mock(MultiModalConversation.class);
+        
+        executor = new TTSNodeExecutor();
+        ReflectionTestUtils.setField(executor, "minioService", minioService);
+        ReflectionTestUtils.setField(executor, "workerConfig", workerConfig);
+        ReflectionTestUtils.setField(executor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(executor, "providerRateLimiter", providerRateLimiter);
+        credentialPoolRegistry = mock(CredentialPoolRegistry.class);
+        ReflectionTestUtils.setField(executor, "credentialPoolRegistry", credentialPoolRegistry);
+        ReflectionTestUtils.setField(executor, "ttsAudioCache", audioCache);
+        start();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        server.stop(0);
+    }
+    
+    @Test
+    void testRetriesTransientDownloadFailure() throws Exception {
+        flakyFailures.set(1);
+        MultiModalConversationResult result = result("/flaky.wav");
+        when(conversation.call(any(MultiModalConversationParam.class))).thenReturn(result);
+        
+        Map<String, Object> output = executor.execute(node(1), Map.of("input", "你好。"));
+        
+        assertEquals("http://minio/audio.wav", output.get("audioUrl"));
+        verify(conversation, times(2)).call(any(MultiModalConversationParam.class));
+        assertEquals(1.0, meterRegistry.get("tts.chunk.retries").counter().count());
+    }
+    
+    @Test
+    void testClientErrorFailsWithoutRetry() throws Exception {
+        MultiModalConversationResult result = result("/missing.wav");
+        when(conversation.call(any(MultiModalConversationParam.class))).thenReturn(result);
+        
+        assertThrows(Exception.class, () -> executor.execute(node(1), Map.of("input", "你好。")));
+        
+        verify(conversation, times(1)).call(any(MultiModalConversationParam.class));
+        assertEquals(0.0, meterRegistry.get("tts.chunk.retries").counter().count());
+    }
+    
+    @Test
+    void testLocalRateLimitTimeoutFailsWithoutRetry() throws Exception {
+        when(providerRateLimiter.acquire(anyString(), anyString(), anyLong()))
+                .thenThrow(new RateLimitExceededException("dashscope-tts", 10));
+        
+        Exception e = assertThrows(Exception.class, () -> executor.execute(node(1), Map.of("input", "你好。")));
+        
+        assertTrue(hasCause(e, RateLimitExceededException.class));
+        verify(providerRateLimiter, times(1)).acquire(anyString(), anyString(), anyLong());
+        verify(conversation, never()).call(any(MultiModalConversationParam.class));
+    }
+    
+    @Test
+    void testTransientErrorClassification() {
+        assertTrue(TTSNodeExecutor.isTransient(new SocketTimeoutException("read timed out")));
+        assertTrue(TTSNodeExecutor.isTransient(new RuntimeException(new IOException("connection reset"))));
+        assertTrue(TTSNodeExecutor.isTransient(new TTSNodeExecutor.AudioDownloadException(503)));
+        assertTrue(TTSNodeExecutor.isTransient(new TTSNodeExecutor.AudioDownloadException(408)));
+        assertFalse(TTSNodeExecutor.isTransient(new TTSNodeExecutor.AudioDownloadException(403)));
+        assertFalse(TTSNodeExecutor.isTransient(new IllegalArgumentException("bad voice")));
+        assertFalse(TTSNodeExecutor.isTransient(new RateLimitExceededException("dashscope-tts", 10)));
+        assertFalse(TTSNodeExecutor.isTransient(new RuntimeException("阿里百炼 TTS 返回的音频URL为空")));
+    }
+    
+    @Test
+    void testNodeParallelismBoundsConcurrentChunks() throws Exception {
+        AtomicInteger maxInFlight = stubSlowCalls();
+        
+        Map<String, Object> output = executor.execute(node(2), Map.of("input", longText()));
+        
+        assertTrue((Integer) output.get("chunks") >= 4);
+        assertEquals(2, maxInFlight.get());
+    }
+    
+    @Test
+    void testGlobalParallelismBoundsConcurrentNodes() throws Exception {
+        executor.shutdown();
+        workerConfig.setGlobalParallelism(2);
+        start();
+        AtomicInteger maxInFlight = stubSlowCalls();
+        
+        CompletableFuture<Map<String, Object>> first = CompletableFuture.supplyAsync(() -> executeQuietly(node(2)));
+        CompletableFuture<Map<String, Object>> second = CompletableFuture.supplyAsync(() -> executeQuietly(node(2)));
+        first.join();
+        second.join();
+        
+        // 两个节点各自允许 2 个并发,全局许可把总并发限制为 2
+        assertEquals(2, maxInFlight.get());
+    }
+    
+    @Test
+    void testChunkCachedUnderModelActuallyUsed() throws Exception {
+        when(audioCache.isEnabled()).thenReturn(true);
+        when(audioCache.key(anyString(), anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> "key-" + invocation.getArgument(1));
+        CredentialPoolRegistry.Lease lease = mock(CredentialPoolRegistry.Lease.class);
+        when(lease.apiKey()).thenReturn("member-key");
+        when(lease.model()).thenReturn("member-model");
+        when(credentialPoolRegistry.acquire("tts-pool")).thenReturn(lease);
+        MultiModalConversationResult result = result("/ok.wav");
+        when(conversation.call(any(MultiModalConversationParam.class))).thenReturn(result);
+        
+        WorkflowNode node = node(1);
+        node.getData().remove("apiKey");
+        node.getData().put("pool", "tts-pool");
+        node.getData().put("model", "node-model");
+        executor.execute(node, Map.of("input", "你好。"));
+        
+        // 按节点模型查缓存,按成员实际使用的模型写入
+        verify(audioCache).get("key-node-model");
+        verify(audioCache).put(eq("key-member-model"), any());
+        verify(audioCache, never()).put(eq("key-node-model"), any());
+    }
+    
+    @Test
+    void testUpstreamStreamFailureCancelsSubmittedChunks() throws Exception {
+        CountDownLatch calling = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(conversation.call(any(MultiModalConversationParam.class))).thenAnswer(invocation -> {
+            calling.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return null;
+        });
+        
+        TextStream stream = new TextStream();
+        stream.append("第一句已经足够长了。");
+        CompletableFuture<Void> upstream = CompletableFuture.runAsync(() -> {
+            try {
+                // 首个片段已提交并开始合成后上游才失败
+                calling.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stream.append("第二句");
+            stream.fail(new RuntimeException("LLM 连接断开"));
+        });
+        
+        Exception e = assertThrows(Exception.class,
+                () -> executor.execute(node(2), Map.of(TextStream.INPUT_STREAM_KEY, stream)));
+        
+        assertTrue(e.getMessage().contains("LLM 连接断开"));
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS), "已提交的片段应被取消并中断");
+        upstream.join();
+        verify(conversation, times(1)).call(any(MultiModalConversationParam.class));
+    }
+    
+    private void start() {
+        executor.init();
+        ReflectionTestUtils.setField(executor, "conversation", conversation);
+    }
+    
+    private AtomicInteger stubSlowCalls() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        MultiModalConversationResult result = result("/ok.wav");
+        when(conversation.call(any(MultiModalConversationParam.class))).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return result;
+        });
+        return maxInFlight;
+    }
+    
+    private Map<String, Object> executeQuietly(WorkflowNode node) {
+        try {
+            return executor.execute(node, Map.of("input", longText()));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    private MultiModalConversationResult result(String path) {
+        MultiModalConversationResult result = mock(MultiModalConversationResult.class, RETURNS_DEEP_STUBS);
+        when(result.getOutput().getAudio().getUrl())
+                .thenReturn("http://127.0.0.1:" + server.getAddress().getPort() + path);
+        return result;
+    }
+    
+    private static WorkflowNode node(int parallelism) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("apiKey", "test-key");
+        data.put("parallelism", parallelism);
+        WorkflowNode node = new WorkflowNode();
+        node.setId("tts-1");
+        node.setType("tts");
+        node.setData(data);
+        return node;
+    }
+    
+    /**
+     * 每句 300 字符,单个片段放不下两句,切分为 6 个片段
+     */
+    private static String longText() {
+        return ("a".repeat(299) + ".").repeat(6);
+    }
+    
+    private static boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    /**
+     * 16 位单声道 PCM,2 个采样
+     */
+    private static byte[] wav() {
+        ByteBuffer buffer = ByteBuffer.allocate(48).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(40).put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        buffer.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1).putShort((short) 1).putInt(16000).putInt(32000).putShort((short) 2).putShort((short) 16);
+        buffer.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(4).putShort((short) 1).putShort((short) -1);
+        return buffer.array();
+    }
+}
@@ -0,0 +1,65 @@
+package com.paiagent.engine.llm.invoke;
+
+import com.paiagent.config.LLMCircuitBreakerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 端点熔断器状态机测试
+ */
+class EndpointCircuitBreakerTest {
+    
+    @Test
+    void testOpenHalfOpenAndRecover() throws Exception {
+        LLMCircuitBreakerConfig config = new LLMCircuitBreakerConfig();
+        config.setConsecutiveFailures(3);
+        config.setOpenDurationSeconds(0);
+        config.setHalfOpenProbes(2);
+        List<EndpointCircuitBreaker.State> transitions = new ArrayList<>();
+        EndpointCircuitBreaker breaker = new EndpointCircuitBreaker(config, transitions::add);
+        
+        // 连续失败达到阈值后熔断
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertEquals(EndpointCircuitBreaker.State.OPEN, breaker.getState());
+        
+        // 熔断时间到后进入半开,只放行有限个探测请求
+        Thread.sleep(5);
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(EndpointCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        
+        // 探测全部成功后恢复
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(EndpointCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(List.of(EndpointCircuitBreaker.State.OPEN,
+                EndpointCircuitBreaker.State.HALF_OPEN,
+                EndpointCircuitBreaker.State.CLOSED), transitions);
+    }
+    
+    @Test
+    void testFailureRateThreshold() {
+        LLMCircuitBreakerConfig config = new LLMCircuitBreakerConfig();
+        config.setMinimumCalls(4);
+        config.setFailureRateThreshold(50);
+        config.setOpenDurationSeconds(60);
+        EndpointCircuitBreaker breaker = new EndpointCircuitBreaker(config, state -> { });
+        
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onSuccess();
+        assertEquals(EndpointCircuitBreaker.State.CLOSED, breaker.getState());
+        
+        breaker.onFailure();
+        assertEquals(EndpointCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+}
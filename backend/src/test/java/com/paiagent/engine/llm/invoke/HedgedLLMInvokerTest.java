@@ -0,0 +1,185 @@
+package com.paiagent.engine.llm.invoke;
+
+import com.paiagent.config.ExecutionRuntimeConfig;
+import com.paiagent.config.LLMHedgeConfig;
+import com.paiagent.engine.llm.LLMResponse;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对冲请求调用器测试
+ * 主端点人为变慢,验证对冲请求胜出、败者被取消以及对冲率上限;
+ * 败者取消通过本地桩 HTTP 服务验证连接确实被客户端断开
+ */
+class HedgedLLMInvokerTest {
+    
+    private static final LLMEndpoint PRIMARY = new LLMEndpoint("openai", "http://primary", "k1", "gpt-4o", 0.7);
+    
+    private static final LLMEndpoint HEDGE = new LLMEndpoint("qwen", "http://hedge", "k2", "qwen-plus", 0.7);
+    
+    private ExecutionRuntime runtime;
+    
+    private SimpleMeterRegistry meterRegistry;
+    
+    private LLMHedgeConfig hedgeConfig;
+    
+    private HedgedLLMInvoker invoker;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        
+        runtime = new ExecutionRuntime();
+        ReflectionTestUtils.setField(runtime, "runtimeConfig", new ExecutionRuntimeConfig());
+        ReflectionTestUtils.setField(runtime, "meterRegistry", meterRegistry);
+        runtime.init();
+        
+        hedgeConfig = new LLMHedgeConfig();
+        hedgeConfig.setInitialDelayMs(100);
+        hedgeConfig.setMaxHedgeRate(1.0);
+        
+        invoker = new HedgedLLMInvoker();
+        ReflectionTestUtils.setField(invoker, "hedgeConfig", hedgeConfig);
+        ReflectionTestUtils.setField(invoker, "executionRuntime", runtime);
+        ReflectionTestUtils.setField(invoker, "meterRegistry", meterRegistry);
+        invoker.init();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        runtime.shutdown();
+    }
+    
+    @Test
+    void testHedgeWinsWhenPrimaryIsSlow() throws Exception {
+        long start = System.currentTimeMillis();
+        LLMResponse response = invoker.call(PRIMARY, HEDGE, null, endpoint -> {
+            if (endpoint == PRIMARY) {
+                Thread.sleep(5000);
+            }
+            return new LLMResponse(endpoint.model(), 1, 2, 3);
+        });
+        long elapsed = System.currentTimeMillis() - start;
+        
+        assertEquals("qwen-plus", response.getContent());
+        assertTrue(elapsed < 2000, "对冲请求应在主端点返回前胜出, 实际耗时 " + elapsed + "ms");
+        assertEquals(1.0, meterRegistry.counter("llm.hedge.fired").count());
+        assertEquals(1.0, meterRegistry.counter("llm.hedge.wins", "winner", "hedge").count());
+        assertEquals(3.0, meterRegistry.counter("llm.hedge.winner.tokens").count());
+    }
+    
+    @Test
+    void testLosingRequestConnectionIsAborted() throws Exception {
+        CountDownLatch primaryAborted = new CountDownLatch(1);
+        ExecutorService serverExecutor = Executors.newCachedThreadPool();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverExecutor);
+        // 主端点: 先回响应头,再每 50ms 写一段,共 5 秒;客户端断开后写出失败
+        server.createContext("/primary", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int i = 0; i < 100; i++) {
+                    body.write("slow ".getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                    Thread.sleep(50);
+                }
+            } catch (IOException e) {
+                primaryAborted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.createContext("/hedge", exchange -> {
+            byte[] body = "fast".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        LLMEndpoint primary = new LLMEndpoint("openai", base + "/primary", "k1", "gpt-4o", 0.7);
+        LLMEndpoint hedge = new LLMEndpoint("qwen", base + "/hedge", "k2", "qwen-plus", 0.7);
+        
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            LLMResponse response = invoker.call(primary, hedge, null, endpoint -> {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint.apiUrl())).GET().build();
+                // 阻塞的 send 被中断时取消请求并关闭连接
+                String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+                return new LLMResponse(body, null, null, null);
+            });
+            
+            assertEquals("fast", response.getContent());
+            assertTrue(primaryAborted.await(3, TimeUnit.SECONDS), "败者请求的连接应被客户端断开");
+        } finally {
+            server.stop(0);
+            serverExecutor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void testNoHedgeWhenPrimaryIsFast() throws Exception {
+        LLMResponse response = invoker.call(PRIMARY, HEDGE, null,
+                endpoint -> new LLMResponse(endpoint.model(), null, null, null));
+        
+        assertEquals("gpt-4o", response.getContent());
+        assertEquals(0.0, meterRegistry.counter("llm.hedge.fired").count());
+    }
+    
+    @Test
+    void testHedgeRateCap() throws Exception {
+        hedgeConfig.setMaxHedgeRate(0.1);
+        
+        // 窗口内仅前 1 个慢请求可以对冲
+        for (int i = 0; i < 2; i++) {
+            invoker.call(PRIMARY, HEDGE, null, endpoint -> {
+                if (endpoint == PRIMARY) {
+                    Thread.sleep(300);
+                }
+                return new LLMResponse(endpoint.model(), null, null, null);
+            });
+        }
+        
+        assertEquals(1.0, meterRegistry.counter("llm.hedge.fired").count());
+        assertEquals(1.0, meterRegistry.counter("llm.hedge.skipped").count());
+    }
+    
+    @Test
+    void testStreamingHedgeOnFirstToken() {
+        long start = System.currentTimeMillis();
+        List<String> chunks = invoker.stream(PRIMARY, HEDGE, null, endpoint -> endpoint == PRIMARY
+                        ? Flux.just("slow").delaySubscription(Duration.ofSeconds(5))
+                        : Flux.just("fast", "-hedge"))
+                .collectList()
+                .block();
+        long elapsed = System.currentTimeMillis() - start;
+        
+        assertEquals(List.of("fast", "-hedge"), chunks);
+        assertTrue(elapsed < 2000, "对冲流应在主端点首个 token 前胜出, 实际耗时 " + elapsed + "ms");
+        assertEquals(1.0, meterRegistry.counter("llm.hedge.wins", "winner", "hedge").count());
+    }
+}
@@ -0,0 +1,197 @@
+package com.paiagent.engine.llm.stream;
+
+import com.paiagent.dto.ExecutionEvent;
+import com.paiagent.engine.model.WorkflowNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 流式增量分帧器测试: seq/offset 连续、达到 maxFrameBytes 立即发送、定时刷新、
+ * 定时刷新与追加刷新并发时帧仍按序到达、close 发送剩余增量且之后不再发帧
+ */
+class DeltaFrameCoalescerTest {
+    
+    private static final long FLUSH_INTERVAL_MS = 50;
+    
+    private WorkflowNode node;
+    
+    private ScheduledExecutorService scheduler;
+    
+    private ScheduledFuture<?> scheduledFuture;
+    
+    /**
+     * 手动定时器: 记录已安排的定时任务,由测试决定何时执行
+     */
+    private List<Runnable> scheduledTasks;
+    
+    private List<ExecutionEvent> frames;
+    
+    @BeforeEach
+    void setUp() {
+        node = new WorkflowNode();
+        node.setId("llm-1");
+        node.setType("openai");
+        
+        scheduledTasks = Collections.synchronizedList(new ArrayList<>());
+        scheduledFuture = mock(ScheduledFuture.class);
+        scheduler = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            scheduledTasks.add(invocation.getArgument(0));
+            return scheduledFuture;
+        }).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        
+        frames = Collections.synchronizedList(new ArrayList<>());
+    }
+    
+    @Test
+    void seqAndOffsetAreContiguous() {
+        DeltaFrameCoalescer coalescer = coalescer(1024);
+        coalescer.append("你好");
+        coalescer.flush();
+        coalescer.append(",");
+        coalescer.append("世界");
+        coalescer.flush();
+        coalescer.flush();
+        coalescer.append("!");
+        coalescer.close();
+        
+        assertEquals(3, frames.size());
+        assertEquals(3, coalescer.getFrameCount());
+        assertFrame(frames.get(0), 0, 0, "你好");
+        assertFrame(frames.get(1), 1, 2, ",世界");
+        assertFrame(frames.get(2), 2, 5, "!");
+        assertEquals("你好,世界!", assertContiguous(frames));
+    }
+    
+    @Test
+    void frameIsSentWhenMaxFrameBytesReached() {
+        // 每个汉字 3 字节
+        DeltaFrameCoalescer coalescer = coalescer(6);
+        coalescer.append("你");
+        assertTrue(frames.isEmpty());
+        
+        coalescer.append("好");
+        assertEquals(1, frames.size());
+        assertFrame(frames.get(0), 0, 0, "你好");
+        // 按大小发送时取消已安排的定时刷新
+        verify(scheduledFuture).cancel(false);
+        
+        coalescer.append("世界!");
+        assertEquals(2, frames.size());
+        assertFrame(frames.get(1), 1, 2, "世界!");
+    }
+    
+    @Test
+    void timedFlushSendsBufferedDelta() {
+        DeltaFrameCoalescer coalescer = coalescer(1024);
+        coalescer.append("片段一");
+        coalescer.append("片段二");
+        
+        // 缓冲非空期间只安排一次定时刷新
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(FLUSH_INTERVAL_MS), eq(TimeUnit.MILLISECONDS));
+        assertTrue(frames.isEmpty());
+        
+        scheduledTasks.get(0).run();
+        assertEquals(1, frames.size());
+        assertFrame(frames.get(0), 0, 0, "片段一片段二");
+        
+        // 缓冲再次由空变为非空时重新安排
+        coalescer.append("片段三");
+        assertEquals(2, scheduledTasks.size());
+        scheduledTasks.get(1).run();
+        assertFrame(frames.get(1), 1, 6, "片段三");
+    }
+    
+    @Test
+    void framesStayInOrderWhenTimerAndAppendFlushesRace() throws Exception {
+        DeltaFrameCoalescer coalescer = coalescer(8);
+        AtomicBoolean appending = new AtomicBoolean(true);
+        CountDownLatch timerStarted = new CountDownLatch(1);
+        
+        // 模拟定时线程不断触发刷新,与追加线程按大小触发的发送交错
+        Thread timer = new Thread(() -> {
+            timerStarted.countDown();
+            while (appending.get()) {
+                coalescer.flush();
+                Thread.yield();
+            }
+        });
+        timer.start();
+        assertTrue(timerStarted.await(2, TimeUnit.SECONDS));
+        
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            String chunk = (i % 3 == 0 ? "字" : "ab") + i;
+            expected.append(chunk);
+            coalescer.append(chunk);
+        }
+        appending.set(false);
+        timer.join(2000);
+        coalescer.close();
+        
+        assertEquals(expected.toString(), assertContiguous(frames));
+        assertEquals(frames.size(), coalescer.getFrameCount());
+    }
+    
+    @Test
+    void closeSendsRemainderAndNothingAfter() {
+        DeltaFrameCoalescer coalescer = coalescer(1024);
+        coalescer.append("剩余");
+        
+        coalescer.close();
+        assertEquals(1, frames.size());
+        assertFrame(frames.get(0), 0, 0, "剩余");
+        verify(scheduledFuture).cancel(false);
+        
+        // 关闭后追加、手动刷新、迟到的定时任务均不再发帧
+        coalescer.append("多余");
+        coalescer.flush();
+        scheduledTasks.forEach(Runnable::run);
+        coalescer.close();
+        assertEquals(1, frames.size());
+        assertEquals(1, scheduledTasks.size());
+    }
+    
+    private DeltaFrameCoalescer coalescer(int maxFrameBytes) {
+        // 直接执行器: 定时任务触发的刷新在调用线程内完成
+        return new DeltaFrameCoalescer(node, frames::add, scheduler, Runnable::run, FLUSH_INTERVAL_MS, maxFrameBytes);
+    }
+    
+    private static void assertFrame(ExecutionEvent frame, int seq, int offset, String delta) {
+        assertEquals("NODE_PROGRESS", frame.getEventType());
+        assertEquals("llm-1", frame.getNodeId());
+        Map<?, ?> data = (Map<?, ?>) frame.getData();
+        assertEquals(seq, data.get("seq"));
+        assertEquals(offset, data.get("offset"));
+        assertEquals(delta, data.get("delta"));
+    }
+    
+    /**
+     * 校验帧序号从 0 递增、每帧 offset 等于此前增量的总长度,返回拼接后的全文
+     */
+    private static String assertContiguous(List<ExecutionEvent> frames) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < frames.size(); i++) {
+            Map<?, ?> data = (Map<?, ?>) frames.get(i).getData();
+            assertEquals(i, data.get("seq"), "帧应按序号顺序到达");
+            assertEquals(text.length(), data.get("offset"), "offset 应与已拼接内容长度一致");
+            String delta = (String) data.get("delta");
+            assertFalse(delta.isEmpty());
+            text.append(delta);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,199 @@
+package com.paiagent.engine.pool;
+
+import com.paiagent.config.CredentialPoolConfig;
+import com.paiagent.engine.llm.LLMResponse;
+import com.paiagent.engine.llm.invoke.LLMEndpoint;
+import com.paiagent.engine.ratelimit.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 凭证池注册表测试
+ * 覆盖按在途请求数与延迟加权的成员路由、连续失败剔除、剔除到期后重新计数,
+ * 以及成员延迟不含本地限流排队时间
+ */
+class CredentialPoolRegistryTest {
+    
+    private static final LLMEndpoint POOLED = new LLMEndpoint("openai", "http://node", null, "gpt-4o", 0.7, "p");
+    
+    private CredentialPoolConfig poolConfig;
+    
+    private SimpleMeterRegistry meterRegistry;
+    
+    private CredentialPoolRegistry registry;
+    
+    @BeforeEach
+    void setUp() {
+        poolConfig = new CredentialPoolConfig();
+        poolConfig.setEjectAfterFailures(2);
+        poolConfig.setEjectSeconds(1);
+        CredentialPoolConfig.Pool pool = new CredentialPoolConfig.Pool();
+        pool.getMembers().add(member("a", "ka"));
+        pool.getMembers().add(member("b", "kb"));
+        poolConfig.getPools().put("p", pool);
+        meterRegistry = new SimpleMeterRegistry();
+        
+        registry = new CredentialPoolRegistry();
+        ReflectionTestUtils.setField(registry, "poolConfig", poolConfig);
+        ReflectionTestUtils.setField(registry, "meterRegistry", meterRegistry);
+    }
+    
+    @Test
+    void testLeastOutstandingSpreadsConcurrentLeases() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 6; i++) {
+            counts.merge(registry.acquire("p").apiKey(), 1, Integer::sum);
+        }
+        
+        assertEquals(3, counts.get("ka"));
+        assertEquals(3, counts.get("kb"));
+        assertEquals(3.0, gauge("credential.pool.outstanding", "a"));
+    }
+    
+    @Test
+    void testLatencyWeightedPrefersFasterMember() throws Exception {
+        poolConfig.getPools().get("p").setStrategy("latency-weighted");
+        CredentialPoolRegistry.Lease first = registry.acquire("p");
+        CredentialPoolRegistry.Lease second = registry.acquire("p");
+        CredentialPoolRegistry.Lease fast = first.apiKey().equals("ka") ? first : second;
+        CredentialPoolRegistry.Lease slow = fast == first ? second : first;
+        assertNotEquals(fast.apiKey(), slow.apiKey());
+        
+        fast.upstreamStarted();
+        slow.upstreamStarted();
+        fast.success();
+        Thread.sleep(100);
+        slow.success();
+        
+        for (int i = 0; i < 10; i++) {
+            CredentialPoolRegistry.Lease lease = registry.acquire("p");
+            assertEquals("ka", lease.apiKey());
+            lease.release();
+        }
+    }
+    
+    @Test
+    void testLatencyExcludesTimeBeforeUpstreamStarted() throws Exception {
+        CredentialPoolRegistry.Lease lease = leaseOn("ka");
+        // 模拟本地限流排队
+        Thread.sleep(200);
+        lease.upstreamStarted();
+        lease.success();
+        
+        assertTrue(gauge("credential.pool.latency.p50", "a") < 100);
+    }
+    
+    @Test
+    void testLeaseWithoutUpstreamCallRecordsNoLatency() {
+        leaseOn("ka").success();
+        
+        assertEquals(-1.0, gauge("credential.pool.latency.p50", "a"));
+    }
+    
+    @Test
+    void testConsecutiveFailuresEjectMember() {
+        leaseOn("ka").failure();
+        assertEquals(0.0, gauge("credential.pool.ejected", "a"));
+        leaseOn("ka").failure();
+        assertEquals(1.0, gauge("credential.pool.ejected", "a"));
+        
+        for (int i = 0; i < 10; i++) {
+            CredentialPoolRegistry.Lease lease = registry.acquire("p");
+            assertEquals("kb", lease.apiKey());
+            lease.release();
+        }
+    }
+    
+    @Test
+    void testSuccessResetsConsecutiveFailures() {
+        leaseOn("ka").failure();
+        leaseOn("ka").success();
+        leaseOn("ka").failure();
+        
+        assertEquals(0.0, gauge("credential.pool.ejected", "a"));
+    }
+    
+    @Test
+    void testAllEjectedUsesEarliestRecovery() throws Exception {
+        leaseOn("ka").failure();
+        leaseOn("ka").failure();
+        Thread.sleep(20);
+        leaseOn("kb").failure();
+        leaseOn("kb").failure();
+        
+        assertEquals("ka", registry.acquire("p").apiKey());
+    }
+    
+    @Test
+    void testFailuresRecountAfterEjectionExpires() throws Exception {
+        leaseOn("ka").failure();
+        leaseOn("ka").failure();
+        assertEquals(1.0, gauge("credential.pool.ejected", "a"));
+        
+        Thread.sleep(1100);
+        assertEquals(0.0, gauge("credential.pool.ejected", "a"));
+        // 重新放回后的第一次失败不应立即再次剔除
+        leaseOn("ka").failure();
+        assertEquals(0.0, gauge("credential.pool.ejected", "a"));
+        leaseOn("ka").failure();
+        assertEquals(1.0, gauge("credential.pool.ejected", "a"));
+    }
+    
+    @Test
+    void testCallResolvesMemberAndReleasesOnRateLimit() {
+        List<String> keys = new ArrayList<>();
+        assertThrows(RateLimitExceededException.class, () -> registry.call(POOLED, (member, upstreamStarted) -> {
+            keys.add(member.apiKey());
+            throw new RateLimitExceededException("openai", 10);
+        }));
+        
+        assertEquals(1, keys.size());
+        assertTrue(keys.get(0).startsWith("k"));
+        assertEquals(0.0, meterRegistry.get("credential.pool.failures").tag("member", "a").counter().count());
+        assertEquals(0.0, meterRegistry.get("credential.pool.failures").tag("member", "b").counter().count());
+        assertEquals(0.0, gauge("credential.pool.outstanding", "a") + gauge("credential.pool.outstanding", "b"));
+    }
+    
+    @Test
+    void testCallWithoutPoolPassesEndpointThrough() throws Exception {
+        LLMEndpoint direct = new LLMEndpoint("openai", "http://node", "k", "gpt-4o", 0.7);
+        
+        LLMResponse response = registry.call(direct, (member, upstreamStarted) -> {
+            assertSame(direct, member);
+            upstreamStarted.run();
+            return new LLMResponse("ok", null, null, null);
+        });
+        
+        assertEquals("ok", response.getContent());
+    }
+    
+    private CredentialPoolRegistry.Lease leaseOn(String apiKey) {
+        while (true) {
+            CredentialPoolRegistry.Lease lease = registry.acquire("p");
+            if (lease.apiKey().equals(apiKey)) {
+                return lease;
+            }
+            lease.release();
+        }
+    }
+    
+    private double gauge(String name, String member) {
+        return meterRegistry.get(name).tag("pool", "p").tag("member", member).gauge().value();
+    }
+    
+    private static CredentialPoolConfig.Member member(String name, String apiKey) {
+        CredentialPoolConfig.Member member = new CredentialPoolConfig.Member();
+        member.setName(name);
+        member.setApiKey(apiKey);
+        return member;
+    }
+}
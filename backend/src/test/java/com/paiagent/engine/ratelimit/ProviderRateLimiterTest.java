@@ -0,0 +1,144 @@
+package com.paiagent.engine.ratelimit;
+
+import com.paiagent.config.ProviderRateLimitConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 提供方限流器测试
+ * 覆盖请求数与 token 数两个令牌桶各自生效、最长等待超时以及按实际用量校正预留额度
+ */
+class ProviderRateLimiterTest {
+    
+    private ProviderRateLimitConfig config;
+    
+    private SimpleMeterRegistry meterRegistry;
+    
+    private ProviderRateLimiter limiter;
+    
+    @BeforeEach
+    void setUp() {
+        config = new ProviderRateLimitConfig();
+        config.setMaxWaitMs(50);
+        meterRegistry = new SimpleMeterRegistry();
+        
+        limiter = new ProviderRateLimiter();
+        ReflectionTestUtils.setField(limiter, "rateLimitConfig", config);
+        ReflectionTestUtils.setField(limiter, "meterRegistry", meterRegistry);
+        limiter.init();
+    }
+    
+    @Test
+    void testRequestBucketLimitsWhenTokensAreUnlimited() throws Exception {
+        limit("openai", 2, 0);
+        
+        limiter.acquire("openai", "k1", 10_000);
+        limiter.acquire("openai", "k1", 10_000);
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire("openai", "k1", 1));
+    }
+    
+    @Test
+    void testTokenBucketLimitsWhenRequestsAreUnlimited() throws Exception {
+        limit("openai", 0, 1000);
+        
+        limiter.acquire("openai", "k1", 800);
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire("openai", "k1", 300));
+        // 请求数桶不受影响,小额度请求仍可通过
+        limiter.acquire("openai", "k1", 100);
+    }
+    
+    @Test
+    void testKeysAreLimitedIndependently() throws Exception {
+        limit("openai", 1, 0);
+        
+        limiter.acquire("openai", "k1", 1);
+        limiter.acquire("openai", "k2", 1);
+        limiter.acquire("qwen", "k1", 1);
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire("openai", "k1", 1));
+    }
+    
+    @Test
+    void testWaitsForRefillWithinMaxWait() throws Exception {
+        // 每毫秒补充 1 个 token
+        limit("openai", 0, 60_000);
+        limiter.acquire("openai", "k1", 60_000);
+        
+        config.setMaxWaitMs(2000);
+        long start = System.nanoTime();
+        limiter.acquire("openai", "k1", 100);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        
+        assertTrue(elapsedMs >= 80, "应等待令牌补充, 实际 " + elapsedMs + "ms");
+        assertTrue(elapsedMs < 1500, "不应等满最长等待时间, 实际 " + elapsedMs + "ms");
+    }
+    
+    @Test
+    void testFailsFastWhenRefillExceedsMaxWait() throws Exception {
+        limit("openai", 0, 60_000);
+        limiter.acquire("openai", "k1", 60_000);
+        
+        config.setMaxWaitMs(20);
+        long start = System.nanoTime();
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire("openai", "k1", 1000));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        
+        assertTrue(elapsedMs < 500, "预计等待超过上限时应立即失败, 实际 " + elapsedMs + "ms");
+        assertEquals(1.0, meterRegistry.get("provider.ratelimit.timeouts").tag("provider", "openai").counter().count());
+        assertEquals(0.0, meterRegistry.get("provider.ratelimit.waiting").gauge().value());
+    }
+    
+    @Test
+    void testReconcileReturnsUnusedTokensOnce() throws Exception {
+        limit("openai", 0, 1000);
+        
+        ProviderRateLimiter.Permit permit = limiter.acquire("openai", "k1", 1000);
+        permit.reconcile(100);
+        // 重复校正不应再次归还
+        permit.reconcile(100);
+        
+        limiter.acquire("openai", "k1", 900);
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire("openai", "k1", 100));
+    }
+    
+    @Test
+    void testReconcileChargesOverusedTokens() throws Exception {
+        limit("openai", 0, 1000);
+        
+        ProviderRateLimiter.Permit permit = limiter.acquire("openai", "k1", 500);
+        permit.reconcile(1500);
+        
+        // 透支后余量为负,后续请求须等待偿还
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire("openai", "k1", 1));
+    }
+    
+    @Test
+    void testReconcileWithoutUsageKeepsEstimate() throws Exception {
+        limit("openai", 0, 1000);
+        
+        ProviderRateLimiter.Permit permit = limiter.acquire("openai", "k1", 600);
+        permit.reconcile(null);
+        
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire("openai", "k1", 500));
+    }
+    
+    @Test
+    void testDisabledLimiterNeverWaits() throws Exception {
+        limit("openai", 1, 1);
+        config.setEnabled(false);
+        
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire("openai", "k1", 1000).reconcile(0);
+        }
+    }
+    
+    private void limit(String provider, int requestsPerMinute, long tokensPerMinute) {
+        ProviderRateLimitConfig.Limit limit = new ProviderRateLimitConfig.Limit();
+        limit.setRequestsPerMinute(requestsPerMinute);
+        limit.setTokensPerMinute(tokensPerMinute);
+        config.getProviders().put(provider, limit);
+    }
+}
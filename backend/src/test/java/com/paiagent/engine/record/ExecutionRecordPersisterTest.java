@@ -0,0 +1,253 @@
+package com.paiagent.engine.record;
+
+import com.paiagent.config.ExecutionRecordPersistConfig;
+import com.paiagent.dto.ExecutionResponse;
+import com.paiagent.engine.runtime.ExecutionRuntime;
+import com.paiagent.entity.ExecutionNodeResult;
+import com.paiagent.entity.ExecutionRecord;
+import com.paiagent.mapper.ExecutionNodeResultMapper;
+import com.paiagent.mapper.ExecutionRecordMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 执行记录异步写入测试: 节点结果编码、批量写入、写库失败落盘与回放、溢出记录查询与 dead-letter
+ */
+class ExecutionRecordPersisterTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private ExecutionRecordPersister persister;
+    
+    private ExecutionRecordMapper mapper;
+    
+    private ExecutionRecordPersistConfig config;
+    
+    private ScheduledExecutorService scheduler;
+    
+    @BeforeEach
+    void setUp() {
+        config = new ExecutionRecordPersistConfig();
+        config.setSpillDir(tempDir.toString());
+        config.setBatchSize(10);
+        config.setFlushIntervalMs(20);
+        config.setReplayIntervalMs(3600_000);
+        config.setMaxReplayAttempts(2);
+        
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        mapper = mock(ExecutionRecordMapper.class);
+        persister = newPersister();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        persister.shutdown();
+        scheduler.shutdownNow();
+    }
+    
+    @Test
+    void testRecordsAreWrittenInBatches() {
+        for (long id = 1; id <= 5; id++) {
+            persister.submit(record(id));
+        }
+        
+        verify(mapper, timeout(2000).atLeastOnce()).insertBatchWithIds(anyList());
+        verify(mapper, never()).insert(any(ExecutionRecord.class));
+    }
+    
+    @Test
+    void testFailedBatchIsSpilledAndReplayed() throws Exception {
+        when(mapper.insertBatchWithIds(anyList()))
+                .thenThrow(new RuntimeException("数据库不可用"))
+                .thenReturn(1);
+        
+        persister.submit(record(42L));
+        
+        waitForSpillFiles(1);
+        // 落盘后回放前仍可按 ID 查到
+        assertEquals("{\"output\":\"你好\"}", persister.findPending(42L).getOutputData());
+        
+        ReflectionTestUtils.invokeMethod(persister, "replaySpills");
+        
+        assertEquals(0, spillFiles().size());
+        assertNull(persister.findPending(42L));
+        verify(mapper, times(2)).insertBatchWithIds(argThat(records ->
+                records.size() == 1 && records.get(0).getId() == 42L));
+    }
+    
+    @Test
+    void testFailedSynchronousWriteIsSpilled() throws Exception {
+        when(mapper.insertBatchWithIds(anyList())).thenThrow(new RuntimeException("数据库不可用"));
+        
+        persister.write(List.of(record(7L), record(8L)));
+        
+        waitForSpillFiles(1);
+        assertNotNull(persister.findPending(7L));
+        assertNotNull(persister.findPending(8L));
+        
+        reset(mapper);
+        ReflectionTestUtils.invokeMethod(persister, "replaySpills");
+        verify(mapper).insertBatchWithIds(argThat(records -> records.size() == 2));
+        assertNull(persister.findPending(7L));
+    }
+    
+    @Test
+    void testOverlappingReplayIsSkipped() throws Exception {
+        when(mapper.insertBatchWithIds(anyList())).thenThrow(new RuntimeException("数据库不可用"));
+        persister.submit(record(9L));
+        waitForSpillFiles(1);
+        
+        // 第一轮回放阻塞在写库上,期间触发的第二轮应直接跳过
+        CountDownLatch inserting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        reset(mapper);
+        when(mapper.insertBatchWithIds(anyList())).thenAnswer(invocation -> {
+            inserting.countDown();
+            release.await();
+            return 1;
+        });
+        Thread first = new Thread(() -> ReflectionTestUtils.invokeMethod(persister, "replaySpills"));
+        first.start();
+        assertTrue(inserting.await(2, TimeUnit.SECONDS));
+        
+        ReflectionTestUtils.invokeMethod(persister, "replaySpills");
+        release.countDown();
+        first.join(2000);
+        
+        verify(mapper, times(1)).insertBatchWithIds(anyList());
+        assertEquals(0, spillFiles().size());
+        assertNull(persister.findPending(9L));
+    }
+    
+    @Test
+    void testSpilledRecordsAreIndexedAfterRestart() throws Exception {
+        when(mapper.insertBatchWithIds(anyList())).thenThrow(new RuntimeException("数据库不可用"));
+        persister.submit(record(7L));
+        waitForSpillFiles(1);
+        persister.shutdown();
+        
+        persister = newPersister();
+        
+        assertNotNull(persister.findPending(7L));
+    }
+    
+    @Test
+    void testDatabaseOutageStopsReplayWithoutCountingAttempts() throws Exception {
+        when(mapper.insertBatchWithIds(anyList())).thenThrow(new RuntimeException("数据库不可用"));
+        persister.submit(record(1L));
+        waitForSpillFiles(1);
+        persister.submit(record(2L));
+        waitForSpillFiles(2);
+        
+        reset(mapper);
+        when(mapper.insertBatchWithIds(anyList())).thenThrow(new CannotGetJdbcConnectionException("连接失败"));
+        for (int round = 0; round < 3; round++) {
+            ReflectionTestUtils.invokeMethod(persister, "replaySpills");
+        }
+        
+        // 每轮在第一个文件处停止,文件均未移入 dead-letter
+        verify(mapper, times(3)).insertBatchWithIds(anyList());
+        assertEquals(2, spillFiles().size());
+        assertFalse(Files.exists(tempDir.resolve("dead-letter")));
+    }
+    
+    @Test
+    void testFailingFileIsDeadLetteredAndOthersReplay() throws Exception {
+        when(mapper.insertBatchWithIds(anyList())).thenThrow(new RuntimeException("数据库不可用"));
+        persister.submit(record(1L));
+        waitForSpillFiles(1);
+        persister.submit(record(2L));
+        waitForSpillFiles(2);
+        
+        // 记录 1 每次写入都违反约束,记录 2 正常
+        reset(mapper);
+        when(mapper.insertBatchWithIds(argThat(records -> records.get(0).getId() == 1L)))
+                .thenThrow(new DataIntegrityViolationException("Data too long"));
+        
+        ReflectionTestUtils.invokeMethod(persister, "replaySpills");
+        assertEquals(1, spillFiles().size(), "失败文件不阻塞后续文件");
+        assertNull(persister.findPending(2L));
+        
+        ReflectionTestUtils.invokeMethod(persister, "replaySpills");
+        assertEquals(0, spillFiles().size());
+        try (Stream<Path> stream = Files.list(tempDir.resolve("dead-letter"))) {
+            assertEquals(1, stream.count());
+        }
+        // dead-letter 中的记录仍可查询
+        assertNotNull(persister.findPending(1L));
+    }
+    
+    @Test
+    void testNodeResultsKeepNameAndTypeWithUtf8Sizes() {
+        ExecutionResponse.NodeResult nodeResult = new ExecutionResponse.NodeResult();
+        nodeResult.setNodeId("node-1");
+        nodeResult.setNodeName("生成播客稿");
+        nodeResult.setNodeType("openai");
+        nodeResult.setStatus("SUCCESS");
+        nodeResult.setInput("你好");
+        
+        ExecutionNodeResult row = persister.encodeNodeResults(List.of(nodeResult)).get(0);
+        assertEquals("生成播客稿", row.getNodeName());
+        assertEquals("openai", row.getNodeType());
+        assertEquals(6, row.getInputSize());
+        assertNull(row.getOutputSize());
+    }
+    
+    private ExecutionRecordPersister newPersister() {
+        ExecutionRuntime runtime = mock(ExecutionRuntime.class);
+        when(runtime.getScheduler()).thenReturn(scheduler);
+        
+        ExecutionRecordPersister instance = new ExecutionRecordPersister();
+        ReflectionTestUtils.setField(instance, "executionRecordMapper", mapper);
+        ReflectionTestUtils.setField(instance, "nodeResultMapper", mock(ExecutionNodeResultMapper.class));
+        ReflectionTestUtils.setField(instance, "idAllocator", mock(ExecutionIdAllocator.class));
+        ReflectionTestUtils.setField(instance, "persistConfig", config);
+        ReflectionTestUtils.setField(instance, "executionRuntime", runtime);
+        ReflectionTestUtils.setField(instance, "meterRegistry", new SimpleMeterRegistry());
+        instance.init();
+        return instance;
+    }
+    
+    private ExecutionRecord record(long id) {
+        ExecutionRecord record = new ExecutionRecord();
+        record.setId(id);
+        record.setFlowId(1L);
+        record.setStatus("SUCCESS");
+        record.setOutputData("{\"output\":\"你好\"}");
+        return record;
+    }
+    
+    private void waitForSpillFiles(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (spillFiles().size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, spillFiles().size());
+    }
+    
+    private List<Path> spillFiles() throws Exception {
+        try (Stream<Path> stream = Files.list(tempDir)) {
+            return stream.filter(file -> file.toString().endsWith(".ndjson")).toList();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.paiagent.engine.record;
+
+import com.paiagent.config.ExecutionRetentionConfig;
+import com.paiagent.entity.ExecutionRecord;
+import com.paiagent.entity.TablePartition;
+import com.paiagent.mapper.ExecutionCheckpointMapper;
+import com.paiagent.mapper.ExecutionFlowStatsMapper;
+import com.paiagent.mapper.ExecutionNodeResultMapper;
+import com.paiagent.mapper.ExecutionRecordMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 执行记录分区维护测试: 预建月分区、p_future 有数据时跳过、过期分区先汇总清理再删除、命名锁互斥
+ */
+class ExecutionRetentionJobTest {
+    
+    private ExecutionRetentionJob job;
+    
+    private ExecutionRecordMapper recordMapper;
+    
+    private ExecutionNodeResultMapper nodeResultMapper;
+    
+    private ExecutionCheckpointMapper checkpointMapper;
+    
+    private ExecutionFlowStatsMapper flowStatsMapper;
+    
+    private SimpleMeterRegistry meterRegistry;
+    
+    private Connection lockConnection;
+    
+    private ResultSet lockResult;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        recordMapper = mock(ExecutionRecordMapper.class);
+        nodeResultMapper = mock(ExecutionNodeResultMapper.class);
+        checkpointMapper = mock(ExecutionCheckpointMapper.class);
+        flowStatsMapper = mock(ExecutionFlowStatsMapper.class);
+        meterRegistry = new SimpleMeterRegistry();
+        
+        lockResult = mock(ResultSet.class);
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getInt(1)).thenReturn(1);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(lockResult);
+        lockConnection = mock(Connection.class);
+        when(lockConnection.prepareStatement(anyString())).thenReturn(statement);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(lockConnection);
+        
+        ExecutionRetentionConfig config = new ExecutionRetentionConfig();
+        config.setEnabled(false);
+        config.setRetentionDays(180);
+        config.setPremakeMonths(2);
+        config.setCleanupBatchSize(2);
+        
+        job = new ExecutionRetentionJob();
+        ReflectionTestUtils.setField(job, "executionRecordMapper", recordMapper);
+        ReflectionTestUtils.setField(job, "nodeResultMapper", nodeResultMapper);
+        ReflectionTestUtils.setField(job, "checkpointMapper", checkpointMapper);
+        ReflectionTestUtils.setField(job, "flowStatsMapper", flowStatsMapper);
+        ReflectionTestUtils.setField(job, "retentionConfig", config);
+        ReflectionTestUtils.setField(job, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(job, "dataSource", dataSource);
+        job.init();
+    }
+    
+    @Test
+    void premakesMonthlyPartitionsUpToHorizon() {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        when(recordMapper.selectPartitions()).thenReturn(List.of(
+                partition("p_history", epoch(currentMonth)),
+                partition("p_future", "MAXVALUE")));
+        
+        job.run();
+        
+        DateTimeFormatter month = DateTimeFormatter.ofPattern("yyyyMM");
+        DateTimeFormatter bound = DateTimeFormatter.ofPattern("yyyy-MM-dd 00:00:00");
+        for (int i = 0; i <= 2; i++) {
+            LocalDate start = currentMonth.plusMonths(i);
+            verify(recordMapper).splitFuturePartition("p" + start.format(month), start.plusMonths(1).format(bound));
+        }
+        verify(recordMapper, times(3)).splitFuturePartition(anyString(), anyString());
+        verify(recordMapper, never()).dropPartition(anyString());
+        verify(lockConnection).prepareStatement("SELECT RELEASE_LOCK(?)");
+    }
+    
+    @Test
+    void premakeIsSkippedWhenFuturePartitionHasRows() {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        when(recordMapper.selectPartitions()).thenReturn(List.of(
+                partition("p_history", epoch(currentMonth)),
+                partition("p_future", "MAXVALUE")));
+        when(recordMapper.futurePartitionHasRows()).thenReturn(true);
+        
+        job.run();
+        
+        verify(recordMapper, never()).splitFuturePartition(anyString(), anyString());
+        assertEquals(1.0, meterRegistry.counter("execution.retention.premake.skipped").count());
+    }
+    
+    @Test
+    void expiredPartitionIsRolledUpAndPurgedBeforeDrop() {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        when(recordMapper.selectPartitions()).thenReturn(List.of(
+                partition("p_history", epoch(currentMonth.minusMonths(12))),
+                partition("p" + currentMonth.plusMonths(3).format(DateTimeFormatter.ofPattern("yyyyMM")),
+                        epoch(currentMonth.plusMonths(4))),
+                partition("p_future", "MAXVALUE")));
+        when(recordMapper.selectKeysInPartition(eq("p_history"), anyLong(), eq(2)))
+                .thenReturn(List.of(key(1L, "run-1"), key(2L, null)), List.of(key(3L, "run-3")), List.of());
+        
+        job.run();
+        
+        InOrder inOrder = inOrder(flowStatsMapper, nodeResultMapper, checkpointMapper, recordMapper);
+        inOrder.verify(flowStatsMapper).rollupPartition("p_history");
+        inOrder.verify(nodeResultMapper).deleteByExecutionIds(List.of(1L, 2L));
+        inOrder.verify(checkpointMapper).deleteByRunIds(List.of("run-1"));
+        inOrder.verify(nodeResultMapper).deleteByExecutionIds(List.of(3L));
+        inOrder.verify(checkpointMapper).deleteByRunIds(List.of("run-3"));
+        inOrder.verify(recordMapper).dropPartition("p_history");
+        verify(recordMapper, times(1)).dropPartition(anyString());
+        verify(recordMapper, never()).splitFuturePartition(anyString(), anyString());
+    }
+    
+    @Test
+    void runIsSkippedWhenLockIsHeldElsewhere() throws Exception {
+        when(lockResult.getInt(1)).thenReturn(0);
+        
+        job.run();
+        
+        verifyNoInteractions(recordMapper, flowStatsMapper, nodeResultMapper, checkpointMapper);
+        verify(lockConnection, never()).prepareStatement("SELECT RELEASE_LOCK(?)");
+        verify(lockConnection).close();
+    }
+    
+    @Test
+    void unpartitionedTableIsSkipped() {
+        when(recordMapper.selectPartitions()).thenReturn(List.of(partition(null, null)));
+        
+        job.run();
+        
+        verifyNoInteractions(flowStatsMapper, nodeResultMapper, checkpointMapper);
+        verify(recordMapper, never()).dropPartition(anyString());
+    }
+    
+    private static TablePartition partition(String name, String description) {
+        TablePartition partition = new TablePartition();
+        partition.setName(name);
+        partition.setDescription(description);
+        return partition;
+    }
+    
+    private static ExecutionRecord key(long id, String runId) {
+        ExecutionRecord record = new ExecutionRecord();
+        record.setId(id);
+        record.setRunId(runId);
+        return record;
+    }
+    
+    private static String epoch(LocalDate date) {
+        return String.valueOf(date.atStartOfDay(ZoneId.systemDefault()).toEpochSecond());
+    }
+}
@@ -0,0 +1,36 @@
+package com.paiagent.engine.record;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 节点载荷编解码测试: 小载荷原样保存,大载荷压缩后可无损还原
+ */
+class PayloadCodecTest {
+    
+    @Test
+    void smallPayloadIsStoredRaw() {
+        byte[] encoded = PayloadCodec.encode("{\"output\":\"ok\"}", 1024);
+        
+        assertEquals(0, encoded[0]);
+        assertEquals("{\"output\":\"ok\"}", PayloadCodec.decode(encoded));
+    }
+    
+    @Test
+    void largePayloadIsCompressedAndRoundTrips() {
+        String text = "{\"output\":\"" + "你好, 世界. hello world ".repeat(500) + "\"}";
+        
+        byte[] encoded = PayloadCodec.encode(text, 1024);
+        
+        assertEquals(1, encoded[0]);
+        assertTrue(encoded.length < text.length());
+        assertEquals(text, PayloadCodec.decode(encoded));
+    }
+    
+    @Test
+    void nullPayloadStaysNull() {
+        assertNull(PayloadCodec.encode(null, 1024));
+        assertNull(PayloadCodec.decode(null));
+    }
+}
@@ -0,0 +1,68 @@
+package com.paiagent.engine.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式文本通道测试: 阻塞读取、晚订阅读者从头读取、结束后忽略写入、异常结束在读完已写内容后抛出
+ */
+class TextStreamTest {
+    
+    @Test
+    void readerBlocksUntilChunkOrCompletion() throws Exception {
+        TextStream stream = new TextStream();
+        CompletableFuture<String> content = CompletableFuture.supplyAsync(stream::readAll);
+        
+        stream.append("你好,");
+        Thread.sleep(50);
+        assertFalse(content.isDone(), "上游未结束时读者应继续等待");
+        
+        stream.append("世界");
+        stream.complete();
+        assertEquals("你好,世界", content.get(2, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    void lateReaderStartsFromBeginning() {
+        TextStream stream = new TextStream();
+        stream.append("第一段");
+        stream.append("");
+        stream.append(null);
+        stream.append("第二段");
+        stream.complete();
+        
+        assertEquals("第一段第二段", stream.readAll());
+        assertEquals("第一段第二段", stream.readAll());
+    }
+    
+    @Test
+    void appendAfterCompleteIsIgnored() {
+        TextStream stream = new TextStream();
+        stream.append("内容");
+        stream.complete();
+        stream.append("多余");
+        stream.fail(new RuntimeException("结束后失败"));
+        stream.complete();
+        
+        assertEquals("内容", stream.readAll());
+    }
+    
+    @Test
+    void failureSurfacesAfterWrittenChunks() {
+        TextStream stream = new TextStream();
+        RuntimeException error = new RuntimeException("LLM 连接断开");
+        stream.append("半句");
+        stream.fail(error);
+        
+        Iterator<String> reader = stream.reader();
+        assertTrue(reader.hasNext());
+        assertEquals("半句", reader.next());
+        IllegalStateException e = assertThrows(IllegalStateException.class, reader::hasNext);
+        assertSame(error, e.getCause());
+    }
+}
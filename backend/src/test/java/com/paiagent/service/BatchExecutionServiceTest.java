@@ -0,0 +1,44 @@
+package com.paiagent.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量执行 NDJSON 输入解析测试: 坏行记为失败项,不截断后续输入
+ */
+class BatchExecutionServiceTest {
+    
+    @Test
+    void badLinesBecomeFailedItemsAndReadingContinues() {
+        String ndjson = """
+                "你好"
+                {"inputData": "第二条"}
+                
+                {"other": 1}
+                {broken
+                纯文本
+                """;
+        
+        Iterator<BatchExecutionService.BatchInput> inputs = new BatchExecutionService()
+                .readNdjson(new BufferedReader(new StringReader(ndjson)));
+        List<BatchExecutionService.BatchInput> items = new ArrayList<>();
+        inputs.forEachRemaining(items::add);
+        
+        assertEquals(5, items.size());
+        assertEquals("你好", items.get(0).inputData());
+        assertEquals("第二条", items.get(1).inputData());
+        assertNull(items.get(2).inputData());
+        assertNotNull(items.get(2).error());
+        assertNull(items.get(3).inputData());
+        assertNotNull(items.get(3).error());
+        assertEquals("纯文本", items.get(4).inputData());
+        assertNull(items.get(4).error());
+    }
+}